@@ -1,10 +1,30 @@
 package io.benreynolds.hottopics.packets;
 
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
 public class AcknowledgementRequestPacket extends Packet {
 
     /** Attempts to store the '{@code AcknowledgementRequestPacket}'s ID (as determined by the {@code PacketIdentifier}). */
     public static final Integer ID = PacketIdentifier.PACKET_IDS.getOrDefault(AcknowledgementRequestPacket.class, null);
 
+    /** {@code PacketAdapter} used by {@code PacketCodec} to encode and decode '{@code AcknowledgementRequestPacket}'s. */
+    static final PacketAdapter<AcknowledgementRequestPacket> ADAPTER = new PacketAdapter<AcknowledgementRequestPacket>() {
+        @Override
+        AcknowledgementRequestPacket newInstance() {
+            return new AcknowledgementRequestPacket();
+        }
+
+        @Override
+        boolean readField(final AcknowledgementRequestPacket packet, final String name, final JsonReader in) {
+            return false;
+        }
+
+        @Override
+        void writeFields(final AcknowledgementRequestPacket packet, final JsonWriter out) {
+        }
+    };
+
     public AcknowledgementRequestPacket() {
         mId = ID;
     }
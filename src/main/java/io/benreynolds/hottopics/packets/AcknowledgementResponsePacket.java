@@ -1,10 +1,30 @@
 package io.benreynolds.hottopics.packets;
 
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
 public class AcknowledgementResponsePacket extends Packet {
 
     /** Attempts to store the '{@code AcknowledgementResponsePacket}'s ID (as determined by the {@code PacketIdentifier}). */
     public static final Integer ID = PacketIdentifier.PACKET_IDS.getOrDefault(AcknowledgementResponsePacket.class, null);
 
+    /** {@code PacketAdapter} used by {@code PacketCodec} to encode and decode '{@code AcknowledgementResponsePacket}'s. */
+    static final PacketAdapter<AcknowledgementResponsePacket> ADAPTER = new PacketAdapter<AcknowledgementResponsePacket>() {
+        @Override
+        AcknowledgementResponsePacket newInstance() {
+            return new AcknowledgementResponsePacket();
+        }
+
+        @Override
+        boolean readField(final AcknowledgementResponsePacket packet, final String name, final JsonReader in) {
+            return false;
+        }
+
+        @Override
+        void writeFields(final AcknowledgementResponsePacket packet, final JsonWriter out) {
+        }
+    };
+
     public AcknowledgementResponsePacket() {
         mId = ID;
     }
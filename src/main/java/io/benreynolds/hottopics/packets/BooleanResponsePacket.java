@@ -1,6 +1,10 @@
 package io.benreynolds.hottopics.packets;
 
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 
 /**
  * {@code BooleanResponsePacket} is a generic boolean response packet implementation used by packets such as
@@ -36,4 +40,26 @@ public abstract class BooleanResponsePacket extends Packet {
         return mId != null;
     }
 
+    /**
+     * {@code PacketAdapter} shared by all {@code BooleanResponsePacket} derivatives, which only differ by ID.
+     * @param <T> {@code BooleanResponsePacket} derivative handled by the {@code Adapter}.
+     */
+    abstract static class Adapter<T extends BooleanResponsePacket> extends PacketAdapter<T> {
+
+        @Override
+        boolean readField(final T packet, final String name, final JsonReader in) throws IOException {
+            if("response".equals(name)) {
+                ((BooleanResponsePacket)packet).mResponse = readBoolean(in);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        void writeFields(final T packet, final JsonWriter out) throws IOException {
+            out.name("response").value(((BooleanResponsePacket)packet).mResponse);
+        }
+
+    }
+
 }
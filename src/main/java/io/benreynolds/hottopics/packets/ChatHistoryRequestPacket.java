@@ -0,0 +1,98 @@
+package io.benreynolds.hottopics.packets;
+
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * {@code ChatHistoryRequestPacket} is sent by client devices within a {@code Chatroom} to request a page of the
+ * messages sent before a given message. History is paged backwards: to page through older messages, clients request
+ * the messages before the oldest message they hold.
+ */
+public class ChatHistoryRequestPacket extends Packet {
+
+    /** Attempts to store the '{@code ChatHistoryRequestPacket}'s ID (as determined by the {@code PacketIdentifier}). */
+    public static final Integer ID = PacketIdentifier.PACKET_IDS.getOrDefault(ChatHistoryRequestPacket.class, null);
+
+    /** {@code PacketAdapter} used by {@code PacketCodec} to encode and decode '{@code ChatHistoryRequestPacket}'s. */
+    static final PacketAdapter<ChatHistoryRequestPacket> ADAPTER = new PacketAdapter<ChatHistoryRequestPacket>() {
+        @Override
+        ChatHistoryRequestPacket newInstance() {
+            return new ChatHistoryRequestPacket(null, null);
+        }
+
+        @Override
+        boolean readField(final ChatHistoryRequestPacket packet, final String name, final JsonReader in) throws IOException {
+            switch(name) {
+                case "before_sequence":
+                    packet.mBeforeSequence = readLong(in);
+                    return true;
+                case "limit":
+                    packet.mLimit = readInteger(in);
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        @Override
+        void writeFields(final ChatHistoryRequestPacket packet, final JsonWriter out) throws IOException {
+            if(packet.mBeforeSequence != null) {
+                out.name("before_sequence").value(packet.mBeforeSequence);
+            }
+            if(packet.mLimit != null) {
+                out.name("limit").value(packet.mLimit);
+            }
+        }
+    };
+
+    /** Sequence number of the message that the requested messages were sent before, {@code null} to request the most
+     * recent messages. */
+    @SerializedName("before_sequence")
+    private Long mBeforeSequence;
+
+    /** Maximum amount of messages to return, {@code null} to use the server's default page size. */
+    @SerializedName("limit")
+    private Integer mLimit;
+
+    /**
+     * @param beforeSequence Sequence number of the message that the requested messages were sent before, {@code null}
+     *                       to request the most recent messages.
+     * @param limit Maximum amount of messages to return, {@code null} to use the server's default page size.
+     */
+    public ChatHistoryRequestPacket(final Long beforeSequence, final Integer limit) {
+        mId = ID;
+        mBeforeSequence = beforeSequence;
+        mLimit = limit;
+    }
+
+    /**
+     * Returns the sequence number of the message that the requested messages were sent before.
+     * @return Sequence number of the message that the requested messages were sent before, {@code null} if the most
+     * recent messages were requested.
+     */
+    public Long getBeforeSequence() {
+        return mBeforeSequence;
+    }
+
+    /**
+     * Returns the maximum amount of messages to return.
+     * @return Maximum amount of messages to return, {@code null} if the server's default page size should be used.
+     */
+    public Integer getLimit() {
+        return mLimit;
+    }
+
+    /**
+     * Returns {@code true} if the {@code ChatHistoryRequestPacket} contains a valid ID, and any sequence number and
+     * limit it contains are valid. Sequence numbers must not be negative and limits must be positive.
+     * @return {@code true} if the {@code ChatHistoryRequestPacket} is valid.
+     */
+    @Override
+    public boolean isValid() {
+        return mId != null && (mBeforeSequence == null || mBeforeSequence >= 0) && (mLimit == null || mLimit > 0);
+    }
+
+}
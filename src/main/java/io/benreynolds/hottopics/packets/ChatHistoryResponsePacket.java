@@ -0,0 +1,113 @@
+package io.benreynolds.hottopics.packets;
+
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code ChatHistoryResponsePacket} is sent to client devices after joining a {@code Chatroom} with the most recent
+ * messages sent within it, and as a response to {@code ChatHistoryRequestPacket}. Messages are ordered oldest first,
+ * an empty page indicates that no older messages are available.
+ */
+public class ChatHistoryResponsePacket extends Packet {
+
+    /** Attempts to store the '{@code ChatHistoryResponsePacket}'s ID (as determined by the {@code PacketIdentifier}). */
+    public static final Integer ID = PacketIdentifier.PACKET_IDS.getOrDefault(ChatHistoryResponsePacket.class, null);
+
+    /** {@code PacketAdapter} used by {@code PacketCodec} to encode and decode '{@code ChatHistoryResponsePacket}'s. */
+    static final PacketAdapter<ChatHistoryResponsePacket> ADAPTER = new PacketAdapter<ChatHistoryResponsePacket>() {
+        @Override
+        ChatHistoryResponsePacket newInstance() {
+            return new ChatHistoryResponsePacket(null, null);
+        }
+
+        @Override
+        boolean readField(final ChatHistoryResponsePacket packet, final String name, final JsonReader in) throws IOException {
+            if("chatroom_name".equals(name)) {
+                packet.mChatroomName = readString(in);
+                return true;
+            }
+            if(!"messages".equals(name)) {
+                return false;
+            }
+
+            if(in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return true;
+            }
+
+            List<ReceiveMessagePacket> messages = new ArrayList<>();
+            in.beginArray();
+            while(in.hasNext()) {
+                messages.add(ReceiveMessagePacket.ADAPTER.read(in));
+            }
+            in.endArray();
+
+            packet.mMessages = messages.toArray(new ReceiveMessagePacket[messages.size()]);
+            return true;
+        }
+
+        @Override
+        void writeFields(final ChatHistoryResponsePacket packet, final JsonWriter out) throws IOException {
+            writeString(out, "chatroom_name", packet.mChatroomName);
+            if(packet.mMessages == null) {
+                return;
+            }
+
+            out.name("messages").beginArray();
+            for(ReceiveMessagePacket message : packet.mMessages) {
+                ReceiveMessagePacket.ADAPTER.write(out, message);
+            }
+            out.endArray();
+        }
+    };
+
+    /** Name of the {@code Chatroom} that the messages were sent within. */
+    @SerializedName("chatroom_name")
+    private String mChatroomName;
+
+    /** Messages, oldest first. */
+    @SerializedName("messages")
+    private ReceiveMessagePacket[] mMessages;
+
+    /**
+     * @param chatroomName Name of the {@code Chatroom} that the messages were sent within.
+     * @param messages Messages, oldest first.
+     */
+    public ChatHistoryResponsePacket(final String chatroomName, final ReceiveMessagePacket[] messages) {
+        mId = ID;
+        mChatroomName = chatroomName;
+        mMessages = messages;
+    }
+
+    /**
+     * Returns the name of the {@code Chatroom} that the messages were sent within.
+     * @return Name of the {@code Chatroom} that the messages were sent within.
+     */
+    public String getChatroomName() {
+        return mChatroomName;
+    }
+
+    /**
+     * Returns the messages, oldest first.
+     * @return Messages, oldest first.
+     */
+    public ReceiveMessagePacket[] getMessages() {
+        return mMessages;
+    }
+
+    /**
+     * Returns {@code true} if the {@code ChatHistoryResponsePacket} contains a valid ID, chatroom name and messages.
+     * @return {@code true} if the {@code ChatHistoryResponsePacket} contains a valid ID, chatroom name and messages.
+     */
+    @Override
+    public boolean isValid() {
+        return mId != null && mChatroomName != null && !mChatroomName.isEmpty() && mMessages != null;
+    }
+
+}
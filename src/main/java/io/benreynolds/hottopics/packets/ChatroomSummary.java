@@ -0,0 +1,45 @@
+package io.benreynolds.hottopics.packets;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * {@code ChatroomSummary} describes a {@code Chatroom} within a room listing (see {@code ChatroomsResponsePacket}). It
+ * only holds the '{@code Chatroom}'s name and amount of users, the messages sent within a {@code Chatroom} are sent to
+ * clients once they join it (see {@code ChatHistoryResponsePacket}).
+ */
+public class ChatroomSummary {
+
+    /** Name of the {@code Chatroom}. */
+    @SerializedName("name")
+    private String mName;
+
+    /** Amount of users in the {@code Chatroom}. */
+    @SerializedName("size")
+    private int mSize;
+
+    /**
+     * @param name Name of the {@code Chatroom}.
+     * @param size Amount of users in the {@code Chatroom}.
+     */
+    public ChatroomSummary(final String name, final int size) {
+        mName = name;
+        mSize = size;
+    }
+
+    /**
+     * Returns the name of the {@code Chatroom}.
+     * @return Name of the {@code Chatroom}.
+     */
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * Returns the amount of users in the {@code Chatroom}.
+     * @return Amount of users in the {@code Chatroom}.
+     */
+    public int getSize() {
+        return mSize;
+    }
+
+}
@@ -8,6 +8,14 @@ public class ChatroomUserCountUpdatePacket extends IntegerResponsePacket {
     /** Attempts to store the '{@code IntegerResponsePacket}'s ID (as determined by the {@code PacketIdentifier}). */
     public static final Integer ID = PacketIdentifier.PACKET_IDS.getOrDefault(ChatroomUserCountUpdatePacket.class, null);
 
+    /** {@code PacketAdapter} used by {@code PacketCodec} to encode and decode '{@code ChatroomUserCountUpdatePacket}'s. */
+    static final PacketAdapter<ChatroomUserCountUpdatePacket> ADAPTER = new IntegerResponsePacket.Adapter<ChatroomUserCountUpdatePacket>() {
+        @Override
+        ChatroomUserCountUpdatePacket newInstance() {
+            return new ChatroomUserCountUpdatePacket(0);
+        }
+    };
+
     /**
      * @param response Server's response.
      */
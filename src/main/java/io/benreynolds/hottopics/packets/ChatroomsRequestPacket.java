@@ -1,5 +1,8 @@
 package io.benreynolds.hottopics.packets;
 
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
 /**
  * {code ChatroomsRequestPacket} sent by client devices when requesting a list of available '{@code Chatroom}'s.
  */
@@ -8,6 +11,23 @@ public class ChatroomsRequestPacket extends Packet {
     /** Attempts to store the '{@code ChatroomsRequestPacket}'s ID (as determined by the {@code PacketIdentifier}). */
     public static final Integer ID = PacketIdentifier.PACKET_IDS.getOrDefault(ChatroomsRequestPacket.class, null);
 
+    /** {@code PacketAdapter} used by {@code PacketCodec} to encode and decode '{@code ChatroomsRequestPacket}'s. */
+    static final PacketAdapter<ChatroomsRequestPacket> ADAPTER = new PacketAdapter<ChatroomsRequestPacket>() {
+        @Override
+        ChatroomsRequestPacket newInstance() {
+            return new ChatroomsRequestPacket();
+        }
+
+        @Override
+        boolean readField(final ChatroomsRequestPacket packet, final String name, final JsonReader in) {
+            return false;
+        }
+
+        @Override
+        void writeFields(final ChatroomsRequestPacket packet, final JsonWriter out) {
+        }
+    };
+
     public ChatroomsRequestPacket() {
         mId = ID;
     }
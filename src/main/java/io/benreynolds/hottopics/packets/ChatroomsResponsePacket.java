@@ -1,29 +1,131 @@
 package io.benreynolds.hottopics.packets;
 
 import com.google.gson.annotations.SerializedName;
-import io.benreynolds.hottopics.server.Chatroom;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * {code ChatroomsResponsePacket} sent to client devices as a response to {@code ChatroomsRequestPacket}.
+ * {code ChatroomsResponsePacket} sent to client devices as a response to {@code ChatroomsRequestPacket}. Each
+ * {@code Chatroom} is listed as a {@code ChatroomSummary}, without its messages.
  */
 public class ChatroomsResponsePacket extends Packet {
 
     /** Attempts to store the '{@code ChatroomsResponsePacket}'s ID (as determined by the {@code PacketIdentifier}). */
     public static final Integer ID = PacketIdentifier.PACKET_IDS.getOrDefault(ChatroomsResponsePacket.class, null);
 
+    /** {@code PacketAdapter} used by {@code PacketCodec} to encode and decode '{@code ChatroomsResponsePacket}'s. */
+    static final PacketAdapter<ChatroomsResponsePacket> ADAPTER = new PacketAdapter<ChatroomsResponsePacket>() {
+        @Override
+        ChatroomsResponsePacket newInstance() {
+            return new ChatroomsResponsePacket(null, 0);
+        }
+
+        @Override
+        boolean readField(final ChatroomsResponsePacket packet, final String name, final JsonReader in) throws IOException {
+            if("version".equals(name)) {
+                packet.mVersion = in.nextLong();
+                return true;
+            }
+            if(!"chatrooms".equals(name)) {
+                return false;
+            }
+
+            if(in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return true;
+            }
+
+            List<ChatroomSummary> chatrooms = new ArrayList<>();
+            in.beginArray();
+            while(in.hasNext()) {
+                chatrooms.add(readChatroom(in));
+            }
+            in.endArray();
+
+            packet.mChatrooms = chatrooms.toArray(new ChatroomSummary[chatrooms.size()]);
+            return true;
+        }
+
+        @Override
+        void writeFields(final ChatroomsResponsePacket packet, final JsonWriter out) throws IOException {
+            out.name("version").value(packet.mVersion);
+            if(packet.mChatrooms == null) {
+                return;
+            }
+
+            out.name("chatrooms").beginArray();
+            for(ChatroomSummary chatroom : packet.mChatrooms) {
+                writeChatroom(out, chatroom);
+            }
+            out.endArray();
+        }
+
+        private ChatroomSummary readChatroom(final JsonReader in) throws IOException {
+            if(in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            String chatroomName = null;
+            int size = 0;
+
+            in.beginObject();
+            while(in.hasNext()) {
+                String name = in.nextName();
+                if("name".equals(name)) {
+                    chatroomName = readString(in);
+                }
+                else if("size".equals(name)) {
+                    size = in.nextInt();
+                }
+                else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+
+            return new ChatroomSummary(chatroomName, size);
+        }
+
+        private void writeChatroom(final JsonWriter out, final ChatroomSummary chatroom) throws IOException {
+            if(chatroom == null) {
+                out.nullValue();
+                return;
+            }
+
+            out.beginObject();
+            writeString(out, "name", chatroom.getName());
+            out.name("size").value(chatroom.getSize());
+            out.endObject();
+        }
+    };
+
     /**
-     * '{@code Chatroom}'s that are available for clients to join.
+     * Summaries of the '{@code Chatroom}'s that are available for clients to join.
      */
     @SerializedName("chatrooms")
-    private Chatroom[] mChatrooms;
+    private ChatroomSummary[] mChatrooms;
 
+    /**
+     * Version of the room list. Subsequent '{@code ChatroomsUpdatePacket}'s with a greater version describe changes
+     * made to this list.
+     */
+    @SerializedName("version")
+    private long mVersion;
 
     /**
-     * @param chatrooms '{@code Chatroom}'s that are available for clients to join.
+     * @param chatrooms Summaries of the '{@code Chatroom}'s that are available for clients to join.
+     * @param version Version of the room list.
      */
-    public ChatroomsResponsePacket(Chatroom[] chatrooms) {
+    public ChatroomsResponsePacket(ChatroomSummary[] chatrooms, long version) {
         mId = ID;
         mChatrooms = chatrooms;
+        mVersion = version;
     }
 
     /**
@@ -35,11 +137,18 @@ public class ChatroomsResponsePacket extends Packet {
         return mId != null && mChatrooms != null && mChatrooms.length != 0;
     }
 
-    /** Returns the '{@code Chatroom}'s that are available for clients to join.
-     * @return '{@code Chatroom}'s that are available for clients to join.
+    /** Returns summaries of the '{@code Chatroom}'s that are available for clients to join.
+     * @return Summaries of the '{@code Chatroom}'s that are available for clients to join.
      */
-    public Chatroom[] getChatrooms() {
+    public ChatroomSummary[] getChatrooms() {
         return mChatrooms;
     }
 
+    /** Returns the version of the room list.
+     * @return Version of the room list.
+     */
+    public long getVersion() {
+        return mVersion;
+    }
+
 }
@@ -0,0 +1,223 @@
+package io.benreynolds.hottopics.packets;
+
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {code ChatroomsUpdatePacket} is sent to client devices viewing the room list when the available '{@code Chatroom}'s
+ * change. Rather than resending the entire list, it only describes the rooms that were added, removed or resized.
+ * Updates are versioned: clients apply an update to the list received in a {@code ChatroomsResponsePacket} only if
+ * the update's version is greater than the version of that list, and ignore it otherwise.
+ */
+public class ChatroomsUpdatePacket extends Packet {
+
+    /** Attempts to store the '{@code ChatroomsUpdatePacket}'s ID (as determined by the {@code PacketIdentifier}). */
+    public static final Integer ID = PacketIdentifier.PACKET_IDS.getOrDefault(ChatroomsUpdatePacket.class, null);
+
+    /** {@code PacketAdapter} used by {@code PacketCodec} to encode and decode '{@code ChatroomsUpdatePacket}'s. */
+    static final PacketAdapter<ChatroomsUpdatePacket> ADAPTER = new PacketAdapter<ChatroomsUpdatePacket>() {
+        @Override
+        ChatroomsUpdatePacket newInstance() {
+            return new ChatroomsUpdatePacket(0, null);
+        }
+
+        @Override
+        boolean readField(final ChatroomsUpdatePacket packet, final String name, final JsonReader in) throws IOException {
+            switch(name) {
+                case "version":
+                    packet.mVersion = in.nextLong();
+                    return true;
+                case "changes":
+                    if(in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                        return true;
+                    }
+
+                    List<Change> changes = new ArrayList<>();
+                    in.beginArray();
+                    while(in.hasNext()) {
+                        changes.add(readChange(in));
+                    }
+                    in.endArray();
+
+                    packet.mChanges = changes.toArray(new Change[changes.size()]);
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        @Override
+        void writeFields(final ChatroomsUpdatePacket packet, final JsonWriter out) throws IOException {
+            out.name("version").value(packet.mVersion);
+            if(packet.mChanges == null) {
+                return;
+            }
+
+            out.name("changes").beginArray();
+            for(Change change : packet.mChanges) {
+                out.beginObject();
+                if(change.mType != null) {
+                    out.name("type").value(change.mType.name());
+                }
+                writeString(out, "name", change.mName);
+                out.name("size").value(change.mSize);
+                out.endObject();
+            }
+            out.endArray();
+        }
+
+        private Change readChange(final JsonReader in) throws IOException {
+            Change change = new Change(null, null, 0);
+            in.beginObject();
+            while(in.hasNext()) {
+                switch(in.nextName()) {
+                    case "type":
+                        change.mType = readType(readString(in));
+                        break;
+                    case "name":
+                        change.mName = readString(in);
+                        break;
+                    case "size":
+                        change.mSize = in.nextInt();
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return change;
+        }
+
+        /**
+         * Returns the {@code Change.Type} with the specified name, mapping unknown names to {@code null} as
+         * {@code Gson} does rather than throwing.
+         */
+        private Change.Type readType(final String name) {
+            for(Change.Type type : Change.Type.values()) {
+                if(type.name().equals(name)) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    };
+
+    /** Version of the room list once the changes have been applied. */
+    @SerializedName("version")
+    private long mVersion;
+
+    /** Changes made to the room list. */
+    @SerializedName("changes")
+    private Change[] mChanges;
+
+    /**
+     * @param version Version of the room list once the changes have been applied.
+     * @param changes Changes made to the room list.
+     */
+    public ChatroomsUpdatePacket(final long version, final Change[] changes) {
+        mId = ID;
+        mVersion = version;
+        mChanges = changes;
+    }
+
+    /**
+     * Returns {@code true} if the {@code ChatroomsUpdatePacket} contains a valid ID and at least one change.
+     * @return {@code true} if the {@code ChatroomsUpdatePacket} contains a valid ID and at least one change.
+     */
+    @Override
+    public boolean isValid() {
+        return mId != null && mChanges != null && mChanges.length != 0;
+    }
+
+    /**
+     * Returns the version of the room list once the changes have been applied.
+     * @return Version of the room list once the changes have been applied.
+     */
+    public long getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Returns the changes made to the room list.
+     * @return Changes made to the room list.
+     */
+    public Change[] getChanges() {
+        return mChanges;
+    }
+
+    /**
+     * {@code Change} describes a single change made to the room list. Changes carry absolute values and can safely be
+     * applied more than once.
+     */
+    public static class Change {
+
+        /** Types of change that can be made to the room list. */
+        public enum Type { ADDED, REMOVED, RESIZED }
+
+        /** Type of the change. */
+        @SerializedName("type")
+        private Type mType;
+
+        /** Name of the {@code Chatroom} that changed. */
+        @SerializedName("name")
+        private String mName;
+
+        /** Amount of users in the {@code Chatroom} after the change. */
+        @SerializedName("size")
+        private int mSize;
+
+        private Change(final Type type, final String name, final int size) {
+            mType = type;
+            mName = name;
+            mSize = size;
+        }
+
+        /**
+         * @param name Name of the {@code Chatroom} that was added.
+         * @param size Amount of users in the {@code Chatroom}.
+         * @return {@code Change} describing a {@code Chatroom} being added to the room list.
+         */
+        public static Change added(final String name, final int size) {
+            return new Change(Type.ADDED, name, size);
+        }
+
+        /**
+         * @param name Name of the {@code Chatroom} that was removed.
+         * @return {@code Change} describing a {@code Chatroom} being removed from the room list.
+         */
+        public static Change removed(final String name) {
+            return new Change(Type.REMOVED, name, 0);
+        }
+
+        /**
+         * @param name Name of the {@code Chatroom} that was resized.
+         * @param size Amount of users in the {@code Chatroom}.
+         * @return {@code Change} describing a change in the amount of users within a {@code Chatroom}.
+         */
+        public static Change resized(final String name, final int size) {
+            return new Change(Type.RESIZED, name, size);
+        }
+
+        public Type getType() {
+            return mType;
+        }
+
+        public String getName() {
+            return mName;
+        }
+
+        public int getSize() {
+            return mSize;
+        }
+
+    }
+
+}
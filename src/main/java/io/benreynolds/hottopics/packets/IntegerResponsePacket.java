@@ -1,6 +1,10 @@
 package io.benreynolds.hottopics.packets;
 
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 
 /**
  * {@code IntegerResponsePacket} is a generic integer response packet implementation used by packets such as
@@ -36,4 +40,27 @@ public abstract class IntegerResponsePacket extends Packet {
         return mId != null;
     }
 
+    /**
+     * {@code PacketAdapter} shared by all {@code IntegerResponsePacket} derivatives, which only differ by ID.
+     * @param <T> {@code IntegerResponsePacket} derivative handled by the {@code Adapter}.
+     */
+    abstract static class Adapter<T extends IntegerResponsePacket> extends PacketAdapter<T> {
+
+        @Override
+        boolean readField(final T packet, final String name, final JsonReader in) throws IOException {
+            if("response".equals(name)) {
+                Integer response = readInteger(in);
+                ((IntegerResponsePacket)packet).mResponse = response != null ? response : 0;
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        void writeFields(final T packet, final JsonWriter out) throws IOException {
+            out.name("response").value(((IntegerResponsePacket)packet).mResponse);
+        }
+
+    }
+
 }
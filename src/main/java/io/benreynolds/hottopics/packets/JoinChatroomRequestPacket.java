@@ -1,6 +1,10 @@
 package io.benreynolds.hottopics.packets;
 
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 
 /**
  * {code ChatroomsRequestPacket} sent by client devices when attempting to join a {@code Chatroom}.
@@ -11,6 +15,28 @@ public class JoinChatroomRequestPacket extends Packet {
     public static final Integer ID = PacketIdentifier.PACKET_IDS.getOrDefault(JoinChatroomRequestPacket.class,
             null);
 
+    /** {@code PacketAdapter} used by {@code PacketCodec} to encode and decode '{@code JoinChatroomRequestPacket}'s. */
+    static final PacketAdapter<JoinChatroomRequestPacket> ADAPTER = new PacketAdapter<JoinChatroomRequestPacket>() {
+        @Override
+        JoinChatroomRequestPacket newInstance() {
+            return new JoinChatroomRequestPacket(null);
+        }
+
+        @Override
+        boolean readField(final JoinChatroomRequestPacket packet, final String name, final JsonReader in) throws IOException {
+            if("chatroom_name".equals(name)) {
+                packet.mChatroomName = readString(in);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        void writeFields(final JoinChatroomRequestPacket packet, final JsonWriter out) throws IOException {
+            writeString(out, "chatroom_name", packet.mChatroomName);
+        }
+    };
+
     /** Name of the {@code Chatroom} to join. */
     @SerializedName("chatroom_name")
     private String mChatroomName;
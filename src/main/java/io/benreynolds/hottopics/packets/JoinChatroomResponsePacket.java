@@ -8,6 +8,14 @@ public class JoinChatroomResponsePacket extends BooleanResponsePacket {
     /** Attempts to store the '{@code JoinChatroomResponsePacket}'s ID (as determined by the {@code PacketIdentifier}). */
     public static final Integer ID = PacketIdentifier.PACKET_IDS.getOrDefault(JoinChatroomResponsePacket.class, null);
 
+    /** {@code PacketAdapter} used by {@code PacketCodec} to encode and decode '{@code JoinChatroomResponsePacket}'s. */
+    static final PacketAdapter<JoinChatroomResponsePacket> ADAPTER = new BooleanResponsePacket.Adapter<JoinChatroomResponsePacket>() {
+        @Override
+        JoinChatroomResponsePacket newInstance() {
+            return new JoinChatroomResponsePacket(false);
+        }
+    };
+
     /**
      * @param response Server's response.
      */
@@ -1,5 +1,8 @@
 package io.benreynolds.hottopics.packets;
 
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
 /**
  * {code LeaveChatroomRequestPacket} sent by client devices when attempting to leave a {@code Chatroom}.
  */
@@ -9,6 +12,23 @@ public class LeaveChatroomRequestPacket extends Packet {
     public static final Integer ID = PacketIdentifier.PACKET_IDS.getOrDefault(LeaveChatroomRequestPacket.class,
             null);
 
+    /** {@code PacketAdapter} used by {@code PacketCodec} to encode and decode '{@code LeaveChatroomRequestPacket}'s. */
+    static final PacketAdapter<LeaveChatroomRequestPacket> ADAPTER = new PacketAdapter<LeaveChatroomRequestPacket>() {
+        @Override
+        LeaveChatroomRequestPacket newInstance() {
+            return new LeaveChatroomRequestPacket();
+        }
+
+        @Override
+        boolean readField(final LeaveChatroomRequestPacket packet, final String name, final JsonReader in) {
+            return false;
+        }
+
+        @Override
+        void writeFields(final LeaveChatroomRequestPacket packet, final JsonWriter out) {
+        }
+    };
+
     public LeaveChatroomRequestPacket() {
         mId = ID;
     }
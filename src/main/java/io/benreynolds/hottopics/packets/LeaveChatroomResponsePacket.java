@@ -8,6 +8,14 @@ public class LeaveChatroomResponsePacket extends BooleanResponsePacket {
     /** Attempts to store the '{@code LeaveChatroomResponsePacket}'s ID (as determined by the {@code PacketIdentifier}). */
     public static final Integer ID = PacketIdentifier.PACKET_IDS.getOrDefault(LeaveChatroomResponsePacket.class, null);
 
+    /** {@code PacketAdapter} used by {@code PacketCodec} to encode and decode '{@code LeaveChatroomResponsePacket}'s. */
+    static final PacketAdapter<LeaveChatroomResponsePacket> ADAPTER = new BooleanResponsePacket.Adapter<LeaveChatroomResponsePacket>() {
+        @Override
+        LeaveChatroomResponsePacket newInstance() {
+            return new LeaveChatroomResponsePacket(false);
+        }
+    };
+
     /**
      * @param response Server's response.
      */
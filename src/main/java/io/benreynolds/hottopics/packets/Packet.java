@@ -1,12 +1,12 @@
 package io.benreynolds.hottopics.packets;
 
-import com.google.gson.Gson;
 import com.google.gson.annotations.SerializedName;
 
 /**
  * {@code Packet} is the base class extended by all of the Hot Topics {@code Packet} classes ({@code SendMessagePacket},
  * {@code ReceiveMessagePacket}) that are used for WebSocket communications. {@code Packet} classes are intended to be
- * serialized and deserialized by the client and server applications using Google's Gson library.
+ * serialized and deserialized by the client and server applications using Google's Gson library (see
+ * {@code PacketCodec}).
  */
 public abstract class Packet {
 
@@ -36,6 +36,6 @@ public abstract class Packet {
      */
     @Override
     public String toString() {
-        return new Gson().toJson(this);
+        return PacketCodec.encode(this);
     }
 }
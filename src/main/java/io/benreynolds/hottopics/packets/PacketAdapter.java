@@ -0,0 +1,212 @@
+package io.benreynolds.hottopics.packets;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * {@code PacketAdapter} is the base class of the hand-written, reflection-free '{@code TypeAdapter}'s used by
+ * {@code PacketCodec} to stream {@code Packet} derivatives to and from JSON. Derivatives only describe how to create
+ * an empty instance of their {@code Packet} and how to read and write its fields, {@code PacketAdapter} handles the
+ * enclosing JSON object and the {@code Packet}'s ID.
+ * @param <T> {@code Packet} derivative handled by the {@code PacketAdapter}.
+ */
+abstract class PacketAdapter<T extends Packet> extends TypeAdapter<T> {
+
+    /** Name of the JSON field that holds a '{@code Packet}'s ID (see {@code Packet}). */
+    static final String ID_FIELD = "id";
+
+    /**
+     * Returns a new instance of the {@code Packet} with all of its fields set to their default values.
+     * @return New instance of the {@code Packet}.
+     */
+    abstract T newInstance();
+
+    /**
+     * Reads the value of the named field from {@code in} into the {@code Packet}.
+     * @param packet {@code Packet} being read.
+     * @param name Name of the field.
+     * @param in {@code JsonReader} positioned at the field's value.
+     * @return {@code true} if the field is known to the {@code Packet} and its value was consumed.
+     * @throws IOException If the field's value could not be read.
+     */
+    abstract boolean readField(T packet, String name, JsonReader in) throws IOException;
+
+    /**
+     * Writes all of the '{@code Packet}'s fields (excluding its ID) to {@code out}.
+     * @param packet {@code Packet} being written.
+     * @param out {@code JsonWriter} positioned within the '{@code Packet}'s JSON object.
+     * @throws IOException If the fields could not be written.
+     */
+    abstract void writeFields(T packet, JsonWriter out) throws IOException;
+
+    @Override
+    public final void write(final JsonWriter out, final T packet) throws IOException {
+        if(packet == null) {
+            out.nullValue();
+            return;
+        }
+
+        out.beginObject();
+        if(packet.mId != null) {
+            out.name(ID_FIELD).value(packet.mId);
+        }
+        writeFields(packet, out);
+        out.endObject();
+    }
+
+    @Override
+    public final T read(final JsonReader in) throws IOException {
+        if(in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        T packet = newInstance();
+        // Only IDs present within the JSON are considered when validating the Packet.
+        packet.mId = null;
+
+        in.beginObject();
+        readFields(packet, in);
+        in.endObject();
+
+        return packet;
+    }
+
+    /**
+     * Reads the remaining fields of the current JSON object from {@code in} into the {@code Packet}. Unknown fields are
+     * skipped.
+     * @param packet {@code Packet} being read.
+     * @param in {@code JsonReader} positioned within a JSON object.
+     * @throws IOException If a field could not be read.
+     */
+    final void readFields(final T packet, final JsonReader in) throws IOException {
+        while(in.hasNext()) {
+            String name = in.nextName();
+            if(ID_FIELD.equals(name)) {
+                packet.mId = readInteger(in);
+            }
+            else if(!readField(packet, name, in)) {
+                in.skipValue();
+            }
+        }
+    }
+
+    /**
+     * Copies the next value (including any nested arrays and objects) from {@code in} to {@code out} token by token.
+     * @param in {@code JsonReader} positioned at the value.
+     * @param out {@code JsonWriter} to copy the value to.
+     * @throws IOException If the value could not be copied.
+     */
+    static void copyValue(final JsonReader in, final JsonWriter out) throws IOException {
+        switch(in.peek()) {
+            case BEGIN_ARRAY:
+                in.beginArray();
+                out.beginArray();
+                while(in.hasNext()) {
+                    copyValue(in, out);
+                }
+                in.endArray();
+                out.endArray();
+                break;
+            case BEGIN_OBJECT:
+                in.beginObject();
+                out.beginObject();
+                while(in.hasNext()) {
+                    out.name(in.nextName());
+                    copyValue(in, out);
+                }
+                in.endObject();
+                out.endObject();
+                break;
+            case STRING:
+                out.value(in.nextString());
+                break;
+            case NUMBER:
+                out.jsonValue(in.nextString());
+                break;
+            case BOOLEAN:
+                out.value(in.nextBoolean());
+                break;
+            case NULL:
+                in.nextNull();
+                out.nullValue();
+                break;
+            default:
+                throw new IllegalStateException(String.format("Unexpected token: %s.", in.peek()));
+        }
+    }
+
+    /**
+     * Reads a nullable {@code String} value from {@code in}.
+     * @param in {@code JsonReader} positioned at the value.
+     * @return {@code String} value, or {@code null} if the value was a JSON null.
+     * @throws IOException If the value could not be read.
+     */
+    static String readString(final JsonReader in) throws IOException {
+        if(in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    /**
+     * Reads a nullable {@code Integer} value from {@code in}.
+     * @param in {@code JsonReader} positioned at the value.
+     * @return {@code Integer} value, or {@code null} if the value was a JSON null.
+     * @throws IOException If the value could not be read.
+     */
+    static Integer readInteger(final JsonReader in) throws IOException {
+        if(in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextInt();
+    }
+
+    /**
+     * Reads a nullable {@code Long} value from {@code in}.
+     * @param in {@code JsonReader} positioned at the value.
+     * @return {@code Long} value, or {@code null} if the value was a JSON null.
+     * @throws IOException If the value could not be read.
+     */
+    static Long readLong(final JsonReader in) throws IOException {
+        if(in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextLong();
+    }
+
+    /**
+     * Reads a {@code boolean} value from {@code in}, JSON nulls are read as {@code false}.
+     * @param in {@code JsonReader} positioned at the value.
+     * @return {@code boolean} value.
+     * @throws IOException If the value could not be read.
+     */
+    static boolean readBoolean(final JsonReader in) throws IOException {
+        if(in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return false;
+        }
+        return in.nextBoolean();
+    }
+
+    /**
+     * Writes a named {@code String} value to {@code out}. {@code null} values are omitted.
+     * @param out {@code JsonWriter} to write to.
+     * @param name Name of the field.
+     * @param value Value of the field.
+     * @throws IOException If the value could not be written.
+     */
+    static void writeString(final JsonWriter out, final String name, final String value) throws IOException {
+        if(value != null) {
+            out.name(name).value(value);
+        }
+    }
+
+}
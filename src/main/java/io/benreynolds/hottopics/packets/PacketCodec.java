@@ -0,0 +1,216 @@
+package io.benreynolds.hottopics.packets;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@code PacketCodec} serializes and deserializes '{@code Packet}'s using a shared, thread-safe set of hand-written
+ * '{@code PacketAdapter}'s. Unlike constructing a new {@code Gson} instance per call, the codec performs no reflection
+ * and streams directly between JSON text and {@code Packet} instances using {@code JsonReader} and {@code JsonWriter}.
+ */
+public final class PacketCodec {
+
+    /** Initial capacity of the buffer '{@code Packet}'s are encoded into. */
+    private static final int INITIAL_BUFFER_SIZE = 128;
+
+    /** Maps {@code Packet} derivatives to the {@code PacketAdapter} used to encode and decode them. */
+    private static final Map<Class<? extends Packet>, PacketAdapter<? extends Packet>> ADAPTERS;
+
+    static {
+        Map<Class<? extends Packet>, PacketAdapter<? extends Packet>> adapters = new HashMap<>();
+        adapters.put(SendMessagePacket.class, SendMessagePacket.ADAPTER);
+        adapters.put(ReceiveMessagePacket.class, ReceiveMessagePacket.ADAPTER);
+        adapters.put(UsernameRequestPacket.class, UsernameRequestPacket.ADAPTER);
+        adapters.put(UsernameResponsePacket.class, UsernameResponsePacket.ADAPTER);
+        adapters.put(ChatroomsRequestPacket.class, ChatroomsRequestPacket.ADAPTER);
+        adapters.put(ChatroomsResponsePacket.class, ChatroomsResponsePacket.ADAPTER);
+        adapters.put(JoinChatroomRequestPacket.class, JoinChatroomRequestPacket.ADAPTER);
+        adapters.put(JoinChatroomResponsePacket.class, JoinChatroomResponsePacket.ADAPTER);
+        adapters.put(LeaveChatroomRequestPacket.class, LeaveChatroomRequestPacket.ADAPTER);
+        adapters.put(LeaveChatroomResponsePacket.class, LeaveChatroomResponsePacket.ADAPTER);
+        adapters.put(ChatroomUserCountUpdatePacket.class, ChatroomUserCountUpdatePacket.ADAPTER);
+        adapters.put(AcknowledgementRequestPacket.class, AcknowledgementRequestPacket.ADAPTER);
+        adapters.put(AcknowledgementResponsePacket.class, AcknowledgementResponsePacket.ADAPTER);
+        adapters.put(ChatroomsUpdatePacket.class, ChatroomsUpdatePacket.ADAPTER);
+        adapters.put(ChatHistoryRequestPacket.class, ChatHistoryRequestPacket.ADAPTER);
+        adapters.put(ChatHistoryResponsePacket.class, ChatHistoryResponsePacket.ADAPTER);
+        adapters.put(ResumeSessionRequestPacket.class, ResumeSessionRequestPacket.ADAPTER);
+        adapters.put(ResumeSessionResponsePacket.class, ResumeSessionResponsePacket.ADAPTER);
+        adapters.put(UnidentifiedPacket.class, UnidentifiedPacket.ADAPTER);
+
+        // Every known Packet derivative must be supported by the codec.
+        for(Class<? extends Packet> packetType : PacketIdentifier.PACKETS) {
+            if(!adapters.containsKey(packetType)) {
+                throw new IllegalStateException(String.format("No adapter has been registered for \"%s\".", packetType.getSimpleName()));
+            }
+        }
+
+        ADAPTERS = Collections.unmodifiableMap(adapters);
+    }
+
+    private PacketCodec() {
+    }
+
+    /**
+     * Returns the JSON representation of a {@code Packet}.
+     * @param packet {@code Packet} to encode.
+     * @return JSON representation of the {@code Packet}.
+     */
+    public static String encode(final Packet packet) {
+        StringWriter stringWriter = new StringWriter(INITIAL_BUFFER_SIZE);
+        JsonWriter out = new JsonWriter(stringWriter);
+        out.setSerializeNulls(false);
+        out.setHtmlSafe(true);
+        try {
+            write(out, packet);
+        } catch (IOException exception) {
+            // StringWriter does not throw IOExceptions.
+            throw new IllegalStateException(exception);
+        }
+        return stringWriter.toString();
+    }
+
+    /**
+     * Attempts to decode JSON into a {@code Packet} of the specified type. The validity of the resulting
+     * {@code Packet} is not checked.
+     * @param json JSON representation of the {@code Packet}.
+     * @param packetType Type of {@code Packet} to decode.
+     * @param <T> Type of {@code Packet} to decode.
+     * @return Decoded {@code Packet}, or {@code null} if the JSON could not be decoded into the specified type.
+     */
+    public static <T extends Packet> T decode(final String json, final Class<T> packetType) {
+        if(json == null) {
+            return null;
+        }
+
+        try {
+            JsonReader in = new JsonReader(new StringReader(json));
+            T packet = getAdapter(packetType).read(in);
+            return isFullyConsumed(in) ? packet : null;
+        } catch (IOException | IllegalStateException | NumberFormatException | JsonParseException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Attempts to decode JSON into a {@code Packet}, using the JSON's {@code id} field to determine the type of the
+     * {@code Packet}. The JSON is read in a single pass: once the ID has been read, the remainder of the object is
+     * streamed directly into the identified {@code Packet}. Fields that appear before the ID are copied token by token
+     * into a small buffer and replayed once the type is known. The validity of the resulting {@code Packet} is not
+     * checked.
+     * @param json JSON representation of the {@code Packet}.
+     * @return Decoded {@code Packet}, or {@code null} if the JSON is malformed, lacks an ID or contains an unknown ID.
+     */
+    public static Packet decode(final String json) {
+        if(json == null) {
+            return null;
+        }
+
+        try {
+            JsonReader in = new JsonReader(new StringReader(json));
+            in.beginObject();
+
+            // Fields that precede the ID, re-encoded as a JSON object.
+            StringWriter precedingFields = null;
+            JsonWriter precedingFieldsWriter = null;
+
+            while(in.hasNext()) {
+                String name = in.nextName();
+                if(PacketAdapter.ID_FIELD.equals(name)) {
+                    Integer id = PacketAdapter.readInteger(in);
+                    Class<? extends Packet> packetType = id != null ? PacketIdentifier.getType(id) : null;
+                    if(packetType == null) {
+                        return null;
+                    }
+
+                    if(precedingFieldsWriter != null) {
+                        precedingFieldsWriter.endObject();
+                    }
+                    return decodeRemainder(getAdapter(packetType), id, precedingFields, in);
+                }
+
+                if(precedingFieldsWriter == null) {
+                    precedingFields = new StringWriter(INITIAL_BUFFER_SIZE);
+                    precedingFieldsWriter = new JsonWriter(precedingFields);
+                    precedingFieldsWriter.beginObject();
+                }
+                precedingFieldsWriter.name(name);
+                PacketAdapter.copyValue(in, precedingFieldsWriter);
+            }
+
+            // The object did not contain an ID.
+            return null;
+        } catch (IOException | IllegalStateException | NumberFormatException | JsonParseException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Decodes the remainder of a JSON object into a {@code Packet} once its ID has been read.
+     * @param adapter {@code PacketAdapter} of the identified {@code Packet} type.
+     * @param id ID read from the JSON.
+     * @param precedingFields Fields that preceded the ID as a JSON object, or {@code null} if there were none.
+     * @param in {@code JsonReader} positioned after the ID.
+     * @param <T> Identified {@code Packet} type.
+     * @return Decoded {@code Packet}.
+     * @throws IOException If the JSON could not be read.
+     */
+    private static <T extends Packet> T decodeRemainder(final PacketAdapter<T> adapter, final Integer id,
+                                                        final StringWriter precedingFields, final JsonReader in) throws IOException {
+        T packet = adapter.newInstance();
+        packet.mId = id;
+
+        if(precedingFields != null) {
+            JsonReader precedingFieldsReader = new JsonReader(new StringReader(precedingFields.toString()));
+            precedingFieldsReader.beginObject();
+            adapter.readFields(packet, precedingFieldsReader);
+            precedingFieldsReader.endObject();
+        }
+
+        adapter.readFields(packet, in);
+        in.endObject();
+
+        return isFullyConsumed(in) ? packet : null;
+    }
+
+    /**
+     * Returns {@code true} if {@code in} has no content remaining after the value that has been read.
+     * @param in {@code JsonReader} to check.
+     * @return {@code true} if {@code in} has no content remaining after the value that has been read.
+     * @throws IOException If the remaining content could not be read.
+     */
+    private static boolean isFullyConsumed(final JsonReader in) throws IOException {
+        return in.peek() == JsonToken.END_DOCUMENT;
+    }
+
+    /**
+     * Returns the {@code PacketAdapter} registered for the specified {@code Packet} type.
+     * @param packetType {@code Packet} type.
+     * @param <T> {@code Packet} type.
+     * @return {@code PacketAdapter} registered for the specified {@code Packet} type.
+     * @throws IllegalArgumentException If no {@code PacketAdapter} has been registered for the type.
+     */
+    @SuppressWarnings("unchecked")
+    static <T extends Packet> PacketAdapter<T> getAdapter(final Class<T> packetType) {
+        PacketAdapter<T> adapter = (PacketAdapter<T>)ADAPTERS.get(packetType);
+        if(adapter == null) {
+            throw new IllegalArgumentException(String.format("\"%s\" is not supported by the codec.", packetType.getSimpleName()));
+        }
+        return adapter;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Packet> void write(final JsonWriter out, final T packet) throws IOException {
+        getAdapter((Class<T>)packet.getClass()).write(out, packet);
+    }
+
+}
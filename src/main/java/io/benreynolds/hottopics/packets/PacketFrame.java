@@ -0,0 +1,40 @@
+package io.benreynolds.hottopics.packets;
+
+/**
+ * {@code PacketFrame} holds the immutable, serialized (JSON) representation of a {@code Packet}. Encoding a
+ * {@code Packet} into a {@code PacketFrame} once allows the same payload to be sent to any number of clients without
+ * serializing the {@code Packet} again for each recipient.
+ */
+public final class PacketFrame {
+
+    /** Unique ID of the encoded {@code Packet}. */
+    private final Integer mId;
+
+    /** JSON representation of the encoded {@code Packet}. */
+    private final String mText;
+
+    /**
+     * @param packet {@code Packet} to encode.
+     */
+    public PacketFrame(final Packet packet) {
+        mId = packet.getId();
+        mText = packet.toString();
+    }
+
+    /**
+     * Returns the unique ID of the encoded {@code Packet}.
+     * @return Unique ID of the encoded {@code Packet}.
+     */
+    public Integer getId() {
+        return mId;
+    }
+
+    /**
+     * Returns the JSON representation of the encoded {@code Packet}.
+     * @return JSON representation of the encoded {@code Packet}.
+     */
+    public String getText() {
+        return mText;
+    }
+
+}
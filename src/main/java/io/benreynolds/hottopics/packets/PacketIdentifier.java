@@ -1,8 +1,5 @@
 package io.benreynolds.hottopics.packets;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonSyntaxException;
-
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -19,7 +16,7 @@ public class PacketIdentifier {
     final static Map<Class<? extends Packet>, Integer> PACKET_IDS = new HashMap<>();
 
     /** Contains all known and supported {@code Packet} derivatives. */
-    private static final List<Class<? extends Packet>> PACKETS = Arrays.asList(
+    static final List<Class<? extends Packet>> PACKETS = Arrays.asList(
         SendMessagePacket.class,
         ReceiveMessagePacket.class,
         UsernameRequestPacket.class,
@@ -32,9 +29,17 @@ public class PacketIdentifier {
         LeaveChatroomResponsePacket.class,
         ChatroomUserCountUpdatePacket.class,
         AcknowledgementRequestPacket.class,
-        AcknowledgementResponsePacket.class
+        AcknowledgementResponsePacket.class,
+        ChatroomsUpdatePacket.class,
+        ChatHistoryRequestPacket.class,
+        ChatHistoryResponsePacket.class,
+        ResumeSessionRequestPacket.class,
+        ResumeSessionResponsePacket.class
     );
 
+    /** Contains all known and supported {@code Packet} derivatives, indexed by their ID. */
+    private static final Class<?>[] PACKET_TYPES = PACKETS.toArray(new Class<?>[PACKETS.size()]);
+
     /** Current ID value. */
     private static int mId;
 
@@ -45,14 +50,35 @@ public class PacketIdentifier {
         }
     }
 
+    /**
+     * Returns the ID that has been assigned to the specified {@code Packet} derivative.
+     * @param packetType {@code Packet} derivative.
+     * @return ID that has been assigned to the {@code Packet} derivative, or {@code null} if it is unknown.
+     */
+    public static Integer getId(final Class<? extends Packet> packetType) {
+        return PACKET_IDS.get(packetType);
+    }
+
+    /**
+     * Returns the amount of known {@code Packet} derivatives. IDs range from zero up to (but excluding) this value.
+     * @return Amount of known {@code Packet} derivatives.
+     */
+    public static int getPacketCount() {
+        return PACKET_TYPES.length;
+    }
+
+    /**
+     * Returns the {@code Packet} derivative that has been assigned the specified ID.
+     * @param id ID of the {@code Packet} derivative.
+     * @return {@code Packet} derivative that has been assigned the specified ID, or {@code null} if the ID is unknown.
+     */
+    @SuppressWarnings("unchecked")
+    public static Class<? extends Packet> getType(final int id) {
+        return id >= 0 && id < PACKET_TYPES.length ? (Class<? extends Packet>)PACKET_TYPES[id] : null;
+    }
+
     public static <T extends Packet> T convertToPacket(final String string, Class<T> packetType) {
-        T packet;
-        try {
-            packet = new Gson().fromJson(string, packetType);
-        }
-        catch(JsonSyntaxException exception) {
-            return null;
-        }
+        T packet = PacketCodec.decode(string, packetType);
         return packet != null && packet.isValid() ? packet : null;
     }
 
@@ -1,9 +1,15 @@
 package io.benreynolds.hottopics.packets;
 
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 
 /**
  * {@code ReceiveMessagePacket} is sent by the server to client devices when a new message is ready to be received.
+ * Messages sent within a {@code Chatroom} are numbered consecutively, clients can use the sequence number of the oldest
+ * message they hold to request older messages (see {@code ChatHistoryRequestPacket}) and to detect missed messages.
  */
 public class ReceiveMessagePacket extends Packet {
 
@@ -11,6 +17,40 @@ public class ReceiveMessagePacket extends Packet {
     public static final Integer ID = PacketIdentifier.PACKET_IDS.getOrDefault(ReceiveMessagePacket.class,
             null);
 
+    /** {@code PacketAdapter} used by {@code PacketCodec} to encode and decode '{@code ReceiveMessagePacket}'s. */
+    static final PacketAdapter<ReceiveMessagePacket> ADAPTER = new PacketAdapter<ReceiveMessagePacket>() {
+        @Override
+        ReceiveMessagePacket newInstance() {
+            return new ReceiveMessagePacket(null, null);
+        }
+
+        @Override
+        boolean readField(final ReceiveMessagePacket packet, final String name, final JsonReader in) throws IOException {
+            switch(name) {
+                case "author":
+                    packet.mAuthor = readString(in);
+                    return true;
+                case "message":
+                    packet.mMessage = readString(in);
+                    return true;
+                case "sequence":
+                    packet.mSequence = readLong(in);
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        @Override
+        void writeFields(final ReceiveMessagePacket packet, final JsonWriter out) throws IOException {
+            writeString(out, "author", packet.mAuthor);
+            writeString(out, "message", packet.mMessage);
+            if(packet.mSequence != null) {
+                out.name("sequence").value(packet.mSequence);
+            }
+        }
+    };
+
     /** Client's name. */
     @SerializedName("author")
     private String mAuthor;
@@ -19,14 +59,28 @@ public class ReceiveMessagePacket extends Packet {
     @SerializedName("message")
     private String mMessage;
 
+    /** Sequence number of the message within its {@code Chatroom}. */
+    @SerializedName("sequence")
+    private Long mSequence;
+
     /**
      * @param author Client's name.
      * @param message Client's message.
      */
     public ReceiveMessagePacket(final String author, final String message) {
+        this(author, message, null);
+    }
+
+    /**
+     * @param author Client's name.
+     * @param message Client's message.
+     * @param sequence Sequence number of the message within its {@code Chatroom}.
+     */
+    public ReceiveMessagePacket(final String author, final String message, final Long sequence) {
         mId = ID;
         mAuthor = author;
         mMessage = message;
+        mSequence = sequence;
     }
 
     /**
@@ -45,6 +99,14 @@ public class ReceiveMessagePacket extends Packet {
         return mMessage;
     }
 
+    /**
+     * Returns the sequence number of the message within its {@code Chatroom}.
+     * @return Sequence number of the message, or {@code null} if it has not been numbered.
+     */
+    public Long getSequence() {
+        return mSequence;
+    }
+
     /**
      * Returns {@code true} if the {@code ReceiveMessagePacket} contains a valid ID, author and message. Messages and
      * authors are considered valid if they are non-null and not empty.
@@ -0,0 +1,95 @@
+package io.benreynolds.hottopics.packets;
+
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * {@code ResumeSessionRequestPacket} is sent by client devices that have reconnected, in place of a
+ * {@code UsernameRequestPacket}, to resume the session identified by the resume token they were issued. The client's
+ * username and chatroom are restored, and only the messages it has not yet seen are sent.
+ */
+public class ResumeSessionRequestPacket extends Packet {
+
+    /** Attempts to store the '{@code ResumeSessionRequestPacket}'s ID (as determined by the {@code PacketIdentifier}). */
+    public static final Integer ID = PacketIdentifier.PACKET_IDS.getOrDefault(ResumeSessionRequestPacket.class, null);
+
+    /** {@code PacketAdapter} used by {@code PacketCodec} to encode and decode '{@code ResumeSessionRequestPacket}'s. */
+    static final PacketAdapter<ResumeSessionRequestPacket> ADAPTER = new PacketAdapter<ResumeSessionRequestPacket>() {
+        @Override
+        ResumeSessionRequestPacket newInstance() {
+            return new ResumeSessionRequestPacket(null, null);
+        }
+
+        @Override
+        boolean readField(final ResumeSessionRequestPacket packet, final String name, final JsonReader in) throws IOException {
+            switch(name) {
+                case "resume_token":
+                    packet.mResumeToken = readString(in);
+                    return true;
+                case "last_sequence":
+                    packet.mLastSequence = readLong(in);
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        @Override
+        void writeFields(final ResumeSessionRequestPacket packet, final JsonWriter out) throws IOException {
+            writeString(out, "resume_token", packet.mResumeToken);
+            if(packet.mLastSequence != null) {
+                out.name("last_sequence").value(packet.mLastSequence);
+            }
+        }
+    };
+
+    /** Token that the session was issued (see {@code UsernameResponsePacket}). */
+    @SerializedName("resume_token")
+    private String mResumeToken;
+
+    /** Sequence number of the last message the client received, {@code null} if it has not received any. */
+    @SerializedName("last_sequence")
+    private Long mLastSequence;
+
+    /**
+     * @param resumeToken Token that the session was issued.
+     * @param lastSequence Sequence number of the last message the client received, {@code null} if it has not
+     *                     received any.
+     */
+    public ResumeSessionRequestPacket(final String resumeToken, final Long lastSequence) {
+        mId = ID;
+        mResumeToken = resumeToken;
+        mLastSequence = lastSequence;
+    }
+
+    /**
+     * Returns the token that the session was issued.
+     * @return Token that the session was issued.
+     */
+    public String getResumeToken() {
+        return mResumeToken;
+    }
+
+    /**
+     * Returns the sequence number of the last message the client received.
+     * @return Sequence number of the last message the client received, {@code null} if it has not received any.
+     */
+    public Long getLastSequence() {
+        return mLastSequence;
+    }
+
+    /**
+     * Returns {@code true} if the {@code ResumeSessionRequestPacket} contains a valid ID, a non-empty resume token and
+     * (if present) a sequence number that is not negative.
+     * @return {@code true} if the {@code ResumeSessionRequestPacket} is valid.
+     */
+    @Override
+    public boolean isValid() {
+        return mId != null && mResumeToken != null && !mResumeToken.isEmpty()
+                && (mLastSequence == null || mLastSequence >= 0);
+    }
+
+}
@@ -0,0 +1,143 @@
+package io.benreynolds.hottopics.packets;
+
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * {@code ResumeSessionResponsePacket} is sent to client devices as a response to {@code ResumeSessionRequestPacket}.
+ * Successful responses carry the restored username, the name of the restored {@code Chatroom} (if the client was
+ * within one) and a new resume token, which replaces the token that was used.
+ * <p>
+ * A client that is restored to a {@code Chatroom} is then sent the messages it missed, up to a page of history. The
+ * response carries the sequence number of the first of these, so that a client that missed more than a page can tell
+ * that older messages were left out and request them with a {@code ChatHistoryRequestPacket}.
+ */
+public class ResumeSessionResponsePacket extends BooleanResponsePacket {
+
+    /** Attempts to store the '{@code ResumeSessionResponsePacket}'s ID (as determined by the {@code PacketIdentifier}). */
+    public static final Integer ID = PacketIdentifier.PACKET_IDS.getOrDefault(ResumeSessionResponsePacket.class, null);
+
+    /** {@code PacketAdapter} used by {@code PacketCodec} to encode and decode '{@code ResumeSessionResponsePacket}'s. */
+    static final PacketAdapter<ResumeSessionResponsePacket> ADAPTER = new BooleanResponsePacket.Adapter<ResumeSessionResponsePacket>() {
+        @Override
+        ResumeSessionResponsePacket newInstance() {
+            return new ResumeSessionResponsePacket(false, null, null, null);
+        }
+
+        @Override
+        boolean readField(final ResumeSessionResponsePacket packet, final String name, final JsonReader in) throws IOException {
+            switch(name) {
+                case "username":
+                    packet.mUsername = readString(in);
+                    return true;
+                case "chatroom_name":
+                    packet.mChatroomName = readString(in);
+                    return true;
+                case "resume_token":
+                    packet.mResumeToken = readString(in);
+                    return true;
+                case "first_sequence":
+                    packet.mFirstSequence = readLong(in);
+                    return true;
+                default:
+                    return super.readField(packet, name, in);
+            }
+        }
+
+        @Override
+        void writeFields(final ResumeSessionResponsePacket packet, final JsonWriter out) throws IOException {
+            super.writeFields(packet, out);
+            writeString(out, "username", packet.mUsername);
+            writeString(out, "chatroom_name", packet.mChatroomName);
+            writeString(out, "resume_token", packet.mResumeToken);
+            if(packet.mFirstSequence != null) {
+                out.name("first_sequence").value(packet.mFirstSequence);
+            }
+        }
+    };
+
+    /** Restored username, {@code null} if the session could not be resumed. */
+    @SerializedName("username")
+    private String mUsername;
+
+    /** Name of the restored {@code Chatroom}, {@code null} if the client is not within a {@code Chatroom}. */
+    @SerializedName("chatroom_name")
+    private String mChatroomName;
+
+    /** Token that resumes the client's session after it next reconnects, {@code null} if the session could not be
+     * resumed. */
+    @SerializedName("resume_token")
+    private String mResumeToken;
+
+    /** Sequence number of the first missed message that is sent after the response, {@code null} if none are sent. */
+    @SerializedName("first_sequence")
+    private Long mFirstSequence;
+
+    /**
+     * @param response Server's response.
+     * @param username Restored username.
+     * @param chatroomName Name of the restored {@code Chatroom}, {@code null} if the client is not within a
+     *                     {@code Chatroom}.
+     * @param resumeToken Token that resumes the client's session after it next reconnects.
+     */
+    public ResumeSessionResponsePacket(final boolean response, final String username, final String chatroomName,
+                                       final String resumeToken) {
+        this(response, username, chatroomName, resumeToken, null);
+    }
+
+    /**
+     * @param response Server's response.
+     * @param username Restored username.
+     * @param chatroomName Name of the restored {@code Chatroom}, {@code null} if the client is not within a
+     *                     {@code Chatroom}.
+     * @param resumeToken Token that resumes the client's session after it next reconnects.
+     * @param firstSequence Sequence number of the first missed message that is sent after the response, {@code null}
+     *                      if none are sent.
+     */
+    public ResumeSessionResponsePacket(final boolean response, final String username, final String chatroomName,
+                                       final String resumeToken, final Long firstSequence) {
+        super(response);
+        mId = ID;
+        mUsername = username;
+        mChatroomName = chatroomName;
+        mResumeToken = resumeToken;
+        mFirstSequence = firstSequence;
+    }
+
+    /**
+     * Returns the restored username.
+     * @return Restored username, {@code null} if the session could not be resumed.
+     */
+    public String getUsername() {
+        return mUsername;
+    }
+
+    /**
+     * Returns the name of the restored {@code Chatroom}.
+     * @return Name of the restored {@code Chatroom}, {@code null} if the client is not within a {@code Chatroom}.
+     */
+    public String getChatroomName() {
+        return mChatroomName;
+    }
+
+    /**
+     * Returns the token that resumes the client's session after it next reconnects.
+     * @return Token that resumes the client's session, {@code null} if the session could not be resumed.
+     */
+    public String getResumeToken() {
+        return mResumeToken;
+    }
+
+    /**
+     * Returns the sequence number of the first missed message that is sent after the response. Messages before it
+     * that the client has not received were left out, and can be requested with a {@code ChatHistoryRequestPacket}.
+     * @return Sequence number of the first missed message that is sent, {@code null} if none are sent.
+     */
+    public Long getFirstSequence() {
+        return mFirstSequence;
+    }
+
+}
@@ -1,6 +1,10 @@
 package io.benreynolds.hottopics.packets;
 
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 
 /**
  * {@code SendMessagePacket} is sent by client devices when they attempt to send a message within a chatroom.
@@ -12,6 +16,28 @@ public class SendMessagePacket extends Packet {
      */
     public static final Integer ID = PacketIdentifier.PACKET_IDS.getOrDefault(SendMessagePacket.class, null);
 
+    /** {@code PacketAdapter} used by {@code PacketCodec} to encode and decode '{@code SendMessagePacket}'s. */
+    static final PacketAdapter<SendMessagePacket> ADAPTER = new PacketAdapter<SendMessagePacket>() {
+        @Override
+        SendMessagePacket newInstance() {
+            return new SendMessagePacket(null);
+        }
+
+        @Override
+        boolean readField(final SendMessagePacket packet, final String name, final JsonReader in) throws IOException {
+            if("message".equals(name)) {
+                packet.mMessage = readString(in);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        void writeFields(final SendMessagePacket packet, final JsonWriter out) throws IOException {
+            writeString(out, "message", packet.mMessage);
+        }
+    };
+
     /** Client's message. */
     @SerializedName("message")
     private String mMessage;
@@ -1,14 +1,31 @@
 package io.benreynolds.hottopics.packets;
 
-import java.util.Map;
-import java.util.Objects;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
 /**
- * {@code UnidentifiedPacket} instances are created by deserializing JSON data with Google's GSON library.
+ * {@code UnidentifiedPacket} instances are created by deserializing JSON data with {@code PacketCodec}.
  * {@code UnidentifiedPacket} provides a {@code getType} method that can be used to identify a '{@code Packet}'s type.
  */
 public class UnidentifiedPacket extends Packet {
 
+    /** {@code PacketAdapter} used by {@code PacketCodec} to decode '{@code UnidentifiedPacket}'s. */
+    static final PacketAdapter<UnidentifiedPacket> ADAPTER = new PacketAdapter<UnidentifiedPacket>() {
+        @Override
+        UnidentifiedPacket newInstance() {
+            return new UnidentifiedPacket();
+        }
+
+        @Override
+        boolean readField(final UnidentifiedPacket packet, final String name, final JsonReader in) {
+            return false;
+        }
+
+        @Override
+        void writeFields(final UnidentifiedPacket packet, final JsonWriter out) {
+        }
+    };
+
     /**
      * Attempts to identify and returns the {@code Class} type of the {@code Packet} using {@code PacketIdentifier}.
      * If no matching {@code Class} type can be found, returns {@code null}.
@@ -16,12 +33,7 @@ public class UnidentifiedPacket extends Packet {
      * type can be found, returns {@code null}.
      */
     public Class<?> getType() {
-        for(Map.Entry<Class<? extends Packet>, Integer> entry : PacketIdentifier.PACKET_IDS.entrySet()) {
-            if(Objects.equals(entry.getValue(), mId)) {
-                return entry.getKey();
-            }
-        }
-        return null;
+        return mId != null ? PacketIdentifier.getType(mId) : null;
     }
 
     /**
@@ -1,6 +1,10 @@
 package io.benreynolds.hottopics.packets;
 
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 
 /**
  * {code UsernameRequestPacket} sent by client devices when requesting a username.
@@ -12,6 +16,28 @@ public class UsernameRequestPacket extends Packet {
     public static final Integer ID = PacketIdentifier.PACKET_IDS.getOrDefault(UsernameRequestPacket.class,
             null);
 
+    /** {@code PacketAdapter} used by {@code PacketCodec} to encode and decode '{@code UsernameRequestPacket}'s. */
+    static final PacketAdapter<UsernameRequestPacket> ADAPTER = new PacketAdapter<UsernameRequestPacket>() {
+        @Override
+        UsernameRequestPacket newInstance() {
+            return new UsernameRequestPacket(null);
+        }
+
+        @Override
+        boolean readField(final UsernameRequestPacket packet, final String name, final JsonReader in) throws IOException {
+            if("username".equals(name)) {
+                packet.mUsername = readString(in);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        void writeFields(final UsernameRequestPacket packet, final JsonWriter out) throws IOException {
+            writeString(out, "username", packet.mUsername);
+        }
+    };
+
     /** Regular expression used to validate usernames (must consist of alphanumeric characters). */
     public static final String INVALID_CHARACTER_REGEX = "^.*[^a-zA-Z0-9 ].*$";
 
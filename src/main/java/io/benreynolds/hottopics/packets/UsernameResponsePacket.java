@@ -1,7 +1,15 @@
 package io.benreynolds.hottopics.packets;
 
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
 /**
- * {code UsernameResponsePacket} sent to client devices as a response to {@code UsernameRequestPacket}.
+ * {code UsernameResponsePacket} sent to client devices as a response to {@code UsernameRequestPacket}. Successful
+ * responses carry a resume token, which the client can send in a {@code ResumeSessionRequestPacket} to resume its
+ * session after reconnecting.
  */
 public class UsernameResponsePacket extends BooleanResponsePacket {
 
@@ -9,12 +17,56 @@ public class UsernameResponsePacket extends BooleanResponsePacket {
     public static final Integer ID = PacketIdentifier.PACKET_IDS.getOrDefault(UsernameResponsePacket.class,
             null);
 
+    /** {@code PacketAdapter} used by {@code PacketCodec} to encode and decode '{@code UsernameResponsePacket}'s. */
+    static final PacketAdapter<UsernameResponsePacket> ADAPTER = new BooleanResponsePacket.Adapter<UsernameResponsePacket>() {
+        @Override
+        UsernameResponsePacket newInstance() {
+            return new UsernameResponsePacket(false);
+        }
+
+        @Override
+        boolean readField(final UsernameResponsePacket packet, final String name, final JsonReader in) throws IOException {
+            if("resume_token".equals(name)) {
+                packet.mResumeToken = readString(in);
+                return true;
+            }
+            return super.readField(packet, name, in);
+        }
+
+        @Override
+        void writeFields(final UsernameResponsePacket packet, final JsonWriter out) throws IOException {
+            super.writeFields(packet, out);
+            writeString(out, "resume_token", packet.mResumeToken);
+        }
+    };
+
+    /** Token that resumes the client's session after reconnecting, {@code null} if the request was unsuccessful. */
+    @SerializedName("resume_token")
+    private String mResumeToken;
+
     /**
      * @param response Server's response.
      */
     public UsernameResponsePacket(final boolean response) {
+        this(response, null);
+    }
+
+    /**
+     * @param response Server's response.
+     * @param resumeToken Token that resumes the client's session after reconnecting.
+     */
+    public UsernameResponsePacket(final boolean response, final String resumeToken) {
         super(response);
         mId = ID;
+        mResumeToken = resumeToken;
+    }
+
+    /**
+     * Returns the token that resumes the client's session after reconnecting.
+     * @return Token that resumes the client's session, {@code null} if the request was unsuccessful.
+     */
+    public String getResumeToken() {
+        return mResumeToken;
     }
 
 }
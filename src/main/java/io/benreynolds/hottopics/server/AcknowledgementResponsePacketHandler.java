@@ -0,0 +1,31 @@
+package io.benreynolds.hottopics.server;
+
+import io.benreynolds.hottopics.packets.AcknowledgementResponsePacket;
+import io.benreynolds.hottopics.packets.Packet;
+
+import javax.websocket.Session;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code AcknowledgementResponsePacketHandler} is responsible for the '{@code AcknowledgementResponsePacket}'s that the
+ * server receives. Receiving any packet already marks the sender as active, so no further handling is required.
+ */
+public class AcknowledgementResponsePacketHandler implements PacketHandler<AcknowledgementResponsePacket> {
+
+    @Override
+    public void handlePacket(Packet packet, Client sender, Map<Session, Client> clients, ChatroomRegistry chatrooms) {
+    }
+
+    @Override
+    public Class<AcknowledgementResponsePacket> getType() {
+        return AcknowledgementResponsePacket.class;
+    }
+
+    @Override
+    public List<Client.State> getRequiredStates() {
+        return Arrays.asList(Client.State.values());
+    }
+
+}
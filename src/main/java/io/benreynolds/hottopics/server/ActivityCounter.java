@@ -0,0 +1,89 @@
+package io.benreynolds.hottopics.server;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@code ActivityCounter} counts the messages sent within, and the clients joining, a {@code Chatroom}. Events are
+ * recorded on striped '{@code LongAdder}'s, so recording never contends with other threads, and are periodically
+ * folded into exponentially decayed counts by {@code ChatroomRanking}: an event counts fully when it is folded and
+ * half as much each half-life thereafter.
+ */
+class ActivityCounter {
+
+    /** Messages sent since the counter was last folded. */
+    private final LongAdder mMessages = new LongAdder();
+
+    /** Clients that have joined since the counter was last folded. */
+    private final LongAdder mJoins = new LongAdder();
+
+    /** Decayed amount of messages sent. Only written by the folding thread. */
+    private volatile double mDecayedMessages;
+
+    /** Decayed amount of clients that have joined. Only written by the folding thread. */
+    private volatile double mDecayedJoins;
+
+    /**
+     * Records a message being sent. May be called from any thread.
+     */
+    void recordMessage() {
+        mMessages.increment();
+    }
+
+    /**
+     * Records a client joining. May be called from any thread.
+     */
+    void recordJoin() {
+        mJoins.increment();
+    }
+
+    /**
+     * Decays the counts and adds the events recorded since the counter was last folded. Must only be called by a
+     * single thread at a time.
+     * @param decay Factor that the counts are multiplied by, the portion of a half-life that has elapsed since the
+     *              counter was last folded expressed as {@code 0.5 ^ portion}.
+     */
+    void fold(final double decay) {
+        mDecayedMessages = fold(mDecayedMessages, decay, mMessages);
+        mDecayedJoins = fold(mDecayedJoins, decay, mJoins);
+    }
+
+    /**
+     * Decays a count and adds the events recorded on {@code adder}, subtracting them from {@code adder}. Events
+     * recorded while folding are kept for the next fold. Idle counters are only read, not written.
+     */
+    private static double fold(final double decayed, final double decay, final LongAdder adder) {
+        long recorded = adder.sum();
+        if(recorded != 0) {
+            adder.add(-recorded);
+        }
+        return decayed * decay + recorded;
+    }
+
+    /**
+     * Restores decayed counts that were saved by a previous server process (see {@code ServerStateStore}). Must be
+     * called before the counter is first folded.
+     * @param decayedMessages Decayed amount of messages sent.
+     * @param decayedJoins Decayed amount of clients that have joined.
+     */
+    void restore(final double decayedMessages, final double decayedJoins) {
+        mDecayedMessages = decayedMessages;
+        mDecayedJoins = decayedJoins;
+    }
+
+    /**
+     * Returns the decayed amount of messages sent, as of the last fold.
+     * @return Decayed amount of messages sent.
+     */
+    double getDecayedMessages() {
+        return mDecayedMessages;
+    }
+
+    /**
+     * Returns the decayed amount of clients that have joined, as of the last fold.
+     * @return Decayed amount of clients that have joined.
+     */
+    double getDecayedJoins() {
+        return mDecayedJoins;
+    }
+
+}
@@ -0,0 +1,77 @@
+package io.benreynolds.hottopics.server;
+
+import io.benreynolds.hottopics.packets.ChatHistoryRequestPacket;
+import io.benreynolds.hottopics.packets.ChatHistoryResponsePacket;
+import io.benreynolds.hottopics.packets.Packet;
+import io.benreynolds.hottopics.packets.ReceiveMessagePacket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.websocket.Session;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code ChatHistoryRequestPacketHandler} is responsible for responding to the '{@code ChatHistoryRequestPacket}'s that
+ * the server receives and handles the sending of pages of a '{@code Chatroom}'s messages to its members.
+ */
+public class ChatHistoryRequestPacketHandler implements PacketHandler<ChatHistoryRequestPacket> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChatHistoryRequestPacketHandler.class);
+
+    /** Amount of messages sent when a client joins a {@code Chatroom} or does not specify a limit. */
+    static final int DEFAULT_PAGE_SIZE = 20;
+
+    /** Maximum amount of messages sent in a single page. */
+    static final int MAX_PAGE_SIZE = Chatroom.MESSAGES_TO_CACHE;
+
+    @Override
+    public void handlePacket(Packet packet, Client sender, Map<Session, Client> clients, ChatroomRegistry chatrooms) {
+        LOGGER.info(String.format("[%s] Processing [%s]...", sender.getSession().getId(), ChatHistoryRequestPacket.class.getSimpleName()));
+
+        // Ensure that the received Packet is non-null and valid.
+        ChatHistoryRequestPacket chatHistoryRequestPacket = (ChatHistoryRequestPacket)packet;
+        if(chatHistoryRequestPacket == null || !chatHistoryRequestPacket.isValid()) {
+            LOGGER.info(String.format("[%s] Invalid \"%s\" provided, failed to handle.", sender.getSession().getId(), ChatHistoryRequestPacket.class.getSimpleName()));
+            return;
+        }
+
+        Chatroom chatroom = sender.getChatroom();
+        if(chatroom == null) {
+            return;
+        }
+
+        Long beforeSequence = chatHistoryRequestPacket.getBeforeSequence();
+        Integer limit = chatHistoryRequestPacket.getLimit();
+        sendHistory(sender, chatroom, beforeSequence != null ? beforeSequence : Long.MAX_VALUE,
+                limit != null ? Math.min(limit, MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Sends a client a page of the messages sent within a {@code Chatroom} before a given message. Pages that are not
+     * cached are sent once they have been read from the '{@code Chatroom}'s log, without waiting for them.
+     * @param client Client to send the messages to.
+     * @param chatroom {@code Chatroom} that the messages were sent within.
+     * @param beforeSequence Sequence number of the message that the messages were sent before.
+     * @param limit Maximum amount of messages to send.
+     */
+    static void sendHistory(final Client client, final Chatroom chatroom, final long beforeSequence, final int limit) {
+        HotTopicsEndpoint.readMessageHistory(chatroom, beforeSequence, limit, messages -> client.sendPacket(
+                new ChatHistoryResponsePacket(chatroom.getName(),
+                        messages.toArray(new ReceiveMessagePacket[messages.size()]))));
+    }
+
+    @Override
+    public Class<ChatHistoryRequestPacket> getType() {
+        return ChatHistoryRequestPacket.class;
+    }
+
+    @Override
+    public List<Client.State> getRequiredStates() {
+        return Collections.singletonList(Client.State.CHAT_ROOM);
+    }
+
+}
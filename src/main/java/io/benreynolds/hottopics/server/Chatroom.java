@@ -1,74 +1,197 @@
     package io.benreynolds.hottopics.server;
 
-    import com.google.gson.annotations.SerializedName;
+    import io.benreynolds.hottopics.packets.ChatroomSummary;
+    import io.benreynolds.hottopics.packets.Packet;
+    import io.benreynolds.hottopics.packets.PacketFrame;
     import io.benreynolds.hottopics.packets.ReceiveMessagePacket;
 
     import javax.websocket.Session;
 
-    import java.util.Collections;
     import java.util.HashSet;
-    import java.util.LinkedList;
-    import java.util.Queue;
+    import java.util.List;
     import java.util.Set;
+    import java.util.concurrent.Executor;
+    import java.util.concurrent.atomic.AtomicInteger;
 
     /**
      * '{@code Chatroom}'s are named using trend information (see {@code TrendManager}) and contain references to the user's
      * '{@code Session}'s that are present within them.
+     * <p>
+     * Each {@code Chatroom} is pinned to a single-threaded {@code Executor} (see {@code ChatroomShards}). Members and
+     * messages may only be changed, and members may only be iterated, by tasks submitted through {@code execute}, so
+     * no locking is required. The size of the {@code Chatroom} may be read from any thread.
      */
     public class Chatroom {
 
-        private static final int MESSAGES_TO_CACHE = 50;
+        /** Default amount of messages cached by each {@code Chatroom}. */
+        static final int MESSAGES_TO_CACHE = 50;
 
-        /** {@code Set} used to store all users ('{@code Session}'s) that are members of the chatroom. */
-        private transient Set<Client> mClients = Collections.synchronizedSet(new HashSet<Client>());
+        /** Value of {@code mSize} once the {@code Chatroom} has been closed. */
+        private static final int CLOSED = -1;
 
-        /** Amount of users in the Chatroom **/
-        @SerializedName("size")
-        private Integer mSize = 0;
+        /** {@code Set} used to store all users ('{@code Session}'s) that are members of the chatroom. Confined to
+         * {@code mExecutor}. */
+        private final Set<Client> mClients = new HashSet<>();
+
+        /** {@code Executor} that all changes to the {@code Chatroom} are made on. */
+        private final Executor mExecutor;
+
+        /** Amount of users in the Chatroom, or {@code CLOSED} once the {@code Chatroom} has been closed. Only
+         * incremented and decremented on {@code mExecutor}. **/
+        private final AtomicInteger mSize = new AtomicInteger();
 
         /** Name of the {@code Chatroom}. */
-        @SerializedName("name")
         private String mName;
 
-        /** Messages that have been sent within the {@code Chatroom}. */
-        @SerializedName("messages")
-        private Queue<ReceiveMessagePacket> mMessages = new LinkedList<>();
+        /** Time at which the {@code Chatroom} was created (in milliseconds since the epoch). */
+        private final long mCreatedAtMillis;
+
+        /** Activity within the {@code Chatroom}, used to rank it (see {@code ChatroomRanking}). */
+        private final ActivityCounter mActivity = new ActivityCounter();
+
+        /** Most recent messages that have been sent within the {@code Chatroom}. */
+        private final MessageHistory mMessages;
+
+        /** Time (in nanoseconds) at which a message was last sent, or a client last joined or left. Only written on
+         * {@code mExecutor}. */
+        private volatile long mLastActiveNanos = System.nanoTime();
 
         /**
+         * Instantiates a {@code Chatroom} whose tasks run on the calling thread.
          * @param name Name of the {@code Chatroom}.
          */
         public Chatroom(final String name) {
+            this(name, Runnable::run);
+        }
+
+        /**
+         * @param name Name of the {@code Chatroom}.
+         * @param executor Single-threaded {@code Executor} that all changes to the {@code Chatroom} are made on.
+         */
+        public Chatroom(final String name, final Executor executor) {
+            this(name, executor, MESSAGES_TO_CACHE);
+        }
+
+        /**
+         * @param name Name of the {@code Chatroom}.
+         * @param executor Single-threaded {@code Executor} that all changes to the {@code Chatroom} are made on.
+         * @param messagesToCache Amount of recent messages cached by the {@code Chatroom}.
+         */
+        public Chatroom(final String name, final Executor executor, final int messagesToCache) {
+            this(name, executor, messagesToCache, System.currentTimeMillis());
+        }
+
+        /**
+         * @param name Name of the {@code Chatroom}.
+         * @param executor Single-threaded {@code Executor} that all changes to the {@code Chatroom} are made on.
+         * @param messagesToCache Amount of recent messages cached by the {@code Chatroom}.
+         * @param createdAtMillis Time at which the {@code Chatroom} was created (in milliseconds since the epoch).
+         */
+        public Chatroom(final String name, final Executor executor, final int messagesToCache, final long createdAtMillis) {
             mName = name;
+            mExecutor = executor;
+            mMessages = new MessageHistory(messagesToCache);
+            mCreatedAtMillis = createdAtMillis;
         }
 
-        /** Returns a {@code Set} containing all users ('{@code Session}'s) that are members of the chatroom.
-         * @return {@code Set} containing all users ('{@code Session}'s) that are members of the chatroom.
+        /**
+         * Runs a task on the '{@code Chatroom}'s {@code Executor}. Tasks run in the order that they were submitted.
+         * @param task Task to run.
          */
-        public Set<Client> getClients() {
-            return mClients;
+        public void execute(final Runnable task) {
+            mExecutor.execute(task);
         }
 
         /**
-         * Adds a {@code Session} to the {@code Chatroom}.
+         * Adds a {@code Session} to the {@code Chatroom}. Must be called on the '{@code Chatroom}'s {@code Executor}.
          * @param client {@code Session} to add to the {@code Chatroom}.
+         * @return {@code true} if the client is a member of the {@code Chatroom}, {@code false} if the
+         * {@code Chatroom} has been closed.
          */
-        public void addClient(final Client client) {
-            if(mClients.add(client)) {
-                mSize++;
+        public boolean addClient(final Client client) {
+            if(mClients.contains(client)) {
+                return true;
             }
+
+            int size;
+            do {
+                size = mSize.get();
+                if(size == CLOSED) {
+                    return false;
+                }
+            } while(!mSize.compareAndSet(size, size + 1));
+
+            mClients.add(client);
+            mActivity.recordJoin();
+            mLastActiveNanos = System.nanoTime();
+            return true;
         }
 
         /**
-         * Removes a {@code Session} from the {@code Chatroom}.
+         * Removes a {@code Session} from the {@code Chatroom}. Must be called on the '{@code Chatroom}'s
+         * {@code Executor}.
          * @param client {@code Session} to remove from the {@code Chatroom}.
+         * @return {@code true} if the client was a member of the {@code Chatroom}.
          */
-        public void removeClient(final Client client) {
+        public boolean removeClient(final Client client) {
             if(mClients.remove(client)) {
-                mSize--;
+                mSize.decrementAndGet();
+                mLastActiveNanos = System.nanoTime();
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Replaces a member of the {@code Chatroom} with another {@code Session} (e.g. when a client resumes its session
+         * over a new connection), without changing the size of the {@code Chatroom}. Must be called on the
+         * '{@code Chatroom}'s {@code Executor}.
+         * @param client Member to replace.
+         * @param replacement {@code Session} that replaces the member.
+         * @return {@code true} if {@code client} was a member of the {@code Chatroom} and has been replaced.
+         */
+        public boolean replaceClient(final Client client, final Client replacement) {
+            if(!mClients.remove(client)) {
+                return false;
+            }
+            mClients.add(replacement);
+            return true;
+        }
+
+        /**
+         * Closes the {@code Chatroom} if it is empty, after which no clients can be added to it. May be called from any
+         * thread.
+         * @return {@code true} if the {@code Chatroom} is closed.
+         */
+        public boolean closeIfEmpty() {
+            return mSize.compareAndSet(0, CLOSED) || mSize.get() == CLOSED;
+        }
+
+        /**
+         * Returns {@code true} if the {@code Chatroom} has been closed.
+         * @return {@code true} if the {@code Chatroom} has been closed.
+         */
+        public boolean isClosed() {
+            return mSize.get() == CLOSED;
+        }
+
+        /**
+         * Sends a {@code Packet} to every member of the {@code Chatroom}. The {@code Packet} is encoded exactly once and
+         * the resulting {@code PacketFrame} is shared between all recipients. Must be called on the '{@code Chatroom}'s
+         * {@code Executor}.
+         * @param packet {@code Packet} to send to every member of the {@code Chatroom}.
+         * @return {@code PacketFrame} that was sent.
+         */
+        public PacketFrame broadcast(final Packet packet) {
+            PacketFrame frame = new PacketFrame(packet);
+            for(Client client : mClients) {
+                client.sendFrame(frame);
             }
+            return frame;
         }
 
         /**
+         * Must be called on the '{@code Chatroom}'s {@code Executor}.
          * @param client {@code Session} to search for in the {@code Chatroom}.
          * @return {@code true} if the {@code Chatroom} contained the {@code Session}.
          */
@@ -83,23 +206,124 @@
             return mName;
         }
 
-        public void addMessage(ReceiveMessagePacket receiveMessagePacket) {
-            if(mMessages.size() >= MESSAGES_TO_CACHE) {
-                mMessages.poll();
-            }
-
+        /**
+         * Adds a message to the '{@code Chatroom}'s cached messages, numbering it with the next sequence number. Must be
+         * called on the '{@code Chatroom}'s {@code Executor}.
+         * @param author Name of the client that sent the message.
+         * @param message Message.
+         * @return {@code ReceiveMessagePacket} holding the numbered message.
+         */
+        public ReceiveMessagePacket addMessage(final String author, final String message) {
+            ReceiveMessagePacket receiveMessagePacket = new ReceiveMessagePacket(author, message, mMessages.getNextSequence());
             mMessages.add(receiveMessagePacket);
+            mActivity.recordMessage();
+            mLastActiveNanos = System.nanoTime();
+            return receiveMessagePacket;
         }
 
-        /** Returns the messages that have been sent within the {@code Chatroom}.
+        /** Returns a snapshot of the messages that have been sent within the {@code Chatroom}, oldest first. May be
+         * called from any thread.
          * @return Messages that have been sent within the {@code Chatroom}.
          */
-        public Queue<ReceiveMessagePacket> getMessages() {
-            return mMessages;
+        public List<ReceiveMessagePacket> getMessages() {
+            return mMessages.snapshot();
         }
 
+        /**
+         * Restores messages that were persisted before the {@code Chatroom} was created, so that its history and
+         * sequence numbers continue from them. Must be called before the {@code Chatroom} is made available to clients.
+         * @param messages Most recent persisted messages, oldest first.
+         * @param nextSequence Sequence number that will be assigned to the next message.
+         */
+        public void restoreMessages(final List<ReceiveMessagePacket> messages, final long nextSequence) {
+            mMessages.restore(messages, nextSequence);
+        }
+
+        /**
+         * Evicts the cached messages to free memory, keeping the sequence number that will be assigned to the next
+         * message. Only '{@code Chatroom}'s whose messages have been persisted should be evicted, as evicted messages
+         * are only available from the persisted log until they are reloaded. Must be called on the '{@code Chatroom}'s
+         * {@code Executor}.
+         */
+        public void evictMessages() {
+            mMessages.evict();
+        }
+
+        /**
+         * Reloads evicted messages from the persisted log. Must be called on the '{@code Chatroom}'s {@code Executor}.
+         * @param messages Most recent persisted messages, oldest first.
+         */
+        public void reloadMessages(final List<ReceiveMessagePacket> messages) {
+            mMessages.reload(messages);
+        }
+
+        /** Returns {@code true} if the cached messages have been evicted and not yet reloaded. May be called from any
+         * thread.
+         * @return {@code true} if the cached messages have been evicted.
+         */
+        public boolean isHistoryEvicted() {
+            return mMessages.isEvicted();
+        }
+
+        /** Returns the estimated amount of memory (in bytes) held by the cached messages. May be called from any thread.
+         * @return Estimated amount of memory held by the cached messages.
+         */
+        public long getHistoryBytes() {
+            return mMessages.getEstimatedBytes();
+        }
+
+        /** Returns the time (in nanoseconds, see {@code System.nanoTime}) at which a message was last sent, or a client
+         * last joined or left. May be called from any thread.
+         * @return Time at which the {@code Chatroom} was last active.
+         */
+        public long getLastActiveNanos() {
+            return mLastActiveNanos;
+        }
+
+        /** Returns the sequence number that will be assigned to the next message. May be called from any thread.
+         * @return Sequence number that will be assigned to the next message.
+         */
+        public long getNextMessageSequence() {
+            return mMessages.getNextSequence();
+        }
+
+        /** Returns a page of the cached messages that were sent before a given message, oldest first. May be called from
+         * any thread.
+         * @param beforeSequence Sequence number of the message that the messages were sent before.
+         * @param limit Maximum amount of messages to return.
+         * @return Page of the cached messages, empty if no older messages are cached.
+         */
+        public List<ReceiveMessagePacket> getMessages(final long beforeSequence, final int limit) {
+            return mMessages.page(beforeSequence, limit);
+        }
+
+        /** Returns a summary of the {@code Chatroom}, used to list it without its messages. May be called from any
+         * thread.
+         * @return Summary of the {@code Chatroom}.
+         */
+        public ChatroomSummary getSummary() {
+            return new ChatroomSummary(mName, getSize());
+        }
+
+        /** Returns the time at which the {@code Chatroom} was created (in milliseconds since the epoch).
+         * @return Time at which the {@code Chatroom} was created.
+         */
+        public long getCreatedAtMillis() {
+            return mCreatedAtMillis;
+        }
+
+        /** Returns the activity within the {@code Chatroom}. May be called from any thread.
+         * @return Activity within the {@code Chatroom}.
+         */
+        ActivityCounter getActivity() {
+            return mActivity;
+        }
+
+        /** Returns the amount of users in the {@code Chatroom}. May be called from any thread.
+         * @return Amount of users in the {@code Chatroom}.
+         */
         public int getSize() {
-            return mSize;
+            return Math.max(0, mSize.get());
         }
 
     }
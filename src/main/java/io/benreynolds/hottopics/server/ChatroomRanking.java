@@ -0,0 +1,237 @@
+package io.benreynolds.hottopics.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * {@code ChatroomRanking} ranks '{@code Chatroom}'s by how active they are, so that clients listing the available
+ * '{@code Chatroom}'s see the hottest first. Each {@code Chatroom} is scored from the decayed amount of messages sent
+ * and clients joined (see {@code ActivityCounter}) and its current amount of users.
+ * <p>
+ * The ranking is rebuilt periodically rather than on every message: a rebuild folds every '{@code Chatroom}'s counters
+ * using a single decay factor and selects the top K with a bounded heap of indices, so it runs in O(rooms log K)
+ * without sorting or allocating per {@code Chatroom}. Listings read the latest ranking without locking.
+ */
+class ChatroomRanking {
+
+    /** Default amount of '{@code Chatroom}'s that are ranked. */
+    static final int DEFAULT_TOP_K = 50;
+
+    /** Default time (in milliseconds) after which activity counts half as much towards a '{@code Chatroom}'s score. */
+    static final long DEFAULT_HALF_LIFE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    /** Default interval between rebuilds (in milliseconds). */
+    static final long DEFAULT_REBUILD_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    /** Weight of each (decayed) message sent within a {@code Chatroom}. */
+    private static final double MESSAGE_WEIGHT = 1.0;
+
+    /** Weight of each (decayed) client that joined a {@code Chatroom}. */
+    private static final double JOIN_WEIGHT = 2.0;
+
+    /** Weight of each user currently within a {@code Chatroom}. */
+    private static final double USER_WEIGHT = 0.5;
+
+    /** Amount of '{@code Chatroom}'s that are ranked. */
+    private final int mTopK;
+
+    /** Time (in nanoseconds) after which activity counts half as much towards a '{@code Chatroom}'s score. */
+    private final long mHalfLifeNanos;
+
+    /** Source of the current time (in nanoseconds). */
+    private final LongSupplier mClock;
+
+    /** Time (in nanoseconds) of the last rebuild. Guarded by {@code this}. */
+    private long mLastRebuildNanos;
+
+    /** Scores of the '{@code Chatroom}'s being ranked, reused between rebuilds. Guarded by {@code this}. */
+    private double[] mScores = new double[0];
+
+    /** Min-heap of the indices of the highest scoring '{@code Chatroom}'s, reused between rebuilds. Guarded by
+     * {@code this}. */
+    private final int[] mHeap;
+
+    /** Highest scoring '{@code Chatroom}'s, hottest first. */
+    private volatile List<Chatroom> mTopChatrooms = Collections.emptyList();
+
+    /** Version of the ranking, incremented each time a rebuild changes the ranked '{@code Chatroom}'s or their order. */
+    private volatile long mVersion = 0;
+
+    /**
+     * @param topK Amount of '{@code Chatroom}'s that are ranked.
+     * @param halfLifeMillis Time after which activity counts half as much towards a '{@code Chatroom}'s score.
+     */
+    ChatroomRanking(final int topK, final long halfLifeMillis) {
+        this(topK, halfLifeMillis, System::nanoTime);
+    }
+
+    /**
+     * @param topK Amount of '{@code Chatroom}'s that are ranked.
+     * @param halfLifeMillis Time after which activity counts half as much towards a '{@code Chatroom}'s score.
+     * @param clock Source of the current time (in nanoseconds).
+     */
+    ChatroomRanking(final int topK, final long halfLifeMillis, final LongSupplier clock) {
+        mTopK = Math.max(0, topK);
+        mHalfLifeNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, halfLifeMillis));
+        mClock = clock;
+        mLastRebuildNanos = clock.getAsLong();
+        mHeap = new int[mTopK];
+    }
+
+    /**
+     * Decays the activity of every {@code Chatroom} and re-selects the highest scoring '{@code Chatroom}'s.
+     * '{@code Chatroom}'s without any activity or users are never ranked.
+     * @param chatrooms '{@code Chatroom}'s to rank.
+     */
+    synchronized void rebuild(final List<Chatroom> chatrooms) {
+        long now = mClock.getAsLong();
+        double decay = Math.pow(0.5, (double)Math.max(0, now - mLastRebuildNanos) / mHalfLifeNanos);
+        mLastRebuildNanos = now;
+
+        int count = chatrooms.size();
+        if(mScores.length < count) {
+            mScores = new double[Math.max(count, mScores.length * 2)];
+        }
+
+        int heapSize = 0;
+        for(int i = 0; i < count; i++) {
+            Chatroom chatroom = chatrooms.get(i);
+            ActivityCounter activity = chatroom.getActivity();
+            activity.fold(decay);
+            double score = activity.getDecayedMessages() * MESSAGE_WEIGHT + activity.getDecayedJoins() * JOIN_WEIGHT
+                    + chatroom.getSize() * USER_WEIGHT;
+            mScores[i] = score;
+
+            if(score <= 0 || mTopK == 0) {
+                continue;
+            }
+            if(heapSize < mTopK) {
+                mHeap[heapSize] = i;
+                siftUp(heapSize++);
+            }
+            else if(ranksBelow(mHeap[0], i)) {
+                mHeap[0] = i;
+                siftDown(0, heapSize);
+            }
+        }
+
+        // Drain the heap (lowest first) into the ranking, hottest first.
+        Chatroom[] topChatrooms = new Chatroom[heapSize];
+        for(int i = heapSize - 1; i >= 0; i--) {
+            topChatrooms[i] = chatrooms.get(mHeap[0]);
+            mHeap[0] = mHeap[i];
+            siftDown(0, i);
+        }
+
+        List<Chatroom> ranking = Arrays.asList(topChatrooms);
+        if(ranking.equals(mTopChatrooms)) {
+            return;
+        }
+
+        mTopChatrooms = Collections.unmodifiableList(ranking);
+        mVersion++;
+    }
+
+    /**
+     * Restores the score that a {@code Chatroom} had in a previous server process (see {@code ServerStateStore}). Its
+     * users have to reconnect, so they are counted as recent joins that decay unless the users return. Must be called
+     * before the {@code Chatroom} is first ranked.
+     * @param chatroom Restored {@code Chatroom}.
+     * @param decayedMessages Decayed amount of messages sent.
+     * @param decayedJoins Decayed amount of clients that have joined.
+     * @param size Amount of users that were in the {@code Chatroom}.
+     */
+    void restore(final Chatroom chatroom, final double decayedMessages, final double decayedJoins, final int size) {
+        chatroom.getActivity().restore(decayedMessages, decayedJoins + size * USER_WEIGHT / JOIN_WEIGHT);
+    }
+
+    /**
+     * Returns the highest scoring '{@code Chatroom}'s as of the last rebuild, hottest first.
+     * @return Highest scoring '{@code Chatroom}'s.
+     */
+    List<Chatroom> getTopChatrooms() {
+        return mTopChatrooms;
+    }
+
+    /**
+     * Returns the version of the ranking, which is incremented each time the ranked '{@code Chatroom}'s or their order
+     * change.
+     * @return Version of the ranking.
+     */
+    long getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Orders the available '{@code Chatroom}'s for listing: ranked '{@code Chatroom}'s that are still available come
+     * first, hottest first, followed by the remaining '{@code Chatroom}'s in their original order. May be called from
+     * any thread.
+     * @param chatrooms Available '{@code Chatroom}'s.
+     * @param registry {@code ChatroomRegistry} that the '{@code Chatroom}'s are available from.
+     * @return Available '{@code Chatroom}'s, hottest first.
+     */
+    List<Chatroom> order(final List<Chatroom> chatrooms, final ChatroomRegistry registry) {
+        List<Chatroom> topChatrooms = mTopChatrooms;
+        Set<Chatroom> topChatroomSet = new HashSet<>(topChatrooms);
+
+        List<Chatroom> ordered = new ArrayList<>(chatrooms.size());
+        for(Chatroom chatroom : topChatrooms) {
+            if(registry.get(chatroom.getName()) == chatroom) {
+                ordered.add(chatroom);
+            }
+        }
+        for(Chatroom chatroom : chatrooms) {
+            if(!topChatroomSet.contains(chatroom)) {
+                ordered.add(chatroom);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Returns true if the {@code Chatroom} at index {@code i} ranks below the one at index {@code j}. Ties are broken
+     * in favour of the {@code Chatroom} that was listed first.
+     */
+    private boolean ranksBelow(final int i, final int j) {
+        return mScores[i] < mScores[j] || (mScores[i] == mScores[j] && i > j);
+    }
+
+    private void siftUp(int index) {
+        int value = mHeap[index];
+        while(index > 0) {
+            int parent = (index - 1) >>> 1;
+            if(!ranksBelow(value, mHeap[parent])) {
+                break;
+            }
+            mHeap[index] = mHeap[parent];
+            index = parent;
+        }
+        mHeap[index] = value;
+    }
+
+    private void siftDown(int index, final int size) {
+        int value = mHeap[index];
+        while(true) {
+            int child = (index << 1) + 1;
+            if(child >= size) {
+                break;
+            }
+            if(child + 1 < size && ranksBelow(mHeap[child + 1], mHeap[child])) {
+                child++;
+            }
+            if(!ranksBelow(mHeap[child], value)) {
+                break;
+            }
+            mHeap[index] = mHeap[child];
+            index = child;
+        }
+        mHeap[index] = value;
+    }
+
+}
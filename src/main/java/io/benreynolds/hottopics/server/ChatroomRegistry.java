@@ -0,0 +1,210 @@
+package io.benreynolds.hottopics.server;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * {@code ChatroomRegistry} holds all of the '{@code Chatroom}'s available to clients. '{@code Chatroom}'s are stored
+ * in a concurrent hash map keyed by name, so looking up a {@code Chatroom} to join is O(1) and never waits for a
+ * trend refresh to complete. Listings are served from an ordered, immutable snapshot that is only rebuilt when
+ * '{@code Chatroom}'s are added or removed.
+ */
+public class ChatroomRegistry {
+
+    /** '{@code Chatroom}'s keyed by name. */
+    private final ConcurrentHashMap<String, Chatroom> mChatrooms = new ConcurrentHashMap<>();
+
+    /** Immutable snapshot of all '{@code Chatroom}'s in the order that they were added. */
+    private volatile List<Chatroom> mSnapshot = Collections.emptyList();
+
+    /** Serializes changes to the set of '{@code Chatroom}'s (and therefore rebuilds of {@code mSnapshot}). */
+    private final Object mWriteLock = new Object();
+
+    /**
+     * Serializes reconciliations, so that the '{@code Chatroom}'s that a reconciliation initializes before taking
+     * {@code mWriteLock} cannot be superseded by a concurrent reconciliation.
+     */
+    private final Object mReconcileLock = new Object();
+
+    /** Assigns each new {@code Chatroom} the {@code Executor} that it is pinned to (see {@code ChatroomShards}). */
+    private final Function<String, Executor> mShardAssigner;
+
+    /** Initializes each new {@code Chatroom} before it is made available. */
+    private final Consumer<Chatroom> mInitializer;
+
+    /**
+     * Instantiates a {@code ChatroomRegistry} whose '{@code Chatroom}'s run their tasks on the calling thread.
+     */
+    public ChatroomRegistry() {
+        this(chatroomName -> Runnable::run);
+    }
+
+    /**
+     * @param shardAssigner Assigns each new {@code Chatroom} the {@code Executor} that it is pinned to.
+     */
+    ChatroomRegistry(final Function<String, Executor> shardAssigner) {
+        this(shardAssigner, chatroom -> { });
+    }
+
+    /**
+     * @param shardAssigner Assigns each new {@code Chatroom} the {@code Executor} that it is pinned to.
+     * @param initializer Initializes each new {@code Chatroom} (e.g. restoring its persisted messages) before it is
+     *                    made available.
+     */
+    ChatroomRegistry(final Function<String, Executor> shardAssigner, final Consumer<Chatroom> initializer) {
+        mShardAssigner = shardAssigner;
+        mInitializer = initializer;
+    }
+
+    /**
+     * Returns the {@code Chatroom} with the specified name.
+     * @param name Name of the {@code Chatroom}.
+     * @return {@code Chatroom} with the specified name, or {@code null} if no such {@code Chatroom} exists.
+     */
+    public Chatroom get(final String name) {
+        return name != null ? mChatrooms.get(name) : null;
+    }
+
+    /**
+     * Returns an immutable snapshot of all '{@code Chatroom}'s in the order that they were added.
+     * @return Immutable snapshot of all '{@code Chatroom}'s.
+     */
+    public List<Chatroom> getChatrooms() {
+        return mSnapshot;
+    }
+
+    /**
+     * Returns the amount of '{@code Chatroom}'s.
+     * @return Amount of '{@code Chatroom}'s.
+     */
+    public int size() {
+        return mSnapshot.size();
+    }
+
+    /**
+     * Reconciles the '{@code Chatroom}'s against the latest trends: '{@code Chatroom}'s are created for new trends and
+     * empty '{@code Chatroom}'s whose trend is no longer trending are removed. The reconciliation is a set difference
+     * that runs in O(rooms + trends).
+     * @param trendNames Names of the latest trends.
+     * @return {@code Reconciliation} describing the '{@code Chatroom}'s that were added and removed.
+     */
+    public Reconciliation reconcile(final Collection<String> trendNames) {
+        return reconcile(trendNames, Collections.emptyMap());
+    }
+
+    /**
+     * Reconciles the '{@code Chatroom}'s against the latest trends (see {@code reconcile(Collection)}), giving new
+     * '{@code Chatroom}'s a known creation time where one is available (e.g. when restoring persisted chatrooms).
+     * New '{@code Chatroom}'s are initialized (which may read their persisted logs) before {@code mWriteLock} is taken.
+     * @param trendNames Names of the latest trends.
+     * @param creationTimes Creation times (in milliseconds since the epoch) of new '{@code Chatroom}'s, keyed by name.
+     * New '{@code Chatroom}'s without a creation time are created now.
+     * @return {@code Reconciliation} describing the '{@code Chatroom}'s that were added and removed.
+     */
+    public Reconciliation reconcile(final Collection<String> trendNames, final Map<String, Long> creationTimes) {
+        long now = System.currentTimeMillis();
+        Set<String> trending = new LinkedHashSet<>(trendNames);
+        List<Chatroom> added = new ArrayList<>();
+        List<Chatroom> removed = new ArrayList<>();
+
+        synchronized(mReconcileLock) {
+            // Create and initialize chatrooms for new trends. Only reconciliations change the set of chatrooms, so
+            // the trends without a chatroom cannot change until they are added.
+            for(String trendName : trending) {
+                if(!mChatrooms.containsKey(trendName)) {
+                    Chatroom chatroom = new Chatroom(trendName, mShardAssigner.apply(trendName),
+                            Chatroom.MESSAGES_TO_CACHE, creationTimes.getOrDefault(trendName, now));
+                    mInitializer.accept(chatroom);
+                    added.add(chatroom);
+                }
+            }
+
+            synchronized(mWriteLock) {
+                // Remove chatrooms that are no longer trending and are empty.
+                for(Chatroom chatroom : mSnapshot) {
+                    if(!trending.contains(chatroom.getName()) && removeIfEmpty(chatroom)) {
+                        removed.add(chatroom);
+                    }
+                }
+
+                // Add the chatrooms created for new trends.
+                for(Chatroom chatroom : added) {
+                    mChatrooms.put(chatroom.getName(), chatroom);
+                }
+
+                if(!added.isEmpty() || !removed.isEmpty()) {
+                    rebuildSnapshot(added);
+                }
+            }
+        }
+
+        return new Reconciliation(added, removed);
+    }
+
+    /**
+     * Closes and removes a {@code Chatroom} if it is empty. Closing is atomic with respect to clients joining the
+     * {@code Chatroom} on its shard, so clients are never added to a {@code Chatroom} that has been removed. Must be
+     * called while holding {@code mWriteLock}.
+     * @return {@code true} if the {@code Chatroom} was removed.
+     */
+    private boolean removeIfEmpty(final Chatroom chatroom) {
+        return chatroom.closeIfEmpty() && mChatrooms.remove(chatroom.getName(), chatroom);
+    }
+
+    /**
+     * Rebuilds the snapshot, preserving the order in which '{@code Chatroom}'s were added. Must be called while holding
+     * {@code mWriteLock}.
+     * @param added '{@code Chatroom}'s that have been added since the snapshot was last rebuilt.
+     */
+    private void rebuildSnapshot(final List<Chatroom> added) {
+        List<Chatroom> snapshot = new ArrayList<>(mChatrooms.size());
+        for(Chatroom chatroom : mSnapshot) {
+            if(mChatrooms.get(chatroom.getName()) == chatroom) {
+                snapshot.add(chatroom);
+            }
+        }
+        snapshot.addAll(added);
+        mSnapshot = Collections.unmodifiableList(snapshot);
+    }
+
+    /**
+     * {@code Reconciliation} describes the '{@code Chatroom}'s added and removed by {@code reconcile}.
+     */
+    public static class Reconciliation {
+
+        private final List<Chatroom> mAdded;
+        private final List<Chatroom> mRemoved;
+
+        Reconciliation(final List<Chatroom> added, final List<Chatroom> removed) {
+            mAdded = Collections.unmodifiableList(added);
+            mRemoved = Collections.unmodifiableList(removed);
+        }
+
+        /**
+         * Returns the '{@code Chatroom}'s that were created for new trends.
+         * @return '{@code Chatroom}'s that were created for new trends.
+         */
+        public List<Chatroom> getAdded() {
+            return mAdded;
+        }
+
+        /**
+         * Returns the empty '{@code Chatroom}'s that were removed because their trend is no longer trending.
+         * @return Empty '{@code Chatroom}'s that were removed.
+         */
+        public List<Chatroom> getRemoved() {
+            return mRemoved;
+        }
+
+    }
+
+}
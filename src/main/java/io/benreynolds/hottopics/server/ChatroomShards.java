@@ -0,0 +1,108 @@
+package io.benreynolds.hottopics.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code ChatroomShards} is a fixed set of single-threaded event loops ("shards"). Each {@code Chatroom} is pinned to
+ * one shard (by the hash of its name) and every join, leave and message for the {@code Chatroom} runs on that shard.
+ * As a {@code Chatroom} is only ever mutated by a single thread, its state requires no locking, and throughput scales
+ * with the amount of shards rather than contending on a single monitor.
+ */
+class ChatroomShards {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChatroomShards.class);
+
+    /** Default amount of shards, one per available processor. */
+    static final int DEFAULT_SHARD_COUNT = Runtime.getRuntime().availableProcessors();
+
+    /** Single-threaded executors, one per shard. */
+    private final ExecutorService[] mExecutors;
+
+    /** '{@code Executor}'s wrapping {@code mExecutors} that log (rather than propagate) task failures. */
+    private final Executor[] mShards;
+
+    /**
+     * @param shardCount Amount of shards.
+     */
+    ChatroomShards(final int shardCount) {
+        mExecutors = new ExecutorService[Math.max(1, shardCount)];
+        mShards = new Executor[mExecutors.length];
+        for(int i = 0; i < mExecutors.length; i++) {
+            final String threadName = String.format("%s-%d", ChatroomShards.class.getSimpleName(), i);
+            final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+
+            mExecutors[i] = executor;
+            mShards[i] = task -> {
+                try {
+                    executor.execute(() -> {
+                        try {
+                            task.run();
+                        } catch (RuntimeException exception) {
+                            LOGGER.error(String.format("[%s] Chatroom task failed.", threadName), exception);
+                        }
+                    });
+                } catch (RejectedExecutionException exception) {
+                    LOGGER.warn(String.format("[%s] Chatroom task submitted after shutdown was dropped.", threadName));
+                }
+            };
+        }
+    }
+
+    /**
+     * Returns the shard that the {@code Chatroom} with the specified name is pinned to.
+     * @param chatroomName Name of the {@code Chatroom}.
+     * @return Shard that the {@code Chatroom} is pinned to.
+     */
+    Executor getShard(final String chatroomName) {
+        return mShards[Math.floorMod(chatroomName.hashCode(), mShards.length)];
+    }
+
+    /**
+     * Returns the amount of shards.
+     * @return Amount of shards.
+     */
+    int getShardCount() {
+        return mShards.length;
+    }
+
+    /**
+     * Stops all shards. Waits for the tasks that have already been submitted to complete for up to the specified
+     * timeout, after which they are interrupted. Tasks submitted once the shards have been stopped are dropped.
+     * @param timeout Maximum time to wait for submitted tasks to complete.
+     * @param unit Unit of {@code timeout}.
+     * @return {@code true} if every submitted task completed within the timeout.
+     */
+    boolean shutdown(final long timeout, final TimeUnit unit) {
+        for(ExecutorService executor : mExecutors) {
+            executor.shutdown();
+        }
+
+        long deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+        boolean terminated = true;
+        for(ExecutorService executor : mExecutors) {
+            try {
+                if(!executor.awaitTermination(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    executor.shutdownNow();
+                    terminated = false;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
+                terminated = false;
+            }
+        }
+        return terminated;
+    }
+
+}
@@ -1,7 +1,6 @@
 package io.benreynolds.hottopics.server;
 
 import io.benreynolds.hottopics.packets.ChatroomsRequestPacket;
-import io.benreynolds.hottopics.packets.ChatroomsResponsePacket;
 import io.benreynolds.hottopics.packets.Packet;
 
 import org.slf4j.Logger;
@@ -21,7 +20,7 @@ public class ChatroomsRequestPacketHandler implements PacketHandler<ChatroomsReq
     private static final Logger LOGGER = LoggerFactory.getLogger(ChatroomsRequestPacketHandler.class);
 
     @Override
-    public void handlePacket(Packet packet, Client sender, Map<Session, Client> clients, List<Chatroom> chatrooms) {
+    public void handlePacket(Packet packet, Client sender, Map<Session, Client> clients, ChatroomRegistry chatrooms) {
         LOGGER.info(String.format("[%s] Processing [%s]...", sender.getSession().getId(), ChatroomsRequestPacket.class.getSimpleName()));
 
         // Ensure that the received Packet is non-null and valid.
@@ -31,8 +30,9 @@ public class ChatroomsRequestPacketHandler implements PacketHandler<ChatroomsReq
             return;
         }
 
-        // Send a packet to the sender containing the currently available chatrooms.
-        sender.sendPacket(new ChatroomsResponsePacket(chatrooms.toArray(new Chatroom[chatrooms.size()])));
+        // Send a packet to the sender containing the currently available chatrooms. Subsequent changes are sent to the
+        // sender as deltas while it remains in the ROOM_LIST state.
+        HotTopicsEndpoint.sendChatroomsListToClient(sender);
     }
 
     @Override
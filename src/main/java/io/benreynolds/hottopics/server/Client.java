@@ -1,10 +1,13 @@
 package io.benreynolds.hottopics.server;
 
 import io.benreynolds.hottopics.packets.Packet;
+import io.benreynolds.hottopics.packets.PacketFrame;
 
 import javax.websocket.Session;
+
 import java.io.IOException;
-import java.time.LocalTime;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
 
 public class Client {
 
@@ -24,39 +27,71 @@ public class Client {
         this.mChatroom = mChatroom;
     }
 
-    public boolean requiresAcknowledgementRequest() {
-        return mRequiresAcknowledgementRequest;
+    /**
+     * Returns the time (in nanoseconds, according to the {@code InactivityMonitor}'s clock) that the client was last
+     * active.
+     * @return Time that the client was last active.
+     */
+    public long getLastSeenNanos() {
+        return mLastSeenNanos;
+    }
+
+    void setLastSeenNanos(final long lastSeenNanos) {
+        mLastSeenNanos = lastSeenNanos;
+    }
+
+    TimerWheel.Timeout getAcknowledgementTimeout() {
+        return mAcknowledgementTimeout;
+    }
+
+    void setAcknowledgementTimeout(final TimerWheel.Timeout acknowledgementTimeout) {
+        mAcknowledgementTimeout = acknowledgementTimeout;
+    }
+
+    TimerWheel.Timeout getDisconnectTimeout() {
+        return mDisconnectTimeout;
     }
 
-    public void setRequiresAcknowledgementRequest(boolean mRequiresAcknowledgementRequest) {
-        this.mRequiresAcknowledgementRequest = mRequiresAcknowledgementRequest;
+    void setDisconnectTimeout(final TimerWheel.Timeout disconnectTimeout) {
+        mDisconnectTimeout = disconnectTimeout;
     }
 
-    public LocalTime getTimeAcknowledgementRequestWasSent() {
-        return mTimeAcknowledgementRequestWasSent;
+    /**
+     * Returns the token that resumes the client's session after it reconnects (see {@code SessionResumption}).
+     * @return Resume token, or {@code null} if the client has not been issued one.
+     */
+    String getResumeToken() {
+        return mResumeToken;
     }
 
-    public void setTimeAcknowledgementRequestWasSent(LocalTime mTimeSinceAcknowledgementRequest) {
-        this.mTimeAcknowledgementRequestWasSent = mTimeSinceAcknowledgementRequest;
+    void setResumeToken(final String resumeToken) {
+        mResumeToken = resumeToken;
     }
 
-    public LocalTime getLastMessageTime() {
-        return mLastMessageTime;
+    TimerWheel.Timeout getResumeTimeout() {
+        return mResumeTimeout;
     }
 
-    public void setLastMessageTime(LocalTime mLastMessageTime) {
-        this.mLastMessageTime = mLastMessageTime;
+    void setResumeTimeout(final TimerWheel.Timeout resumeTimeout) {
+        mResumeTimeout = resumeTimeout;
     }
 
     public enum State { NO_USERNAME, ROOM_LIST, CHAT_ROOM }
 
     private Session mSession = null;
-    private String mUsername = null;
-    private State mState = State.NO_USERNAME;
-    private Chatroom mChatroom = null;
-    private LocalTime mLastMessageTime = LocalTime.now();
-    private LocalTime mTimeAcknowledgementRequestWasSent = LocalTime.now();
-    private boolean mRequiresAcknowledgementRequest = false;
+    private volatile String mUsername = null;
+    private volatile State mState = State.NO_USERNAME;
+    private volatile Chatroom mChatroom = null;
+    private volatile long mLastSeenNanos = 0;
+    /** Expires once the client has been inactive long enough to be asked to acknowledge that it is still connected. */
+    private volatile TimerWheel.Timeout mAcknowledgementTimeout = null;
+    /** Expires once the client has been inactive long enough to be disconnected. */
+    private volatile TimerWheel.Timeout mDisconnectTimeout = null;
+    /** Token that resumes the client's session after it reconnects. */
+    private volatile String mResumeToken = null;
+    /** Expires once the client has been disconnected for longer than its session is held for, while parked. */
+    private volatile TimerWheel.Timeout mResumeTimeout = null;
+    private final OutboundQueue mOutboundQueue = new OutboundQueue(this);
 
     Client(final Session session) {
         mSession = session;
@@ -67,13 +102,66 @@ public class Client {
     }
 
     public void sendPacket(final Packet packet) {
+        sendFrame(new PacketFrame(packet));
+    }
+
+    /**
+     * Queues an already encoded {@code Packet} to be sent to the client. This method never blocks, frames are sent
+     * asynchronously in the order that they were queued (see {@code OutboundQueue}).
+     * @param frame {@code PacketFrame} to send.
+     */
+    public void sendFrame(final PacketFrame frame) {
+        mOutboundQueue.offer(frame);
+    }
+
+    /**
+     * Sends a WebSocket ping to the client, which its WebSocket implementation answers with a pong.
+     * @return True if the ping was sent.
+     */
+    public boolean sendPing() {
+        if(mSession == null || !mSession.isOpen()) {
+            return false;
+        }
+
         try {
-            mSession.getBasicRemote().sendText(packet.toString());
-        } catch (IOException e) {
-            e.printStackTrace();
+            mSession.getAsyncRemote().sendPing(ByteBuffer.allocate(0));
+            return true;
+        } catch (IOException | IllegalStateException exception) {
+            return false;
         }
     }
 
+    /**
+     * Returns the amount of packets waiting to be sent to the client.
+     * @return Amount of packets waiting to be sent to the client.
+     */
+    public int getOutboundQueueDepth() {
+        return mOutboundQueue.getDepth();
+    }
+
+    /**
+     * Returns the amount of packets that have been dropped because the client was unable to keep up.
+     * @return Amount of packets that have been dropped because the client was unable to keep up.
+     */
+    public long getDroppedPacketCount() {
+        return mOutboundQueue.getDroppedFrames();
+    }
+
+    /**
+     * Sets the maximum amount of packets that can be waiting to be sent to the client, and the policy applied once
+     * that amount is exceeded.
+     * @param capacity Maximum amount of packets that can be waiting to be sent to the client.
+     * @param overflowPolicy Policy applied when the capacity is exceeded.
+     * @param roomListResynchronizer Resends the full room list to the client after queued room list updates have been
+     * dropped, {@code null} if they must never be dropped.
+     */
+    void configureOutboundQueue(final int capacity, final OutboundQueue.OverflowPolicy overflowPolicy,
+                                final Consumer<Client> roomListResynchronizer) {
+        mOutboundQueue.setCapacity(capacity);
+        mOutboundQueue.setOverflowPolicy(overflowPolicy);
+        mOutboundQueue.setRoomListResynchronizer(roomListResynchronizer);
+    }
+
     public void setSession(Session mSession) {
         this.mSession = mSession;
     }
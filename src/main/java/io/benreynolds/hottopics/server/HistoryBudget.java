@@ -0,0 +1,165 @@
+package io.benreynolds.hottopics.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * {@code HistoryBudget} keeps the memory held by the cached messages of every {@code Chatroom} (see
+ * {@code MessageHistory}) within a global budget.
+ * <p>
+ * The budget is enforced periodically. While the cached messages exceed the budget, the messages of cold
+ * '{@code Chatroom}'s (those without users and without activity for a while) are evicted, coldest first. Evicted
+ * messages remain available from the '{@code Chatroom}'s persisted log (see {@code MessageStore}) and are reloaded when
+ * the {@code Chatroom} is next joined. '{@code Chatroom}'s with users or recent activity are never evicted, so they
+ * never wait on the log, even if that leaves the cached messages over budget.
+ */
+class HistoryBudget {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HistoryBudget.class);
+
+    /** Default maximum amount of memory (in bytes) held by the cached messages of every {@code Chatroom}. */
+    static final long DEFAULT_BUDGET_BYTES = 64L * 1024 * 1024;
+
+    /** Default time (in milliseconds) that a {@code Chatroom} must be inactive for before its messages are evicted. */
+    static final long DEFAULT_COLD_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    /** Default interval between enforcements of the budget (in milliseconds). */
+    static final long DEFAULT_ENFORCE_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    /** Maximum amount of memory (in bytes) held by the cached messages of every {@code Chatroom}. */
+    private final long mBudgetBytes;
+
+    /** Time (in nanoseconds) that a {@code Chatroom} must be inactive for before its messages are evicted. */
+    private final long mColdNanos;
+
+    /** Returns {@code true} if every message sent within a {@code Chatroom} has been persisted. */
+    private final Predicate<Chatroom> mPersisted;
+
+    /** Source of the current time (in nanoseconds), comparable with {@code Chatroom.getLastActiveNanos}. */
+    private final LongSupplier mClock;
+
+    /** Memory (in bytes) held by the cached messages of every {@code Chatroom} as of the last enforcement. */
+    private volatile long mUsedBytes = 0;
+
+    /** Amount of '{@code Chatroom}'s whose messages have been evicted. */
+    private final AtomicLong mEvictions = new AtomicLong();
+
+    /** {@code true} if the last enforcement could not bring the cached messages within budget. Guarded by
+     * {@code this}. */
+    private boolean mOverBudget = false;
+
+    /**
+     * @param budgetBytes Maximum amount of memory (in bytes) held by the cached messages of every {@code Chatroom}.
+     * @param coldMillis Time (in milliseconds) that a {@code Chatroom} must be inactive for before its messages are
+     *                   evicted.
+     * @param persisted Returns {@code true} if every message sent within a {@code Chatroom} has been persisted.
+     */
+    HistoryBudget(final long budgetBytes, final long coldMillis, final Predicate<Chatroom> persisted) {
+        this(budgetBytes, coldMillis, persisted, System::nanoTime);
+    }
+
+    /**
+     * @param budgetBytes Maximum amount of memory (in bytes) held by the cached messages of every {@code Chatroom}.
+     * @param coldMillis Time (in milliseconds) that a {@code Chatroom} must be inactive for before its messages are
+     *                   evicted.
+     * @param persisted Returns {@code true} if every message sent within a {@code Chatroom} has been persisted.
+     * @param clock Source of the current time (in nanoseconds), comparable with {@code Chatroom.getLastActiveNanos}.
+     */
+    HistoryBudget(final long budgetBytes, final long coldMillis, final Predicate<Chatroom> persisted,
+                  final LongSupplier clock) {
+        mBudgetBytes = Math.max(0, budgetBytes);
+        mColdNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, coldMillis));
+        mPersisted = persisted;
+        mClock = clock;
+    }
+
+    /**
+     * Evicts the messages of cold '{@code Chatroom}'s, coldest first, until the cached messages are expected to be
+     * within budget. Evictions run on each '{@code Chatroom}'s {@code Executor}, which re-checks that the
+     * {@code Chatroom} is still cold.
+     * @param chatrooms Available '{@code Chatroom}'s.
+     * @return Amount of '{@code Chatroom}'s whose messages were scheduled to be evicted.
+     */
+    synchronized int enforce(final List<Chatroom> chatrooms) {
+        long usedBytes = 0;
+        for(Chatroom chatroom : chatrooms) {
+            usedBytes += chatroom.getHistoryBytes();
+        }
+        mUsedBytes = usedBytes;
+        if(usedBytes <= mBudgetBytes) {
+            mOverBudget = false;
+            return 0;
+        }
+
+        long now = mClock.getAsLong();
+        List<Chatroom> candidates = new ArrayList<>();
+        for(Chatroom chatroom : chatrooms) {
+            if(chatroom.getHistoryBytes() > 0 && isCold(chatroom, now)) {
+                candidates.add(chatroom);
+            }
+        }
+        candidates.sort(Comparator.comparingLong(Chatroom::getLastActiveNanos));
+
+        int evictions = 0;
+        for(Chatroom chatroom : candidates) {
+            if(usedBytes <= mBudgetBytes) {
+                break;
+            }
+            usedBytes -= chatroom.getHistoryBytes();
+            evictions++;
+            chatroom.execute(() -> evictIfCold(chatroom));
+        }
+
+        boolean overBudget = usedBytes > mBudgetBytes;
+        if(overBudget && !mOverBudget) {
+            LOGGER.warn(String.format("Cached messages (%d bytes) exceed the history budget (%d bytes), but every " +
+                    "remaining chatroom is active.", usedBytes, mBudgetBytes));
+        }
+        mOverBudget = overBudget;
+        return evictions;
+    }
+
+    /**
+     * Returns the memory (in bytes) held by the cached messages of every {@code Chatroom} as of the last enforcement.
+     * @return Memory held by the cached messages of every {@code Chatroom}.
+     */
+    long getUsedBytes() {
+        return mUsedBytes;
+    }
+
+    /**
+     * Returns the amount of '{@code Chatroom}'s whose messages have been evicted.
+     * @return Amount of '{@code Chatroom}'s whose messages have been evicted.
+     */
+    long getEvictions() {
+        return mEvictions.get();
+    }
+
+    /**
+     * Evicts a '{@code Chatroom}'s messages if it is still cold. Runs on the '{@code Chatroom}'s {@code Executor}, so
+     * no client can join or send a message while the messages are evicted.
+     */
+    private void evictIfCold(final Chatroom chatroom) {
+        if(!chatroom.isHistoryEvicted() && isCold(chatroom, mClock.getAsLong())) {
+            chatroom.evictMessages();
+            mEvictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns {@code true} if a {@code Chatroom} has no users, has been inactive for at least the cold period and has
+     * had every message persisted.
+     */
+    private boolean isCold(final Chatroom chatroom, final long now) {
+        return chatroom.getSize() == 0 && now - chatroom.getLastActiveNanos() >= mColdNanos && mPersisted.test(chatroom);
+    }
+
+}
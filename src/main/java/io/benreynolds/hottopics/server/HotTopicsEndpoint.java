@@ -5,105 +5,329 @@ import io.benreynolds.hottopics.packets.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import twitter4j.Trend;
-
 import javax.websocket.OnClose;
 import javax.websocket.OnMessage;
 import javax.websocket.OnOpen;
+import javax.websocket.PongMessage;
 import javax.websocket.Session;
 import javax.websocket.server.ServerEndpoint;
 
 import java.io.IOException;
-import java.time.Duration;
-import java.time.LocalTime;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 @ServerEndpoint("/chat")
 public class HotTopicsEndpoint {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HotTopicsEndpoint.class);
-    private static final TrendManager TREND_MANAGER = new TrendManager();
+    private static final TrendManager TREND_MANAGER = TrendManager.createFromSystemProperties(
+            HotTopicsEndpoint::refreshChatrooms, HotTopicsEndpoint::getChatroomSize);
+    private static final TrendSnapshotStore TREND_SNAPSHOT_STORE = new TrendSnapshotStore(
+            Paths.get(System.getProperty("hottopics.trendSnapshotFile", "trend-snapshot.bin")));
+    private static final ServerStateStore SERVER_STATE_STORE = new ServerStateStore(
+            Paths.get(System.getProperty("hottopics.serverStateFile", "server-state.bin")));
     private static final Map<Session, Client> CONNECTED_CLIENTS = Collections.synchronizedMap(new HashMap<>());
-    private static final List<Chatroom> CHATROOMS = Collections.synchronizedList(new ArrayList<>());
-    private static final List<PacketHandler> PACKET_HANDLERS = Collections.synchronizedList(Arrays.asList(
-            new SendMessagePacketHandler(),
-            new UsernameRequestPacketHandler(),
-            new ChatroomsRequestPacketHandler(),
-            new JoinChatroomRequestPacketHandler(),
-            new LeaveChatroomRequestPacketHandler()));
+    private static final int OUTBOUND_QUEUE_CAPACITY = Integer.getInteger("hottopics.outboundQueueCapacity",
+            OutboundQueue.DEFAULT_CAPACITY);
+    private static final OutboundQueue.OverflowPolicy OUTBOUND_OVERFLOW_POLICY = getEnumProperty(
+            "hottopics.outboundOverflowPolicy", OutboundQueue.DEFAULT_OVERFLOW_POLICY);
+    /** Amount of packets dropped by the outbound queues of clients that have since disconnected. */
+    private static final AtomicLong DISCONNECTED_DROPPED_PACKETS = new AtomicLong();
+    private static final UsernameRegistry USERNAMES = new UsernameRegistry();
+    private static final ChatroomShards CHATROOM_SHARDS = new ChatroomShards(
+            Integer.getInteger("hottopics.chatroomShards", ChatroomShards.DEFAULT_SHARD_COUNT));
+    private static final MessageStore MESSAGE_STORE = new MessageStore(
+            Paths.get(System.getProperty("hottopics.messageLogDirectory", "message-logs")),
+            Integer.getInteger("hottopics.messageLogSegmentBytes", MessageStore.DEFAULT_SEGMENT_BYTES),
+            Integer.getInteger("hottopics.messageLogSegments", MessageStore.DEFAULT_MAX_SEGMENTS),
+            Long.getLong("hottopics.messageLogSyncMillis", MessageStore.DEFAULT_SYNC_INTERVAL_MILLIS),
+            MessageStore.DEFAULT_QUEUE_CAPACITY,
+            Integer.getInteger("hottopics.messageLogReaderThreads", MessageStore.DEFAULT_READER_THREADS));
+    private static final ChatroomRegistry CHATROOMS = new ChatroomRegistry(CHATROOM_SHARDS::getShard,
+            HotTopicsEndpoint::restoreMessages);
+    private static final ChatroomRanking CHATROOM_RANKING = new ChatroomRanking(
+            Integer.getInteger("hottopics.rankedChatrooms", ChatroomRanking.DEFAULT_TOP_K),
+            Long.getLong("hottopics.activityHalfLifeMillis", ChatroomRanking.DEFAULT_HALF_LIFE_MILLIS));
+    private static final HistoryBudget HISTORY_BUDGET = new HistoryBudget(
+            Long.getLong("hottopics.historyBudgetBytes", HistoryBudget.DEFAULT_BUDGET_BYTES),
+            Long.getLong("hottopics.historyColdMillis", HistoryBudget.DEFAULT_COLD_MILLIS),
+            chatroom -> MESSAGE_STORE.getPersistedSequence(chatroom.getName()) >= chatroom.getNextMessageSequence());
+    private static final PublishedRoomList PUBLISHED_ROOM_LIST = new PublishedRoomList(CHATROOMS, CHATROOM_RANKING);
+    private static final NotificationScheduler NOTIFICATION_SCHEDULER = new NotificationScheduler(
+            Long.getLong("hottopics.notificationTickMillis", NotificationScheduler.DEFAULT_TICK_MILLIS),
+            HotTopicsEndpoint::sendChatroomsUpdateToClients);
+    private static final KeepaliveMode KEEPALIVE_MODE = getEnumProperty("hottopics.keepaliveMode",
+            KeepaliveMode.PING);
+    private static final TimerWheel TIMER_WHEEL = new TimerWheel(TimerWheel.DEFAULT_TICK_MILLIS, TimerWheel.DEFAULT_WHEEL_SIZE);
+    private static final InactivityMonitor INACTIVITY_MONITOR = new InactivityMonitor(TIMER_WHEEL,
+            Long.getLong("hottopics.acknowledgementDelayMillis", InactivityMonitor.DEFAULT_ACKNOWLEDGEMENT_DELAY_MILLIS),
+            Long.getLong("hottopics.acknowledgementTimeoutMillis", InactivityMonitor.DEFAULT_ACKNOWLEDGEMENT_TIMEOUT_MILLIS),
+            HotTopicsEndpoint::requestAcknowledgement, HotTopicsEndpoint::disconnectInactiveClient);
+    private static final SessionResumption SESSION_RESUMPTION = new SessionResumption(TIMER_WHEEL,
+            Long.getLong("hottopics.resumeGraceMillis", SessionResumption.DEFAULT_GRACE_MILLIS),
+            HotTopicsEndpoint::releaseClient);
+    private static final PacketDispatcher PACKET_DISPATCHER = new PacketDispatcher(
+            Arrays.asList(
+                    new SendMessagePacketHandler(),
+                    new UsernameRequestPacketHandler(USERNAMES, SESSION_RESUMPTION),
+                    new ChatroomsRequestPacketHandler(),
+                    new JoinChatroomRequestPacketHandler(),
+                    new LeaveChatroomRequestPacketHandler(),
+                    new AcknowledgementResponsePacketHandler(),
+                    new ChatHistoryRequestPacketHandler(),
+                    new ResumeSessionRequestPacketHandler(USERNAMES, SESSION_RESUMPTION)),
+            // Packets sent by clients, all of which must be handled.
+            Arrays.asList(
+                    SendMessagePacket.class,
+                    UsernameRequestPacket.class,
+                    ChatroomsRequestPacket.class,
+                    JoinChatroomRequestPacket.class,
+                    LeaveChatroomRequestPacket.class,
+                    AcknowledgementResponsePacket.class,
+                    ChatHistoryRequestPacket.class,
+                    ResumeSessionRequestPacket.class));
+
+    /** Maximum time to wait for running background tasks to finish when the server is stopped (in seconds). */
+    private static final long SCHEDULER_SHUTDOWN_TIMEOUT_SECONDS = 10;
+    /** Runs background tasks, {@code null} while the server's background tasks are not running. */
+    private static Scheduler sScheduler;
+    /** Saved state of each chatroom restored at startup, keyed by name, consulted as the chatrooms are recreated. */
+    private static volatile Map<String, ServerStateStore.ChatroomState> sRestoredChatrooms = Collections.emptyMap();
+    /** Serializes saves of the server's state. */
+    private static final Object SERVER_STATE_LOCK = new Object();
+    /** {@code true} once the final state has been saved while stopping, after which periodic saves are skipped.
+     * Guarded by {@code SERVER_STATE_LOCK}. */
+    private static boolean sFinalServerStateSaved = false;
+
+    /**
+     * Starts the server's background tasks: persisting messages, refreshing the available chatrooms as trends are
+     * retrieved (after restoring the chatrooms of the last persisted trends and the last saved server state), saving
+     * the server's state, ranking the chatrooms by activity, keeping cached messages within the history budget,
+     * deleting expired message logs, advancing the {@code TimerWheel} and flushing notifications. Calling this method
+     * while they are running has no effect.
+     */
+    static synchronized void startBackgroundTasks() {
+        if(sScheduler != null) {
+            return;
+        }
 
-    private static Thread tUpdateAvailableChatrooms;
-    private static Thread tRemoveInactiveConnections;
+        sScheduler = new Scheduler(Integer.getInteger("hottopics.schedulerThreads", Scheduler.DEFAULT_THREAD_COUNT));
+        MESSAGE_STORE.start();
+        ServerStateStore.ServerState serverState = loadServerState();
+        restoreTrendSnapshot();
+        restoreServerState(serverState);
+        // Publish the restored chatrooms before clients can connect.
+        NOTIFICATION_SCHEDULER.flush();
+        TREND_MANAGER.start(sScheduler);
+        synchronized(SERVER_STATE_LOCK) {
+            sFinalServerStateSaved = false;
+        }
+        long saveIntervalMillis = Long.getLong("hottopics.serverStateIntervalMillis", ServerStateStore.DEFAULT_SAVE_INTERVAL_MILLIS);
+        sScheduler.scheduleAtFixedRate("SaveServerState", HotTopicsEndpoint::saveServerStatePeriodically,
+                saveIntervalMillis, saveIntervalMillis, TimeUnit.MILLISECONDS);
+        long rankingIntervalMillis = Long.getLong("hottopics.rankingIntervalMillis", ChatroomRanking.DEFAULT_REBUILD_INTERVAL_MILLIS);
+        sScheduler.scheduleAtFixedRate("RankChatrooms", () -> CHATROOM_RANKING.rebuild(CHATROOMS.getChatrooms()),
+                rankingIntervalMillis, rankingIntervalMillis, TimeUnit.MILLISECONDS);
+        long historyBudgetIntervalMillis = Long.getLong("hottopics.historyBudgetIntervalMillis",
+                HistoryBudget.DEFAULT_ENFORCE_INTERVAL_MILLIS);
+        sScheduler.scheduleAtFixedRate("EnforceHistoryBudget", () -> HISTORY_BUDGET.enforce(CHATROOMS.getChatrooms()),
+                historyBudgetIntervalMillis, historyBudgetIntervalMillis, TimeUnit.MILLISECONDS);
+        long messageLogRetentionMillis = Long.getLong("hottopics.messageLogRetentionMillis",
+                MessageStore.DEFAULT_RETENTION_MILLIS);
+        long messageLogSweepIntervalMillis = Long.getLong("hottopics.messageLogSweepIntervalMillis",
+                MessageStore.DEFAULT_SWEEP_INTERVAL_MILLIS);
+        sScheduler.scheduleAtFixedRate("SweepMessageLogs", () -> MESSAGE_STORE.sweep(messageLogRetentionMillis),
+                messageLogSweepIntervalMillis, messageLogSweepIntervalMillis, TimeUnit.MILLISECONDS);
+        sScheduler.scheduleAtFixedRate("AdvanceTimerWheel", TIMER_WHEEL::advance,
+                TIMER_WHEEL.getTickMillis(), TIMER_WHEEL.getTickMillis(), TimeUnit.MILLISECONDS);
+        sScheduler.scheduleAtFixedRate("FlushNotifications", NOTIFICATION_SCHEDULER::flush,
+                NOTIFICATION_SCHEDULER.getTickMillis(), NOTIFICATION_SCHEDULER.getTickMillis(), TimeUnit.MILLISECONDS);
+    }
 
+    /**
+     * Stops the server's background tasks, waiting for running tasks to finish.
+     */
+    static synchronized void stopBackgroundTasks() {
+        if(sScheduler == null) {
+            return;
+        }
 
-    public HotTopicsEndpoint() {
-        if(tUpdateAvailableChatrooms == null || !tUpdateAvailableChatrooms.isAlive()) {
-            tUpdateAvailableChatrooms = new Thread(new UpdateAvailableChatroomsTask());
-            tUpdateAvailableChatrooms.start();
+        TREND_MANAGER.stop();
+        if(!TREND_SNAPSHOT_STORE.stop(SCHEDULER_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            LOGGER.warn("Trend snapshot was not persisted in time.");
+        }
+        if(!sScheduler.shutdown(SCHEDULER_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            LOGGER.warn("Background tasks did not finish in time and were interrupted.");
         }
-        if(tRemoveInactiveConnections == null || !tRemoveInactiveConnections.isAlive()) {
-            tRemoveInactiveConnections = new Thread(new RemoveInactiveConnectionsTask());
-            tRemoveInactiveConnections.start();
+        // Periodic saves have stopped, so the last state saved (the final state, if the server was stopped) is written.
+        if(!SERVER_STATE_STORE.stop(SCHEDULER_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            LOGGER.warn("Server state was not saved in time.");
         }
+        // Complete the chatrooms' queued tasks (e.g. broadcasting messages) before the messages they queue are persisted.
+        if(!CHATROOM_SHARDS.shutdown(SCHEDULER_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            LOGGER.warn("Chatroom tasks did not finish in time and were interrupted.");
+        }
+        if(!MESSAGE_STORE.stop(SCHEDULER_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            LOGGER.warn("Queued messages were not persisted in time.");
+        }
+        if(MESSAGE_STORE.getDroppedMessages() > 0) {
+            LOGGER.warn(String.format("%d messages were not persisted because the message log queue was full.",
+                    MESSAGE_STORE.getDroppedMessages()));
+        }
+        for(Map.Entry<String, Scheduler.TaskMetrics> metrics : sScheduler.getMetrics().entrySet()) {
+            LOGGER.info(String.format("[%s] %s", metrics.getKey(), metrics.getValue()));
+        }
+        LOGGER.info(String.format("Room list was built %d times.", PUBLISHED_ROOM_LIST.getSnapshotBuilds()));
+        LOGGER.info(String.format("%d packets were dropped because clients were unable to keep up.", getDroppedPackets()));
+        LOGGER.info(String.format("Cached messages of %d chatrooms were evicted, %d bytes cached.",
+                HISTORY_BUDGET.getEvictions(), HISTORY_BUDGET.getUsedBytes()));
+        sScheduler = null;
     }
 
     @OnOpen
     public static void onOpen(final Session session) {
         LOGGER.info(String.format("[%s] Opened.", session.getId()));
-        CONNECTED_CLIENTS.put(session, new Client(session));
+        Client client = new Client(session);
+        client.configureOutboundQueue(OUTBOUND_QUEUE_CAPACITY, OUTBOUND_OVERFLOW_POLICY,
+                HotTopicsEndpoint::resendChatroomsList);
+        CONNECTED_CLIENTS.put(session, client);
+        INACTIVITY_MONITOR.monitor(client);
     }
 
     @OnMessage
     public static void onMessage(final String message, final Session session) {
-        // Attempt to de-serialize the received message into a valid Packet instance.
+        // Attempt to de-serialize the received message into a Packet instance. The packet's ID is used to identify its
+        // type while the message is being read, so the message is only parsed once.
         LOGGER.info(String.format("[%s] Received message: \"%s\".", session.getId(), message));
         LOGGER.info(String.format("[%s] Attempting to de-serialize message into a Packet...", session.getId()));
-        UnidentifiedPacket unidentifiedPacket = PacketIdentifier.convertToPacket(message, UnidentifiedPacket.class);
-        if(unidentifiedPacket == null) {
+        Packet packet = PacketCodec.decode(message);
+        if(packet == null) {
             LOGGER.warn(String.format("[%s] Failed to convert message into a valid Packet instance.", session.getId()));
             return;
         }
 
-        Class<?> packetType = unidentifiedPacket.getType();
+        Class<?> packetType = packet.getClass();
         LOGGER.info(String.format("[%s] Successfully identified message as a valid packet of type \"%s\".", session.getId(), packetType.getSimpleName()));
 
         // Handle the Packet.
         Client sender = CONNECTED_CLIENTS.get(session);
-        sender.setLastMessageTime(LocalTime.now());
-        if(packetType == AcknowledgementResponsePacket.class) {
+        INACTIVITY_MONITOR.markActive(sender);
+
+        int packetId = packet.getId();
+        PacketHandler<?> packetHandler = PACKET_DISPATCHER.getHandler(packetId);
+        if(packetHandler == null) {
+            LOGGER.warn(String.format("[%s] No handler exists for packets of type \"%s\".", session.getId(), packetType.getSimpleName()));
             return;
         }
 
-        for(PacketHandler packetHandler : PACKET_HANDLERS) {
-            if(packetHandler.getType().equals(packetType)) {
-                if(packetHandler.getRequiredStates().contains(sender.getState())) {
-                    packetHandler.handlePacket(PacketIdentifier.convertToPacket(message, packetHandler.getType()), sender, CONNECTED_CLIENTS, CHATROOMS);
-                }
-                else {
-                    LOGGER.warn(String.format("[%s] Unexpected packet received for client's current state.", session.getId()));
-                }
-            }
+        if(!PACKET_DISPATCHER.isPermitted(packetId, sender.getState())) {
+            LOGGER.warn(String.format("[%s] Unexpected packet received for client's current state.", session.getId()));
+            return;
+        }
+
+        packetHandler.handlePacket(packet.isValid() ? packet : null, sender, CONNECTED_CLIENTS, CHATROOMS);
+    }
+
+    /**
+     * Marks a client as active when it answers a WebSocket ping (see {@code KeepaliveMode.PING}). Pongs are not decoded.
+     */
+    @OnMessage
+    public static void onPong(final PongMessage message, final Session session) {
+        Client sender = CONNECTED_CLIENTS.get(session);
+        if(sender != null) {
+            INACTIVITY_MONITOR.markActive(sender);
         }
     }
 
     @OnClose
     public static void onClose(final Session session) {
         LOGGER.info(String.format("[%s] Closed.", session.getId()));
-        disconnectClient(CONNECTED_CLIENTS.get(session));
+        Client client = CONNECTED_CLIENTS.get(session);
+        if(client != null) {
+            disconnectClient(client);
+        }
     }
 
     static void disconnectClient(Client client) {
-        if(client.getChatroom() != null) {
-            Chatroom clientChatroom = client.getChatroom();
-            clientChatroom.removeClient(client);
+        if(CONNECTED_CLIENTS.remove(client.getSession()) != null) {
+            recordDroppedPackets(client);
+        }
+        INACTIVITY_MONITOR.stopMonitoring(client);
+
+        // Clients that have been issued a resume token keep their username and chatroom for a grace period, so that
+        // they can resume their session after reconnecting without other clients seeing them leave and rejoin.
+        if(SESSION_RESUMPTION.park(client)) {
+            LOGGER.info(String.format("[%s] Session held for resumption.", client.getSession().getId()));
+        }
+        else {
+            releaseClient(client);
+        }
+
+        closeSession(client);
+    }
 
-            sendUpdatedRoomUserCountToClientsInRoom(clientChatroom);
-            sendUpdatedChatroomsListToClients();
+    /**
+     * Releases the username and chatroom of a client that has disconnected and will not resume its session. Called
+     * when the client disconnects, or by the {@code SessionResumption} once the client's session is no longer held.
+     * @param client Disconnected client.
+     */
+    static void releaseClient(final Client client) {
+        Chatroom clientChatroom = client.getChatroom();
+        if(clientChatroom != null) {
+            client.setChatroom(null);
+            clientChatroom.execute(() -> {
+                if(clientChatroom.removeClient(client)) {
+                    notifyUserCountChanged(clientChatroom);
+                }
+            });
         }
 
-        CONNECTED_CLIENTS.remove(client.getSession());
+        USERNAMES.release(client.getUsername(), client);
+    }
+
+    /**
+     * Detaches the previous connection of a client whose session has been resumed over a new connection, without
+     * releasing its username or chatroom (which are transferred to the new connection). Has no effect if the previous
+     * connection has already disconnected.
+     * @param client Client whose session has been resumed.
+     */
+    static void detachResumedClient(final Client client) {
+        if(CONNECTED_CLIENTS.remove(client.getSession()) != null) {
+            recordDroppedPackets(client);
+            INACTIVITY_MONITOR.stopMonitoring(client);
+            closeSession(client);
+        }
+    }
 
+    /**
+     * Adds the packets dropped by the outbound queue of a client that is no longer connected to the server's total.
+     */
+    private static void recordDroppedPackets(final Client client) {
+        long droppedPackets = client.getDroppedPacketCount();
+        if(droppedPackets > 0) {
+            DISCONNECTED_DROPPED_PACKETS.addAndGet(droppedPackets);
+            LOGGER.info(String.format("[%s] %d packets were dropped, %d were still queued.", client.getSession().getId(),
+                    droppedPackets, client.getOutboundQueueDepth()));
+        }
+    }
+
+    /**
+     * Returns the amount of packets that have been dropped because clients were unable to keep up with them (see
+     * {@code OutboundQueue}), including those dropped for clients that have since disconnected.
+     * @return Amount of packets that have been dropped.
+     */
+    static long getDroppedPackets() {
+        long droppedPackets = DISCONNECTED_DROPPED_PACKETS.get();
+        for(Client client : CONNECTED_CLIENTS.values().toArray(new Client[0])) {
+            droppedPackets += client.getDroppedPacketCount();
+        }
+        return droppedPackets;
+    }
+
+    private static void closeSession(final Client client) {
         if(client.getSession().isOpen()) {
             try {
                 client.getSession().close();
@@ -113,167 +337,351 @@ public class HotTopicsEndpoint {
         }
     }
 
-    static void sendUpdatedChatroomsListToClients() {
-        // Resend the chatroom list to clients in the ROOM_LIST state.
-        ChatroomsResponsePacket chatroomsResponsePacket = new ChatroomsResponsePacket(CHATROOMS.toArray(new Chatroom[CHATROOMS.size()]));
-        for(Client client : CONNECTED_CLIENTS.values()) {
-            if(client.getState() == Client.State.ROOM_LIST) {
-                client.sendPacket(chatroomsResponsePacket);
-            }
-        }
+    /**
+     * Sends the published room list (and its version) to a client, hottest chatrooms first. The list is encoded once
+     * per version and shared between clients (see {@code PublishedRoomList}). Subsequent changes to the list are sent
+     * to clients in the ROOM_LIST state as '{@code ChatroomsUpdatePacket}'s (see {@code sendChatroomsUpdateToClients}).
+     * @param client Client to send the room list to.
+     */
+    static void sendChatroomsListToClient(final Client client) {
+        PUBLISHED_ROOM_LIST.sendSnapshot(client::sendFrame);
     }
 
-    static void sendUpdatedRoomUserCountToClientsInRoom(final Chatroom chatroom) {
-        ChatroomUserCountUpdatePacket chatroomUserCountUpdatePacket = new ChatroomUserCountUpdatePacket(chatroom.getClients().size());
-        for(Client client : chatroom.getClients()) {
-            client.sendPacket(chatroomUserCountUpdatePacket);
+    /**
+     * Resends the room list to a client whose queued room list updates were dropped because it was unable to keep up
+     * (see {@code OutboundQueue}), if it is still viewing the room list.
+     * @param client Client to resend the room list to.
+     */
+    private static void resendChatroomsList(final Client client) {
+        if(client.getState() == Client.State.ROOM_LIST) {
+            sendChatroomsListToClient(client);
         }
     }
 
-    static void retrieveTrendsAndRefreshChatrooms() {
-        String methodName = new Object() {}
-            .getClass()
-            .getEnclosingMethod()
-            .getName();
-
-        LOGGER.info(String.format("[%s]: Retrieving latest trend data and updating chatrooms...", methodName));
-
-        // Request an updated list of currently trending events
-        ArrayList<Trend> trendingTopics = TREND_MANAGER.getTrends();
-
-        LOGGER.info(String.format("[%s]: Retrieved %s trends.", methodName, trendingTopics.size()));
+    /**
+     * Notifies the members of a {@code Chatroom} and clients in the ROOM_LIST state of a change in the amount of users
+     * within the {@code Chatroom}. Notifications are coalesced and sent on the next tick of the
+     * {@code NotificationScheduler}.
+     * @param chatroom {@code Chatroom} whose user count has changed.
+     */
+    static void notifyUserCountChanged(final Chatroom chatroom) {
+        NOTIFICATION_SCHEDULER.markUserCountChanged(chatroom);
+    }
 
-        // If this is the first time a request has been made, populate the chatrooms list with the retrieved trends.
-        if(CHATROOMS.isEmpty()) {
-            LOGGER.info(String.format("[%s]: There are currently no chatrooms, adding chatrooms for all trends...", methodName));
-            for(Trend trend : trendingTopics) {
-                CHATROOMS.add(new Chatroom(trend.getName()));
-            }
-            LOGGER.info(String.format("[%s]: Added %s chatrooms.", methodName, CHATROOMS.size()));
+    /**
+     * Sends changes made to the room list to clients in the ROOM_LIST state as a single, versioned
+     * {@code ChatroomsUpdatePacket}.
+     * @param changes Changes made to the room list.
+     */
+    static void sendChatroomsUpdateToClients(final ChatroomsUpdatePacket.Change... changes) {
+        if(changes.length == 0) {
+            return;
         }
-        else {
-            // Remove chatrooms that are no longer trending and are empty
-            LOGGER.info(String.format("[%s]: Checking for outdated and empty chatrooms...", methodName));
-            for (int i = 0; i < CHATROOMS.size(); i++) {
-                boolean chatroomStillTrending = false;
-                for (Trend trendingTopic : trendingTopics) {
-                    if (CHATROOMS.get(i).getName().equals(trendingTopic.getName())) {
-                        chatroomStillTrending = true;
-                        break;
-                    }
-                }
 
-                if (!chatroomStillTrending && CHATROOMS.get(i).getSize() == 0) {
-                    LOGGER.info(String.format("[%s]: Removing chatroom \"%s\"...", methodName, CHATROOMS.get(i).getName()));
-                    CHATROOMS.remove(i);
+        // The packet is encoded once and the resulting frame is shared between all recipients.
+        PUBLISHED_ROOM_LIST.publish(changes, chatroomsUpdateFrame -> {
+            for(Client client : CONNECTED_CLIENTS.values().toArray(new Client[0])) {
+                if(client.getState() == Client.State.ROOM_LIST) {
+                    client.sendFrame(chatroomsUpdateFrame);
                 }
             }
+        });
+    }
 
-            // Add chatrooms for new trends
-            LOGGER.info(String.format("[%s]: Creating chatrooms for new trends...", methodName));
-            for (Trend trendingTopic : trendingTopics) {
-                boolean chatroomExistsForTrend = false;
-                for (Chatroom chatroom : CHATROOMS) {
-                    if (chatroom.getName().equals(trendingTopic.getName())) {
-                        chatroomExistsForTrend = true;
-                        break;
-                    }
-                }
+    /**
+     * Persists a message that has been broadcast within a chatroom. The message is queued and written in the
+     * background, reusing the frame that it was broadcast in. Must be called on the chatroom's shard, in the order that
+     * messages were sent.
+     * @param chatroom Chatroom that the message was sent within.
+     * @param message Message.
+     * @param frame Encoded message.
+     */
+    static void persistMessage(final Chatroom chatroom, final ReceiveMessagePacket message, final PacketFrame frame) {
+        MESSAGE_STORE.append(chatroom.getName(), message.getSequence(), frame.getText());
+    }
 
-                if (!chatroomExistsForTrend) {
-                    LOGGER.info(String.format("[%s]: Creating chatroom for trend \"%s\"...", methodName, trendingTopic.getName()));
-                    CHATROOMS.add(new Chatroom(trendingTopic.getName()));
-                }
-            }
+    /**
+     * Reads a page of the messages sent within a chatroom before a given message, oldest first, then hands it to
+     * {@code callback}. Recent messages are read from the chatroom's cache and older messages from its persisted log
+     * (see {@code MessageStore.readHistory}). Pages that the cache holds are handed over on the calling thread, pages
+     * that need the log are read and handed over on one of the {@code MessageStore}'s reader threads, so that the
+     * calling (e.g. WebSocket I/O) thread never waits on the disk.
+     * @param chatroom Chatroom that the messages were sent within.
+     * @param beforeSequence Sequence number of the message that the messages were sent before.
+     * @param limit Maximum amount of messages to read.
+     * @param callback Receives the page of messages, oldest first, empty if no older messages are available.
+     */
+    static void readMessageHistory(final Chatroom chatroom, final long beforeSequence, final int limit,
+                                   final Consumer<List<ReceiveMessagePacket>> callback) {
+        MESSAGE_STORE.readHistory(chatroom, beforeSequence, limit, callback);
+    }
+
+    /**
+     * Restores the most recent persisted messages of a new chatroom, so that its history and sequence numbers continue
+     * from its log. Called by the {@code ChatroomRegistry} before the chatroom is made available.
+     * @param chatroom New chatroom.
+     */
+    private static void restoreMessages(final Chatroom chatroom) {
+        long nextSequence = MESSAGE_STORE.getNextSequence(chatroom.getName());
+        ServerStateStore.ChatroomState state = sRestoredChatrooms.get(chatroom.getName());
+        if(state != null && state.getNextSequence() == nextSequence && !state.getMessages().isEmpty()) {
+            // The saved messages are as recent as the log, so they are restored without reading the log.
+            chatroom.restoreMessages(state.getMessages(), nextSequence);
+            return;
         }
 
-        sendUpdatedChatroomsListToClients();
+        if(nextSequence > 0) {
+            chatroom.restoreMessages(MESSAGE_STORE.read(chatroom.getName(),
+                    nextSequence - Chatroom.MESSAGES_TO_CACHE, nextSequence), nextSequence);
+        }
     }
 
-    private static class UpdateAvailableChatroomsTask implements Runnable {
+    /**
+     * Reloads the cached messages of a chatroom whose messages were evicted to keep within the history budget (see
+     * {@code HistoryBudget}), then runs {@code then} on the chatroom's shard. The log is read on one of the
+     * {@code MessageStore}'s reader threads, so that the other chatrooms on the shard are not delayed while it is read.
+     * Must be called on the chatroom's shard, before its messages are read by a client joining it.
+     * @param chatroom Chatroom to reload the cached messages of.
+     * @param then Runs on the chatroom's shard once the messages have been reloaded, immediately if they were not
+     * evicted.
+     */
+    static void reloadEvictedMessages(final Chatroom chatroom, final Runnable then) {
+        if(!chatroom.isHistoryEvicted()) {
+            then.run();
+            return;
+        }
 
-        private static final int MILLISECONDS_IN_SECOND = 1000;
-        private static final int SECONDS_IN_MINUTE = 60;
-        private static final int TREND_UPDATE_RATE_MINUTES = 5;
+        long nextSequence = chatroom.getNextMessageSequence();
+        long fromSequence = Math.max(0, nextSequence - Chatroom.MESSAGES_TO_CACHE);
+        MESSAGE_STORE.readAsync(chatroom.getName(), fromSequence, nextSequence, messages -> chatroom.execute(() -> {
+            // Another client may have reloaded the messages while they were being read.
+            if(chatroom.isHistoryEvicted()) {
+                chatroom.reloadMessages(messages);
+            }
+            then.run();
+        }));
+    }
+
+    /**
+     * Saves the server's state (see {@code ServerStateStore}) while the server is stopping, before clients are
+     * disconnected, so that the chatrooms, their recent messages and the usernames of the connected clients can be
+     * restored by the next process. The state is captured immediately and written by {@code stopBackgroundTasks} at the
+     * latest. Periodic saves are skipped afterwards, so that the saved state is not replaced by the state of a server
+     * whose clients have been disconnected.
+     */
+    static void saveFinalServerState() {
+        synchronized(SERVER_STATE_LOCK) {
+            saveServerState();
+            sFinalServerStateSaved = true;
+        }
+    }
 
-        private static Timer mUpdateTimer;
+    private static void saveServerStatePeriodically() {
+        synchronized(SERVER_STATE_LOCK) {
+            if(!sFinalServerStateSaved) {
+                saveServerState();
+            }
+        }
+    }
 
-        @Override
-        public void run() {
+    /**
+     * Captures the state of every chatroom and the claimed (or reserved) usernames, which is written by the
+     * {@code ServerStateStore}'s writer so that the scheduler's other tasks are not delayed by the disk. Must be called
+     * while holding {@code SERVER_STATE_LOCK}.
+     */
+    private static void saveServerState() {
+        List<ServerStateStore.ChatroomState> chatrooms = new ArrayList<>();
+        for(Chatroom chatroom : CHATROOMS.getChatrooms()) {
+            chatrooms.add(ServerStateStore.ChatroomState.capture(chatroom));
+        }
 
-            retrieveTrendsAndRefreshChatrooms();
+        SERVER_STATE_STORE.saveAsync(new ServerStateStore.ServerState(System.currentTimeMillis(), chatrooms,
+                USERNAMES.getUsernames()));
+    }
 
-            mUpdateTimer = new Timer(SECONDS_IN_MINUTE * TREND_UPDATE_RATE_MINUTES);
-            mUpdateTimer.start();
+    /**
+     * Loads the last saved server state, making the state of its chatrooms available to {@code restoreMessages} as the
+     * chatrooms are recreated.
+     * @return Last saved server state, or {@code null} if none could be loaded.
+     */
+    private static ServerStateStore.ServerState loadServerState() {
+        ServerStateStore.ServerState serverState;
+        try {
+            serverState = SERVER_STATE_STORE.load();
+        } catch (IOException exception) {
+            LOGGER.warn("Failed to load the saved server state, chatroom history will be restored from the message logs.", exception);
+            return null;
+        }
 
-            while(!Thread.interrupted()) {
+        if(serverState != null) {
+            Map<String, ServerStateStore.ChatroomState> restoredChatrooms = new HashMap<>();
+            for(ServerStateStore.ChatroomState chatroom : serverState.getChatrooms()) {
+                restoredChatrooms.put(chatroom.getName(), chatroom);
+            }
+            sRestoredChatrooms = restoredChatrooms;
+        }
+        return serverState;
+    }
 
-                LOGGER.info(String.format("Time before next trend/chatrooms update: %s minutes.", Math.round(mUpdateTimer.getTimeRemaining() / SECONDS_IN_MINUTE)));
+    /**
+     * Restores the last saved server state: the saved chatrooms are recreated (unless they were restored from the
+     * trend snapshot), their activity is restored so that they keep their ranking, and the usernames of the clients
+     * that were connected are reserved while those clients reconnect.
+     * @param serverState Last saved server state, may be {@code null}.
+     */
+    private static void restoreServerState(final ServerStateStore.ServerState serverState) {
+        if(serverState == null) {
+            return;
+        }
 
-                if(mUpdateTimer.hasElapsed()) {
-                    retrieveTrendsAndRefreshChatrooms();
-                    mUpdateTimer.start();
-                }
+        if(CHATROOMS.size() == 0) {
+            Map<String, Long> creationTimes = new LinkedHashMap<>();
+            for(ServerStateStore.ChatroomState chatroom : serverState.getChatrooms()) {
+                creationTimes.put(chatroom.getName(), chatroom.getCreatedAtMillis());
+            }
+            markChatroomsAdded(CHATROOMS.reconcile(creationTimes.keySet(), creationTimes));
+        }
 
-                try {
-                    Thread.sleep(MILLISECONDS_IN_SECOND * SECONDS_IN_MINUTE);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
+        for(ServerStateStore.ChatroomState state : serverState.getChatrooms()) {
+            Chatroom chatroom = CHATROOMS.get(state.getName());
+            if(chatroom != null) {
+                CHATROOM_RANKING.restore(chatroom, state.getDecayedMessages(), state.getDecayedJoins(), state.getSize());
             }
         }
+        CHATROOM_RANKING.rebuild(CHATROOMS.getChatrooms());
+        sRestoredChatrooms = Collections.emptyMap();
 
+        long reservationMillis = Long.getLong("hottopics.usernameReservationMillis", UsernameRegistry.DEFAULT_RESERVATION_MILLIS);
+        for(Map.Entry<String, String> username : serverState.getUsernames().entrySet()) {
+            USERNAMES.reserve(username.getKey(), username.getValue(), reservationMillis);
+        }
+
+        LOGGER.info(String.format("Restored server state saved at %s: %d chatrooms are available and %d usernames are " +
+                "reserved.", new Date(serverState.getSavedAtMillis()), CHATROOMS.size(), serverState.getUsernames().size()));
     }
 
-    private static class RemoveInactiveConnectionsTask implements Runnable {
+    /**
+     * Restores the chatrooms (and trends) that were persisted before the server last stopped, so that clients can list
+     * and join chatrooms immediately. The {@code TrendManager} refreshes the restored trends once they are due.
+     */
+    private static void restoreTrendSnapshot() {
+        TrendSnapshotStore.StoredSnapshot storedSnapshot;
+        try {
+            storedSnapshot = TREND_SNAPSHOT_STORE.load();
+        } catch (IOException exception) {
+            LOGGER.warn("Failed to load the persisted trend snapshot, chatrooms will be created once trends are retrieved.", exception);
+            return;
+        }
 
-        private static long TIME_BEFORE_ACK_REQUIRED_MINS = 1;
-        private static long TIME_BEFORE_ACK_FAILED_MINS = 1;
+        if(storedSnapshot == null) {
+            return;
+        }
 
-    @Override
-    public void run() {
+        TREND_MANAGER.restore(storedSnapshot.getSnapshot());
+        markChatroomsAdded(CHATROOMS.reconcile(storedSnapshot.getCreationTimes().keySet(), storedSnapshot.getCreationTimes()));
+        LOGGER.info(String.format("Restored %d chatrooms from trends retrieved at %s.", CHATROOMS.size(),
+                new Date(storedSnapshot.getSnapshot().getRetrievedAtMillis())));
+    }
 
-        LinkedList<Client> clientsToDisconnect = new LinkedList<>();
+    /**
+     * Schedules the publication of chatrooms that were restored at startup, so that they are added to the published
+     * room list (see {@code PublishedRoomList}).
+     */
+    private static void markChatroomsAdded(final ChatroomRegistry.Reconciliation reconciliation) {
+        for(Chatroom chatroom : reconciliation.getAdded()) {
+            NOTIFICATION_SCHEDULER.markChatroomAdded(chatroom);
+        }
+    }
 
-        while(true) {
+    /**
+     * Returns the amount of users in the chatroom of a trend, used by the {@code TrendManager} to refresh the most
+     * popular locations first.
+     * @param trendName Name of the trend.
+     * @return Amount of users in the trend's chatroom, 0 if it has no chatroom.
+     */
+    private static int getChatroomSize(final String trendName) {
+        Chatroom chatroom = CHATROOMS.get(trendName);
+        return chatroom == null ? 0 : chatroom.getSize();
+    }
 
-            LOGGER.info(String.format("[%s]: Attempting to remove inactive connections...", getClass().getSimpleName()));
+    /**
+     * Creates chatrooms for new trends and removes empty chatrooms that are no longer trending. Called by the
+     * {@code TrendManager} each time trends are retrieved.
+     * @param trends Latest trends.
+     */
+    static void refreshChatrooms(final TrendSnapshot trends) {
+        String methodName = new Object() {}
+            .getClass()
+            .getEnclosingMethod()
+            .getName();
 
-            LocalTime currentTime = LocalTime.now();
-            for (Client client : CONNECTED_CLIENTS.values()) {
-                LocalTime lastMessageTime = client.getLastMessageTime();
-                if (client.requiresAcknowledgementRequest()) {
-                    LocalTime acknowledgementRequestTime = client.getTimeAcknowledgementRequestWasSent();
-                    if (Duration.between(lastMessageTime, acknowledgementRequestTime).toMillis() > TimeUnit.MINUTES.toMillis(TIME_BEFORE_ACK_FAILED_MINS)) {
-                        clientsToDisconnect.add(client);
-                        continue;
-                    }
-                }
+        LOGGER.info(String.format("[%s]: Retrieved %s trends, updating chatrooms...", methodName, trends.getNames().size()));
 
-                if (Duration.between(lastMessageTime, currentTime).toMillis() > TimeUnit.MINUTES.toMillis(TIME_BEFORE_ACK_REQUIRED_MINS)) {
-                    client.setRequiresAcknowledgementRequest(true);
-                    client.setTimeAcknowledgementRequestWasSent(currentTime);
-                    client.sendPacket(new AcknowledgementRequestPacket());
-                    LOGGER.info(String.format("[%s]: Client \"%s\" was sent an acknowledgement request.", getClass().getSimpleName(), client.getSession().getId()));
-                }
-            }
+        // Create chatrooms for new trends and remove empty chatrooms that are no longer trending.
+        ChatroomRegistry.Reconciliation reconciliation = CHATROOMS.reconcile(trends.getNames());
+        for(Chatroom chatroom : reconciliation.getRemoved()) {
+            LOGGER.info(String.format("[%s]: Removed chatroom \"%s\".", methodName, chatroom.getName()));
+            NOTIFICATION_SCHEDULER.markChatroomRemoved(chatroom);
+            MESSAGE_STORE.close(chatroom.getName());
+        }
+        for(Chatroom chatroom : reconciliation.getAdded()) {
+            LOGGER.info(String.format("[%s]: Created chatroom for trend \"%s\".", methodName, chatroom.getName()));
+            NOTIFICATION_SCHEDULER.markChatroomAdded(chatroom);
+        }
 
-            try {
-                Thread.sleep(5000);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
+        LOGGER.info(String.format("[%s]: Added %s and removed %s chatrooms, %s chatrooms are available.", methodName,
+                reconciliation.getAdded().size(), reconciliation.getRemoved().size(), CHATROOMS.size()));
 
-            while(!clientsToDisconnect.isEmpty()) {
-                Client clientToDisconnect = clientsToDisconnect.poll();
-                disconnectClient(clientToDisconnect);
-                LOGGER.info(String.format("[%s]: Disconnected client \"%s\"", getClass().getSimpleName(), clientToDisconnect.getSession().getId()));
-            }
+        // Persist the trends and chatrooms so that they can be restored immediately after a restart. The snapshot is
+        // written by the store's writer, so that the next refresh is not delayed by the disk.
+        TREND_SNAPSHOT_STORE.saveAsync(trends, CHATROOMS.getChatrooms());
+    }
 
+    /**
+     * Asks a client that has been inactive to acknowledge that it is still connected, using a ping or an
+     * {@code AcknowledgementRequestPacket} depending on the {@code KeepaliveMode}. Called by the
+     * {@code InactivityMonitor}.
+     * @param client Inactive client.
+     */
+    private static void requestAcknowledgement(final Client client) {
+        if(KEEPALIVE_MODE.requestAcknowledgement(client) == KeepaliveMode.PING) {
+            LOGGER.info(String.format("[%s] Client was sent a ping.", client.getSession().getId()));
+        }
+        else {
+            LOGGER.info(String.format("[%s] Client was sent an acknowledgement request.", client.getSession().getId()));
         }
+    }
 
+    /**
+     * Disconnects a client that failed to acknowledge that it is still connected. Called by the
+     * {@code InactivityMonitor}.
+     * @param client Inactive client.
+     */
+    private static void disconnectInactiveClient(final Client client) {
+        disconnectClient(client);
+        LOGGER.info(String.format("[%s] Disconnected inactive client.", client.getSession().getId()));
     }
 
-}
+    /**
+     * Returns the value of a system property naming a constant of an enum, ignoring case. A missing or unrecognised
+     * value is logged and the default value is returned, so that a typo never prevents the server from starting.
+     * @param key Name of the system property.
+     * @param defaultValue Value returned if the property is missing or unrecognised.
+     * @return Enum constant named by the property, or {@code defaultValue}.
+     */
+    static <E extends Enum<E>> E getEnumProperty(final String key, final E defaultValue) {
+        String value = System.getProperty(key);
+        if(value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Enum.valueOf(defaultValue.getDeclaringClass(), value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException exception) {
+            LOGGER.warn(String.format("Unrecognised value \"%s\" for \"%s\", expected one of %s. Using %s.", value, key,
+                    Arrays.toString(defaultValue.getDeclaringClass().getEnumConstants()), defaultValue));
+            return defaultValue;
+        }
+    }
 
 }
@@ -11,16 +11,38 @@ class HotTopicsServer {
 
     private Server mServer;
 
+    /** {@code true} once the server has started accepting connections. Guarded by {@code this}. */
+    private boolean mStarted = false;
+
+    /** {@code true} once the server has been stopped. Guarded by {@code this}. */
+    private boolean mStopped = false;
+
     HotTopicsServer() {
         mServer = new Server(HOST_NAME, PORT, ROOT_PATH, HotTopicsEndpoint.class);
     }
 
-    void start() throws DeploymentException {
+    synchronized void start() throws DeploymentException {
+        HotTopicsEndpoint.startBackgroundTasks();
         mServer.start();
+        mStarted = true;
     }
 
-    void stop() {
+    /**
+     * Stops the server and its background tasks. Calling this method once the server has been stopped has no effect.
+     */
+    synchronized void stop() {
+        if(mStopped) {
+            return;
+        }
+        mStopped = true;
+
+        // Save the server's state while clients are still connected, as stopping the server disconnects them. A server
+        // that failed to start has no state of its own, so the state saved by the last server is kept.
+        if(mStarted) {
+            HotTopicsEndpoint.saveFinalServerState();
+        }
         mServer.stop();
+        HotTopicsEndpoint.stopBackgroundTasks();
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,96 @@
+package io.benreynolds.hottopics.server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * {@code InactivityMonitor} detects clients that have stopped communicating with the server. Each monitored client has
+ * two timeouts on a {@code TimerWheel}: once the client has been inactive for the acknowledgement delay it is asked to
+ * acknowledge that it is still connected, and once it has been inactive for a further acknowledgement timeout it is
+ * disconnected. Both timeouts are re-armed in constant time whenever the client is active.
+ */
+class InactivityMonitor {
+
+    /** Default time a client may be inactive before it is asked to acknowledge that it is still connected. */
+    static final long DEFAULT_ACKNOWLEDGEMENT_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /** Default time a client has to acknowledge that it is still connected before it is disconnected. */
+    static final long DEFAULT_ACKNOWLEDGEMENT_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /** {@code TimerWheel} that the timeouts are scheduled on. */
+    private final TimerWheel mTimerWheel;
+
+    /** Time (in nanoseconds) a client may be inactive before it is asked to acknowledge that it is still connected. */
+    private final long mAcknowledgementDelayNanos;
+
+    /** Time (in nanoseconds) a client may be inactive before it is disconnected. */
+    private final long mDisconnectDelayNanos;
+
+    /** Asks a client to acknowledge that it is still connected. */
+    private final Consumer<Client> mAcknowledgementRequester;
+
+    /** Disconnects a client. */
+    private final Consumer<Client> mDisconnector;
+
+    /**
+     * @param timerWheel {@code TimerWheel} that the timeouts are scheduled on.
+     * @param acknowledgementDelayMillis Time a client may be inactive before it is asked to acknowledge that it is
+     *                                   still connected.
+     * @param acknowledgementTimeoutMillis Time a client has to acknowledge that it is still connected before it is
+     *                                     disconnected.
+     * @param acknowledgementRequester Asks a client to acknowledge that it is still connected.
+     * @param disconnector Disconnects a client.
+     */
+    InactivityMonitor(final TimerWheel timerWheel, final long acknowledgementDelayMillis,
+                      final long acknowledgementTimeoutMillis, final Consumer<Client> acknowledgementRequester,
+                      final Consumer<Client> disconnector) {
+        mTimerWheel = timerWheel;
+        mAcknowledgementDelayNanos = TimeUnit.MILLISECONDS.toNanos(acknowledgementDelayMillis);
+        mDisconnectDelayNanos = mAcknowledgementDelayNanos + TimeUnit.MILLISECONDS.toNanos(acknowledgementTimeoutMillis);
+        mAcknowledgementRequester = acknowledgementRequester;
+        mDisconnector = disconnector;
+    }
+
+    /**
+     * Starts monitoring a client, treating it as active now.
+     * @param client Client to monitor.
+     */
+    void monitor(final Client client) {
+        client.setLastSeenNanos(mTimerWheel.now());
+        client.setAcknowledgementTimeout(mTimerWheel.newTimeout(() -> mAcknowledgementRequester.accept(client),
+                mAcknowledgementDelayNanos, TimeUnit.NANOSECONDS));
+        client.setDisconnectTimeout(mTimerWheel.newTimeout(() -> mDisconnector.accept(client),
+                mDisconnectDelayNanos, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * Marks a client as active, postponing both of its timeouts. May be called from any thread.
+     * @param client Client that has been active.
+     */
+    void markActive(final Client client) {
+        TimerWheel.Timeout acknowledgementTimeout = client.getAcknowledgementTimeout();
+        TimerWheel.Timeout disconnectTimeout = client.getDisconnectTimeout();
+        if(acknowledgementTimeout == null || disconnectTimeout == null) {
+            return;
+        }
+
+        long now = mTimerWheel.now();
+        client.setLastSeenNanos(now);
+        acknowledgementTimeout.rearm(now + mAcknowledgementDelayNanos);
+        disconnectTimeout.rearm(now + mDisconnectDelayNanos);
+    }
+
+    /**
+     * Stops monitoring a client.
+     * @param client Client to stop monitoring.
+     */
+    void stopMonitoring(final Client client) {
+        if(client.getAcknowledgementTimeout() != null) {
+            client.getAcknowledgementTimeout().cancel();
+        }
+        if(client.getDisconnectTimeout() != null) {
+            client.getDisconnectTimeout().cancel();
+        }
+    }
+
+}
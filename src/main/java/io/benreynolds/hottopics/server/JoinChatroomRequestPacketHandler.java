@@ -22,7 +22,7 @@ public class JoinChatroomRequestPacketHandler implements PacketHandler<JoinChatr
     private static final Logger LOGGER = LoggerFactory.getLogger(JoinChatroomRequestPacketHandler.class);
 
     @Override
-    public void handlePacket(Packet packet, Client sender, Map<Session, Client> clients, List<Chatroom> chatrooms) {
+    public void handlePacket(Packet packet, Client sender, Map<Session, Client> clients, ChatroomRegistry chatrooms) {
 
         LOGGER.info(String.format("[%s] Processing [%s]...", sender.getSession().getId(), JoinChatroomRequestPacket.class.getSimpleName()));
         // Ensure that the received Packet is non-null and valid.
@@ -33,24 +33,38 @@ public class JoinChatroomRequestPacketHandler implements PacketHandler<JoinChatr
             return;
         }
 
-        // Search for the specified chatroom and add the user to to it.
-        for(Chatroom chatroom : chatrooms) {
-            if(!chatroom.getName().equals(joinChatroomRequestPacket.getChatroomName())) {
-                continue;
-            }
-
-            chatroom.addClient(sender);
-
+        // Look up the specified chatroom and add the user to it on the chatroom's shard. The client's state is updated
+        // immediately so that packets it sends after joining are accepted, and reverted if the chatroom has been closed.
+        Chatroom chatroom = chatrooms.get(joinChatroomRequestPacket.getChatroomName());
+        if(chatroom != null) {
             sender.setState(Client.State.CHAT_ROOM);
             sender.setChatroom(chatroom);
 
-            sender.sendPacket(new JoinChatroomResponsePacket(true));
-
-            LOGGER.info(String.format("[%s] Entered chatroom [%s]...", sender.getSession().getId(), chatroom.getName()));
-
-            // Update clients with the new user count information for the specified chatroom.
-            HotTopicsEndpoint.sendUpdatedChatroomsListToClients();
-            HotTopicsEndpoint.sendUpdatedRoomUserCountToClientsInRoom(chatroom);
+            chatroom.execute(() -> {
+                if(!chatroom.addClient(sender)) {
+                    LOGGER.info(String.format("[%s] Specified chatroom has been closed.", sender.getSession().getId()));
+                    if(sender.getChatroom() == chatroom) {
+                        sender.setChatroom(null);
+                        sender.setState(Client.State.ROOM_LIST);
+                    }
+                    sender.sendPacket(new JoinChatroomResponsePacket(false));
+                    return;
+                }
+
+                sender.sendPacket(new JoinChatroomResponsePacket(true));
+
+                // Reload the chatroom's messages if they were evicted while it was cold, then send the most recent
+                // messages sent before the sender joined. Messages sent after it joined are broadcast to it, as it is
+                // now a member of the chatroom, and may arrive before this page if the messages have to be reloaded.
+                final long joinedSequence = chatroom.getNextMessageSequence();
+                HotTopicsEndpoint.reloadEvictedMessages(chatroom, () -> ChatHistoryRequestPacketHandler.sendHistory(
+                        sender, chatroom, joinedSequence, ChatHistoryRequestPacketHandler.DEFAULT_PAGE_SIZE));
+
+                LOGGER.info(String.format("[%s] Entered chatroom [%s]...", sender.getSession().getId(), chatroom.getName()));
+
+                // Update clients with the new user count information for the specified chatroom.
+                HotTopicsEndpoint.notifyUserCountChanged(chatroom);
+            });
 
             return;
         }
@@ -0,0 +1,34 @@
+package io.benreynolds.hottopics.server;
+
+import io.benreynolds.hottopics.packets.AcknowledgementRequestPacket;
+
+/**
+ * {@code KeepaliveMode} determines how an inactive client is asked to acknowledge that it is still connected. In either
+ * mode, any message received from the client (including an {@code AcknowledgementResponsePacket} or a WebSocket pong)
+ * marks it as active, so clients that only understand one of the modes keep working.
+ */
+public enum KeepaliveMode {
+
+    /** Send a WebSocket ping control frame, which the client's WebSocket implementation answers with a pong. */
+    PING,
+
+    /** Send an {@code AcknowledgementRequestPacket}, which the client answers with an
+     * {@code AcknowledgementResponsePacket}. */
+    PACKET;
+
+    /**
+     * Asks an inactive client to acknowledge that it is still connected. A client that cannot be sent a ping (e.g.
+     * because its session is closing) is sent an {@code AcknowledgementRequestPacket} instead.
+     * @param client Inactive client.
+     * @return {@code KeepaliveMode} that the client was asked with.
+     */
+    KeepaliveMode requestAcknowledgement(final Client client) {
+        if(this == PING && client.sendPing()) {
+            return PING;
+        }
+
+        client.sendPacket(new AcknowledgementRequestPacket());
+        return PACKET;
+    }
+
+}
@@ -22,7 +22,7 @@ public class LeaveChatroomRequestPacketHandler implements PacketHandler<LeaveCha
     private static final Logger LOGGER = LoggerFactory.getLogger(LeaveChatroomRequestPacket.class);
 
     @Override
-    public void handlePacket(Packet packet, Client sender, Map<Session, Client> clients, List<Chatroom> chatrooms) {
+    public void handlePacket(Packet packet, Client sender, Map<Session, Client> clients, ChatroomRegistry chatrooms) {
 
         LOGGER.info(String.format("[%s] Processing [%s]...", sender.getSession().getId(), LeaveChatroomRequestPacket.class.getSimpleName()));
         // Ensure that the received Packet is non-null and valid.
@@ -33,17 +33,21 @@ public class LeaveChatroomRequestPacketHandler implements PacketHandler<LeaveCha
             return;
         }
 
-        // Remove the client from the chatroom and notify other clients of the updated user counts.
+        // Remove the client from the chatroom (on the chatroom's shard) and notify other clients of the updated user
+        // counts.
         Chatroom chatroomToLeave = sender.getChatroom();
-        if(chatroomToLeave != null && chatroomToLeave.containsClient(sender)) {
+        if(chatroomToLeave != null) {
             LOGGER.info(String.format("[%s] Removing client from room [%s]...", sender.getSession().getId(), chatroomToLeave.getName()));
 
-            chatroomToLeave.removeClient(sender);
             sender.setChatroom(null);
             sender.setState(Client.State.ROOM_LIST);
             sender.sendPacket(new LeaveChatroomResponsePacket(true));
 
-            HotTopicsEndpoint.sendUpdatedRoomUserCountToClientsInRoom(chatroomToLeave);
+            chatroomToLeave.execute(() -> {
+                if(chatroomToLeave.removeClient(sender)) {
+                    HotTopicsEndpoint.notifyUserCountChanged(chatroomToLeave);
+                }
+            });
 
             return;
         }
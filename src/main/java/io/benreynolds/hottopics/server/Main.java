@@ -1,8 +1,5 @@
 package io.benreynolds.hottopics.server;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-
 public class Main {
 
     public static void main(String[] args) {
@@ -10,13 +7,17 @@ public class Main {
         HotTopicsServer hotTopicsServer = new HotTopicsServer();
         try {
             hotTopicsServer.start();
-            BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
-            while(true) {
-                continue;
-            }
         } catch (Exception exception) {
             exception.printStackTrace();
-        } finally {
+            hotTopicsServer.stop();
+            return;
+        }
+
+        // Run until the process is terminated, stopping the server (and its background tasks) cleanly on the way out.
+        Runtime.getRuntime().addShutdownHook(new Thread(hotTopicsServer::stop));
+        try {
+            Thread.currentThread().join();
+        } catch (InterruptedException e) {
             hotTopicsServer.stop();
         }
 
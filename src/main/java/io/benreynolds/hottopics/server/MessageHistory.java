@@ -0,0 +1,242 @@
+package io.benreynolds.hottopics.server;
+
+import io.benreynolds.hottopics.packets.ReceiveMessagePacket;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * {@code MessageHistory} is a fixed-capacity ring buffer holding the most recent messages sent within a
+ * {@code Chatroom}. Messages are appended by a single writer (the '{@code Chatroom}'s shard) without allocating, and
+ * any number of readers can take a consistent snapshot without locking.
+ * <p>
+ * Each slot records the sequence number of the message it holds. The writer invalidates a slot's sequence number
+ * before replacing its message and publishes the new sequence number afterwards, so a reader that observes the same
+ * expected sequence number before and after reading a message knows the message was not overwritten mid-read.
+ * <p>
+ * The writer keeps an estimate of the memory held by the messages, so that the history of every {@code Chatroom} can
+ * be kept within a global budget (see {@code HistoryBudget}). A cold {@code Chatroom}'s messages can be evicted, leaving
+ * only its sequence numbers, and reloaded from its persisted log when it is next joined.
+ */
+public class MessageHistory {
+
+    /** Sequence number recorded in a slot while its message is being replaced. */
+    private static final long WRITING = -1;
+
+    /** Estimated amount of memory (in bytes) held by a message, excluding the characters of its author and text: the
+     * packet, its sequence number and two {@code String}s with their backing arrays. */
+    private static final long MESSAGE_OVERHEAD_BYTES = 112;
+
+    /** Messages, indexed by sequence number modulo capacity. */
+    private final AtomicReferenceArray<ReceiveMessagePacket> mMessages;
+
+    /** Sequence number of the message held in each slot. */
+    private final AtomicLongArray mSequences;
+
+    /** Sequence number that will be assigned to the next message (i.e. the amount of messages ever added). */
+    private volatile long mNextSequence = 0;
+
+    /** Estimated amount of memory (in bytes) held by the messages. Only written by the writer. */
+    private volatile long mEstimatedBytes = 0;
+
+    /** {@code true} if the messages have been evicted and not yet reloaded. Only written by the writer. */
+    private volatile boolean mEvicted = false;
+
+    /**
+     * @param capacity Maximum amount of messages held.
+     */
+    public MessageHistory(final int capacity) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+
+        mMessages = new AtomicReferenceArray<>(capacity);
+        mSequences = new AtomicLongArray(capacity);
+        for(int i = 0; i < capacity; i++) {
+            mSequences.set(i, WRITING);
+        }
+    }
+
+    /**
+     * Adds a message, replacing the oldest message if the {@code MessageHistory} is full. Must only be called by a
+     * single writer.
+     * @param message Message to add.
+     * @return Sequence number assigned to the message.
+     */
+    public long add(final ReceiveMessagePacket message) {
+        long sequence = mNextSequence;
+        set(sequence, message);
+        mNextSequence = sequence + 1;
+
+        return sequence;
+    }
+
+    /**
+     * Evicts every held message, keeping the sequence number that will be assigned to the next message. Readers see an
+     * empty history until the messages are reloaded or new messages are added. Must only be called by the writer.
+     */
+    public void evict() {
+        for(int slot = 0; slot < mMessages.length(); slot++) {
+            mSequences.set(slot, WRITING);
+            mMessages.set(slot, null);
+        }
+        mEstimatedBytes = 0;
+        mEvicted = true;
+    }
+
+    /**
+     * Reloads evicted messages from a persisted log (see {@code MessageStore}). Only messages that would still be held
+     * had they not been evicted, and whose slots have not since been reused, are reloaded. Must only be called by the
+     * writer.
+     * @param messages Persisted messages, oldest first.
+     */
+    public void reload(final List<ReceiveMessagePacket> messages) {
+        long next = mNextSequence;
+        for(ReceiveMessagePacket message : messages) {
+            Long sequence = message.getSequence();
+            if(sequence == null || sequence >= next || sequence < next - mMessages.length()) {
+                continue;
+            }
+
+            int slot = (int)(sequence % mMessages.length());
+            if(mSequences.get(slot) == WRITING) {
+                set(sequence, message);
+            }
+        }
+        mEvicted = false;
+    }
+
+    /**
+     * Writes a message to its slot, replacing (and unaccounting for) the message previously held there.
+     */
+    private void set(final long sequence, final ReceiveMessagePacket message) {
+        int slot = (int)(sequence % mMessages.length());
+        ReceiveMessagePacket replacedMessage = mMessages.get(slot);
+
+        mSequences.set(slot, WRITING);
+        mMessages.set(slot, message);
+        mSequences.set(slot, sequence);
+
+        long estimatedBytes = mEstimatedBytes + estimateBytes(message);
+        if(replacedMessage != null) {
+            estimatedBytes -= estimateBytes(replacedMessage);
+        }
+        mEstimatedBytes = estimatedBytes;
+    }
+
+    /**
+     * Returns the estimated amount of memory (in bytes) held by a message.
+     * @param message Message.
+     * @return Estimated amount of memory held by the message.
+     */
+    static long estimateBytes(final ReceiveMessagePacket message) {
+        long characters = 0;
+        if(message.getAuthor() != null) {
+            characters += message.getAuthor().length();
+        }
+        if(message.getMessage() != null) {
+            characters += message.getMessage().length();
+        }
+        return MESSAGE_OVERHEAD_BYTES + characters * Character.BYTES;
+    }
+
+    /**
+     * Restores messages that were persisted by a previous {@code MessageHistory} (see {@code MessageStore}), keeping
+     * their sequence numbers. Messages without a sequence number, or that are out of order, are skipped. Must be called
+     * by the writer before any messages are added.
+     * @param messages Messages to restore, oldest first.
+     * @param nextSequence Sequence number that will be assigned to the next message added.
+     */
+    public void restore(final List<ReceiveMessagePacket> messages, final long nextSequence) {
+        for(ReceiveMessagePacket message : messages) {
+            Long sequence = message.getSequence();
+            if(sequence != null && sequence >= mNextSequence) {
+                mNextSequence = sequence;
+                add(message);
+            }
+        }
+        mNextSequence = Math.max(mNextSequence, nextSequence);
+    }
+
+    /**
+     * Returns a consistent snapshot of the held messages, oldest first. The snapshot is a contiguous run of messages
+     * ending with the most recent message at the time of the call. May be called from any thread.
+     * @return Snapshot of the held messages, oldest first.
+     */
+    public List<ReceiveMessagePacket> snapshot() {
+        long end = mNextSequence;
+        return read(Math.max(0, end - mMessages.length()), end);
+    }
+
+    /**
+     * Returns a consistent page of the held messages that were added before a given sequence number, oldest first. The
+     * page is a contiguous run of at most {@code limit} messages ending with the message immediately before
+     * {@code beforeSequence}, it is empty if no such messages are held. May be called from any thread.
+     * @param beforeSequence Sequence number that the messages were added before.
+     * @param limit Maximum amount of messages to return.
+     * @return Page of the held messages, oldest first.
+     */
+    public List<ReceiveMessagePacket> page(final long beforeSequence, final int limit) {
+        long next = mNextSequence;
+        long end = Math.max(0, Math.min(next, beforeSequence));
+        long start = Math.max(Math.max(0, next - mMessages.length()), end - Math.max(0, limit));
+        return read(Math.min(start, end), end);
+    }
+
+    /**
+     * Reads the messages with sequence numbers from {@code start} (inclusive) to {@code end} (exclusive), discarding
+     * messages that the writer overwrote while they were being read along with every message before them.
+     */
+    private List<ReceiveMessagePacket> read(final long start, final long end) {
+        List<ReceiveMessagePacket> snapshot = new ArrayList<>((int)(end - start));
+        for(long sequence = start; sequence < end; sequence++) {
+            int slot = (int)(sequence % mMessages.length());
+            long sequenceBefore = mSequences.get(slot);
+            ReceiveMessagePacket message = mMessages.get(slot);
+            long sequenceAfter = mSequences.get(slot);
+
+            if(sequenceBefore != sequence || sequenceAfter != sequence) {
+                // The message was overwritten by the writer, and so were all of the messages before it.
+                snapshot.clear();
+                continue;
+            }
+            snapshot.add(message);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns the maximum amount of messages held.
+     * @return Maximum amount of messages held.
+     */
+    public int getCapacity() {
+        return mMessages.length();
+    }
+
+    /**
+     * Returns the estimated amount of memory (in bytes) held by the messages. May be called from any thread.
+     * @return Estimated amount of memory held by the messages.
+     */
+    public long getEstimatedBytes() {
+        return mEstimatedBytes;
+    }
+
+    /**
+     * Returns {@code true} if the messages have been evicted and not yet reloaded. May be called from any thread.
+     * @return {@code true} if the messages have been evicted.
+     */
+    public boolean isEvicted() {
+        return mEvicted;
+    }
+
+    /**
+     * Returns the sequence number that will be assigned to the next message added.
+     * @return Sequence number that will be assigned to the next message added.
+     */
+    public long getNextSequence() {
+        return mNextSequence;
+    }
+
+}
@@ -0,0 +1,404 @@
+package io.benreynolds.hottopics.server;
+
+import io.benreynolds.hottopics.packets.PacketCodec;
+import io.benreynolds.hottopics.packets.ReceiveMessagePacket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@code MessageLog} is the append-only log of the messages sent within a single {@code Chatroom}. The log is split
+ * into fixed-size segment files, each named after the sequence number of its first message and memory-mapped in its
+ * entirety, so appending a message is a copy into the mapped segment and reading one never goes through a system call.
+ * <p>
+ * Each record is length-prefixed: a 4 byte payload length, the 8 byte sequence number of the message and the encoded
+ * {@code ReceiveMessagePacket}. The length is written last, so a record torn by a crash reads as the end of the log.
+ * Every {@code INDEX_INTERVAL}th record of a segment is recorded in a sparse in-memory index of sequence numbers and
+ * positions: finding a message binary searches the index and then skips over at most {@code INDEX_INTERVAL} record
+ * headers, without decoding any of the records before it.
+ * <p>
+ * Appends are made by a single writer (see {@code MessageStore}), reads may be made from any thread.
+ */
+class MessageLog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageLog.class);
+
+    /** Size of a record's header: its payload length and sequence number. */
+    static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+
+    /** Amount of records between entries in a segment's sparse index. */
+    static final int INDEX_INTERVAL = 32;
+
+    /** Extension of segment files. */
+    private static final String SEGMENT_EXTENSION = ".log";
+
+    /** Directory that the log's segment files are stored in. */
+    private final Path mDirectory;
+
+    /** Size of each segment file (in bytes). */
+    private final int mSegmentBytes;
+
+    /** Maximum amount of segments kept, the oldest segment is deleted once this is exceeded. */
+    private final int mMaxSegments;
+
+    /** Segments, oldest first. Guarded by {@code this}. */
+    private final List<Segment> mSegments = new ArrayList<>();
+
+    /** Sequence number following that of the last record appended. Guarded by {@code this}. */
+    private long mNextSequence = 0;
+
+    /**
+     * Opens the log stored within a directory, creating the directory if it does not exist. Existing segments are
+     * scanned to rebuild their indexes.
+     * @param directory Directory that the log's segment files are stored in.
+     * @param segmentBytes Size of each segment file (in bytes).
+     * @param maxSegments Maximum amount of segments kept.
+     * @throws IOException If the directory or its segments could not be opened.
+     */
+    MessageLog(final Path directory, final int segmentBytes, final int maxSegments) throws IOException {
+        mDirectory = directory;
+        mSegmentBytes = Math.max(HEADER_BYTES, segmentBytes);
+        mMaxSegments = Math.max(1, maxSegments);
+
+        Files.createDirectories(directory);
+        List<Path> segmentPaths = new ArrayList<>();
+        try(DirectoryStream<Path> paths = Files.newDirectoryStream(directory, "*" + SEGMENT_EXTENSION)) {
+            for(Path path : paths) {
+                segmentPaths.add(path);
+            }
+        }
+        Collections.sort(segmentPaths);
+
+        for(Path path : segmentPaths) {
+            Segment segment = Segment.open(path, parseBaseSequence(path));
+            mSegments.add(segment);
+            mNextSequence = Math.max(mNextSequence, segment.mNextSequence);
+        }
+    }
+
+    /**
+     * Appends a message to the log. Messages with a sequence number lower than that of the last message appended are
+     * ignored. Must only be called by a single writer.
+     * @param sequence Sequence number of the message.
+     * @param encodedMessage Encoded {@code ReceiveMessagePacket}.
+     * @return {@code true} if the message was appended.
+     * @throws IOException If a new segment could not be created.
+     */
+    synchronized boolean append(final long sequence, final byte[] encodedMessage) throws IOException {
+        if(sequence < mNextSequence) {
+            return false;
+        }
+
+        int recordBytes = HEADER_BYTES + encodedMessage.length;
+        Segment segment = mSegments.isEmpty() ? null : mSegments.get(mSegments.size() - 1);
+        if(segment == null || segment.remaining() < recordBytes) {
+            segment = roll(sequence, recordBytes);
+        }
+
+        segment.append(sequence, encodedMessage);
+        mNextSequence = sequence + 1;
+        return true;
+    }
+
+    /**
+     * Reads the messages with sequence numbers from {@code fromSequence} (inclusive) to {@code toSequence} (exclusive)
+     * that are held by the log, oldest first. Only the records within the range are decoded.
+     * @param fromSequence Sequence number of the first message to read.
+     * @param toSequence Sequence number following that of the last message to read.
+     * @return Messages within the range, oldest first.
+     */
+    synchronized List<ReceiveMessagePacket> read(final long fromSequence, final long toSequence) {
+        List<ReceiveMessagePacket> messages = new ArrayList<>();
+        if(fromSequence >= toSequence) {
+            return messages;
+        }
+
+        // Start at the last segment that begins at or before the first message (or the first segment).
+        int segmentIndex = 0;
+        while(segmentIndex + 1 < mSegments.size() && mSegments.get(segmentIndex + 1).mBaseSequence <= fromSequence) {
+            segmentIndex++;
+        }
+
+        for(; segmentIndex < mSegments.size(); segmentIndex++) {
+            if(!mSegments.get(segmentIndex).read(fromSequence, toSequence, messages)) {
+                break;
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Returns the sequence number following that of the last message appended.
+     * @return Sequence number following that of the last message appended, 0 if the log is empty.
+     */
+    synchronized long getNextSequence() {
+        return mNextSequence;
+    }
+
+    /**
+     * Returns the sequence number of the oldest message held.
+     * @return Sequence number of the oldest message held, or {@code getNextSequence()} if the log is empty.
+     */
+    synchronized long getFirstSequence() {
+        for(Segment segment : mSegments) {
+            if(segment.mRecords > 0) {
+                return segment.mIndexSequences[0];
+            }
+        }
+        return mNextSequence;
+    }
+
+    /**
+     * Returns the amount of segments held.
+     * @return Amount of segments held.
+     */
+    synchronized int getSegmentCount() {
+        return mSegments.size();
+    }
+
+    /**
+     * Flushes messages appended since the last call to the storage device. Readers are not blocked while the segments
+     * are flushed. Must only be called by the writer.
+     */
+    void sync() {
+        List<Segment> dirtySegments = new ArrayList<>();
+        synchronized(this) {
+            for(Segment segment : mSegments) {
+                if(segment.mDirty) {
+                    segment.mDirty = false;
+                    dirtySegments.add(segment);
+                }
+            }
+        }
+
+        for(Segment segment : dirtySegments) {
+            segment.mBuffer.force();
+        }
+    }
+
+    /**
+     * Flushes and releases every segment. The segments' mappings are released once they are garbage collected. The log
+     * must not be used once it has been closed.
+     */
+    synchronized void close() {
+        for(Segment segment : mSegments) {
+            if(segment.mDirty) {
+                segment.mDirty = false;
+                segment.mBuffer.force();
+            }
+        }
+        mSegments.clear();
+    }
+
+    /**
+     * Starts a new segment, deleting the oldest segments once more than the maximum amount are held. Must be called
+     * while holding {@code this}.
+     */
+    private Segment roll(final long baseSequence, final int recordBytes) throws IOException {
+        Path path = mDirectory.resolve(String.format("%020d%s", baseSequence, SEGMENT_EXTENSION));
+        Segment segment = Segment.create(path, baseSequence, Math.max(mSegmentBytes, recordBytes));
+        mSegments.add(segment);
+
+        while(mSegments.size() > mMaxSegments) {
+            Segment oldest = mSegments.remove(0);
+            if(oldest.mDirty) {
+                oldest.mBuffer.force();
+            }
+            try {
+                Files.deleteIfExists(oldest.mPath);
+            } catch (IOException exception) {
+                LOGGER.warn(String.format("Failed to delete message log segment \"%s\".", oldest.mPath), exception);
+            }
+        }
+        return segment;
+    }
+
+    private static long parseBaseSequence(final Path path) throws IOException {
+        String fileName = path.getFileName().toString();
+        try {
+            return Long.parseLong(fileName.substring(0, fileName.length() - SEGMENT_EXTENSION.length()));
+        } catch (NumberFormatException exception) {
+            throw new IOException(String.format("\"%s\" is not a message log segment.", path), exception);
+        }
+    }
+
+    /**
+     * {@code Segment} is a single memory-mapped segment file and its sparse index.
+     */
+    private static class Segment {
+
+        /** Path of the segment file. */
+        private final Path mPath;
+
+        /** Sequence number of the segment's first message. */
+        private final long mBaseSequence;
+
+        /** Mapped contents of the segment file. */
+        private final MappedByteBuffer mBuffer;
+
+        /** Position that the next record is written at. */
+        private int mWritePosition = 0;
+
+        /** Amount of records held. */
+        private int mRecords = 0;
+
+        /** Sequence number following that of the last record held. */
+        private long mNextSequence;
+
+        /** Sequence numbers of every {@code INDEX_INTERVAL}th record. */
+        private long[] mIndexSequences = new long[16];
+
+        /** Positions of every {@code INDEX_INTERVAL}th record. */
+        private int[] mIndexPositions = new int[16];
+
+        /** Amount of entries within the index. */
+        private int mIndexSize = 0;
+
+        /** {@code true} if records have been appended since the segment was last flushed. */
+        private boolean mDirty = false;
+
+        private Segment(final Path path, final long baseSequence, final MappedByteBuffer buffer) {
+            mPath = path;
+            mBaseSequence = baseSequence;
+            mBuffer = buffer;
+            mNextSequence = baseSequence;
+        }
+
+        /**
+         * Creates and maps a new, empty segment file.
+         */
+        static Segment create(final Path path, final long baseSequence, final int size) throws IOException {
+            // A file with the same name can only be left over from a crash before any record was written to it.
+            try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                return new Segment(path, baseSequence, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            }
+        }
+
+        /**
+         * Maps an existing segment file and scans its records to rebuild its index. Scanning stops at the first record
+         * that is empty, torn or out of order, which is where the next record will be written.
+         */
+        static Segment open(final Path path, final long baseSequence) throws IOException {
+            Segment segment;
+            try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                segment = new Segment(path, baseSequence, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+            }
+
+            ByteBuffer buffer = segment.mBuffer;
+            int position = 0;
+            while(position + HEADER_BYTES <= buffer.capacity()) {
+                int length = buffer.getInt(position);
+                long sequence = buffer.getLong(position + Integer.BYTES);
+                if(length <= 0 || length > buffer.capacity() - position - HEADER_BYTES || sequence < segment.mNextSequence) {
+                    break;
+                }
+                segment.onAppended(position, sequence, length);
+                position = segment.mWritePosition;
+            }
+            return segment;
+        }
+
+        /**
+         * Returns the amount of bytes available for new records.
+         */
+        int remaining() {
+            return mBuffer.capacity() - mWritePosition;
+        }
+
+        /**
+         * Writes a record. The payload and sequence number are written before the length, which marks the record as
+         * complete.
+         */
+        void append(final long sequence, final byte[] payload) {
+            int position = mWritePosition;
+            ByteBuffer buffer = mBuffer.duplicate();
+            buffer.position(position + Integer.BYTES);
+            buffer.putLong(sequence);
+            buffer.put(payload);
+
+            // Mark the end of the log after the record, in case it overwrote a torn record, before completing it.
+            int nextPosition = buffer.position();
+            if(nextPosition + Integer.BYTES <= mBuffer.capacity()) {
+                mBuffer.putInt(nextPosition, 0);
+            }
+            mBuffer.putInt(position, payload.length);
+
+            onAppended(position, sequence, payload.length);
+            mDirty = true;
+        }
+
+        /**
+         * Records that a record has been written at {@code position}, indexing it if it is an
+         * {@code INDEX_INTERVAL}th record.
+         */
+        private void onAppended(final int position, final long sequence, final int length) {
+            if(mRecords % INDEX_INTERVAL == 0) {
+                if(mIndexSize == mIndexSequences.length) {
+                    mIndexSequences = Arrays.copyOf(mIndexSequences, mIndexSize * 2);
+                    mIndexPositions = Arrays.copyOf(mIndexPositions, mIndexSize * 2);
+                }
+                mIndexSequences[mIndexSize] = sequence;
+                mIndexPositions[mIndexSize] = position;
+                mIndexSize++;
+            }
+
+            mRecords++;
+            mWritePosition = position + HEADER_BYTES + length;
+            mNextSequence = sequence + 1;
+        }
+
+        /**
+         * Decodes the records within a range of sequence numbers into {@code messages}.
+         * @return {@code true} if the range may continue into the next segment.
+         */
+        boolean read(final long fromSequence, final long toSequence, final List<ReceiveMessagePacket> messages) {
+            if(mIndexSize == 0) {
+                return true;
+            }
+
+            // Find the last indexed record at or before the first message and skip forward from it.
+            int index = Arrays.binarySearch(mIndexSequences, 0, mIndexSize, fromSequence);
+            index = index >= 0 ? index : Math.max(0, -index - 2);
+            int position = mIndexPositions[index];
+
+            ByteBuffer buffer = mBuffer.duplicate();
+            while(position < mWritePosition) {
+                int length = buffer.getInt(position);
+                long sequence = buffer.getLong(position + Integer.BYTES);
+                if(sequence >= toSequence) {
+                    return false;
+                }
+
+                if(sequence >= fromSequence) {
+                    byte[] payload = new byte[length];
+                    buffer.position(position + HEADER_BYTES);
+                    buffer.get(payload);
+                    ReceiveMessagePacket message = PacketCodec.decode(new String(payload, StandardCharsets.UTF_8),
+                            ReceiveMessagePacket.class);
+                    if(message != null) {
+                        messages.add(message);
+                    }
+                }
+                position += HEADER_BYTES + length;
+            }
+            return true;
+        }
+
+    }
+
+}
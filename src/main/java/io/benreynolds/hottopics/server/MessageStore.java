@@ -0,0 +1,604 @@
+package io.benreynolds.hottopics.server;
+
+import io.benreynolds.hottopics.packets.ReceiveMessagePacket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * {@code MessageStore} persists the messages sent within every {@code Chatroom} to a {@code MessageLog} per
+ * {@code Chatroom}, so that history outlives the in-memory {@code MessageHistory} and restarts.
+ * <p>
+ * Messages are handed to the store after they have been broadcast and are written by a dedicated writer thread, so
+ * persisting a message never delays its delivery: queueing a message is a non-blocking offer, and messages are dropped
+ * (and counted) rather than blocking the caller if the writer falls behind. The writer flushes the logs it has written
+ * to at most once per sync interval, batching the cost of flushing across every message written in between.
+ * <p>
+ * Logs can also be read on a pool of reader threads (see {@code readAsync}), so that opening and scanning the log of a
+ * cold {@code Chatroom} never runs on the shard that it shares with other '{@code Chatroom}'s.
+ * <p>
+ * The log of a {@code Chatroom} that has been removed is closed by the writer once its queued messages have been
+ * written (see {@code close}), and the directories of logs that have not been written to within a retention period are
+ * deleted by {@code sweep}.
+ */
+class MessageStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageStore.class);
+
+    /** Default size of each segment file (in bytes). */
+    static final int DEFAULT_SEGMENT_BYTES = 1024 * 1024;
+
+    /** Default maximum amount of segments kept per {@code Chatroom}. */
+    static final int DEFAULT_MAX_SEGMENTS = 8;
+
+    /** Default interval between flushes of written messages to the storage device (in milliseconds). */
+    static final long DEFAULT_SYNC_INTERVAL_MILLIS = 1000;
+
+    /** Default maximum amount of messages waiting to be written. */
+    static final int DEFAULT_QUEUE_CAPACITY = 65536;
+
+    /** Default amount of threads that read logs asynchronously. */
+    static final int DEFAULT_READER_THREADS = 2;
+
+    /** Default time (in milliseconds) that the log of a {@code Chatroom} that no longer exists is kept. */
+    static final long DEFAULT_RETENTION_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    /** Default interval between sweeps of expired logs (in milliseconds). */
+    static final long DEFAULT_SWEEP_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /** Maximum time (in milliseconds) that the writer waits for a message before checking whether it has been stopped. */
+    private static final long POLL_MILLIS = 100;
+
+    /** Maximum length of a log's directory name before it is shortened. */
+    private static final int MAX_DIRECTORY_NAME_LENGTH = 200;
+
+    /** Directory that each '{@code Chatroom}'s log directory is stored in. */
+    private final Path mDirectory;
+
+    /** Size of each segment file (in bytes). */
+    private final int mSegmentBytes;
+
+    /** Maximum amount of segments kept per {@code Chatroom}. */
+    private final int mMaxSegments;
+
+    /** Interval between flushes of written messages to the storage device (in milliseconds). */
+    private final long mSyncIntervalMillis;
+
+    /** Messages waiting to be written. */
+    private final BlockingQueue<PendingMessage> mQueue;
+
+    /** Amount of threads that read logs asynchronously. */
+    private final int mReaderThreads;
+
+    /** Logs, keyed by {@code Chatroom} name. */
+    private final ConcurrentHashMap<String, ChatroomLog> mLogs = new ConcurrentHashMap<>();
+
+    /** Logs waiting to be closed by the writer once their queued messages have been written. */
+    private final ConcurrentLinkedQueue<ChatroomLog> mClosingLogs = new ConcurrentLinkedQueue<>();
+
+    /** Held for reading while a log is opened and for writing while expired logs are deleted (see {@code sweep}). */
+    private final ReadWriteLock mDirectoryLock = new ReentrantReadWriteLock();
+
+    /** Amount of messages dropped because the queue was full. */
+    private final AtomicLong mDroppedMessages = new AtomicLong();
+
+    /** Thread that writes queued messages, {@code null} while the store is stopped. */
+    private Thread mWriter;
+
+    /** {@code true} while the writer should keep running. */
+    private volatile boolean mRunning = false;
+
+    /** Reads logs asynchronously, {@code null} while the store is stopped. */
+    private volatile ExecutorService mReaders;
+
+    /**
+     * @param directory Directory that each '{@code Chatroom}'s log directory is stored in.
+     * @param segmentBytes Size of each segment file (in bytes).
+     * @param maxSegments Maximum amount of segments kept per {@code Chatroom}.
+     * @param syncIntervalMillis Interval between flushes of written messages to the storage device (in milliseconds).
+     * @param queueCapacity Maximum amount of messages waiting to be written.
+     * @param readerThreads Amount of threads that read logs asynchronously.
+     */
+    MessageStore(final Path directory, final int segmentBytes, final int maxSegments, final long syncIntervalMillis,
+                 final int queueCapacity, final int readerThreads) {
+        mDirectory = directory;
+        mSegmentBytes = segmentBytes;
+        mMaxSegments = maxSegments;
+        mSyncIntervalMillis = Math.max(1, syncIntervalMillis);
+        mQueue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        mReaderThreads = Math.max(1, readerThreads);
+    }
+
+    /**
+     * Starts writing queued messages. Calling this method while the store is running has no effect.
+     */
+    synchronized void start() {
+        if(mWriter != null) {
+            return;
+        }
+
+        mRunning = true;
+        mWriter = new Thread(this::write, String.format("%s-Writer", MessageStore.class.getSimpleName()));
+        mWriter.setDaemon(true);
+        mWriter.start();
+
+        AtomicInteger readerCount = new AtomicInteger();
+        mReaders = Executors.newFixedThreadPool(mReaderThreads, runnable -> {
+            Thread thread = new Thread(runnable, String.format("%s-Reader-%d", MessageStore.class.getSimpleName(),
+                    readerCount.getAndIncrement()));
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Stops writing, after writing and flushing every queued message.
+     * @param timeout Maximum time to wait for queued messages to be written.
+     * @param unit Unit of {@code timeout}.
+     * @return {@code true} if every queued message was written within the timeout.
+     */
+    synchronized boolean stop(final long timeout, final TimeUnit unit) {
+        if(mWriter == null) {
+            return true;
+        }
+
+        mReaders.shutdown();
+        mReaders = null;
+
+        // The writer is not interrupted, as interrupting it while it is creating a segment would close the segment's
+        // channel. It notices that it has been stopped within POLL_MILLIS.
+        mRunning = false;
+        try {
+            mWriter.join(unit.toMillis(timeout));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        boolean stopped = !mWriter.isAlive();
+        mWriter = null;
+        return stopped;
+    }
+
+    /**
+     * Queues a message to be written to its '{@code Chatroom}'s log. Never blocks: the message is dropped if the queue
+     * is full. May be called from any thread, but the messages of each {@code Chatroom} must be queued in order.
+     * @param chatroomName Name of the {@code Chatroom} that the message was sent within.
+     * @param sequence Sequence number of the message.
+     * @param encodedMessage Encoded {@code ReceiveMessagePacket}.
+     * @return {@code true} if the message was queued.
+     */
+    boolean append(final String chatroomName, final long sequence, final String encodedMessage) {
+        // The log is reserved atomically with respect to the writer removing it once it has been closed.
+        ChatroomLog log = mLogs.compute(chatroomName, (name, existingLog) -> {
+            ChatroomLog chatroomLog = existingLog != null ? existingLog : createLog(name);
+            chatroomLog.mClosing = false;
+            chatroomLog.mPendingMessages.incrementAndGet();
+            return chatroomLog;
+        });
+        log.mQueuedSequence.accumulateAndGet(sequence + 1, Math::max);
+        if(mQueue.offer(new PendingMessage(log, sequence, encodedMessage))) {
+            return true;
+        }
+
+        log.mPendingMessages.decrementAndGet();
+
+        if(mDroppedMessages.getAndIncrement() == 0) {
+            LOGGER.warn("Message log queue is full, messages are not being persisted.");
+        }
+        return false;
+    }
+
+    /**
+     * Reads the persisted messages of a {@code Chatroom} with sequence numbers from {@code fromSequence} (inclusive) to
+     * {@code toSequence} (exclusive), oldest first. Messages that are still queued are not included. May be called from
+     * any thread.
+     * @param chatroomName Name of the {@code Chatroom}.
+     * @param fromSequence Sequence number of the first message to read.
+     * @param toSequence Sequence number following that of the last message to read.
+     * @return Persisted messages within the range, oldest first.
+     */
+    List<ReceiveMessagePacket> read(final String chatroomName, final long fromSequence, final long toSequence) {
+        MessageLog log = getLog(chatroomName).open();
+        return log != null ? log.read(fromSequence, toSequence) : new ArrayList<>();
+    }
+
+    /**
+     * Reads the persisted messages of a {@code Chatroom} (see {@code read}) on a reader thread, then hands them to
+     * {@code callback} on that thread. While the store is stopped, the messages are read on the calling thread.
+     * @param chatroomName Name of the {@code Chatroom}.
+     * @param fromSequence Sequence number of the first message to read.
+     * @param toSequence Sequence number following that of the last message to read.
+     * @param callback Receives the persisted messages within the range, oldest first.
+     */
+    void readAsync(final String chatroomName, final long fromSequence, final long toSequence,
+                   final Consumer<List<ReceiveMessagePacket>> callback) {
+        Runnable task = () -> {
+            try {
+                callback.accept(read(chatroomName, fromSequence, toSequence));
+            } catch (RuntimeException exception) {
+                LOGGER.error(String.format("Failed to read message log of \"%s\".", chatroomName), exception);
+            }
+        };
+        ExecutorService readers = mReaders;
+        if(readers != null) {
+            try {
+                readers.execute(task);
+                return;
+            } catch (RejectedExecutionException exception) {
+                // The store has been stopped since the readers were retrieved.
+            }
+        }
+        task.run();
+    }
+
+    /**
+     * Reads a page of the messages sent within a {@code Chatroom} before a given message, oldest first, then hands it
+     * to {@code callback}. Recent messages are read from the '{@code Chatroom}'s cache on the calling thread, and
+     * handed over immediately if they fill the page. Otherwise the messages preceding them are read from the log (see
+     * {@code readAsync}), on a reader thread while the store is running, and only combined with the cached messages if
+     * they are contiguous with them.
+     * @param chatroom {@code Chatroom} that the messages were sent within.
+     * @param beforeSequence Sequence number of the message that the messages were sent before.
+     * @param limit Maximum amount of messages to read.
+     * @param callback Receives the page of messages, oldest first, empty if no older messages are available.
+     */
+    void readHistory(final Chatroom chatroom, final long beforeSequence, final int limit,
+                     final Consumer<List<ReceiveMessagePacket>> callback) {
+        List<ReceiveMessagePacket> cachedMessages = chatroom.getMessages(beforeSequence, limit);
+        if(cachedMessages.size() >= limit) {
+            callback.accept(cachedMessages);
+            return;
+        }
+
+        long end = cachedMessages.isEmpty() ? Math.min(beforeSequence, chatroom.getNextMessageSequence())
+                : cachedMessages.get(0).getSequence();
+        readAsync(chatroom.getName(), Math.max(0, end - (limit - cachedMessages.size())), end, loggedMessages -> {
+            if(cachedMessages.isEmpty()) {
+                callback.accept(loggedMessages);
+            }
+            else if(loggedMessages.isEmpty() || loggedMessages.get(loggedMessages.size() - 1).getSequence() != end - 1) {
+                callback.accept(cachedMessages);
+            }
+            else {
+                loggedMessages.addAll(cachedMessages);
+                callback.accept(loggedMessages);
+            }
+        });
+    }
+
+    /**
+     * Returns the sequence number that should be assigned to the next message sent within a {@code Chatroom}, so that
+     * the sequence numbers of a {@code Chatroom} that is recreated (e.g. after a restart) continue from its log.
+     * @param chatroomName Name of the {@code Chatroom}.
+     * @return Sequence number following that of the last message persisted or queued.
+     */
+    long getNextSequence(final String chatroomName) {
+        ChatroomLog chatroomLog = getLog(chatroomName);
+        MessageLog log = chatroomLog.open();
+        return Math.max(log != null ? log.getNextSequence() : 0, chatroomLog.mQueuedSequence.get());
+    }
+
+    /**
+     * Returns the sequence number following that of the last message of a {@code Chatroom} that has been written to
+     * its log. Messages that are still queued are not included.
+     * @param chatroomName Name of the {@code Chatroom}.
+     * @return Sequence number following that of the last message written.
+     */
+    long getPersistedSequence(final String chatroomName) {
+        MessageLog log = getLog(chatroomName).open();
+        return log != null ? log.getNextSequence() : 0;
+    }
+
+    /**
+     * Closes the log of a {@code Chatroom} that has been removed, releasing its segments. The log is closed by the
+     * writer once every message queued for it has been written, unless a message is queued for it in the meantime (e.g.
+     * as the {@code Chatroom} has been recreated).
+     * @param chatroomName Name of the {@code Chatroom}.
+     */
+    void close(final String chatroomName) {
+        ChatroomLog log = mLogs.get(chatroomName);
+        if(log != null) {
+            log.mClosing = true;
+            mClosingLogs.add(log);
+        }
+    }
+
+    /**
+     * Deletes the directories of logs that are not held by the store (i.e. of '{@code Chatroom}'s that no longer exist)
+     * and have not been written to within the retention period.
+     * @param retentionMillis Time (in milliseconds) that the directory of a log is kept after it was last written to.
+     * @return Amount of directories deleted.
+     */
+    int sweep(final long retentionMillis) {
+        if(!Files.isDirectory(mDirectory)) {
+            return 0;
+        }
+
+        long expiryMillis = System.currentTimeMillis() - retentionMillis;
+        int deleted = 0;
+        try(DirectoryStream<Path> directories = Files.newDirectoryStream(mDirectory, Files::isDirectory)) {
+            for(Path directory : directories) {
+                mDirectoryLock.writeLock().lock();
+                try {
+                    if(!isHeld(directory) && getLastModifiedMillis(directory) < expiryMillis && delete(directory)) {
+                        deleted++;
+                    }
+                } finally {
+                    mDirectoryLock.writeLock().unlock();
+                }
+            }
+        } catch (IOException exception) {
+            LOGGER.warn(String.format("Failed to sweep message logs within \"%s\".", mDirectory), exception);
+        }
+        return deleted;
+    }
+
+    /**
+     * Returns the amount of messages that have been dropped because the queue was full.
+     * @return Amount of messages that have been dropped.
+     */
+    long getDroppedMessages() {
+        return mDroppedMessages.get();
+    }
+
+    private ChatroomLog getLog(final String chatroomName) {
+        return mLogs.computeIfAbsent(chatroomName, this::createLog);
+    }
+
+    private ChatroomLog createLog(final String chatroomName) {
+        return new ChatroomLog(chatroomName, mDirectory.resolve(toDirectoryName(chatroomName)));
+    }
+
+    /**
+     * Returns {@code true} if a log held by the store is stored within a directory.
+     */
+    private boolean isHeld(final Path directory) {
+        for(ChatroomLog log : mLogs.values()) {
+            if(log.mLogDirectory.equals(directory)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the time (in milliseconds since the epoch) at which a log's directory or any of its segments was last
+     * modified.
+     */
+    private static long getLastModifiedMillis(final Path directory) throws IOException {
+        long lastModifiedMillis = Files.getLastModifiedTime(directory).toMillis();
+        try(DirectoryStream<Path> paths = Files.newDirectoryStream(directory)) {
+            for(Path path : paths) {
+                lastModifiedMillis = Math.max(lastModifiedMillis, Files.getLastModifiedTime(path).toMillis());
+            }
+        }
+        return lastModifiedMillis;
+    }
+
+    /**
+     * Deletes a log's directory and its segments.
+     * @return {@code true} if the directory was deleted.
+     */
+    private static boolean delete(final Path directory) {
+        try {
+            try(DirectoryStream<Path> paths = Files.newDirectoryStream(directory)) {
+                for(Path path : paths) {
+                    Files.delete(path);
+                }
+            }
+            Files.delete(directory);
+            return true;
+        } catch (IOException exception) {
+            LOGGER.warn(String.format("Failed to delete message log \"%s\".", directory), exception);
+            return false;
+        }
+    }
+
+    /**
+     * Closes the logs waiting to be closed whose queued messages have all been written. Runs on the writer thread.
+     */
+    private void closeLogs() {
+        for(int i = mClosingLogs.size(); i > 0; i--) {
+            ChatroomLog log = mClosingLogs.poll();
+            if(log == null) {
+                return;
+            }
+            if(!log.mClosing) {
+                continue;
+            }
+
+            boolean[] removed = new boolean[1];
+            mLogs.computeIfPresent(log.mChatroomName, (name, existingLog) -> {
+                if(existingLog == log && log.mClosing && log.mPendingMessages.get() == 0) {
+                    removed[0] = true;
+                    return null;
+                }
+                return existingLog;
+            });
+
+            if(removed[0] || mLogs.get(log.mChatroomName) != log) {
+                log.close();
+            }
+            else if(log.mClosing) {
+                // Messages are still queued for the log, it is closed once they have been written.
+                mClosingLogs.add(log);
+            }
+        }
+    }
+
+    /**
+     * Writes queued messages until the store is stopped, flushing the logs that have been written to once per sync
+     * interval. Runs on the writer thread.
+     */
+    private void write() {
+        List<PendingMessage> batch = new ArrayList<>();
+        Set<MessageLog> unsyncedLogs = new HashSet<>();
+        long lastSyncNanos = System.nanoTime();
+        long syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(mSyncIntervalMillis);
+
+        while(mRunning || !mQueue.isEmpty()) {
+            try {
+                PendingMessage message = mQueue.poll(Math.min(POLL_MILLIS, mSyncIntervalMillis), TimeUnit.MILLISECONDS);
+                if(message != null) {
+                    batch.add(message);
+                    mQueue.drainTo(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            for(PendingMessage message : batch) {
+                MessageLog log = message.mLog.open();
+                if(log != null && write(log, message)) {
+                    unsyncedLogs.add(log);
+                }
+                message.mLog.mPendingMessages.decrementAndGet();
+            }
+            batch.clear();
+
+            if(!mRunning || System.nanoTime() - lastSyncNanos >= syncIntervalNanos) {
+                for(MessageLog log : unsyncedLogs) {
+                    log.sync();
+                }
+                unsyncedLogs.clear();
+                lastSyncNanos = System.nanoTime();
+            }
+
+            // Logs are flushed as they are closed.
+            closeLogs();
+        }
+        closeLogs();
+    }
+
+    private boolean write(final MessageLog log, final PendingMessage message) {
+        try {
+            return log.append(message.mSequence, message.mEncodedMessage.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException exception) {
+            LOGGER.error(String.format("Failed to persist message %d.", message.mSequence), exception);
+            return false;
+        }
+    }
+
+    /**
+     * Returns the name of the directory that a '{@code Chatroom}'s log is stored in: the hexadecimal representation of
+     * its UTF-8 encoded name, which is safe on any file system. Long names are shortened and suffixed with their hash.
+     */
+    static String toDirectoryName(final String chatroomName) {
+        StringBuilder directoryName = new StringBuilder();
+        for(byte b : chatroomName.getBytes(StandardCharsets.UTF_8)) {
+            directoryName.append(String.format("%02x", b & 0xFF));
+        }
+
+        if(directoryName.length() > MAX_DIRECTORY_NAME_LENGTH) {
+            directoryName.setLength(MAX_DIRECTORY_NAME_LENGTH);
+            directoryName.append('-').append(String.format("%08x", chatroomName.hashCode()));
+        }
+        return directoryName.toString();
+    }
+
+    /**
+     * {@code ChatroomLog} holds the {@code MessageLog} of a single {@code Chatroom}, which is opened the first time it
+     * is read or written to.
+     */
+    private class ChatroomLog {
+
+        /** Name of the {@code Chatroom}. */
+        private final String mChatroomName;
+
+        /** Directory that the log is stored in. */
+        private final Path mLogDirectory;
+
+        /** Sequence number following that of the last message queued. */
+        private final AtomicLong mQueuedSequence = new AtomicLong();
+
+        /** Amount of messages queued for the log that have not yet been written. */
+        private final AtomicInteger mPendingMessages = new AtomicInteger();
+
+        /** {@code true} while the log is waiting to be closed. */
+        private volatile boolean mClosing = false;
+
+        /** Opened log, {@code null} until it has been opened. Guarded by {@code this}. */
+        private MessageLog mLog;
+
+        /** {@code true} if the log could not be opened or has been closed. Guarded by {@code this}. */
+        private boolean mFailed = false;
+
+        private ChatroomLog(final String chatroomName, final Path logDirectory) {
+            mChatroomName = chatroomName;
+            mLogDirectory = logDirectory;
+        }
+
+        /**
+         * Returns the log, opening it if it has not yet been opened.
+         * @return Log, or {@code null} if it could not be opened or has been closed.
+         */
+        synchronized MessageLog open() {
+            if(mLog == null && !mFailed) {
+                mDirectoryLock.readLock().lock();
+                try {
+                    mLog = new MessageLog(mLogDirectory, mSegmentBytes, mMaxSegments);
+                } catch (IOException exception) {
+                    mFailed = true;
+                    LOGGER.error(String.format("Failed to open message log \"%s\".", mLogDirectory), exception);
+                } finally {
+                    mDirectoryLock.readLock().unlock();
+                }
+            }
+            return mLog;
+        }
+
+        /**
+         * Closes the log, after which it is no longer opened.
+         */
+        synchronized void close() {
+            if(mLog != null) {
+                mLog.close();
+                mLog = null;
+            }
+            mFailed = true;
+        }
+
+    }
+
+    /**
+     * {@code PendingMessage} is a message waiting to be written.
+     */
+    private static class PendingMessage {
+
+        private final ChatroomLog mLog;
+        private final long mSequence;
+        private final String mEncodedMessage;
+
+        private PendingMessage(final ChatroomLog log, final long sequence, final String encodedMessage) {
+            mLog = log;
+            mSequence = sequence;
+            mEncodedMessage = encodedMessage;
+        }
+
+    }
+
+}
@@ -0,0 +1,116 @@
+package io.benreynolds.hottopics.server;
+
+import io.benreynolds.hottopics.packets.ChatroomUserCountUpdatePacket;
+import io.benreynolds.hottopics.packets.ChatroomsUpdatePacket;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * {@code NotificationScheduler} coalesces user count and room list notifications. Rather than notifying clients each
+ * time a {@code Chatroom} changes, changes mark the {@code Chatroom} as dirty and all dirty '{@code Chatroom}'s are
+ * flushed once per tick: each dirty {@code Chatroom} receives at most one {@code ChatroomUserCountUpdatePacket} and
+ * clients viewing the room list receive at most one {@code ChatroomsUpdatePacket} per tick, regardless of how many
+ * clients joined or left in the meantime.
+ */
+class NotificationScheduler {
+
+    /** Default interval between flushes (in milliseconds). */
+    static final long DEFAULT_TICK_MILLIS = 250;
+
+    /** Interval between flushes (in milliseconds). */
+    private final long mTickMillis;
+
+    /** Publishes changes made to the room list to clients in the ROOM_LIST state. */
+    private final Consumer<ChatroomsUpdatePacket.Change[]> mRoomListPublisher;
+
+    /** '{@code Chatroom}'s whose members have not yet been notified of a change in the user count. */
+    private final Set<Chatroom> mDirtyUserCounts = ConcurrentHashMap.newKeySet();
+
+    /** '{@code Chatroom}'s whose size has changed since the room list was last published. */
+    private final Set<Chatroom> mDirtyRoomListEntries = ConcurrentHashMap.newKeySet();
+
+    /** Additions to and removals from the room list that have not yet been published, in the order they were made. */
+    private final ConcurrentLinkedQueue<ChatroomsUpdatePacket.Change> mPendingRoomListChanges = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param tickMillis Interval between flushes (in milliseconds).
+     * @param roomListPublisher Publishes changes made to the room list to clients in the ROOM_LIST state.
+     */
+    NotificationScheduler(final long tickMillis, final Consumer<ChatroomsUpdatePacket.Change[]> roomListPublisher) {
+        mTickMillis = Math.max(1, tickMillis);
+        mRoomListPublisher = roomListPublisher;
+    }
+
+    /**
+     * Returns the interval between flushes (in milliseconds).
+     * @return Interval between flushes (in milliseconds).
+     */
+    long getTickMillis() {
+        return mTickMillis;
+    }
+
+    /**
+     * Marks the amount of users within a {@code Chatroom} as changed. Its members and clients viewing the room list are
+     * notified of the new amount on the next flush.
+     * @param chatroom {@code Chatroom} whose user count has changed.
+     */
+    void markUserCountChanged(final Chatroom chatroom) {
+        mDirtyUserCounts.add(chatroom);
+        mDirtyRoomListEntries.add(chatroom);
+    }
+
+    /**
+     * Schedules the addition of a {@code Chatroom} to be published on the next flush.
+     * @param chatroom {@code Chatroom} that has been added to the room list.
+     */
+    void markChatroomAdded(final Chatroom chatroom) {
+        mPendingRoomListChanges.add(ChatroomsUpdatePacket.Change.added(chatroom.getName(), chatroom.getSize()));
+    }
+
+    /**
+     * Schedules the removal of a {@code Chatroom} to be published on the next flush.
+     * @param chatroom {@code Chatroom} that has been removed from the room list.
+     */
+    void markChatroomRemoved(final Chatroom chatroom) {
+        mDirtyUserCounts.remove(chatroom);
+        mDirtyRoomListEntries.remove(chatroom);
+        mPendingRoomListChanges.add(ChatroomsUpdatePacket.Change.removed(chatroom.getName()));
+    }
+
+    /**
+     * Sends all pending notifications: one {@code ChatroomUserCountUpdatePacket} to each dirty {@code Chatroom} and a
+     * single {@code ChatroomsUpdatePacket} describing every pending room list change.
+     */
+    void flush() {
+        Iterator<Chatroom> dirtyUserCounts = mDirtyUserCounts.iterator();
+        while(dirtyUserCounts.hasNext()) {
+            Chatroom chatroom = dirtyUserCounts.next();
+            dirtyUserCounts.remove();
+            chatroom.execute(() -> chatroom.broadcast(new ChatroomUserCountUpdatePacket(chatroom.getSize())));
+        }
+
+        List<ChatroomsUpdatePacket.Change> changes = new ArrayList<>();
+        ChatroomsUpdatePacket.Change pendingChange;
+        while((pendingChange = mPendingRoomListChanges.poll()) != null) {
+            changes.add(pendingChange);
+        }
+
+        Iterator<Chatroom> dirtyRoomListEntries = mDirtyRoomListEntries.iterator();
+        while(dirtyRoomListEntries.hasNext()) {
+            Chatroom chatroom = dirtyRoomListEntries.next();
+            dirtyRoomListEntries.remove();
+            changes.add(ChatroomsUpdatePacket.Change.resized(chatroom.getName(), chatroom.getSize()));
+        }
+
+        if(!changes.isEmpty()) {
+            mRoomListPublisher.accept(changes.toArray(new ChatroomsUpdatePacket.Change[changes.size()]));
+        }
+    }
+
+}
@@ -0,0 +1,371 @@
+package io.benreynolds.hottopics.server;
+
+import io.benreynolds.hottopics.packets.ChatroomUserCountUpdatePacket;
+import io.benreynolds.hottopics.packets.ChatroomsResponsePacket;
+import io.benreynolds.hottopics.packets.ChatroomsUpdatePacket;
+import io.benreynolds.hottopics.packets.PacketFrame;
+import io.benreynolds.hottopics.packets.ReceiveMessagePacket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.websocket.CloseReason;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * {@code OutboundQueue} is a bounded queue of '{@code PacketFrame}'s waiting to be sent to a single {@code Client}.
+ * Frames are sent through the '{@code Session}'s asynchronous remote one at a time, so queueing a frame never blocks
+ * the caller. When the queue is full, its {@code OverflowPolicy} decides how room is made (or whether the client is
+ * disconnected), ensuring that one slow client cannot delay the delivery of packets to any other client.
+ * <p>
+ * Only chat messages and state updates that can be recovered are ever dropped. Responses and other control packets
+ * are never dropped. Room list updates ('{@code ChatroomsUpdatePacket}'s) are deltas that each depend on the last,
+ * so they are only dropped all at once, with every queued room list. The full room list is then resent through the
+ * room list resynchronizer. If no room can be made, the client is disconnected.
+ */
+class OutboundQueue implements SendHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutboundQueue.class);
+
+    /** Default maximum amount of frames that can be waiting to be sent. */
+    static final int DEFAULT_CAPACITY = 256;
+
+    /** Default {@code OverflowPolicy}. */
+    static final OverflowPolicy DEFAULT_OVERFLOW_POLICY = OverflowPolicy.DROP_OLDEST_MESSAGE;
+
+    /**
+     * Determines what happens when a frame is queued while the {@code OutboundQueue} is full.
+     */
+    enum OverflowPolicy {
+        /** The oldest queued chat message is dropped. If no chat messages are queued, the queued room list updates
+         * are replaced by the full room list. */
+        DROP_OLDEST_MESSAGE,
+        /** Queued state updates that have been superseded by newer ones are discarded first. If the queue is still
+         * full, the queued room list updates are replaced by the full room list, and then the oldest chat message is
+         * dropped. */
+        COALESCE,
+        /** The client is disconnected. */
+        DISCONNECT
+    }
+
+    /** {@code Client} that frames are sent to. */
+    private final Client mClient;
+
+    /** Frames waiting to be sent. */
+    private final ArrayDeque<PacketFrame> mFrames = new ArrayDeque<>();
+
+    /** Maximum amount of frames that can be waiting to be sent. */
+    private volatile int mCapacity = DEFAULT_CAPACITY;
+
+    /** Policy applied when a frame is queued while the {@code OutboundQueue} is full. */
+    private volatile OverflowPolicy mOverflowPolicy = DEFAULT_OVERFLOW_POLICY;
+
+    /** Resends the full room list to the client after its queued room list updates have been dropped, {@code null}
+     * if room list updates must never be dropped. */
+    private volatile Consumer<Client> mRoomListResynchronizer;
+
+    /** {@code true} while a frame is being sent. Guarded by {@code mFrames}. */
+    private boolean mSending = false;
+
+    /** {@code true} once queued room list updates have been dropped, until the full room list is queued. Room list
+     * updates queued in the meantime are dropped, as the full room list supersedes them. Guarded by {@code mFrames}. */
+    private boolean mRoomListResyncPending = false;
+
+    /** Amount of frames that have been dropped due to the queue overflowing. */
+    private volatile long mDroppedFrames = 0;
+
+    /** {@code true} once the client has been disconnected for being unable to keep up. */
+    private volatile boolean mOverflowed = false;
+
+    /**
+     * @param client {@code Client} that frames are sent to.
+     */
+    OutboundQueue(final Client client) {
+        mClient = client;
+    }
+
+    /**
+     * Queues a frame to be sent to the client. If no frame is currently being sent, sending begins immediately.
+     * @param frame {@code PacketFrame} to send.
+     */
+    void offer(final PacketFrame frame) {
+        PacketFrame nextFrame = null;
+        boolean disconnect = false;
+        boolean resynchronize = false;
+
+        synchronized(mFrames) {
+            if(mOverflowed) {
+                return;
+            }
+
+            // Room list updates are superseded by the full room list that is being resent.
+            boolean wasResyncPending = mRoomListResyncPending;
+            if(wasResyncPending && Objects.equals(frame.getId(), ChatroomsUpdatePacket.ID)) {
+                onDropped();
+                return;
+            }
+
+            // A full room list that resynchronizes the client takes the place of the room list frames that were
+            // dropped, so it is queued even if the queue is full.
+            boolean resync = wasResyncPending && Objects.equals(frame.getId(), ChatroomsResponsePacket.ID);
+            if(!resync && mFrames.size() >= mCapacity) {
+                makeRoom();
+                if(mFrames.size() >= mCapacity) {
+                    mOverflowed = true;
+                    mDroppedFrames += mFrames.size() + 1;
+                    mFrames.clear();
+                    disconnect = true;
+                }
+            }
+
+            if(!disconnect) {
+                if(mRoomListResyncPending && Objects.equals(frame.getId(), ChatroomsUpdatePacket.ID)) {
+                    // Room list updates were dropped while making room, so this update is superseded by the full room
+                    // list too.
+                    onDropped();
+                }
+                else {
+                    if(Objects.equals(frame.getId(), ChatroomsResponsePacket.ID)) {
+                        mRoomListResyncPending = false;
+                    }
+                    mFrames.add(frame);
+                    if(!mSending) {
+                        mSending = true;
+                        nextFrame = mFrames.poll();
+                    }
+                }
+                resynchronize = mRoomListResyncPending && !wasResyncPending;
+            }
+        }
+
+        if(disconnect) {
+            disconnect();
+            return;
+        }
+        if(nextFrame != null) {
+            send(nextFrame);
+        }
+        if(resynchronize) {
+            mRoomListResynchronizer.accept(mClient);
+        }
+    }
+
+    /**
+     * Called once the previously sent frame has been written, begins sending the next queued frame (if any).
+     * @param result Result of the previous send.
+     */
+    @Override
+    public void onResult(final SendResult result) {
+        if(!result.isOK()) {
+            LOGGER.warn(String.format("[%s] Failed to send packet: %s.", getSessionId(), result.getException()));
+        }
+
+        PacketFrame nextFrame;
+        synchronized(mFrames) {
+            nextFrame = mFrames.poll();
+            if(nextFrame == null) {
+                mSending = false;
+            }
+        }
+
+        if(nextFrame != null) {
+            send(nextFrame);
+        }
+    }
+
+    /**
+     * Returns the amount of frames waiting to be sent.
+     * @return Amount of frames waiting to be sent.
+     */
+    int getDepth() {
+        synchronized(mFrames) {
+            return mFrames.size();
+        }
+    }
+
+    /**
+     * Returns the amount of frames that have been dropped due to the queue overflowing.
+     * @return Amount of frames that have been dropped due to the queue overflowing.
+     */
+    long getDroppedFrames() {
+        return mDroppedFrames;
+    }
+
+    int getCapacity() {
+        return mCapacity;
+    }
+
+    void setCapacity(final int capacity) {
+        mCapacity = Math.max(1, capacity);
+    }
+
+    OverflowPolicy getOverflowPolicy() {
+        return mOverflowPolicy;
+    }
+
+    void setOverflowPolicy(final OverflowPolicy overflowPolicy) {
+        mOverflowPolicy = Objects.requireNonNull(overflowPolicy);
+    }
+
+    /**
+     * Sets the callback that resends the full room list to the client after its queued room list updates have been
+     * dropped. It is called without holding any of the queue's locks, and should queue a
+     * {@code ChatroomsResponsePacket} if the client is still viewing the room list.
+     * @param roomListResynchronizer Resends the full room list, {@code null} if room list updates must never be
+     * dropped.
+     */
+    void setRoomListResynchronizer(final Consumer<Client> roomListResynchronizer) {
+        mRoomListResynchronizer = roomListResynchronizer;
+    }
+
+    /**
+     * Sends a frame through the '{@code Session}'s asynchronous remote. Frames queued for closed sessions are
+     * discarded.
+     */
+    private void send(final PacketFrame frame) {
+        Session session = mClient.getSession();
+        if(session == null || !session.isOpen()) {
+            synchronized(mFrames) {
+                mFrames.clear();
+                mSending = false;
+            }
+            return;
+        }
+
+        try {
+            session.getAsyncRemote().sendText(frame.getText(), this);
+        } catch (IllegalStateException | IllegalArgumentException exception) {
+            onResult(new SendResult(exception));
+        }
+    }
+
+    /**
+     * Makes room for a frame according to the {@code OverflowPolicy}. The queue may still be full afterwards if nothing
+     * could be dropped. Must be called while holding {@code mFrames}.
+     */
+    private void makeRoom() {
+        switch(mOverflowPolicy) {
+            case COALESCE:
+                coalesce();
+                if(mFrames.size() >= mCapacity) {
+                    dropRoomListUpdates();
+                }
+                if(mFrames.size() >= mCapacity) {
+                    dropOldestMessage();
+                }
+                break;
+            case DROP_OLDEST_MESSAGE:
+                if(!dropOldestMessage()) {
+                    dropRoomListUpdates();
+                }
+                break;
+            case DISCONNECT:
+                break;
+        }
+    }
+
+    /**
+     * Removes the oldest queued chat message. Must be called while holding {@code mFrames}.
+     * @return {@code true} if a chat message was removed.
+     */
+    private boolean dropOldestMessage() {
+        Iterator<PacketFrame> iterator = mFrames.iterator();
+        while(iterator.hasNext()) {
+            if(Objects.equals(iterator.next().getId(), ReceiveMessagePacket.ID)) {
+                iterator.remove();
+                onDropped();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes every queued room list and room list update, after which the full room list is resent. Nothing is
+     * removed if there is no room list resynchronizer. Must be called while holding {@code mFrames}.
+     */
+    private void dropRoomListUpdates() {
+        if(mRoomListResynchronizer == null) {
+            return;
+        }
+
+        Iterator<PacketFrame> iterator = mFrames.iterator();
+        while(iterator.hasNext()) {
+            if(isRoomList(iterator.next().getId())) {
+                iterator.remove();
+                onDropped();
+                mRoomListResyncPending = true;
+            }
+        }
+    }
+
+    /**
+     * Removes queued state updates that have been superseded by a newer queued update: all but the newest user count
+     * update, and every room list and room list update queued before the newest room list. Must be called while
+     * holding {@code mFrames}.
+     */
+    private void coalesce() {
+        boolean userCountUpdateSeen = false;
+        boolean chatroomsResponseSeen = false;
+
+        Iterator<PacketFrame> iterator = mFrames.descendingIterator();
+        while(iterator.hasNext()) {
+            Integer id = iterator.next().getId();
+            if(Objects.equals(id, ChatroomUserCountUpdatePacket.ID)) {
+                if(userCountUpdateSeen) {
+                    iterator.remove();
+                    onDropped();
+                }
+                userCountUpdateSeen = true;
+            }
+            else if(isRoomList(id)) {
+                if(chatroomsResponseSeen) {
+                    iterator.remove();
+                    onDropped();
+                }
+                chatroomsResponseSeen |= Objects.equals(id, ChatroomsResponsePacket.ID);
+            }
+        }
+    }
+
+    private static boolean isRoomList(final Integer id) {
+        return Objects.equals(id, ChatroomsResponsePacket.ID) || Objects.equals(id, ChatroomsUpdatePacket.ID);
+    }
+
+    private void onDropped() {
+        if(mDroppedFrames++ == 0) {
+            LOGGER.warn(String.format("[%s] Outbound queue is full, packets are being dropped.", getSessionId()));
+        }
+    }
+
+    /**
+     * Disconnects a client that has been unable to keep up with the frames sent to it.
+     */
+    private void disconnect() {
+        LOGGER.warn(String.format("[%s] Outbound queue overflowed, disconnecting client.", getSessionId()));
+        Session session = mClient.getSession();
+        if(session == null || !session.isOpen()) {
+            return;
+        }
+
+        try {
+            session.close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "Client is unable to keep up."));
+        } catch (IOException e) {
+            LOGGER.warn(String.format("[%s] Failed to close session.", getSessionId()), e);
+        }
+    }
+
+    private String getSessionId() {
+        Session session = mClient.getSession();
+        return session != null ? session.getId() : null;
+    }
+
+}
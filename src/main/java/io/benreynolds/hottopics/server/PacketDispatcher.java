@@ -0,0 +1,80 @@
+package io.benreynolds.hottopics.server;
+
+import io.benreynolds.hottopics.packets.Packet;
+import io.benreynolds.hottopics.packets.PacketIdentifier;
+
+import java.util.Collection;
+
+/**
+ * {@code PacketDispatcher} maps packet IDs to the {@code PacketHandler} responsible for them along with the client
+ * states in which they may be handled. The dispatch table is built and validated once upon construction and is
+ * immutable afterwards, so dispatching a {@code Packet} requires a single array lookup and bit test without locking.
+ */
+class PacketDispatcher {
+
+    /** '{@code PacketHandler}'s indexed by the ID of the {@code Packet} they handle. */
+    private final PacketHandler<?>[] mHandlers;
+
+    /** Bitmasks (indexed by packet ID) of the client states in which each {@code Packet} may be handled. Each
+     * {@code Client.State} is represented by the bit at its ordinal. */
+    private final int[] mPermittedStates;
+
+    /**
+     * Builds the dispatch table.
+     * @param handlers '{@code PacketHandler}'s to dispatch to.
+     * @param requiredTypes {@code Packet} types that must have a {@code PacketHandler}.
+     * @throws IllegalStateException If a {@code Packet} type has more than one {@code PacketHandler}, a
+     * {@code PacketHandler} handles an unknown {@code Packet} type or a required {@code Packet} type has no
+     * {@code PacketHandler}.
+     */
+    PacketDispatcher(final Collection<PacketHandler<?>> handlers, final Collection<Class<? extends Packet>> requiredTypes) {
+        int packetCount = PacketIdentifier.getPacketCount();
+        mHandlers = new PacketHandler<?>[packetCount];
+        mPermittedStates = new int[packetCount];
+
+        for(PacketHandler<?> handler : handlers) {
+            Integer id = PacketIdentifier.getId(handler.getType());
+            if(id == null) {
+                throw new IllegalStateException(String.format("\"%s\" handles \"%s\", which has not been assigned an ID.",
+                        handler.getClass().getSimpleName(), handler.getType().getSimpleName()));
+            }
+            if(mHandlers[id] != null) {
+                throw new IllegalStateException(String.format("\"%s\" is handled by both \"%s\" and \"%s\".",
+                        handler.getType().getSimpleName(), mHandlers[id].getClass().getSimpleName(), handler.getClass().getSimpleName()));
+            }
+
+            mHandlers[id] = handler;
+            for(Client.State state : handler.getRequiredStates()) {
+                mPermittedStates[id] |= 1 << state.ordinal();
+            }
+        }
+
+        for(Class<? extends Packet> requiredType : requiredTypes) {
+            Integer id = PacketIdentifier.getId(requiredType);
+            if(id == null || mHandlers[id] == null) {
+                throw new IllegalStateException(String.format("No handler has been registered for \"%s\".", requiredType.getSimpleName()));
+            }
+        }
+    }
+
+    /**
+     * Returns the {@code PacketHandler} responsible for the {@code Packet} with the specified ID.
+     * @param id ID of the {@code Packet}.
+     * @return {@code PacketHandler} responsible for the {@code Packet}, or {@code null} if there is none.
+     */
+    PacketHandler<?> getHandler(final int id) {
+        return id >= 0 && id < mHandlers.length ? mHandlers[id] : null;
+    }
+
+    /**
+     * Returns {@code true} if the {@code Packet} with the specified ID may be handled while a client is in the
+     * specified state.
+     * @param id ID of the {@code Packet}.
+     * @param state Client's current state.
+     * @return {@code true} if the {@code Packet} may be handled while a client is in the specified state.
+     */
+    boolean isPermitted(final int id, final Client.State state) {
+        return id >= 0 && id < mPermittedStates.length && (mPermittedStates[id] & (1 << state.ordinal())) != 0;
+    }
+
+}
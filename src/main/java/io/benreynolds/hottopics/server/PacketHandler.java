@@ -8,7 +8,7 @@ import java.util.Map;
 
 public interface PacketHandler<T extends Packet> {
 
-    void handlePacket(final Packet packet, final Client sender, final Map<Session, Client> clients, final List<Chatroom> chatrooms);
+    void handlePacket(final Packet packet, final Client sender, final Map<Session, Client> clients, final ChatroomRegistry chatrooms);
     Class<T> getType();
     List<Client.State> getRequiredStates();
 
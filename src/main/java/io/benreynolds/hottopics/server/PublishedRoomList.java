@@ -0,0 +1,139 @@
+package io.benreynolds.hottopics.server;
+
+import io.benreynolds.hottopics.packets.ChatroomSummary;
+import io.benreynolds.hottopics.packets.ChatroomsResponsePacket;
+import io.benreynolds.hottopics.packets.ChatroomsUpdatePacket;
+import io.benreynolds.hottopics.packets.PacketFrame;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * {@code PublishedRoomList} is the room list as it has been published to the clients viewing it: the names of the
+ * '{@code Chatroom}'s whose addition has been published in a {@code ChatroomsUpdatePacket} (and whose removal has
+ * not), and the version of the last published update.
+ * <p>
+ * Snapshots of the room list are built from the published list rather than from the {@code ChatroomRegistry}, which
+ * may already contain additions and removals that the {@code NotificationScheduler} has not yet published. A snapshot
+ * therefore describes exactly the list at its version, and applying the updates that follow it never adds a
+ * {@code Chatroom} that the client already lists or removes one twice. Updates are published and snapshots are
+ * queued while holding the {@code PublishedRoomList}, so that no update is queued between the two.
+ * <p>
+ * Encoded snapshots are cached by a {@code RoomListCache}, which is only read while holding the
+ * {@code PublishedRoomList}. Each cached frame is therefore always keyed by the version it was built at.
+ */
+class PublishedRoomList {
+
+    /** '{@code Chatroom}'s available to clients. */
+    private final ChatroomRegistry mChatrooms;
+
+    /** Orders the listed '{@code Chatroom}'s, hottest first. */
+    private final ChatroomRanking mRanking;
+
+    /** Names of the published '{@code Chatroom}'s, in the order that they were published. Guarded by {@code this}. */
+    private final Set<String> mNames = new LinkedHashSet<>();
+
+    /** Version of the last published update. Guarded by {@code this}. */
+    private long mVersion = 0;
+
+    /** Encoded snapshots, rebuilt once per published version and ranking version. Guarded by {@code this}. */
+    private final RoomListCache mSnapshots = new RoomListCache(version -> snapshot());
+
+    /**
+     * @param chatrooms '{@code Chatroom}'s available to clients.
+     * @param ranking Orders the listed '{@code Chatroom}'s, hottest first.
+     */
+    PublishedRoomList(final ChatroomRegistry chatrooms, final ChatroomRanking ranking) {
+        mChatrooms = chatrooms;
+        mRanking = ranking;
+    }
+
+    /**
+     * Publishes changes made to the room list as a single, versioned {@code ChatroomsUpdatePacket}. The update is
+     * encoded once and handed to {@code recipients} while holding the {@code PublishedRoomList}.
+     * @param changes Changes made to the room list.
+     * @param recipients Queues the encoded update for each client viewing the room list.
+     */
+    synchronized void publish(final ChatroomsUpdatePacket.Change[] changes, final Consumer<PacketFrame> recipients) {
+        mVersion++;
+        for(ChatroomsUpdatePacket.Change change : changes) {
+            switch(change.getType()) {
+                case ADDED:
+                    mNames.add(change.getName());
+                    break;
+                case REMOVED:
+                    mNames.remove(change.getName());
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        recipients.accept(new PacketFrame(new ChatroomsUpdatePacket(mVersion, changes)));
+    }
+
+    /**
+     * Queues the encoded snapshot of the published room list for a client, while holding the
+     * {@code PublishedRoomList} so that no update can be published between building the snapshot and queueing it.
+     * The snapshot is only rebuilt if an update has been published or the ranking has changed since it was last built.
+     * @param recipient Queues the encoded snapshot for the client.
+     */
+    synchronized void sendSnapshot(final Consumer<PacketFrame> recipient) {
+        recipient.accept(mSnapshots.get(mVersion, mRanking.getVersion()));
+    }
+
+    /**
+     * Returns the amount of times the encoded snapshot has been built.
+     * @return Amount of times the encoded snapshot has been built.
+     */
+    synchronized long getSnapshotBuilds() {
+        return mSnapshots.getBuilds();
+    }
+
+    /**
+     * Returns the version of the last published update.
+     * @return Version of the last published update.
+     */
+    synchronized long getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Builds a snapshot of the published room list at the current version, hottest first. '{@code Chatroom}'s that
+     * have been removed from the {@code ChatroomRegistry} but whose removal has not yet been published are listed
+     * last, without users.
+     * @return Snapshot of the published room list.
+     */
+    synchronized ChatroomsResponsePacket snapshot() {
+        List<Chatroom> available = new ArrayList<>(mNames.size());
+        List<String> unavailable = new ArrayList<>();
+        for(String name : mNames) {
+            Chatroom chatroom = mChatrooms.get(name);
+            if(chatroom != null) {
+                available.add(chatroom);
+            }
+            else {
+                unavailable.add(name);
+            }
+        }
+
+        // The ranking may include chatrooms whose addition has not yet been published, which are left out.
+        Set<Chatroom> availableSet = new HashSet<>(available);
+        List<ChatroomSummary> summaries = new ArrayList<>(mNames.size());
+        for(Chatroom chatroom : mRanking.order(available, mChatrooms)) {
+            if(availableSet.contains(chatroom)) {
+                summaries.add(chatroom.getSummary());
+            }
+        }
+        for(String name : unavailable) {
+            summaries.add(new ChatroomSummary(name, 0));
+        }
+
+        return new ChatroomsResponsePacket(summaries.toArray(new ChatroomSummary[summaries.size()]), mVersion);
+    }
+
+}
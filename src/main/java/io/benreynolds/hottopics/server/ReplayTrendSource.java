@@ -0,0 +1,129 @@
+package io.benreynolds.hottopics.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * {@code ReplayTrendSource} replays recorded trends rather than contacting Twitter, so that the server can be run and
+ * benchmarked offline. Recorded trends are a sequence of frames, each mapping WOEIDs (or {@code "*"}, for any location)
+ * to trend names:
+ * <pre>
+ * [
+ *   { "44418": ["#One", "#Two"], "*": ["#Three"] },
+ *   { "44418": ["#Two", "#Four"] }
+ * ]
+ * </pre>
+ * A new frame is replayed every {@code frameMillis}, looping back to the first once the last has been replayed. To
+ * simulate trend turnover beyond that of the recording, a {@code churn} fraction of each frame's trends can be replaced
+ * with trends that are unique to that frame.
+ */
+class ReplayTrendSource implements TrendSource {
+
+    /** Key of the trends that are used for locations that do not have their own trends within a frame. */
+    static final String ANY_LOCATION = "*";
+
+    /** Recorded frames. */
+    private final List<Map<String, List<String>>> mFrames;
+
+    /** Time (in nanoseconds) that each frame is replayed for. */
+    private final long mFrameNanos;
+
+    /** Fraction (0 to 1) of each frame's trends that are replaced with trends unique to the frame. */
+    private final double mChurn;
+
+    /** Source of the current time (in nanoseconds). */
+    private final LongSupplier mClock;
+
+    /** Time (in nanoseconds) that the first frame started being replayed. */
+    private final long mStartNanos;
+
+    /**
+     * @param frames Recorded frames, each mapping WOEIDs (or {@code ANY_LOCATION}) to trend names.
+     * @param frameMillis Time that each frame is replayed for (in milliseconds).
+     * @param churn Fraction (0 to 1) of each frame's trends that are replaced with trends unique to the frame.
+     */
+    ReplayTrendSource(final List<Map<String, List<String>>> frames, final long frameMillis, final double churn) {
+        this(frames, frameMillis, churn, System::nanoTime);
+    }
+
+    /**
+     * @param frames Recorded frames, each mapping WOEIDs (or {@code ANY_LOCATION}) to trend names.
+     * @param frameMillis Time that each frame is replayed for (in milliseconds).
+     * @param churn Fraction (0 to 1) of each frame's trends that are replaced with trends unique to the frame.
+     * @param clock Source of the current time (in nanoseconds).
+     */
+    ReplayTrendSource(final List<Map<String, List<String>>> frames, final long frameMillis, final double churn,
+                      final LongSupplier clock) {
+        if(frames.isEmpty()) {
+            throw new IllegalArgumentException("At least one frame must be recorded.");
+        }
+
+        mFrames = new ArrayList<>(frames);
+        mFrameNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, frameMillis));
+        mChurn = Math.max(0.0, Math.min(1.0, churn));
+        mClock = clock;
+        mStartNanos = clock.getAsLong();
+    }
+
+    /**
+     * Loads recorded frames from a JSON file (see the class description for the format).
+     * @param file File to load the frames from.
+     * @param frameMillis Time that each frame is replayed for (in milliseconds).
+     * @param churn Fraction (0 to 1) of each frame's trends that are replaced with trends unique to the frame.
+     * @return {@code ReplayTrendSource} that replays the loaded frames.
+     * @throws IOException If the file could not be read or is not in the expected format.
+     */
+    static ReplayTrendSource load(final Path file, final long frameMillis, final double churn) throws IOException {
+        List<Map<String, List<String>>> frames;
+        try(Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            frames = new Gson().fromJson(reader, new TypeToken<List<Map<String, List<String>>>>() {}.getType());
+        } catch (JsonParseException exception) {
+            throw new IOException(String.format("\"%s\" is not a valid trend recording.", file), exception);
+        }
+
+        if(frames == null || frames.isEmpty()) {
+            throw new IOException(String.format("\"%s\" does not contain any frames.", file));
+        }
+        return new ReplayTrendSource(frames, frameMillis, churn);
+    }
+
+    @Override
+    public List<String> fetchTrends(final int woeid) {
+        long frameIndex = getFrameIndex();
+        Map<String, List<String>> frame = mFrames.get((int)(frameIndex % mFrames.size()));
+        List<String> recorded = frame.get(String.valueOf(woeid));
+        if(recorded == null) {
+            recorded = frame.getOrDefault(ANY_LOCATION, Collections.emptyList());
+        }
+
+        List<String> names = new ArrayList<>(recorded);
+        int churned = (int)Math.round(names.size() * mChurn);
+        for(int i = 0; i < churned; i++) {
+            names.set(i, String.format("#Churn%d_%d_%d", woeid, frameIndex, i));
+        }
+        return names;
+    }
+
+    /**
+     * Returns the index of the frame currently being replayed, counting every frame replayed (including those replayed
+     * again after looping).
+     * @return Index of the frame currently being replayed.
+     */
+    long getFrameIndex() {
+        return Math.max(0, mClock.getAsLong() - mStartNanos) / mFrameNanos;
+    }
+
+}
@@ -0,0 +1,163 @@
+package io.benreynolds.hottopics.server;
+
+import io.benreynolds.hottopics.packets.Packet;
+import io.benreynolds.hottopics.packets.ReceiveMessagePacket;
+import io.benreynolds.hottopics.packets.ResumeSessionRequestPacket;
+import io.benreynolds.hottopics.packets.ResumeSessionResponsePacket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.websocket.Session;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code ResumeSessionRequestPacketHandler} is responsible for responding to the '{@code ResumeSessionRequestPacket}'s
+ * that the server receives and handles the resumption of a previous session by a client that has reconnected.
+ * <p>
+ * The reconnected client takes over the previous session's username and chatroom membership without other clients
+ * seeing it leave and rejoin, and is sent only the messages that it missed, up to a page of history (the response tells
+ * the client where the page starts, so that it can request any older messages it missed). If the session is no longer held (e.g. the
+ * server has restarted), the client is given back its username if it has been reserved for it.
+ */
+public class ResumeSessionRequestPacketHandler implements PacketHandler<ResumeSessionRequestPacket> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResumeSessionRequestPacketHandler.class);
+
+    /** Usernames that have been claimed by connected clients. */
+    private final UsernameRegistry mUsernames;
+
+    /** Holds the sessions that can be resumed. */
+    private final SessionResumption mSessionResumption;
+
+    /**
+     * @param usernames Usernames that have been claimed by connected clients.
+     * @param sessionResumption Holds the sessions that can be resumed.
+     */
+    public ResumeSessionRequestPacketHandler(final UsernameRegistry usernames, final SessionResumption sessionResumption) {
+        mUsernames = usernames;
+        mSessionResumption = sessionResumption;
+    }
+
+    @Override
+    public void handlePacket(Packet packet, Client sender, Map<Session, Client> clients, ChatroomRegistry chatrooms) {
+        LOGGER.info(String.format("[%s] Processing [%s]...", sender.getSession().getId(), ResumeSessionRequestPacket.class.getSimpleName()));
+
+        // Ensure that the received Packet is non-null and valid.
+        ResumeSessionRequestPacket resumeSessionRequestPacket = (ResumeSessionRequestPacket)packet;
+        if(resumeSessionRequestPacket == null || !resumeSessionRequestPacket.isValid()) {
+            LOGGER.info(String.format("[%s] Invalid \"%s\" provided, failed to handle.", sender.getSession().getId(), ResumeSessionRequestPacket.class.getSimpleName()));
+            sender.sendPacket(new ResumeSessionResponsePacket(false, null, null, null));
+            return;
+        }
+
+        Client resumed = mSessionResumption.resume(resumeSessionRequestPacket.getResumeToken());
+        if(resumed == null) {
+            reclaimUsername(resumeSessionRequestPacket.getResumeToken(), sender);
+            return;
+        }
+
+        // Close the previous connection if it has not yet been noticed to have dropped, then transfer its username.
+        HotTopicsEndpoint.detachResumedClient(resumed);
+        if(!mUsernames.transfer(resumed.getUsername(), resumed, sender)) {
+            LOGGER.info(String.format("[%s] Session's username is no longer held.", sender.getSession().getId()));
+            HotTopicsEndpoint.releaseClient(resumed);
+            sender.sendPacket(new ResumeSessionResponsePacket(false, null, null, null));
+            return;
+        }
+
+        sender.setUsername(resumed.getUsername());
+        String resumeToken = mSessionResumption.issue(sender);
+
+        Chatroom chatroom = resumed.getChatroom();
+        resumed.setChatroom(null);
+        if(chatroom == null) {
+            LOGGER.info(String.format("[%s] Session resumed.", sender.getSession().getId()));
+            sender.setState(Client.State.ROOM_LIST);
+            sender.sendPacket(new ResumeSessionResponsePacket(true, sender.getUsername(), null, resumeToken));
+            HotTopicsEndpoint.sendChatroomsListToClient(sender);
+            return;
+        }
+
+        // Take the previous connection's place in its chatroom on the chatroom's shard. The client's state is updated
+        // immediately so that packets it sends after resuming are accepted, and reverted if the chatroom has been closed.
+        sender.setState(Client.State.CHAT_ROOM);
+        sender.setChatroom(chatroom);
+
+        final Long lastSequence = resumeSessionRequestPacket.getLastSequence();
+        chatroom.execute(() -> {
+            if(!chatroom.replaceClient(resumed, sender)) {
+                // The previous connection is only missing if the chatroom has been closed and reopened, in which case
+                // the client rejoins it as a new member.
+                if(!chatroom.addClient(sender)) {
+                    LOGGER.info(String.format("[%s] Session's chatroom has been closed.", sender.getSession().getId()));
+                    if(sender.getChatroom() == chatroom) {
+                        sender.setChatroom(null);
+                        sender.setState(Client.State.ROOM_LIST);
+                    }
+                    sender.sendPacket(new ResumeSessionResponsePacket(true, sender.getUsername(), null, resumeToken));
+                    HotTopicsEndpoint.sendChatroomsListToClient(sender);
+                    return;
+                }
+                HotTopicsEndpoint.notifyUserCountChanged(chatroom);
+            }
+
+            // Send the messages that were missed since the last message the client received, up to a page of history,
+            // starting from the sequence number given in the response. Messages sent after these are broadcast to the
+            // sender, as it is now a member of the chatroom, and may arrive before them if the chatroom's evicted
+            // messages have to be reloaded.
+            final long nextSequence = chatroom.getNextMessageSequence();
+            final long fromSequence = lastSequence == null ? 0 : lastSequence + 1;
+            final int limit = (int)Math.max(0, Math.min(nextSequence - fromSequence,
+                    ChatHistoryRequestPacketHandler.MAX_PAGE_SIZE));
+            sender.sendPacket(new ResumeSessionResponsePacket(true, sender.getUsername(), chatroom.getName(),
+                    resumeToken, limit > 0 ? nextSequence - limit : null));
+
+            if(limit > 0) {
+                HotTopicsEndpoint.reloadEvictedMessages(chatroom, () -> HotTopicsEndpoint.readMessageHistory(chatroom,
+                        nextSequence, limit, messages -> {
+                            for(ReceiveMessagePacket message : messages) {
+                                sender.sendPacket(message);
+                            }
+                        }));
+            }
+
+            LOGGER.info(String.format("[%s] Session resumed in chatroom [%s]...", sender.getSession().getId(), chatroom.getName()));
+        });
+    }
+
+    /**
+     * Gives a client back the username reserved for a session that is no longer held (e.g. as the server has
+     * restarted), placing it in the room list state.
+     */
+    private void reclaimUsername(final String resumeToken, final Client sender) {
+        String username = mUsernames.claimReservation(resumeToken, sender);
+        if(username == null) {
+            LOGGER.info(String.format("[%s] Resume token is unknown or has expired.", sender.getSession().getId()));
+            sender.sendPacket(new ResumeSessionResponsePacket(false, null, null, null));
+            return;
+        }
+
+        sender.setUsername(username);
+        sender.setState(Client.State.ROOM_LIST);
+        String newResumeToken = mSessionResumption.issue(sender);
+
+        LOGGER.info(String.format("[%s] Reserved username \"%s\" reclaimed.", sender.getSession().getId(), username));
+        sender.sendPacket(new ResumeSessionResponsePacket(true, username, null, newResumeToken));
+        HotTopicsEndpoint.sendChatroomsListToClient(sender);
+    }
+
+    @Override
+    public Class<ResumeSessionRequestPacket> getType() {
+        return ResumeSessionRequestPacket.class;
+    }
+
+    @Override
+    public List<Client.State> getRequiredStates() {
+        return Collections.singletonList(Client.State.NO_USERNAME);
+    }
+
+}
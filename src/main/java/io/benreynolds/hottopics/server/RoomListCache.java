@@ -0,0 +1,63 @@
+package io.benreynolds.hottopics.server;
+
+import io.benreynolds.hottopics.packets.Packet;
+import io.benreynolds.hottopics.packets.PacketFrame;
+
+import java.util.function.LongFunction;
+
+/**
+ * {@code RoomListCache} holds the encoded room list (a {@code ChatroomsResponsePacket}) sent to clients that request
+ * the available '{@code Chatroom}'s. The list is identified by the version of the room list, which increases each time
+ * a change to the list is published, and the version of the {@code ChatroomRanking}, which increases each time the
+ * ranked '{@code Chatroom}'s change. The list is rebuilt lazily, at most once per pair of versions, and every request
+ * in between is sent the same {@code PacketFrame}.
+ */
+class RoomListCache {
+
+    /** Builds the room list for a given room list version. */
+    private final LongFunction<Packet> mRoomListBuilder;
+
+    /** Room list version of the cached frame. Guarded by {@code this}. */
+    private long mRoomListVersion;
+
+    /** Ranking version of the cached frame. Guarded by {@code this}. */
+    private long mRankingVersion;
+
+    /** Encoded room list, {@code null} until it is first requested. Guarded by {@code this}. */
+    private PacketFrame mFrame;
+
+    /** Amount of times the room list has been built. Guarded by {@code this}. */
+    private long mBuilds;
+
+    /**
+     * @param roomListBuilder Builds the room list for a given room list version.
+     */
+    RoomListCache(final LongFunction<Packet> roomListBuilder) {
+        mRoomListBuilder = roomListBuilder;
+    }
+
+    /**
+     * Returns the encoded room list, building it if either version has changed since it was last built.
+     * @param roomListVersion Current version of the room list.
+     * @param rankingVersion Current version of the {@code ChatroomRanking}.
+     * @return Encoded room list.
+     */
+    synchronized PacketFrame get(final long roomListVersion, final long rankingVersion) {
+        if(mFrame == null || mRoomListVersion != roomListVersion || mRankingVersion != rankingVersion) {
+            mFrame = new PacketFrame(mRoomListBuilder.apply(roomListVersion));
+            mRoomListVersion = roomListVersion;
+            mRankingVersion = rankingVersion;
+            mBuilds++;
+        }
+        return mFrame;
+    }
+
+    /**
+     * Returns the amount of times the room list has been built.
+     * @return Amount of times the room list has been built.
+     */
+    synchronized long getBuilds() {
+        return mBuilds;
+    }
+
+}
@@ -0,0 +1,232 @@
+package io.benreynolds.hottopics.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * {@code Scheduler} runs the server's periodic and one-off background tasks (refreshing trends, advancing the
+ * {@code TimerWheel}, flushing notifications) on a small, fixed pool of daemon threads. Tasks are run when they are due
+ * rather than by polling, a task that throws is logged without cancelling its future runs, and the time each task
+ * takes to run and how late it started are recorded as {@code TaskMetrics}.
+ */
+class Scheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Scheduler.class);
+
+    /** Default amount of threads that tasks are run on. */
+    static final int DEFAULT_THREAD_COUNT = 2;
+
+    /** Executor that runs the tasks. */
+    private final ScheduledThreadPoolExecutor mExecutor;
+
+    /** Source of the current time (in nanoseconds). */
+    private final LongSupplier mClock;
+
+    /** Metrics of each task, keyed by task name. */
+    private final Map<String, TaskMetrics> mMetrics = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    /**
+     * @param threadCount Amount of threads that tasks are run on.
+     */
+    Scheduler(final int threadCount) {
+        this(threadCount, System::nanoTime);
+    }
+
+    /**
+     * @param threadCount Amount of threads that tasks are run on.
+     * @param clock Source of the current time (in nanoseconds), used to measure run times and lag.
+     */
+    Scheduler(final int threadCount, final LongSupplier clock) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        mExecutor = new ScheduledThreadPoolExecutor(Math.max(1, threadCount), runnable -> {
+            Thread thread = new Thread(runnable, String.format("%s-%d", Scheduler.class.getSimpleName(), threadIndex.getAndIncrement()));
+            thread.setDaemon(true);
+            return thread;
+        });
+        mExecutor.setRemoveOnCancelPolicy(true);
+        mExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        mClock = clock;
+    }
+
+    /**
+     * Runs a task periodically. Runs start {@code period} apart regardless of how long each run takes, a run that
+     * overruns the period delays (rather than overlaps) the next.
+     * @param name Name that the task's metrics are recorded under.
+     * @param task Task to run.
+     * @param initialDelay Delay before the first run.
+     * @param period Interval between runs.
+     * @param unit Unit of {@code initialDelay} and {@code period}.
+     * @return Future that can be used to cancel the task.
+     */
+    ScheduledFuture<?> scheduleAtFixedRate(final String name, final Runnable task, final long initialDelay,
+                                           final long period, final TimeUnit unit) {
+        TaskMetrics metrics = registerMetrics(name);
+        AtomicLong dueNanos = new AtomicLong(mClock.getAsLong() + unit.toNanos(initialDelay));
+        long periodNanos = unit.toNanos(period);
+        return mExecutor.scheduleAtFixedRate(() -> run(name, task, metrics, dueNanos.getAndAdd(periodNanos)),
+                initialDelay, period, unit);
+    }
+
+    /**
+     * Runs a task once, after a delay.
+     * @param name Name that the task's metrics are recorded under.
+     * @param task Task to run.
+     * @param delay Delay before the task is run.
+     * @param unit Unit of {@code delay}.
+     * @return Future that can be used to cancel the task.
+     */
+    ScheduledFuture<?> schedule(final String name, final Runnable task, final long delay, final TimeUnit unit) {
+        return scheduleAt(name, task, mClock.getAsLong() + unit.toNanos(delay));
+    }
+
+    /**
+     * Runs a task once, at a deadline.
+     * @param name Name that the task's metrics are recorded under.
+     * @param task Task to run.
+     * @param deadlineNanos Time (in nanoseconds, according to the {@code Scheduler}'s clock) at which to run the task.
+     * @return Future that can be used to cancel the task.
+     */
+    ScheduledFuture<?> scheduleAt(final String name, final Runnable task, final long deadlineNanos) {
+        TaskMetrics metrics = registerMetrics(name);
+        long delayNanos = Math.max(0, deadlineNanos - mClock.getAsLong());
+        return mExecutor.schedule(() -> run(name, task, metrics, deadlineNanos), delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops running tasks. Waits for running tasks to finish for up to the specified timeout, after which they are
+     * interrupted.
+     * @param timeout Maximum time to wait for running tasks to finish.
+     * @param unit Unit of {@code timeout}.
+     * @return True if all running tasks finished within the timeout.
+     */
+    boolean shutdown(final long timeout, final TimeUnit unit) {
+        mExecutor.shutdown();
+        try {
+            if(mExecutor.awaitTermination(timeout, unit)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        mExecutor.shutdownNow();
+        return false;
+    }
+
+    /**
+     * Returns true if the {@code Scheduler} has been shut down.
+     * @return True if the {@code Scheduler} has been shut down.
+     */
+    boolean isShutdown() {
+        return mExecutor.isShutdown();
+    }
+
+    /**
+     * Returns the metrics of the task with the specified name.
+     * @param name Name of the task.
+     * @return Metrics of the task, or null if no task with the specified name has been scheduled.
+     */
+    TaskMetrics getMetrics(final String name) {
+        return mMetrics.get(name);
+    }
+
+    /**
+     * Returns the metrics of every task that has been scheduled, keyed by task name.
+     * @return Metrics of every task that has been scheduled.
+     */
+    Map<String, TaskMetrics> getMetrics() {
+        synchronized(mMetrics) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(mMetrics));
+        }
+    }
+
+    private TaskMetrics registerMetrics(final String name) {
+        return mMetrics.computeIfAbsent(name, key -> new TaskMetrics());
+    }
+
+    /**
+     * Runs a task, recording how late it started and how long it took.
+     */
+    private void run(final String name, final Runnable task, final TaskMetrics metrics, final long dueNanos) {
+        long startNanos = mClock.getAsLong();
+        try {
+            task.run();
+        } catch (RuntimeException exception) {
+            metrics.mFailures.incrementAndGet();
+            LOGGER.error(String.format("[%s] Scheduled task \"%s\" failed.", getClass().getSimpleName(), name), exception);
+        } finally {
+            metrics.record(Math.max(0, startNanos - dueNanos), mClock.getAsLong() - startNanos);
+        }
+    }
+
+    /**
+     * {@code TaskMetrics} records how long a scheduled task takes to run and how late it starts (its lag).
+     */
+    static class TaskMetrics {
+
+        private final AtomicLong mRuns = new AtomicLong();
+        private final AtomicLong mFailures = new AtomicLong();
+        private final AtomicLong mTotalRunNanos = new AtomicLong();
+        private final AtomicLong mMaxRunNanos = new AtomicLong();
+        private final AtomicLong mLastLagNanos = new AtomicLong();
+        private final AtomicLong mMaxLagNanos = new AtomicLong();
+
+        private void record(final long lagNanos, final long runNanos) {
+            mRuns.incrementAndGet();
+            mTotalRunNanos.addAndGet(runNanos);
+            mMaxRunNanos.accumulateAndGet(runNanos, Math::max);
+            mLastLagNanos.set(lagNanos);
+            mMaxLagNanos.accumulateAndGet(lagNanos, Math::max);
+        }
+
+        /** Returns the amount of times the task has run. */
+        long getRuns() {
+            return mRuns.get();
+        }
+
+        /** Returns the amount of times the task has thrown an exception. */
+        long getFailures() {
+            return mFailures.get();
+        }
+
+        /** Returns the average time (in nanoseconds) the task has taken to run. */
+        long getAverageRunNanos() {
+            long runs = mRuns.get();
+            return runs == 0 ? 0 : mTotalRunNanos.get() / runs;
+        }
+
+        /** Returns the longest time (in nanoseconds) the task has taken to run. */
+        long getMaxRunNanos() {
+            return mMaxRunNanos.get();
+        }
+
+        /** Returns how late (in nanoseconds) the most recent run of the task started. */
+        long getLastLagNanos() {
+            return mLastLagNanos.get();
+        }
+
+        /** Returns the greatest lag (in nanoseconds) of any run of the task. */
+        long getMaxLagNanos() {
+            return mMaxLagNanos.get();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("runs=%d, failures=%d, avgRunMs=%.3f, maxRunMs=%.3f, lastLagMs=%.3f, maxLagMs=%.3f",
+                    getRuns(), getFailures(), getAverageRunNanos() / 1e6, getMaxRunNanos() / 1e6,
+                    getLastLagNanos() / 1e6, getMaxLagNanos() / 1e6);
+        }
+
+    }
+
+}
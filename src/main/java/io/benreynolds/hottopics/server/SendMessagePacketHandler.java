@@ -18,7 +18,7 @@ public class SendMessagePacketHandler implements PacketHandler<SendMessagePacket
     private static final Logger LOGGER = LoggerFactory.getLogger(SendMessagePacketHandler.class);
 
     @Override
-    public void handlePacket(Packet packet, Client sender, Map<Session, Client> clients, List<Chatroom> chatrooms) {
+    public void handlePacket(Packet packet, Client sender, Map<Session, Client> clients, ChatroomRegistry chatrooms) {
         LOGGER.info(String.format("[%s] Processing [%s]...", sender.getSession().getId(), SendMessagePacket.class.getSimpleName()));
 
         // Ensure that the received Packet is non-null and valid.
@@ -28,18 +28,23 @@ public class SendMessagePacketHandler implements PacketHandler<SendMessagePacket
             return;
         }
 
-        if(sender.getChatroom() == null) {
+        Chatroom chatroom = sender.getChatroom();
+        if(chatroom == null) {
             return;
         }
 
-        LOGGER.info(String.format("[%s] Sending message to all clients in room [%s]...", sender.getSession().getId(), sender.getChatroom().getName()));
-        ReceiveMessagePacket receiveMessagePacket = new ReceiveMessagePacket(sender.getUsername(), sendMessagePacket.getMessage());
-
-        Chatroom chatroom = sender.getChatroom();
-        chatroom.addMessage(receiveMessagePacket);
-        for(Client client : chatroom.getClients()) {
-            client.sendPacket(receiveMessagePacket);
-        }
+        LOGGER.info(String.format("[%s] Sending message to all clients in room [%s]...", sender.getSession().getId(), chatroom.getName()));
+        String author = sender.getUsername();
+        String message = sendMessagePacket.getMessage();
+
+        chatroom.execute(() -> {
+            // The sender may have left the chatroom before the message reached the chatroom's shard.
+            if(chatroom.containsClient(sender)) {
+                ReceiveMessagePacket receiveMessagePacket = chatroom.addMessage(author, message);
+                PacketFrame frame = chatroom.broadcast(receiveMessagePacket);
+                HotTopicsEndpoint.persistMessage(chatroom, receiveMessagePacket, frame);
+            }
+        });
     }
 
     @Override
@@ -0,0 +1,396 @@
+package io.benreynolds.hottopics.server;
+
+import io.benreynolds.hottopics.packets.ReceiveMessagePacket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@code ServerStateStore} persists the live state of the server (its '{@code Chatroom}'s, their recent messages and
+ * the usernames of connected clients along with the hashes of their resume tokens) so that a restarted server can
+ * resume where the previous process left off rather than starting empty while every client reconnects at once.
+ * <p>
+ * Like {@code TrendSnapshotStore}, state is stored in a compact binary format and written to a temporary file that
+ * replaces the previous state atomically, so a crash mid-write never leaves corrupt state behind. State saved with
+ * {@code saveAsync} is written by a dedicated writer thread, which only writes the latest state if several are saved
+ * while it is busy.
+ */
+class ServerStateStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServerStateStore.class);
+
+    /** Default interval between saves of the server's state (in milliseconds). */
+    static final long DEFAULT_SAVE_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    /** Identifies a server state file. */
+    private static final int MAGIC = 0x48545353; // "HTSS"
+
+    /** Version of the file format. */
+    private static final int VERSION = 3;
+
+    /** Maximum length (in bytes) of a stored string, beyond which the file is considered corrupt. */
+    private static final int MAX_STRING_BYTES = 1024 * 1024;
+
+    /** File that the state is stored in. */
+    private final Path mFile;
+
+    /** Latest state waiting to be written by the writer, {@code null} if none is waiting. */
+    private final AtomicReference<ServerState> mPendingState = new AtomicReference<>();
+
+    /** Writes the state saved with {@code saveAsync}. */
+    private final ExecutorService mWriter;
+
+    /**
+     * @param file File that the state is stored in.
+     */
+    ServerStateStore(final Path file) {
+        mFile = file;
+        mWriter = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, String.format("%s-Writer", ServerStateStore.class.getSimpleName()));
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Saves the server's state on the writer thread, replacing the previously saved state. Never waits for the state to
+     * be written; state that is still waiting to be written is replaced by this state. Failures are logged.
+     * @param state State to save.
+     */
+    void saveAsync(final ServerState state) {
+        if(mPendingState.getAndSet(state) != null) {
+            return;
+        }
+
+        try {
+            mWriter.execute(this::writePendingState);
+        } catch (RejectedExecutionException exception) {
+            LOGGER.warn("Server state was not saved as the store has been stopped.");
+        }
+    }
+
+    /**
+     * Stops the writer, after writing the state waiting to be written (if any).
+     * @param timeout Maximum time to wait for the state to be written.
+     * @param unit Unit of {@code timeout}.
+     * @return {@code true} if the writer stopped within the timeout.
+     */
+    boolean stop(final long timeout, final TimeUnit unit) {
+        mWriter.shutdown();
+        try {
+            return mWriter.awaitTermination(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Writes the state waiting to be written. Runs on the writer thread.
+     */
+    private void writePendingState() {
+        ServerState state = mPendingState.getAndSet(null);
+        if(state == null) {
+            return;
+        }
+
+        try {
+            save(state);
+        } catch (IOException exception) {
+            LOGGER.warn(String.format("Failed to save the server state to \"%s\".", mFile), exception);
+        }
+    }
+
+    /**
+     * Saves the server's state, replacing the previously saved state.
+     * @param state State to save.
+     * @throws IOException If the state could not be written.
+     */
+    void save(final ServerState state) throws IOException {
+        Path directory = mFile.toAbsolutePath().getParent();
+        if(directory != null) {
+            Files.createDirectories(directory);
+        }
+
+        Path temporaryFile = Files.createTempFile(directory, mFile.getFileName().toString(), ".tmp");
+        try {
+            try(DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeLong(state.getSavedAtMillis());
+
+                output.writeInt(state.getChatrooms().size());
+                for(ChatroomState chatroom : state.getChatrooms()) {
+                    writeString(output, chatroom.getName());
+                    output.writeLong(chatroom.getCreatedAtMillis());
+                    output.writeInt(chatroom.getSize());
+                    output.writeLong(chatroom.getNextSequence());
+                    output.writeDouble(chatroom.getDecayedMessages());
+                    output.writeDouble(chatroom.getDecayedJoins());
+
+                    output.writeInt(chatroom.getMessages().size());
+                    for(ReceiveMessagePacket message : chatroom.getMessages()) {
+                        output.writeLong(message.getSequence());
+                        writeString(output, message.getAuthor());
+                        writeString(output, message.getMessage());
+                    }
+                }
+
+                output.writeInt(state.getUsernames().size());
+                for(Map.Entry<String, String> username : state.getUsernames().entrySet()) {
+                    writeString(output, username.getKey());
+                    output.writeBoolean(username.getValue() != null);
+                    if(username.getValue() != null) {
+                        writeString(output, username.getValue());
+                    }
+                }
+            }
+            Files.move(temporaryFile, mFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * Loads the saved state.
+     * @return Saved state, or {@code null} if no state has been saved.
+     * @throws IOException If the state could not be read or is corrupt.
+     */
+    ServerState load() throws IOException {
+        try(DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(mFile)))) {
+            if(input.readInt() != MAGIC || input.readInt() != VERSION) {
+                throw new IOException(String.format("\"%s\" is not a server state file.", mFile));
+            }
+
+            long savedAtMillis = input.readLong();
+            int chatroomCount = input.readInt();
+            List<ChatroomState> chatrooms = new ArrayList<>(Math.min(chatroomCount, 1024));
+            for(int i = 0; i < chatroomCount; i++) {
+                String name = readString(input);
+                long createdAtMillis = input.readLong();
+                int size = input.readInt();
+                long nextSequence = input.readLong();
+                double decayedMessages = input.readDouble();
+                double decayedJoins = input.readDouble();
+
+                int messageCount = input.readInt();
+                List<ReceiveMessagePacket> messages = new ArrayList<>(Math.min(messageCount, Chatroom.MESSAGES_TO_CACHE));
+                for(int j = 0; j < messageCount; j++) {
+                    long sequence = input.readLong();
+                    String author = readString(input);
+                    messages.add(new ReceiveMessagePacket(author, readString(input), sequence));
+                }
+
+                chatrooms.add(new ChatroomState(name, createdAtMillis, size, nextSequence, decayedMessages,
+                        decayedJoins, messages));
+            }
+
+            int usernameCount = input.readInt();
+            Map<String, String> usernames = new LinkedHashMap<>();
+            for(int i = 0; i < usernameCount; i++) {
+                String username = readString(input);
+                usernames.put(username, input.readBoolean() ? readString(input) : null);
+            }
+
+            return new ServerState(savedAtMillis, chatrooms, usernames);
+        } catch (NoSuchFileException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes a string as its UTF-8 encoded length followed by its bytes, as messages may exceed the length supported
+     * by {@code writeUTF}.
+     */
+    private static void writeString(final DataOutputStream output, final String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(final DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if(length < 0 || length > MAX_STRING_BYTES) {
+            throw new IOException(String.format("Invalid string length %d.", length));
+        }
+
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * {@code ServerState} is the state of the server saved by {@code ServerStateStore}.
+     */
+    static class ServerState {
+
+        private final long mSavedAtMillis;
+        private final List<ChatroomState> mChatrooms;
+        private final Map<String, String> mUsernames;
+
+        /**
+         * @param savedAtMillis Time at which the state was saved (in milliseconds since the epoch).
+         * @param chatrooms State of each {@code Chatroom}.
+         * @param usernames Hashes of resume tokens (or {@code null}) keyed by the usernames of the connected clients.
+         */
+        ServerState(final long savedAtMillis, final List<ChatroomState> chatrooms, final Map<String, String> usernames) {
+            mSavedAtMillis = savedAtMillis;
+            mChatrooms = Collections.unmodifiableList(chatrooms);
+            mUsernames = Collections.unmodifiableMap(usernames);
+        }
+
+        /**
+         * Returns the time at which the state was saved (in milliseconds since the epoch).
+         * @return Time at which the state was saved.
+         */
+        long getSavedAtMillis() {
+            return mSavedAtMillis;
+        }
+
+        /**
+         * Returns the state of each {@code Chatroom}, in the order that they were listed.
+         * @return Unmodifiable list of the state of each {@code Chatroom}.
+         */
+        List<ChatroomState> getChatrooms() {
+            return mChatrooms;
+        }
+
+        /**
+         * Returns the usernames of the connected clients, along with the hashes of the resume tokens that they can be
+         * reclaimed with.
+         * @return Unmodifiable map of hashes of resume tokens (or {@code null}), keyed by the usernames of the
+         * connected clients.
+         */
+        Map<String, String> getUsernames() {
+            return mUsernames;
+        }
+
+    }
+
+    /**
+     * {@code ChatroomState} is the state of a single {@code Chatroom} saved by {@code ServerStateStore}.
+     */
+    static class ChatroomState {
+
+        private final String mName;
+        private final long mCreatedAtMillis;
+        private final int mSize;
+        private final long mNextSequence;
+        private final double mDecayedMessages;
+        private final double mDecayedJoins;
+        private final List<ReceiveMessagePacket> mMessages;
+
+        /**
+         * @param name Name of the {@code Chatroom}.
+         * @param createdAtMillis Time at which the {@code Chatroom} was created (in milliseconds since the epoch).
+         * @param size Amount of users in the {@code Chatroom}.
+         * @param nextSequence Sequence number that will be assigned to the next message.
+         * @param decayedMessages Decayed amount of messages sent (see {@code ActivityCounter}).
+         * @param decayedJoins Decayed amount of clients that have joined (see {@code ActivityCounter}).
+         * @param messages Cached messages, oldest first.
+         */
+        ChatroomState(final String name, final long createdAtMillis, final int size, final long nextSequence,
+                      final double decayedMessages, final double decayedJoins,
+                      final List<ReceiveMessagePacket> messages) {
+            mName = name;
+            mCreatedAtMillis = createdAtMillis;
+            mSize = size;
+            mNextSequence = nextSequence;
+            mDecayedMessages = decayedMessages;
+            mDecayedJoins = decayedJoins;
+            mMessages = Collections.unmodifiableList(messages);
+        }
+
+        /**
+         * Captures the state of a {@code Chatroom}. May be called from any thread.
+         * @param chatroom {@code Chatroom} to capture the state of.
+         * @return State of the {@code Chatroom}.
+         */
+        static ChatroomState capture(final Chatroom chatroom) {
+            // The sequence number is read before the messages so that it never precedes the last message captured.
+            long nextSequence = chatroom.getNextMessageSequence();
+            List<ReceiveMessagePacket> messages = chatroom.getMessages(nextSequence, Chatroom.MESSAGES_TO_CACHE);
+            ActivityCounter activity = chatroom.getActivity();
+            return new ChatroomState(chatroom.getName(), chatroom.getCreatedAtMillis(), chatroom.getSize(),
+                    nextSequence, activity.getDecayedMessages(), activity.getDecayedJoins(), messages);
+        }
+
+        /**
+         * Returns the name of the {@code Chatroom}.
+         * @return Name of the {@code Chatroom}.
+         */
+        String getName() {
+            return mName;
+        }
+
+        /**
+         * Returns the time at which the {@code Chatroom} was created (in milliseconds since the epoch).
+         * @return Time at which the {@code Chatroom} was created.
+         */
+        long getCreatedAtMillis() {
+            return mCreatedAtMillis;
+        }
+
+        /**
+         * Returns the amount of users that were in the {@code Chatroom}.
+         * @return Amount of users that were in the {@code Chatroom}.
+         */
+        int getSize() {
+            return mSize;
+        }
+
+        /**
+         * Returns the sequence number that will be assigned to the next message.
+         * @return Sequence number that will be assigned to the next message.
+         */
+        long getNextSequence() {
+            return mNextSequence;
+        }
+
+        /**
+         * Returns the decayed amount of messages sent.
+         * @return Decayed amount of messages sent.
+         */
+        double getDecayedMessages() {
+            return mDecayedMessages;
+        }
+
+        /**
+         * Returns the decayed amount of clients that have joined.
+         * @return Decayed amount of clients that have joined.
+         */
+        double getDecayedJoins() {
+            return mDecayedJoins;
+        }
+
+        /**
+         * Returns the cached messages, oldest first.
+         * @return Unmodifiable list of the cached messages, oldest first.
+         */
+        List<ReceiveMessagePacket> getMessages() {
+            return mMessages;
+        }
+
+    }
+
+}
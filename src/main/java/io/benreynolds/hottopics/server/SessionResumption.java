@@ -0,0 +1,176 @@
+package io.benreynolds.hottopics.server;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * {@code SessionResumption} issues resume tokens to clients once they have been assigned a username, and holds the
+ * sessions of clients that disconnect for a grace period so that they can be resumed (see
+ * {@code ResumeSessionRequestPacketHandler}).
+ * <p>
+ * A disconnected client is parked rather than released: it keeps its username and remains a member of its
+ * {@code Chatroom}, so other clients never see it leave and rejoin. Packets sent to a parked client are discarded, as
+ * its session is closed; the messages it missed are sent when its session is resumed. If the session is not resumed
+ * within the grace period, the client is released as if it had disconnected normally.
+ */
+class SessionResumption {
+
+    /** Default time (in milliseconds) that the session of a disconnected client is held for. */
+    static final long DEFAULT_GRACE_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    /** Amount of random bytes in each resume token. */
+    private static final int TOKEN_BYTES = 16;
+
+    /** {@code TimerWheel} that the grace periods are scheduled on. */
+    private final TimerWheel mTimerWheel;
+
+    /** Time (in milliseconds) that the session of a disconnected client is held for. */
+    private final long mGraceMillis;
+
+    /** Releases a client whose grace period has expired. */
+    private final Consumer<Client> mReleaser;
+
+    /** Generates resume tokens. */
+    private final SecureRandom mRandom = new SecureRandom();
+
+    /** Clients that have been issued a resume token (connected or parked), keyed by their token. Guarded by
+     * {@code this}. */
+    private final Map<String, Client> mClients = new HashMap<>();
+
+    /**
+     * @param timerWheel {@code TimerWheel} that the grace periods are scheduled on.
+     * @param graceMillis Time (in milliseconds) that the session of a disconnected client is held for.
+     * @param releaser Releases a client whose grace period has expired.
+     */
+    SessionResumption(final TimerWheel timerWheel, final long graceMillis, final Consumer<Client> releaser) {
+        mTimerWheel = timerWheel;
+        mGraceMillis = Math.max(0, graceMillis);
+        mReleaser = releaser;
+    }
+
+    /**
+     * Returns the SHA-256 hash of a resume token. Tokens that outlive the process (e.g. in the saved server state) are
+     * stored as hashes, so that the saved state cannot be used to resume other clients' sessions.
+     * @param token Resume token, may be {@code null}.
+     * @return Hash of the resume token, or {@code null} if {@code token} is {@code null}.
+     */
+    static String hashToken(final String token) {
+        if(token == null) {
+            return null;
+        }
+
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException exception) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Issues a client a new resume token, replacing any token it was previously issued.
+     * @param client Client that has been assigned a username.
+     * @return Resume token.
+     */
+    synchronized String issue(final Client client) {
+        revoke(client);
+
+        byte[] bytes = new byte[TOKEN_BYTES];
+        mRandom.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        mClients.put(token, client);
+        client.setResumeToken(token);
+        return token;
+    }
+
+    /**
+     * Revokes a client's resume token, after which its session can no longer be resumed.
+     * @param client Client whose resume token is revoked.
+     */
+    synchronized void revoke(final Client client) {
+        String token = client.getResumeToken();
+        if(token != null) {
+            mClients.remove(token, client);
+            client.setResumeToken(null);
+        }
+        cancelGracePeriod(client);
+    }
+
+    /**
+     * Parks a client that has disconnected, holding its session for the grace period. Clients that have not been
+     * issued a resume token cannot be parked.
+     * @param client Client that has disconnected.
+     * @return {@code true} if the client was parked (or was already parked), {@code false} if it should be released.
+     */
+    synchronized boolean park(final Client client) {
+        String token = client.getResumeToken();
+        if(token == null || mClients.get(token) != client) {
+            return false;
+        }
+
+        if(client.getResumeTimeout() == null) {
+            client.setResumeTimeout(mTimerWheel.newTimeout(() -> expire(token, client), mGraceMillis,
+                    TimeUnit.MILLISECONDS));
+        }
+        return true;
+    }
+
+    /**
+     * Takes the client whose session a resume token identifies, revoking the token. The client may be parked or, if
+     * its previous connection has not yet been noticed to have dropped, still connected.
+     * @param token Resume token.
+     * @return Client whose session the token identifies, or {@code null} if the token is unknown or has expired.
+     */
+    synchronized Client resume(final String token) {
+        Client client = mClients.get(token);
+        if(client != null) {
+            revoke(client);
+        }
+        return client;
+    }
+
+    /**
+     * Returns {@code true} if a client has been parked and its grace period has not expired.
+     * @param client Client.
+     * @return {@code true} if the client is parked.
+     */
+    synchronized boolean isParked(final Client client) {
+        return client.getResumeTimeout() != null;
+    }
+
+    /**
+     * Releases a parked client once its grace period has expired, unless its session has been resumed. Runs on the
+     * {@code TimerWheel}'s ticking thread.
+     */
+    private void expire(final String token, final Client client) {
+        synchronized(this) {
+            if(!mClients.remove(token, client)) {
+                return;
+            }
+            client.setResumeToken(null);
+            client.setResumeTimeout(null);
+        }
+        mReleaser.accept(client);
+    }
+
+    /**
+     * Cancels a parked client's grace period. Must be called while holding {@code this}.
+     */
+    private void cancelGracePeriod(final Client client) {
+        TimerWheel.Timeout timeout = client.getResumeTimeout();
+        if(timeout != null) {
+            timeout.cancel();
+            client.setResumeTimeout(null);
+        }
+    }
+
+}
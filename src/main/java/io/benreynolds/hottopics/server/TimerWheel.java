@@ -0,0 +1,282 @@
+package io.benreynolds.hottopics.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * {@code TimerWheel} is a hashed timing wheel: timeouts are placed in the bucket that corresponds to their deadline and
+ * each tick only visits the bucket that has come due, so the cost of a tick depends on the amount of timeouts in that
+ * bucket rather than on the total amount of timeouts.
+ * <p>
+ * Timeouts are re-armed eagerly: each bucket is an intrusive doubly-linked list, so {@code Timeout.rearm} unlinks the
+ * timeout from the bucket of its previous deadline and links it into the bucket of its new deadline, and
+ * {@code Timeout.cancel} unlinks it, both in constant time. A timeout that is kept from expiring (e.g. by a client that
+ * keeps sending messages, with the {@code InactivityMonitor}) is therefore never visited by a tick, and neither is a
+ * cancelled timeout. The buckets are guarded by the wheel, so re-arming costs a short uncontended lock rather than work
+ * for the ticking thread.
+ * <p>
+ * A tick visits the timeouts that expire, plus the timeouts whose deadline is further away than a full rotation of the
+ * wheel, which are visited once per rotation until they are due. The amount of timeouts visited is reported by
+ * {@code getVisitedTimeouts}.
+ */
+class TimerWheel {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TimerWheel.class);
+
+    /** Default interval between ticks (in milliseconds). */
+    static final long DEFAULT_TICK_MILLIS = 1000;
+
+    /** Default amount of buckets in the wheel. */
+    static final int DEFAULT_WHEEL_SIZE = 256;
+
+    /** Interval between ticks (in nanoseconds). */
+    private final long mTickNanos;
+
+    /** Buckets of timeouts, each holding the head of an intrusive doubly-linked list. Guarded by the wheel. */
+    private final Timeout[] mBuckets;
+
+    /** Mask that maps a tick to a bucket. */
+    private final int mMask;
+
+    /** Source of the current time (in nanoseconds). */
+    private final LongSupplier mClock;
+
+    /** Time that the wheel was created (in nanoseconds), tick 0 starts at this time. */
+    private final long mStartNanos;
+
+    /** Next tick to be processed. Guarded by the wheel. */
+    private long mTick = 0;
+
+    /** Amount of timeouts visited as their buckets came due. Only written by the ticking thread. */
+    private volatile long mVisitedTimeouts = 0;
+
+    /**
+     * @param tickMillis Interval between ticks (in milliseconds).
+     * @param wheelSize Amount of buckets in the wheel, rounded up to a power of two.
+     */
+    TimerWheel(final long tickMillis, final int wheelSize) {
+        this(tickMillis, wheelSize, System::nanoTime);
+    }
+
+    /**
+     * @param tickMillis Interval between ticks (in milliseconds).
+     * @param wheelSize Amount of buckets in the wheel, rounded up to a power of two.
+     * @param clock Source of the current time (in nanoseconds).
+     */
+    TimerWheel(final long tickMillis, final int wheelSize, final LongSupplier clock) {
+        int buckets = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        mTickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+        mBuckets = new Timeout[buckets];
+        mMask = buckets - 1;
+        mClock = clock;
+        mStartNanos = clock.getAsLong();
+    }
+
+    /**
+     * Returns the interval between ticks (in milliseconds).
+     * @return Interval between ticks (in milliseconds).
+     */
+    long getTickMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(mTickNanos);
+    }
+
+    /**
+     * Returns the current time (in nanoseconds) according to the wheel's clock.
+     * @return Current time (in nanoseconds).
+     */
+    long now() {
+        return mClock.getAsLong();
+    }
+
+    /**
+     * Returns the amount of timeouts that have been visited as their buckets came due, whether or not they expired.
+     * @return Amount of timeouts visited.
+     */
+    long getVisitedTimeouts() {
+        return mVisitedTimeouts;
+    }
+
+    /**
+     * Schedules a task to be run once a delay has elapsed. May be called from any thread.
+     * @param task Task to run, on the ticking thread, once the timeout expires.
+     * @param delay Delay before the timeout expires.
+     * @param unit Unit of {@code delay}.
+     * @return {@code Timeout} that can be re-armed or cancelled.
+     */
+    Timeout newTimeout(final Runnable task, final long delay, final TimeUnit unit) {
+        Timeout timeout = new Timeout(this, task);
+        schedule(timeout, now() + unit.toNanos(delay));
+        return timeout;
+    }
+
+    /**
+     * Processes every tick that has elapsed since the wheel was last advanced, running the tasks of the timeouts that
+     * have expired. Tasks are run without holding the wheel, so they may schedule, re-arm or cancel timeouts. Must only
+     * be called by a single thread.
+     * @return Amount of timeouts that expired.
+     */
+    int advance() {
+        long currentTick = (now() - mStartNanos) / mTickNanos;
+
+        List<Timeout> expired = new ArrayList<>();
+        long visited = 0;
+        synchronized(this) {
+            for(; mTick <= currentTick; mTick++) {
+                Timeout timeout = mBuckets[(int)(mTick & mMask)];
+
+                // Only timeouts whose deadline is more than a rotation away remain in the bucket.
+                while(timeout != null) {
+                    Timeout next = timeout.mNext;
+                    if(tickOf(timeout.mDeadline) <= mTick) {
+                        unlink(timeout);
+                        timeout.mState = Timeout.EXPIRED;
+                        expired.add(timeout);
+                    }
+                    visited++;
+                    timeout = next;
+                }
+            }
+        }
+        mVisitedTimeouts += visited;
+
+        for(Timeout timeout : expired) {
+            try {
+                timeout.mTask.run();
+            } catch (RuntimeException exception) {
+                LOGGER.error("Timeout task failed.", exception);
+            }
+        }
+        return expired.size();
+    }
+
+    /**
+     * Moves a timeout to the bucket of a new deadline (or the bucket of the next tick if the deadline has passed),
+     * unless it has been cancelled.
+     */
+    private synchronized void schedule(final Timeout timeout, final long deadline) {
+        if(timeout.mState == Timeout.CANCELLED) {
+            return;
+        }
+
+        unlink(timeout);
+        timeout.mDeadline = deadline;
+        timeout.mState = Timeout.PENDING;
+
+        int bucket = (int)(Math.max(tickOf(deadline), mTick) & mMask);
+        timeout.mBucket = bucket;
+        timeout.mNext = mBuckets[bucket];
+        if(timeout.mNext != null) {
+            timeout.mNext.mPrevious = timeout;
+        }
+        mBuckets[bucket] = timeout;
+    }
+
+    /**
+     * Cancels a timeout, removing it from its bucket.
+     */
+    private synchronized void cancel(final Timeout timeout) {
+        timeout.mState = Timeout.CANCELLED;
+        unlink(timeout);
+    }
+
+    /**
+     * Removes a timeout from the bucket it is in, if any. Must be called while holding the wheel.
+     */
+    private void unlink(final Timeout timeout) {
+        if(timeout.mBucket < 0) {
+            return;
+        }
+
+        if(timeout.mPrevious != null) {
+            timeout.mPrevious.mNext = timeout.mNext;
+        } else {
+            mBuckets[timeout.mBucket] = timeout.mNext;
+        }
+        if(timeout.mNext != null) {
+            timeout.mNext.mPrevious = timeout.mPrevious;
+        }
+        timeout.mPrevious = null;
+        timeout.mNext = null;
+        timeout.mBucket = -1;
+    }
+
+    /**
+     * Returns the tick that a point in time falls within.
+     */
+    private long tickOf(final long nanos) {
+        return Math.max(0, nanos - mStartNanos) / mTickNanos;
+    }
+
+    /**
+     * {@code Timeout} is a task scheduled to run on a {@code TimerWheel} once its deadline is reached.
+     */
+    static class Timeout {
+
+        private static final int PENDING = 0;
+        private static final int EXPIRED = 1;
+        private static final int CANCELLED = 2;
+
+        /** {@code TimerWheel} that the timeout was scheduled on. */
+        private final TimerWheel mWheel;
+
+        /** Task run when the timeout expires. */
+        private final Runnable mTask;
+
+        /** State of the timeout (PENDING, EXPIRED or CANCELLED). Only written while holding the wheel. */
+        private volatile int mState = PENDING;
+
+        /** Time (in nanoseconds) at which the timeout expires. Guarded by the wheel. */
+        private long mDeadline;
+
+        /** Bucket that the timeout is in, -1 once it has expired or been cancelled. Guarded by the wheel. */
+        private int mBucket = -1;
+
+        /** Previous and next timeouts in the same bucket. Guarded by the wheel. */
+        private Timeout mPrevious;
+        private Timeout mNext;
+
+        private Timeout(final TimerWheel wheel, final Runnable task) {
+            mWheel = wheel;
+            mTask = task;
+        }
+
+        /**
+         * Moves the deadline of the timeout, scheduling it again if it has already expired. Has no effect once the
+         * timeout has been cancelled. May be called from any thread.
+         * @param deadline Time (in nanoseconds, according to the wheel's clock) at which the timeout expires.
+         */
+        void rearm(final long deadline) {
+            mWheel.schedule(this, deadline);
+        }
+
+        /**
+         * Cancels the timeout, preventing its task from being run. May be called from any thread.
+         */
+        void cancel() {
+            mWheel.cancel(this);
+        }
+
+        /**
+         * Returns true if the timeout has expired and has not since been re-armed.
+         * @return True if the timeout has expired.
+         */
+        boolean isExpired() {
+            return mState == EXPIRED;
+        }
+
+        /**
+         * Returns true if the timeout has been cancelled.
+         * @return True if the timeout has been cancelled.
+         */
+        boolean isCancelled() {
+            return mState == CANCELLED;
+        }
+
+    }
+
+}
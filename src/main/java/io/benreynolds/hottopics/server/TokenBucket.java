@@ -0,0 +1,111 @@
+package io.benreynolds.hottopics.server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * {@code TokenBucket} limits the rate at which an action can be performed. The bucket holds up to {@code capacity}
+ * tokens and is refilled continuously at a fixed rate; each action takes one token.
+ * <p>
+ * Over any window of {@code refillPeriod}, at most {@code capacity + refillTokens} actions can be performed: a bucket
+ * enforcing a limit of N actions per window therefore needs {@code capacity + refillTokens <= N}.
+ */
+class TokenBucket {
+
+    /** Maximum amount of tokens held. */
+    private final long mCapacity;
+
+    /** Time (in nanoseconds) taken to refill a single token. */
+    private final long mNanosPerToken;
+
+    /** Source of the current time (in nanoseconds). */
+    private final LongSupplier mClock;
+
+    /** Amount of whole tokens currently held. */
+    private long mTokens;
+
+    /** Time (in nanoseconds) from which the next token is being refilled. */
+    private long mRefilledNanos;
+
+    /**
+     * Instantiates a full {@code TokenBucket}.
+     * @param capacity Maximum amount of tokens held (the largest burst of actions).
+     * @param refillTokens Amount of tokens refilled per {@code refillPeriod}.
+     * @param refillPeriod Period over which {@code refillTokens} are refilled.
+     * @param unit Unit of {@code refillPeriod}.
+     */
+    TokenBucket(final long capacity, final long refillTokens, final long refillPeriod, final TimeUnit unit) {
+        this(capacity, refillTokens, refillPeriod, unit, System::nanoTime);
+    }
+
+    /**
+     * Instantiates a full {@code TokenBucket}.
+     * @param capacity Maximum amount of tokens held (the largest burst of actions).
+     * @param refillTokens Amount of tokens refilled per {@code refillPeriod}.
+     * @param refillPeriod Period over which {@code refillTokens} are refilled.
+     * @param unit Unit of {@code refillPeriod}.
+     * @param clock Source of the current time (in nanoseconds).
+     */
+    TokenBucket(final long capacity, final long refillTokens, final long refillPeriod, final TimeUnit unit,
+                final LongSupplier clock) {
+        if(capacity <= 0 || refillTokens <= 0 || refillPeriod <= 0) {
+            throw new IllegalArgumentException("Capacity, refill tokens and refill period must be positive.");
+        }
+
+        mCapacity = capacity;
+        // Rounded up, so that the bucket never refills faster than requested.
+        mNanosPerToken = Math.max(1, (unit.toNanos(refillPeriod) + refillTokens - 1) / refillTokens);
+        mClock = clock;
+        mTokens = capacity;
+        mRefilledNanos = clock.getAsLong();
+    }
+
+    /**
+     * Takes a token if one is available.
+     * @return True if a token was taken.
+     */
+    synchronized boolean tryAcquire() {
+        refill();
+        if(mTokens == 0) {
+            return false;
+        }
+
+        mTokens--;
+        return true;
+    }
+
+    /**
+     * Returns the amount of tokens currently available.
+     * @return Amount of tokens currently available.
+     */
+    synchronized long getAvailableTokens() {
+        refill();
+        return mTokens;
+    }
+
+    /**
+     * Returns the time (in nanoseconds) until a token will be available.
+     * @return Time until a token will be available, 0 if one is available now.
+     */
+    synchronized long getNanosUntilAvailable() {
+        refill();
+        return mTokens > 0 ? 0 : mNanosPerToken - (mClock.getAsLong() - mRefilledNanos);
+    }
+
+    private void refill() {
+        long now = mClock.getAsLong();
+        long refilled = (now - mRefilledNanos) / mNanosPerToken;
+        if(refilled <= 0) {
+            return;
+        }
+
+        if(mTokens + refilled >= mCapacity) {
+            mTokens = mCapacity;
+            mRefilledNanos = now;
+        } else {
+            mTokens += refilled;
+            mRefilledNanos += refilled * mNanosPerToken;
+        }
+    }
+
+}
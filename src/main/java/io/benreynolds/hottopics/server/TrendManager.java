@@ -1,91 +1,461 @@
 package io.benreynolds.hottopics.server;
 
-import twitter4j.*;
-import twitter4j.auth.AccessToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
 
 /**
- * {@code TrendManager} uses the Twitter4J Twitter API library to manage the retrieval of Twitter trend information.
+ * {@code TrendManager} manages the retrieval of trend information for one or more locations from a {@code TrendSource}. Trends are retrieved in the background; readers are never blocked and always see the last
+ * successfully retrieved {@code TrendSnapshot}, which merges the trends of every location.
+ * <p>
+ * Every cycle, locations whose trends are due to be refreshed are fetched in parallel, most popular first, as long as
+ * the shared request budget (a {@code TokenBucket}) allows. A location's popularity is the amount of users in the
+ * chatrooms of its trends. Failed retrievals, including those that do not complete within the fetch timeout, are
+ * retried with exponential backoff and jitter.
  */
 class TrendManager {
 
-    // TODO: Extend TrendManager such that it can handle the retrieval of trends from varying locations.
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrendManager.class);
 
     /**
-     * Twitter API credentials.
+     * Where On Earth Identifier (WOEID) of the location that is searched for trends if none are configured.
      */
-    private static final String TWITTER_API_CONSUMER_KEY = "";
-    private static final String TWITTER_API_CONSUMER_SECRET = "";
-    private static final String TWITTER_API_ACCESS_TOKEN = "";
-    private static final String TWITTER_API_ACCESS_TOKEN_SECRET = "";
+    static final int DEFAULT_WOEID = 44418; // Greater London
 
     /**
-     * Where On Earth Identifier (WOEID) that represents the location that will be searched for trends.
+     * The Twitter API limits the amount of trend requests that can be made to 75 per 15 minutes. The budget allows
+     * bursts of {@code REQUEST_BURST} requests and refills the remainder over the window, so that the limit holds over
+     * any 15 minute window.
      */
-    private static final int WOEID = 44418; // Greater London
+    private static final int MAX_REQUESTS_PER_WINDOW = 75;
+    private static final int REQUEST_WINDOW_MINUTES = 15;
+    private static final int REQUEST_BURST = 15;
+
+    /** Maximum amount of locations that are fetched at once. */
+    private static final int MAX_PARALLEL_FETCHES = 4;
+
+    /** Default interval between checks for locations that are due to be refreshed (in milliseconds). */
+    static final long DEFAULT_CYCLE_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    /** Default interval between refreshes of each location (in milliseconds). */
+    static final long DEFAULT_REFRESH_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    /** Default delay before the first retry of a failed fetch (in milliseconds), doubled for each further failure. */
+    static final long DEFAULT_RETRY_BASE_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(15);
+
+    /** Default maximum delay before retrying a failed fetch (in milliseconds). */
+    static final long DEFAULT_RETRY_MAX_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(4);
+
+    /** Default time a fetch is given to complete before it is cancelled and treated as failed (in milliseconds). */
+    static final long DEFAULT_FETCH_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    /** Retrieves the trends of a location. */
+    private final TrendSource mTrendSource;
+
+    /** Locations that are searched for trends, in configured order (which breaks popularity ties). */
+    private final List<Location> mLocations = new ArrayList<>();
+
+    /** Request budget shared by all locations. */
+    private final TokenBucket mRequestBudget;
+
+    /** Notified each time trends are successfully retrieved. */
+    private final Consumer<TrendSnapshot> mListener;
+
+    /** Returns the amount of users interested in a trend (i.e. in its chatroom). */
+    private final ToIntFunction<String> mTrendPopularity;
+
+    /** Last successfully retrieved trends of every location. */
+    private final AtomicReference<TrendSnapshot> mSnapshot = new AtomicReference<>(TrendSnapshot.EMPTY);
+
+    /** Serializes notifications of the listener, which are made without holding the {@code TrendManager}. */
+    private final Object mListenerLock = new Object();
+
+    /** Last snapshot that the listener was notified of. Guarded by {@code mListenerLock}. */
+    private TrendSnapshot mNotifiedSnapshot = TrendSnapshot.EMPTY;
+
+    private long mCycleMillis = DEFAULT_CYCLE_MILLIS;
+    private long mRefreshNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_REFRESH_MILLIS);
+    private long mRetryBaseDelayNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_RETRY_BASE_DELAY_MILLIS);
+    private long mRetryMaxDelayNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_RETRY_MAX_DELAY_MILLIS);
+    private long mFetchTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_FETCH_TIMEOUT_MILLIS);
+
+    /** Executor that fetches run on, {@code null} until {@code start()} is called. */
+    private ExecutorService mFetchExecutor;
+
+    /**
+     * Executor that requests to the {@code TrendSource} run on, so that a fetch can stop waiting for a request that
+     * does not complete in time. {@code null} until {@code start()} is called.
+     */
+    private ExecutorService mRequestExecutor;
+
+    /**
+     * Instantiates the {@code TrendManager}. No requests are made until {@code start()} is called.
+     * @param trendSource Retrieves the trends of a location.
+     * @param woeids Where On Earth Identifiers of the locations that are searched for trends.
+     * @param requestBudget Request budget shared by all locations.
+     * @param listener Notified each time trends are successfully retrieved.
+     * @param trendPopularity Returns the amount of users interested in a trend.
+     */
+    TrendManager(final TrendSource trendSource, final Collection<Integer> woeids, final TokenBucket requestBudget,
+                 final Consumer<TrendSnapshot> listener, final ToIntFunction<String> trendPopularity) {
+        mTrendSource = trendSource;
+        for(int woeid : new LinkedHashSet<>(woeids)) {
+            mLocations.add(new Location(woeid, mLocations.size()));
+        }
+        mRequestBudget = requestBudget;
+        mListener = listener;
+        mTrendPopularity = trendPopularity;
+    }
 
     /**
-     * The Twitter API limits the amount of trend requests that can be made to 75 per 15 minutes.
+     * Instantiates a {@code TrendManager} configured by system properties:
+     * <ul>
+     *     <li>{@code hottopics.woeids}: comma-separated WOEIDs of the locations searched for trends.</li>
+     *     <li>{@code hottopics.trendSource}: {@code twitter} (default) or {@code replay}.</li>
+     *     <li>{@code hottopics.twitter.consumerKey}, {@code hottopics.twitter.consumerSecret},
+     *     {@code hottopics.twitter.accessToken}, {@code hottopics.twitter.accessTokenSecret}: Twitter API
+     *     credentials.</li>
+     *     <li>{@code hottopics.trendFetchTimeoutMillis}: time each fetch is given to complete before it is cancelled
+     *     and retried.</li>
+     *     <li>{@code hottopics.replay.file}: recording replayed by the {@code replay} source.</li>
+     *     <li>{@code hottopics.replay.frameMillis}: time each recorded frame is replayed for, locations are refreshed
+     *     at the same interval.</li>
+     *     <li>{@code hottopics.replay.churn}: fraction of each frame's trends replaced with trends unique to the
+     *     frame.</li>
+     * </ul>
+     * The {@code replay} source is not subject to the Twitter API's rate limit.
+     * @param listener Notified each time trends are successfully retrieved.
+     * @param trendPopularity Returns the amount of users interested in a trend.
+     * @return Configured {@code TrendManager}.
      */
-    private static final int MAX_REQUESTS_PER_MINUTE = 4;
-    private static final int SECONDS_IN_MINUTE = 60;
+    static TrendManager createFromSystemProperties(final Consumer<TrendSnapshot> listener,
+                                                   final ToIntFunction<String> trendPopularity) {
+        List<Integer> woeids = parseWoeids(System.getProperty("hottopics.woeids"));
+        long fetchTimeoutMillis = Long.getLong("hottopics.trendFetchTimeoutMillis", DEFAULT_FETCH_TIMEOUT_MILLIS);
+
+        if(!"replay".equalsIgnoreCase(System.getProperty("hottopics.trendSource", "twitter"))) {
+            TrendSource trendSource = new TwitterTrendSource(
+                    System.getProperty("hottopics.twitter.consumerKey", ""),
+                    System.getProperty("hottopics.twitter.consumerSecret", ""),
+                    System.getProperty("hottopics.twitter.accessToken", ""),
+                    System.getProperty("hottopics.twitter.accessTokenSecret", ""));
+            TrendManager trendManager = new TrendManager(trendSource, woeids, new TokenBucket(REQUEST_BURST,
+                    MAX_REQUESTS_PER_WINDOW - REQUEST_BURST, REQUEST_WINDOW_MINUTES, TimeUnit.MINUTES), listener,
+                    trendPopularity);
+            trendManager.configureFetchTimeout(fetchTimeoutMillis);
+            return trendManager;
+        }
+
+        long frameMillis = Long.getLong("hottopics.replay.frameMillis", DEFAULT_REFRESH_MILLIS);
+        TrendSource trendSource;
+        try {
+            trendSource = ReplayTrendSource.load(Paths.get(System.getProperty("hottopics.replay.file", "trends.json")),
+                    frameMillis, Double.parseDouble(System.getProperty("hottopics.replay.churn", "0")));
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+
+        TrendManager trendManager = new TrendManager(trendSource, woeids,
+                new TokenBucket(Integer.MAX_VALUE, Integer.MAX_VALUE, 1, TimeUnit.SECONDS), listener, trendPopularity);
+        trendManager.configureTimings(Math.min(DEFAULT_CYCLE_MILLIS, frameMillis), frameMillis,
+                DEFAULT_RETRY_BASE_DELAY_MILLIS, DEFAULT_RETRY_MAX_DELAY_MILLIS);
+        trendManager.configureFetchTimeout(fetchTimeoutMillis);
+        return trendManager;
+    }
+
+    /**
+     * Sets how often locations are refreshed and how failed fetches are retried. Must be called before
+     * {@code start()}.
+     * @param cycleMillis Interval between checks for locations that are due to be refreshed (in milliseconds).
+     * @param refreshMillis Interval between refreshes of each location (in milliseconds).
+     * @param retryBaseDelayMillis Delay before the first retry of a failed fetch (in milliseconds).
+     * @param retryMaxDelayMillis Maximum delay before retrying a failed fetch (in milliseconds).
+     */
+    void configureTimings(final long cycleMillis, final long refreshMillis, final long retryBaseDelayMillis,
+                          final long retryMaxDelayMillis) {
+        mCycleMillis = Math.max(1, cycleMillis);
+        mRefreshNanos = TimeUnit.MILLISECONDS.toNanos(refreshMillis);
+        mRetryBaseDelayNanos = TimeUnit.MILLISECONDS.toNanos(retryBaseDelayMillis);
+        mRetryMaxDelayNanos = TimeUnit.MILLISECONDS.toNanos(retryMaxDelayMillis);
+    }
+
+    /**
+     * Sets how long each fetch is given to complete before it is cancelled and retried like any other failed fetch.
+     * Must be called before {@code start()}.
+     * @param fetchTimeoutMillis Time each fetch is given to complete (in milliseconds).
+     */
+    void configureFetchTimeout(final long fetchTimeoutMillis) {
+        mFetchTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, fetchTimeoutMillis));
+    }
+
+    /**
+     * Starts refreshing trends on the specified {@code Scheduler}, beginning immediately. Fetches run on a separate,
+     * bounded pool so that slow requests do not delay other scheduled tasks. Each request is made on its own thread,
+     * so that a request that does not complete within the fetch timeout can be abandoned without holding a fetch.
+     * @param scheduler {@code Scheduler} that refresh cycles are run on.
+     */
+    synchronized void start(final Scheduler scheduler) {
+        if(mFetchExecutor != null) {
+            return;
+        }
+
+        mFetchExecutor = Executors.newFixedThreadPool(Math.max(1, Math.min(MAX_PARALLEL_FETCHES, mLocations.size())),
+                createThreadFactory("Fetch"));
+        mRequestExecutor = Executors.newCachedThreadPool(createThreadFactory("Request"));
+        scheduler.scheduleAtFixedRate("RefreshTrends", this::refresh, 0, mCycleMillis, TimeUnit.MILLISECONDS);
+    }
 
     /**
-     * Timer used to ensure that no more than {@code MAX_REQUESTS_PER_MINUTE} requests are made to the Twitter API.
+     * Stops fetching trends. Fetches that are in progress are interrupted.
      */
-    private final Timer mRequestLimiter;
+    synchronized void stop() {
+        if(mFetchExecutor != null) {
+            mFetchExecutor.shutdownNow();
+            mFetchExecutor = null;
+            mRequestExecutor.shutdownNow();
+            mRequestExecutor = null;
+        }
+    }
 
     /**
-     * Used to interact with the Twitter API.
+     * Restores previously retrieved (e.g. persisted) trends, so that they are served until they are refreshed. Each
+     * location is not refreshed until its restored trends are due to be refreshed, so that no requests are spent on
+     * trends that are still fresh. Must be called before {@code start()}; the listener is not notified.
+     * @param snapshot Previously retrieved trends.
      */
-    private final Twitter mTwitter4J;
+    synchronized void restore(final TrendSnapshot snapshot) {
+        long ageNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, System.currentTimeMillis() - snapshot.getRetrievedAtMillis()));
+        long nextFetchNanos = System.nanoTime() + Math.max(0, mRefreshNanos - ageNanos);
+        for(Location location : mLocations) {
+            List<String> trends = snapshot.getTrendsByLocation().get(location.mWoeid);
+            if(trends != null) {
+                location.mTrends = trends;
+                location.mNextFetchNanos = nextFetchNanos;
+            }
+        }
+        mSnapshot.set(snapshot);
+    }
 
     /**
-     * Holds the latest trend information.
+     * Returns the last successfully retrieved trends. Never blocks.
+     * @return Last successfully retrieved trends, {@code TrendSnapshot.EMPTY} if none have been retrieved.
      */
-    private Trends mTrends;
+    TrendSnapshot getSnapshot() {
+        return mSnapshot.get();
+    }
 
     /**
-     * Instantiates the {@code TrendManager}, sets up Twitter4J and .
+     * Starts fetching the trends of every location that is due to be refreshed, most popular first, until the
+     * request budget is exhausted. Locations that could not be fetched are fetched on a later cycle.
      */
-    TrendManager() {
-        // Instantiate and set up Twitter4J using the supplied credentials.
-        mTwitter4J = TwitterFactory.getSingleton();
-        mTwitter4J.setOAuthConsumer(TWITTER_API_CONSUMER_KEY, TWITTER_API_CONSUMER_SECRET);
-        mTwitter4J.setOAuthAccessToken(new AccessToken(TWITTER_API_ACCESS_TOKEN, TWITTER_API_ACCESS_TOKEN_SECRET));
+    synchronized void refresh() {
+        if(mFetchExecutor == null) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        List<Location> dueLocations = new ArrayList<>();
+        for(Location location : mLocations) {
+            location.mPopularity = getPopularity(location);
+            if(!location.mFetching && now - location.mNextFetchNanos >= 0) {
+                dueLocations.add(location);
+            }
+        }
+        dueLocations.sort(Location.BY_POPULARITY);
 
-        // Set the '{@code Timer}'s interval such that the trend request limit will not be exceeded.
-        mRequestLimiter = new Timer(SECONDS_IN_MINUTE / MAX_REQUESTS_PER_MINUTE);
-        getTrends();
+        for(Location location : dueLocations) {
+            if(!mRequestBudget.tryAcquire()) {
+                LOGGER.info(String.format("[%s] Request budget exhausted, %d locations are waiting to be refreshed.",
+                        getClass().getSimpleName(), dueLocations.size() - dueLocations.indexOf(location)));
+                break;
+            }
+
+            location.mFetching = true;
+            ExecutorService requestExecutor = mRequestExecutor;
+            mFetchExecutor.execute(() -> fetch(location, requestExecutor));
+        }
     }
 
-    public boolean newTrendsAvailable() {
-        return (mTrends == null || mRequestLimiter.hasElapsed());
+    /**
+     * Fetches the trends of a location, publishing a new snapshot on success and scheduling a retry on failure. A
+     * request that does not complete within the fetch timeout is cancelled (interrupting it) and treated as failed, so
+     * that a hung {@code TrendSource} can never stop a location from being refreshed.
+     */
+    private void fetch(final Location location, final ExecutorService requestExecutor) {
+        List<String> names = null;
+        Exception failure = null;
+        Future<List<String>> request = null;
+        try {
+            request = requestExecutor.submit(() -> mTrendSource.fetchTrends(location.mWoeid));
+            names = request.get(mFetchTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException exception) {
+            failure = exception.getCause() instanceof Exception ? (Exception)exception.getCause() : exception;
+        } catch (TimeoutException exception) {
+            request.cancel(true);
+            failure = new TimeoutException(String.format("No response within %d ms",
+                    TimeUnit.NANOSECONDS.toMillis(mFetchTimeoutNanos)));
+        } catch (InterruptedException exception) {
+            // The TrendManager is stopping.
+            request.cancel(true);
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception exception) {
+            failure = exception;
+        }
+
+        synchronized(this) {
+            location.mFetching = false;
+            if(failure != null) {
+                // There was an error in retrieving the latest trends, continue to use the last snapshot.
+                location.mConsecutiveFailures++;
+                long backoffNanos = Math.min(mRetryMaxDelayNanos, mRetryBaseDelayNanos << Math.min(location.mConsecutiveFailures - 1, 20));
+                long delayNanos = backoffNanos / 2 + ThreadLocalRandom.current().nextLong(backoffNanos / 2 + 1);
+                location.mNextFetchNanos = System.nanoTime() + delayNanos;
+                LOGGER.warn(String.format("[%s] Failed to retrieve trends for WOEID %d (attempt %d), retrying in %d ms: %s",
+                        getClass().getSimpleName(), location.mWoeid, location.mConsecutiveFailures,
+                        TimeUnit.NANOSECONDS.toMillis(delayNanos), failure));
+                return;
+            }
+
+            location.mConsecutiveFailures = 0;
+            location.mNextFetchNanos = System.nanoTime() + mRefreshNanos;
+            location.mTrends = Collections.unmodifiableList(new ArrayList<>(names));
+            publish();
+        }
+
+        // The listener is notified without holding the TrendManager, so that it never delays (or deadlocks with) the
+        // refresh cycle or other fetches.
+        notifyListener();
     }
 
     /**
-     * Returns a {@code Trends} instance containing current '{@code Trend}'s in {@code WOEID}.
-     * @return {@code Trends} instance containing current '{@code Trend}'s in {@code WOEID}. If an exception occurs,
-     * returns {@code null}.
+     * Notifies the listener of the latest snapshot, unless it has already been notified of it. Notifications are
+     * serialized, and a fetch that completes while the listener is being notified of an earlier snapshot notifies it
+     * of the latest snapshot, so the listener never receives snapshots out of order.
      */
-    ArrayList<Trend> getTrends() {
-        // If no trends are currently cached or those that are cached require updating.
-        if(mTrends == null || mRequestLimiter.hasElapsed()) {
-            try {
-                mTrends = mTwitter4J.getPlaceTrends(WOEID);
+    private void notifyListener() {
+        synchronized(mListenerLock) {
+            TrendSnapshot snapshot = mSnapshot.get();
+            if(snapshot != mNotifiedSnapshot) {
+                mNotifiedSnapshot = snapshot;
+                mListener.accept(snapshot);
             }
-            catch(TwitterException exception) {
-                // There was an error in retrieving the latest trends, continue to use the cached trends.
-                exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Merges the trends of every location (most popular location first) into a new snapshot. Must be called while
+     * holding the {@code TrendManager}.
+     */
+    private void publish() {
+        List<Location> locations = new ArrayList<>(mLocations);
+        for(Location location : locations) {
+            location.mPopularity = getPopularity(location);
+        }
+        locations.sort(Location.BY_POPULARITY);
+
+        Set<String> names = new LinkedHashSet<>();
+        Map<Integer, List<String>> trendsByLocation = new LinkedHashMap<>();
+        for(Location location : locations) {
+            names.addAll(location.mTrends);
+            trendsByLocation.put(location.mWoeid, location.mTrends);
+        }
+
+        mSnapshot.set(new TrendSnapshot(names, trendsByLocation, System.currentTimeMillis()));
+    }
+
+    /**
+     * Returns a {@code ThreadFactory} that creates daemon threads named after the {@code TrendManager} and their role.
+     */
+    private static ThreadFactory createThreadFactory(final String role) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, String.format("%s-%s-%d", TrendManager.class.getSimpleName(), role,
+                    threadIndex.getAndIncrement()));
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Returns the amount of users interested in the trends of a location.
+     */
+    private int getPopularity(final Location location) {
+        int popularity = 0;
+        for(String name : location.mTrends) {
+            popularity += mTrendPopularity.applyAsInt(name);
+        }
+        return popularity;
+    }
+
+    /**
+     * Parses a comma-separated list of Where On Earth Identifiers, falling back to {@code DEFAULT_WOEID} if none are
+     * specified.
+     * @param woeids Comma-separated list of Where On Earth Identifiers, may be null.
+     * @return Parsed Where On Earth Identifiers.
+     */
+    static List<Integer> parseWoeids(final String woeids) {
+        List<Integer> parsed = new ArrayList<>();
+        if(woeids != null) {
+            for(String woeid : woeids.split(",")) {
+                if(!woeid.trim().isEmpty()) {
+                    parsed.add(Integer.parseInt(woeid.trim()));
+                }
             }
-            // Reset the timer so that trends are not received again until the set period has passed.
-            mRequestLimiter.start();
+        }
+        if(parsed.isEmpty()) {
+            parsed.add(DEFAULT_WOEID);
+        }
+        return parsed;
+    }
+
+    /**
+     * {@code Location} holds the state of a location that is searched for trends. Guarded by the {@code TrendManager}.
+     */
+    private static class Location {
+
+        /** Orders locations by descending popularity, then by configured order. */
+        private static final Comparator<Location> BY_POPULARITY = Comparator
+                .comparingInt((Location location) -> -location.mPopularity)
+                .thenComparingInt(location -> location.mIndex);
+
+        private final int mWoeid;
+        private final int mIndex;
+        private List<String> mTrends = Collections.emptyList();
+        private int mPopularity = 0;
+        private long mNextFetchNanos = System.nanoTime();
+        private boolean mFetching = false;
+        private int mConsecutiveFailures = 0;
+
+        private Location(final int woeid, final int index) {
+            mWoeid = woeid;
+            mIndex = index;
         }
 
-        return new ArrayList<>(Arrays.asList(mTrends.getTrends()));
     }
 
 }
@@ -0,0 +1,77 @@
+package io.benreynolds.hottopics.server;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code TrendSnapshot} is an immutable set of trends retrieved by the {@code TrendManager}, along with the trends of
+ * each location they were merged from and the time at which they were retrieved.
+ */
+final class TrendSnapshot {
+
+    /** Snapshot used before any trends have been retrieved. */
+    static final TrendSnapshot EMPTY = new TrendSnapshot(Collections.emptyList(), 0);
+
+    /** Names of the trends, in the order they were retrieved. */
+    private final List<String> mNames;
+
+    /** Trends of each location, keyed by WOEID. */
+    private final Map<Integer, List<String>> mTrendsByLocation;
+
+    /** Time at which the trends were retrieved (in milliseconds since the epoch). */
+    private final long mRetrievedAtMillis;
+
+    /**
+     * @param names Names of the trends, in the order they were retrieved.
+     * @param retrievedAtMillis Time at which the trends were retrieved (in milliseconds since the epoch).
+     */
+    TrendSnapshot(final Collection<String> names, final long retrievedAtMillis) {
+        this(names, Collections.emptyMap(), retrievedAtMillis);
+    }
+
+    /**
+     * @param names Names of the trends, in the order they were retrieved.
+     * @param trendsByLocation Trends of each location that {@code names} were merged from, keyed by WOEID.
+     * @param retrievedAtMillis Time at which the trends were retrieved (in milliseconds since the epoch).
+     */
+    TrendSnapshot(final Collection<String> names, final Map<Integer, List<String>> trendsByLocation,
+                  final long retrievedAtMillis) {
+        mNames = Collections.unmodifiableList(new ArrayList<>(names));
+        Map<Integer, List<String>> copy = new LinkedHashMap<>();
+        for(Map.Entry<Integer, List<String>> location : trendsByLocation.entrySet()) {
+            copy.put(location.getKey(), Collections.unmodifiableList(new ArrayList<>(location.getValue())));
+        }
+        mTrendsByLocation = Collections.unmodifiableMap(copy);
+        mRetrievedAtMillis = retrievedAtMillis;
+    }
+
+    /**
+     * Returns the names of the trends, in the order they were retrieved.
+     * @return Unmodifiable list of the names of the trends.
+     */
+    List<String> getNames() {
+        return mNames;
+    }
+
+    /**
+     * Returns the trends of each location that the snapshot's trends were merged from.
+     * @return Unmodifiable map of trend names, keyed by WOEID.
+     */
+    Map<Integer, List<String>> getTrendsByLocation() {
+        return mTrendsByLocation;
+    }
+
+    /**
+     * Returns the time at which the trends were retrieved (in milliseconds since the epoch), or 0 if no trends have
+     * been retrieved.
+     * @return Time at which the trends were retrieved.
+     */
+    long getRetrievedAtMillis() {
+        return mRetrievedAtMillis;
+    }
+
+}
@@ -0,0 +1,248 @@
+package io.benreynolds.hottopics.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@code TrendSnapshotStore} persists the latest {@code TrendSnapshot}, along with the names and creation times of the
+ * '{@code Chatroom}'s created for it, so that the server can restore its chatrooms immediately after restarting rather
+ * than waiting for (and spending a request on) a fresh retrieval.
+ * <p>
+ * Snapshots are stored in a compact binary format and written to a temporary file that replaces the previous snapshot
+ * atomically, so a crash mid-write never leaves a corrupt snapshot behind. Snapshots saved with {@code saveAsync} are
+ * written by a dedicated writer thread, which only writes the latest snapshot if several are saved while it is busy.
+ */
+class TrendSnapshotStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrendSnapshotStore.class);
+
+    /** Identifies a trend snapshot file. */
+    private static final int MAGIC = 0x48545453; // "HTTS"
+
+    /** Version of the file format. */
+    private static final int VERSION = 1;
+
+    /** File that the snapshot is stored in. */
+    private final Path mFile;
+
+    /** Latest snapshot waiting to be written by the writer, {@code null} if none is waiting. */
+    private final AtomicReference<PendingSnapshot> mPendingSnapshot = new AtomicReference<>();
+
+    /** Writes the snapshots saved with {@code saveAsync}. */
+    private final ExecutorService mWriter;
+
+    /**
+     * @param file File that the snapshot is stored in.
+     */
+    TrendSnapshotStore(final Path file) {
+        mFile = file;
+        mWriter = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, String.format("%s-Writer", TrendSnapshotStore.class.getSimpleName()));
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Saves a snapshot on the writer thread, replacing the previously saved snapshot. Never waits for the snapshot to
+     * be written; a snapshot that is still waiting to be written is replaced by this one. Failures are logged.
+     * @param snapshot Trends to save.
+     * @param chatrooms '{@code Chatroom}'s whose names and creation times are saved.
+     */
+    void saveAsync(final TrendSnapshot snapshot, final Collection<Chatroom> chatrooms) {
+        if(mPendingSnapshot.getAndSet(new PendingSnapshot(snapshot, new ArrayList<>(chatrooms))) != null) {
+            return;
+        }
+
+        try {
+            mWriter.execute(this::writePendingSnapshot);
+        } catch (RejectedExecutionException exception) {
+            LOGGER.warn("Trend snapshot was not saved as the store has been stopped.");
+        }
+    }
+
+    /**
+     * Stops the writer, after writing the snapshot waiting to be written (if any).
+     * @param timeout Maximum time to wait for the snapshot to be written.
+     * @param unit Unit of {@code timeout}.
+     * @return {@code true} if the writer stopped within the timeout.
+     */
+    boolean stop(final long timeout, final TimeUnit unit) {
+        mWriter.shutdown();
+        try {
+            return mWriter.awaitTermination(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Writes the snapshot waiting to be written. Runs on the writer thread.
+     */
+    private void writePendingSnapshot() {
+        PendingSnapshot pendingSnapshot = mPendingSnapshot.getAndSet(null);
+        if(pendingSnapshot == null) {
+            return;
+        }
+
+        try {
+            save(pendingSnapshot.mSnapshot, pendingSnapshot.mChatrooms);
+        } catch (IOException exception) {
+            LOGGER.warn(String.format("Failed to persist the trend snapshot to \"%s\".", mFile), exception);
+        }
+    }
+
+    /**
+     * Saves a snapshot, replacing the previously saved snapshot.
+     * @param snapshot Trends to save.
+     * @param chatrooms '{@code Chatroom}'s whose names and creation times are saved.
+     * @throws IOException If the snapshot could not be written.
+     */
+    void save(final TrendSnapshot snapshot, final Collection<Chatroom> chatrooms) throws IOException {
+        Path directory = mFile.toAbsolutePath().getParent();
+        if(directory != null) {
+            Files.createDirectories(directory);
+        }
+
+        Path temporaryFile = Files.createTempFile(directory, mFile.getFileName().toString(), ".tmp");
+        try {
+            try(DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeLong(snapshot.getRetrievedAtMillis());
+
+                writeNames(output, snapshot.getNames());
+                output.writeInt(snapshot.getTrendsByLocation().size());
+                for(Map.Entry<Integer, List<String>> location : snapshot.getTrendsByLocation().entrySet()) {
+                    output.writeInt(location.getKey());
+                    writeNames(output, location.getValue());
+                }
+
+                output.writeInt(chatrooms.size());
+                for(Chatroom chatroom : chatrooms) {
+                    output.writeUTF(chatroom.getName());
+                    output.writeLong(chatroom.getCreatedAtMillis());
+                }
+            }
+            Files.move(temporaryFile, mFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * Loads the saved snapshot.
+     * @return Saved snapshot, or {@code null} if no snapshot has been saved.
+     * @throws IOException If the snapshot could not be read or is corrupt.
+     */
+    StoredSnapshot load() throws IOException {
+        try(DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(mFile)))) {
+            if(input.readInt() != MAGIC || input.readInt() != VERSION) {
+                throw new IOException(String.format("\"%s\" is not a trend snapshot.", mFile));
+            }
+
+            long retrievedAtMillis = input.readLong();
+            List<String> names = readNames(input);
+            int locationCount = input.readInt();
+            Map<Integer, List<String>> trendsByLocation = new LinkedHashMap<>();
+            for(int i = 0; i < locationCount; i++) {
+                trendsByLocation.put(input.readInt(), readNames(input));
+            }
+
+            int chatroomCount = input.readInt();
+            Map<String, Long> creationTimes = new LinkedHashMap<>();
+            for(int i = 0; i < chatroomCount; i++) {
+                creationTimes.put(input.readUTF(), input.readLong());
+            }
+
+            return new StoredSnapshot(new TrendSnapshot(names, trendsByLocation, retrievedAtMillis), creationTimes);
+        } catch (NoSuchFileException exception) {
+            return null;
+        }
+    }
+
+    private static void writeNames(final DataOutputStream output, final List<String> names) throws IOException {
+        output.writeInt(names.size());
+        for(String name : names) {
+            output.writeUTF(name);
+        }
+    }
+
+    private static List<String> readNames(final DataInputStream input) throws IOException {
+        int count = input.readInt();
+        List<String> names = new ArrayList<>(Math.min(count, 1024));
+        for(int i = 0; i < count; i++) {
+            names.add(input.readUTF());
+        }
+        return names;
+    }
+
+    /**
+     * {@code PendingSnapshot} is a snapshot waiting to be written.
+     */
+    private static class PendingSnapshot {
+
+        private final TrendSnapshot mSnapshot;
+        private final List<Chatroom> mChatrooms;
+
+        private PendingSnapshot(final TrendSnapshot snapshot, final List<Chatroom> chatrooms) {
+            mSnapshot = snapshot;
+            mChatrooms = chatrooms;
+        }
+
+    }
+
+    /**
+     * {@code StoredSnapshot} is a snapshot loaded by {@code TrendSnapshotStore}.
+     */
+    static class StoredSnapshot {
+
+        private final TrendSnapshot mSnapshot;
+        private final Map<String, Long> mCreationTimes;
+
+        private StoredSnapshot(final TrendSnapshot snapshot, final Map<String, Long> creationTimes) {
+            mSnapshot = snapshot;
+            mCreationTimes = Collections.unmodifiableMap(creationTimes);
+        }
+
+        /**
+         * Returns the saved trends.
+         * @return Saved trends.
+         */
+        TrendSnapshot getSnapshot() {
+            return mSnapshot;
+        }
+
+        /**
+         * Returns the creation times (in milliseconds since the epoch) of the saved '{@code Chatroom}'s, keyed by name.
+         * @return Unmodifiable map of creation times, keyed by '{@code Chatroom}' name.
+         */
+        Map<String, Long> getCreationTimes() {
+            return mCreationTimes;
+        }
+
+    }
+
+}
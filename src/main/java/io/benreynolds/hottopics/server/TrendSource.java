@@ -0,0 +1,19 @@
+package io.benreynolds.hottopics.server;
+
+import java.util.List;
+
+/**
+ * {@code TrendSource} retrieves the current trends of a location, identified by its Where On Earth Identifier (WOEID).
+ * See {@code TwitterTrendSource} and {@code ReplayTrendSource}.
+ */
+interface TrendSource {
+
+    /**
+     * Retrieves the names of the current trends of a location. May block.
+     * @param woeid Where On Earth Identifier of the location.
+     * @return Names of the current trends, most prominent first.
+     * @throws Exception If the trends could not be retrieved.
+     */
+    List<String> fetchTrends(int woeid) throws Exception;
+
+}
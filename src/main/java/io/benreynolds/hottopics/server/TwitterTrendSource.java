@@ -0,0 +1,54 @@
+package io.benreynolds.hottopics.server;
+
+import twitter4j.Trend;
+import twitter4j.Trends;
+import twitter4j.Twitter;
+import twitter4j.TwitterException;
+import twitter4j.TwitterFactory;
+import twitter4j.conf.ConfigurationBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code TwitterTrendSource} uses the Twitter4J Twitter API library to retrieve trends from Twitter.
+ */
+class TwitterTrendSource implements TrendSource {
+
+    /** Maximum time to wait when connecting to, or reading from, the Twitter API (in milliseconds). */
+    private static final int HTTP_TIMEOUT_MILLIS = 10000;
+
+    /** Used to interact with the Twitter API. */
+    private final Twitter mTwitter4J;
+
+    /**
+     * Instantiates the {@code TwitterTrendSource} and sets up Twitter4J using the supplied credentials.
+     * @param consumerKey Twitter API consumer key.
+     * @param consumerSecret Twitter API consumer secret.
+     * @param accessToken Twitter API access token.
+     * @param accessTokenSecret Twitter API access token secret.
+     */
+    TwitterTrendSource(final String consumerKey, final String consumerSecret, final String accessToken,
+                       final String accessTokenSecret) {
+        mTwitter4J = new TwitterFactory(new ConfigurationBuilder()
+                .setOAuthConsumerKey(consumerKey)
+                .setOAuthConsumerSecret(consumerSecret)
+                .setOAuthAccessToken(accessToken)
+                .setOAuthAccessTokenSecret(accessTokenSecret)
+                .setHttpConnectionTimeout(HTTP_TIMEOUT_MILLIS)
+                .setHttpReadTimeout(HTTP_TIMEOUT_MILLIS)
+                .setHttpRetryCount(0)
+                .build()).getInstance();
+    }
+
+    @Override
+    public List<String> fetchTrends(final int woeid) throws TwitterException {
+        Trends trends = mTwitter4J.getPlaceTrends(woeid);
+        List<String> names = new ArrayList<>(trends.getTrends().length);
+        for(Trend trend : trends.getTrends()) {
+            names.add(trend.getName());
+        }
+        return names;
+    }
+
+}
@@ -0,0 +1,207 @@
+package io.benreynolds.hottopics.server;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * {@code UsernameRegistry} keeps track of the usernames that have been assigned to connected clients. Usernames are
+ * unique regardless of case, and are claimed and released atomically in constant time.
+ * <p>
+ * Usernames can also be reserved for a period of time (e.g. for the clients of a previous server process while they
+ * reconnect), during which they can only be claimed with the resume token that they were reserved with. Reservations
+ * only hold the hash of the resume token (see {@code SessionResumption.hashToken}).
+ */
+public class UsernameRegistry {
+
+    /** Default time (in milliseconds) that usernames restored after a restart are reserved for. */
+    static final long DEFAULT_RESERVATION_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    /** Clients that have claimed a username, keyed by their case-folded username. */
+    private final Map<String, Client> mClients = new ConcurrentHashMap<>();
+
+    /** Reserved usernames, keyed by their case-folded username. */
+    private final Map<String, Reservation> mReservations = new ConcurrentHashMap<>();
+
+    /** Case-folded reserved usernames, keyed by the hash of the resume token that they were reserved with. */
+    private final Map<String, String> mReservationTokens = new ConcurrentHashMap<>();
+
+    /** Source of the current time (in nanoseconds). */
+    private final LongSupplier mClock;
+
+    public UsernameRegistry() {
+        this(System::nanoTime);
+    }
+
+    /**
+     * @param clock Source of the current time (in nanoseconds).
+     */
+    UsernameRegistry(final LongSupplier clock) {
+        mClock = clock;
+    }
+
+    /**
+     * Attempts to claim a username for a client. Succeeds if no other client has claimed the username (ignoring case)
+     * and it is not reserved.
+     * @param username Username to claim.
+     * @param client Client claiming the username.
+     * @return True if the username was claimed by (or already belonged to) the client.
+     */
+    public boolean claim(final String username, final Client client) {
+        String key = fold(username);
+        if(isReserved(key)) {
+            return false;
+        }
+
+        Client owner = mClients.putIfAbsent(key, client);
+        return owner == null || owner == client;
+    }
+
+    /**
+     * Reserves a username for a period of time, during which it can only be claimed with the resume token that it was
+     * reserved with (see {@code claimReservation}). Usernames that have already been claimed are not reserved.
+     * @param username Username to reserve.
+     * @param resumeTokenHash Hash of the resume token that the username can be claimed with, may be {@code null}.
+     * @param durationMillis Time (in milliseconds) that the username is reserved for.
+     * @return True if the username was reserved.
+     */
+    public boolean reserve(final String username, final String resumeTokenHash, final long durationMillis) {
+        String key = fold(username);
+        if(mClients.containsKey(key)) {
+            return false;
+        }
+
+        mReservations.put(key, new Reservation(username, resumeTokenHash,
+                mClock.getAsLong() + TimeUnit.MILLISECONDS.toNanos(durationMillis)));
+        if(resumeTokenHash != null) {
+            mReservationTokens.put(resumeTokenHash, key);
+        }
+        return true;
+    }
+
+    /**
+     * Claims the username that was reserved with a resume token for a client, ending the reservation.
+     * @param resumeToken Resume token that the username was reserved with.
+     * @param client Client claiming the username.
+     * @return Username that was claimed, or null if no username is reserved with the token.
+     */
+    public String claimReservation(final String resumeToken, final Client client) {
+        String resumeTokenHash = SessionResumption.hashToken(resumeToken);
+        String key = resumeTokenHash != null ? mReservationTokens.remove(resumeTokenHash) : null;
+        if(key == null) {
+            return null;
+        }
+
+        Reservation reservation = mReservations.get(key);
+        if(reservation == null || !resumeTokenHash.equals(reservation.mResumeTokenHash) || !isReserved(key)
+                || !mReservations.remove(key, reservation)) {
+            return null;
+        }
+        return mClients.putIfAbsent(key, client) == null ? reservation.mUsername : null;
+    }
+
+    /**
+     * Transfers a username from the client that claimed it to another client (e.g. when a client resumes its session
+     * over a new connection).
+     * @param username Username to transfer.
+     * @param client Client that claimed the username.
+     * @param recipient Client that the username is transferred to.
+     * @return True if the username was transferred.
+     */
+    public boolean transfer(final String username, final Client client, final Client recipient) {
+        return username != null && mClients.replace(fold(username), client, recipient);
+    }
+
+    /**
+     * Returns the usernames that have been claimed or are reserved, along with the hashes of the resume tokens that
+     * they can be reclaimed with, removing expired reservations.
+     * @return Hashes of resume tokens (or null) keyed by the usernames that have been claimed or are reserved.
+     */
+    public Map<String, String> getUsernames() {
+        Map<String, String> usernames = new LinkedHashMap<>();
+        for(Client client : mClients.values()) {
+            // The client's username is assigned after it has been claimed.
+            if(client.getUsername() != null) {
+                usernames.put(client.getUsername(), SessionResumption.hashToken(client.getResumeToken()));
+            }
+        }
+        for(Map.Entry<String, Reservation> reservation : mReservations.entrySet()) {
+            if(isReserved(reservation.getKey())) {
+                usernames.put(reservation.getValue().mUsername, reservation.getValue().mResumeTokenHash);
+            }
+        }
+        return usernames;
+    }
+
+    /**
+     * Releases a username, provided that it was claimed by the specified client.
+     * @param username Username to release, may be null.
+     * @param client Client that claimed the username.
+     * @return True if the username was released.
+     */
+    public boolean release(final String username, final Client client) {
+        return username != null && mClients.remove(fold(username), client);
+    }
+
+    /**
+     * Returns the client that has claimed a username (ignoring case).
+     * @param username Username to look up.
+     * @return Client that has claimed the username, or null if it is available.
+     */
+    public Client get(final String username) {
+        return mClients.get(fold(username));
+    }
+
+    /**
+     * Returns the amount of usernames that have been claimed.
+     * @return Amount of usernames that have been claimed.
+     */
+    public int size() {
+        return mClients.size();
+    }
+
+    /**
+     * Returns true if a username is reserved, removing its reservation if it has expired.
+     */
+    private boolean isReserved(final String key) {
+        Reservation reservation = mReservations.get(key);
+        if(reservation == null) {
+            return false;
+        }
+        if(mClock.getAsLong() - reservation.mExpiresAtNanos >= 0) {
+            if(mReservations.remove(key, reservation) && reservation.mResumeTokenHash != null) {
+                mReservationTokens.remove(reservation.mResumeTokenHash, key);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the key that a username is stored under, such that usernames that differ only by case share a key.
+     */
+    private static String fold(final String username) {
+        return username.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * {@code Reservation} is a reserved username.
+     */
+    private static class Reservation {
+
+        private final String mUsername;
+        private final String mResumeTokenHash;
+        private final long mExpiresAtNanos;
+
+        private Reservation(final String username, final String resumeTokenHash, final long expiresAtNanos) {
+            mUsername = username;
+            mResumeTokenHash = resumeTokenHash;
+            mExpiresAtNanos = expiresAtNanos;
+        }
+
+    }
+
+}
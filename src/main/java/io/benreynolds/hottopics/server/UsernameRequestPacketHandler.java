@@ -11,7 +11,6 @@ import javax.websocket.Session;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 
 /**
  * {@code UsernameRequestPacketHandler} is responsible for responding to the '{@code UsernameRequestPacket}'s that the server
@@ -21,8 +20,23 @@ public class UsernameRequestPacketHandler implements PacketHandler<UsernameReque
 
     private static final Logger LOGGER = LoggerFactory.getLogger(UsernameRequestPacketHandler.class);
 
+    /** Usernames that have been claimed by connected clients. */
+    private final UsernameRegistry mUsernames;
+
+    /** Issues the resume tokens that clients can resume their sessions with. */
+    private final SessionResumption mSessionResumption;
+
+    /**
+     * @param usernames Usernames that have been claimed by connected clients, released when a client disconnects.
+     * @param sessionResumption Issues the resume tokens that clients can resume their sessions with.
+     */
+    public UsernameRequestPacketHandler(final UsernameRegistry usernames, final SessionResumption sessionResumption) {
+        mUsernames = usernames;
+        mSessionResumption = sessionResumption;
+    }
+
     @Override
-    public void handlePacket(Packet packet, Client sender, Map<Session, Client> clients, List<Chatroom> chatrooms) {
+    public void handlePacket(Packet packet, Client sender, Map<Session, Client> clients, ChatroomRegistry chatrooms) {
         LOGGER.info(String.format("[%s] Processing [%s]...", sender.getSession().getId(), UsernameRequestPacket.class.getSimpleName()));
 
         // Ensure that the received Packet is non-null and valid.
@@ -33,30 +47,31 @@ public class UsernameRequestPacketHandler implements PacketHandler<UsernameReque
             return;
         }
 
-        // Ensure that the requested username is unique.
+        // Attempt to claim the requested username, which fails if it has already been claimed by another client.
         LOGGER.info(String.format("[%s] Checking if username \"%s\" is unique...", sender.getSession().getId(), usernameRequestPacket.getUsername()));
-        for(Client client : clients.values()) {
-            // Ignore checks against the sending user or users that have not yet been assigned a username.
-            if(Objects.equals(client.getSession().getId(), sender.getSession().getId()) || client.getUsername() == null) {
-                continue;
-            }
-
-            // Perform a case-insensitive string comparison on both client's usernames.
-            if(usernameRequestPacket.getUsername().toUpperCase().equals(client.getUsername().toUpperCase())) {
-                LOGGER.info(String.format("[%s] Requested username has already been taken by client [%s].", sender.getSession().getId(), client.getSession().getId()));
-                sender.sendPacket(new UsernameResponsePacket(false));
-                return;
-            }
+        if(!mUsernames.claim(usernameRequestPacket.getUsername(), sender)) {
+            LOGGER.info(String.format("[%s] Requested username has already been taken.", sender.getSession().getId()));
+            sender.sendPacket(new UsernameResponsePacket(false));
+            return;
         }
 
         // Assign the requested username to the client and place them in the room list state.
         sender.setUsername(usernameRequestPacket.getUsername());
         sender.setState(Client.State.ROOM_LIST);
+        String resumeToken = mSessionResumption.issue(sender);
+
+        // If the client disconnected while the username was being claimed it may not have been released.
+        if(!clients.containsKey(sender.getSession())) {
+            mSessionResumption.revoke(sender);
+            mUsernames.release(usernameRequestPacket.getUsername(), sender);
+            return;
+        }
 
         LOGGER.info(String.format("[%s] Username successfully assigned.", sender.getSession().getId()));
 
-        // Send a response packet to the user notifying them that the request was successful.
-        sender.sendPacket(new UsernameResponsePacket(true));
+        // Send a response packet to the user notifying them that the request was successful, along with the token that
+        // they can resume their session with if they are disconnected.
+        sender.sendPacket(new UsernameResponsePacket(true, resumeToken));
     }
 
     @Override
@@ -0,0 +1,51 @@
+package io.benreynolds.hottopics;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * {@code Measurements} implements the measurements shared by the benchmarks, which are only run with the
+ * {@code benchmarks} profile ({@code mvn test -Pbenchmarks}). Each operation is repeated once to warm up, so that class
+ * loading and JIT compilation are not measured, and again to be measured.
+ */
+public final class Measurements {
+
+    private Measurements() {
+    }
+
+    /**
+     * Returns the average amount of bytes allocated by the current thread per execution of {@code operation}.
+     * @param iterations Amount of times {@code operation} is executed while being measured.
+     * @param operation Operation to measure.
+     * @return Average amount of bytes allocated per execution of {@code operation}.
+     */
+    public static long measureAllocatedBytes(final int iterations, final Runnable operation) {
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        repeat(iterations, operation);
+        long allocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+        repeat(iterations, operation);
+        return (threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBytes) / iterations;
+    }
+
+    /**
+     * Returns the average amount of nanoseconds taken per execution of {@code operation}.
+     * @param iterations Amount of times {@code operation} is executed while being measured.
+     * @param operation Operation to measure.
+     * @return Average amount of nanoseconds taken per execution of {@code operation}.
+     */
+    public static long measureNanos(final int iterations, final Runnable operation) {
+        repeat(iterations, operation);
+        long startTime = System.nanoTime();
+        repeat(iterations, operation);
+        return (System.nanoTime() - startTime) / iterations;
+    }
+
+    private static void repeat(final int iterations, final Runnable operation) {
+        for(int i = 0; i < iterations; i++) {
+            operation.run();
+        }
+    }
+
+}
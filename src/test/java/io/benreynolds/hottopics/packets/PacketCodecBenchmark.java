@@ -0,0 +1,42 @@
+package io.benreynolds.hottopics.packets;
+
+import com.google.gson.Gson;
+import io.benreynolds.hottopics.Measurements;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@code PacketCodecBenchmark} compares the allocations made by the {@code PacketCodec} with those made by the
+ * per-call {@code Gson} instances it replaced.
+ */
+public class PacketCodecBenchmark {
+
+    /** Amount of times each operation is repeated when measuring allocations. */
+    private static final int ITERATIONS = 20000;
+
+    /**
+     * Encoding and decoding with the {@code PacketCodec} allocates less per {@code Packet} than using a new
+     * {@code Gson} instance per call.
+     */
+    @Test
+    public void benchmarkAllocationsPerPacket() {
+        final Packet packet = new ReceiveMessagePacket("Author", "Message");
+        final String json = PacketCodec.encode(packet);
+
+        long gsonEncodeBytes = Measurements.measureAllocatedBytes(ITERATIONS, () -> new Gson().toJson(packet));
+        long codecEncodeBytes = Measurements.measureAllocatedBytes(ITERATIONS, () -> PacketCodec.encode(packet));
+        long gsonDecodeBytes = Measurements.measureAllocatedBytes(ITERATIONS,
+                () -> new Gson().fromJson(json, ReceiveMessagePacket.class));
+        long codecDecodeBytes = Measurements.measureAllocatedBytes(ITERATIONS,
+                () -> PacketCodec.decode(json, ReceiveMessagePacket.class));
+
+        System.out.println(String.format("Encode: Gson %d B/packet, PacketCodec %d B/packet.", gsonEncodeBytes,
+                codecEncodeBytes));
+        System.out.println(String.format("Decode: Gson %d B/packet, PacketCodec %d B/packet.", gsonDecodeBytes,
+                codecDecodeBytes));
+
+        Assert.assertTrue(codecEncodeBytes < gsonEncodeBytes);
+        Assert.assertTrue(codecDecodeBytes < gsonDecodeBytes);
+    }
+
+}
@@ -0,0 +1,154 @@
+package io.benreynolds.hottopics.packets;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@code PacketCodecTest} implements various JUnit test methods that test the functionality of the {@code PacketCodec}
+ * class.
+ */
+public class PacketCodecTest {
+
+    /**
+     * Returns an instance of every {@code Packet} derivative known to the {@code PacketIdentifier}.
+     */
+    private static List<Packet> createPackets() {
+        return Arrays.asList(
+                new SendMessagePacket("Message"),
+                new ReceiveMessagePacket("Author", "Message"),
+                new UsernameRequestPacket("Username"),
+                new UsernameResponsePacket(true, "Token"),
+                new ChatroomsRequestPacket(),
+                new ChatroomsResponsePacket(new ChatroomSummary[] { new ChatroomSummary("#HotTopics", 2) }, 3),
+                new JoinChatroomRequestPacket("#HotTopics"),
+                new JoinChatroomResponsePacket(true),
+                new LeaveChatroomRequestPacket(),
+                new LeaveChatroomResponsePacket(false),
+                new ChatroomUserCountUpdatePacket(42),
+                new AcknowledgementRequestPacket(),
+                new AcknowledgementResponsePacket(),
+                new ChatroomsUpdatePacket(4, new ChatroomsUpdatePacket.Change[] {
+                        ChatroomsUpdatePacket.Change.added("#New", 0),
+                        ChatroomsUpdatePacket.Change.removed("#Old"),
+                        ChatroomsUpdatePacket.Change.resized("#HotTopics", 7) }),
+                new ChatHistoryRequestPacket(41L, 20),
+                new ChatHistoryResponsePacket("#HotTopics", new ReceiveMessagePacket[] {
+                        new ReceiveMessagePacket("Author", "<b>Message</b> & 'quotes'", 40L),
+                        new ReceiveMessagePacket("Author", "Message", 41L) }),
+                new ResumeSessionRequestPacket("Token", 41L),
+                new ResumeSessionResponsePacket(true, "Username", "#HotTopics", "New token", 41L));
+    }
+
+    /**
+     * Every {@code Packet} derivative has a test instance.
+     */
+    @Test
+    public void testAllPacketsCovered() {
+        for(Class<? extends Packet> packetType : PacketIdentifier.PACKETS) {
+            boolean covered = false;
+            for(Packet packet : createPackets()) {
+                covered |= packet.getClass() == packetType;
+            }
+            Assert.assertTrue(packetType.getSimpleName(), covered);
+        }
+    }
+
+    /**
+     * '{@code PacketCodec}'s output is equivalent to the JSON produced by reflective {@code Gson} serialization.
+     */
+    @Test
+    public void testEncodingMatchesGson() {
+        JsonParser jsonParser = new JsonParser();
+        for(Packet packet : createPackets()) {
+            Assert.assertEquals(packet.getClass().getSimpleName(),
+                    jsonParser.parse(new Gson().toJson(packet)), jsonParser.parse(PacketCodec.encode(packet)));
+        }
+    }
+
+    /**
+     * '{@code Packet}'s encoded by reflective {@code Gson} serialization can be decoded by the {@code PacketCodec}.
+     */
+    @Test
+    public void testDecodesGsonOutput() {
+        for(Packet packet : createPackets()) {
+            Packet decodedPacket = PacketCodec.decode(new Gson().toJson(packet), packet.getClass());
+            Assert.assertNotNull(decodedPacket);
+            Assert.assertEquals(packet.getId(), decodedPacket.getId());
+            Assert.assertEquals(PacketCodec.encode(packet), PacketCodec.encode(decodedPacket));
+        }
+    }
+
+    /**
+     * Malformed JSON and JSON of the wrong shape decode to {@code null}.
+     */
+    @Test
+    public void testMalformedJsonDecodesToNull() {
+        Assert.assertNull(PacketCodec.decode("", SendMessagePacket.class));
+        Assert.assertNull(PacketCodec.decode("{\"id\":", SendMessagePacket.class));
+        Assert.assertNull(PacketCodec.decode("{\"id\":\"zero\"}", SendMessagePacket.class));
+        Assert.assertNull(PacketCodec.decode("[]", SendMessagePacket.class));
+        Assert.assertNull(PacketIdentifier.convertToPacket("{\"message\":\"Message\"}", SendMessagePacket.class));
+    }
+
+    /**
+     * '{@code Packet}'s are identified and decoded by their ID regardless of where the ID appears within the JSON.
+     */
+    @Test
+    public void testDecodeIdentifiesPacketByIdAnywhere() {
+        int id = ReceiveMessagePacket.ID;
+        String[] messages = {
+                "{\"id\":" + id + ",\"author\":\"Author\",\"message\":\"Message\"}",
+                "{\"author\":\"Author\",\"id\":" + id + ",\"message\":\"Message\"}",
+                "{\"author\":\"Author\",\"message\":\"Message\",\"id\":" + id + "}",
+                "{\"unknown\":{\"nested\":[1,2.5,null,true]},\"author\":\"Author\",\"message\":\"Message\",\"id\":" + id + "}"
+        };
+
+        for(String message : messages) {
+            Packet packet = PacketCodec.decode(message);
+            Assert.assertTrue(message, packet instanceof ReceiveMessagePacket);
+            Assert.assertEquals(ReceiveMessagePacket.ID, packet.getId());
+            Assert.assertEquals("Author", ((ReceiveMessagePacket)packet).getAuthor());
+            Assert.assertEquals("Message", ((ReceiveMessagePacket)packet).getMessage());
+        }
+
+        for(Packet packet : createPackets()) {
+            Assert.assertEquals(packet.getClass(), PacketCodec.decode(new Gson().toJson(packet)).getClass());
+        }
+    }
+
+    /**
+     * JSON without an ID, with an unknown ID or with trailing content decodes to {@code null}.
+     */
+    @Test
+    public void testDecodeRejectsUnidentifiableJson() {
+        Assert.assertNull(PacketCodec.decode("{\"message\":\"Message\"}"));
+        Assert.assertNull(PacketCodec.decode("{\"id\":-1}"));
+        Assert.assertNull(PacketCodec.decode("{\"id\":" + PacketIdentifier.PACKETS.size() + "}"));
+        Assert.assertNull(PacketCodec.decode("{\"id\":null}"));
+        Assert.assertNull(PacketCodec.decode("{\"id\":" + SendMessagePacket.ID + "}{}"));
+        Assert.assertNull(PacketCodec.decode("{\"id\":" + SendMessagePacket.ID + ","));
+    }
+
+    /**
+     * Room list changes of an unknown type decode with a {@code null} type (as they did with {@code Gson}) rather than
+     * failing to decode.
+     */
+    @Test
+    public void testDecodeMapsUnknownChangeTypeToNull() {
+        Packet packet = PacketCodec.decode("{\"id\":" + PacketIdentifier.getId(ChatroomsUpdatePacket.class)
+                + ",\"version\":2,\"changes\":[{\"type\":\"BOGUS\",\"name\":\"#New\"},{\"type\":\"ADDED\"}]}");
+
+        Assert.assertTrue(packet instanceof ChatroomsUpdatePacket);
+        ChatroomsUpdatePacket.Change[] changes = ((ChatroomsUpdatePacket)packet).getChanges();
+        Assert.assertEquals(2, changes.length);
+        Assert.assertNull(changes[0].getType());
+        Assert.assertEquals("#New", changes[0].getName());
+        Assert.assertEquals(ChatroomsUpdatePacket.Change.Type.ADDED, changes[1].getType());
+    }
+
+}
@@ -0,0 +1,184 @@
+package io.benreynolds.hottopics.server;
+
+import io.benreynolds.hottopics.packets.ChatHistoryRequestPacket;
+import io.benreynolds.hottopics.packets.ChatHistoryResponsePacket;
+import io.benreynolds.hottopics.packets.Packet;
+import io.benreynolds.hottopics.packets.PacketCodec;
+import io.benreynolds.hottopics.packets.ReceiveMessagePacket;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * {@code ChatHistoryRequestPacketHandlerTest} implements various JUnit test methods that test the functionality of the
+ * {@code ChatHistoryRequestPacketHandler} class. The client's session records the frames sent to it, and the chatroom
+ * has no persisted log, so only its cached messages are available.
+ */
+public class ChatHistoryRequestPacketHandlerTest {
+
+    /** Frames sent to the client, in the order they were sent. */
+    private final List<String> mSentFrames = new ArrayList<>();
+
+    private final ChatHistoryRequestPacketHandler mHandler = new ChatHistoryRequestPacketHandler();
+
+    /** {@code Chatroom} that the client is a member of. */
+    private Chatroom mChatroom;
+
+    /** Client that requests the history. */
+    private Client mSender;
+
+    @Before
+    public void setUp() {
+        mChatroom = new Chatroom("#ChatHistoryRequestPacketHandlerTest");
+        mSender = new Client(createSession());
+        mSender.setState(Client.State.CHAT_ROOM);
+        mSender.setChatroom(mChatroom);
+        Assert.assertTrue(mChatroom.addClient(mSender));
+    }
+
+    /**
+     * Ensures that a page of the messages sent before the specified message is sent, oldest first.
+     */
+    @Test
+    public void testPageBeforeSequence() {
+        addMessages(30);
+
+        assertPage(requestHistory(25L, 10), 15, 25);
+    }
+
+    /**
+     * Ensures that the most recent page of the default size is sent if neither the message nor the limit are specified.
+     */
+    @Test
+    public void testDefaultPage() {
+        addMessages(30);
+
+        assertPage(requestHistory(null, null), 30 - ChatHistoryRequestPacketHandler.DEFAULT_PAGE_SIZE, 30);
+    }
+
+    /**
+     * Ensures that a page requested before a message beyond the last message holds the most recent messages.
+     */
+    @Test
+    public void testBeforeSequenceBeyondEnd() {
+        addMessages(30);
+
+        assertPage(requestHistory(1000L, 5), 25, 30);
+        assertPage(requestHistory(Long.MAX_VALUE, 5), 25, 30);
+    }
+
+    /**
+     * Ensures that pages are limited to {@code MAX_PAGE_SIZE} messages.
+     */
+    @Test
+    public void testLimitIsCapped() {
+        addMessages(ChatHistoryRequestPacketHandler.MAX_PAGE_SIZE + 10);
+
+        assertPage(requestHistory(null, ChatHistoryRequestPacketHandler.MAX_PAGE_SIZE * 2), 10,
+                ChatHistoryRequestPacketHandler.MAX_PAGE_SIZE + 10);
+    }
+
+    /**
+     * Ensures that a page that extends before the cached messages holds only the cached messages when the messages
+     * before them are not available from the log, and that a page entirely before them is empty.
+     */
+    @Test
+    public void testPageWithGapHoldsCachedMessages() {
+        addMessages(Chatroom.MESSAGES_TO_CACHE + 10);
+
+        assertPage(requestHistory(15L, 20), 10, 15);
+        assertPage(requestHistory(5L, 20), 0, 0);
+    }
+
+    /**
+     * Ensures that nothing is sent to a client that is not within a chatroom, or that sends an invalid request.
+     */
+    @Test
+    public void testNothingIsSentOutsideChatroomOrForInvalidRequest() {
+        addMessages(10);
+
+        mHandler.handlePacket(new ChatHistoryRequestPacket(null, 0), mSender, new HashMap<>(), new ChatroomRegistry());
+        mSender.setChatroom(null);
+        mHandler.handlePacket(new ChatHistoryRequestPacket(null, null), mSender, new HashMap<>(),
+                new ChatroomRegistry());
+        Assert.assertTrue(mSentFrames.isEmpty());
+    }
+
+    private void addMessages(final int amount) {
+        for(int i = 0; i < amount; i++) {
+            mChatroom.addMessage("Author", String.format("Message %d", i));
+        }
+    }
+
+    /**
+     * Sends a {@code ChatHistoryRequestPacket} and returns the {@code ChatHistoryResponsePacket} sent in response.
+     */
+    private ChatHistoryResponsePacket requestHistory(final Long beforeSequence, final Integer limit) {
+        mSentFrames.clear();
+        mHandler.handlePacket(new ChatHistoryRequestPacket(beforeSequence, limit), mSender, new HashMap<>(),
+                new ChatroomRegistry());
+
+        Assert.assertEquals(1, mSentFrames.size());
+        Packet packet = PacketCodec.decode(mSentFrames.get(0));
+        Assert.assertTrue(packet instanceof ChatHistoryResponsePacket);
+        return (ChatHistoryResponsePacket)packet;
+    }
+
+    private void assertPage(final ChatHistoryResponsePacket response, final long from, final long to) {
+        Assert.assertEquals(mChatroom.getName(), response.getChatroomName());
+        List<Long> sequences = new ArrayList<>();
+        for(ReceiveMessagePacket message : response.getMessages()) {
+            sequences.add(message.getSequence());
+        }
+
+        List<Long> expectedSequences = new ArrayList<>();
+        for(long sequence = from; sequence < to; sequence++) {
+            expectedSequences.add(sequence);
+        }
+        Assert.assertEquals(expectedSequences, sequences);
+    }
+
+    /**
+     * Creates an open {@code Session} whose asynchronous remote records each frame and completes it as soon as it is
+     * recorded.
+     */
+    private Session createSession() {
+        RemoteEndpoint.Async asyncRemote = (RemoteEndpoint.Async)Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { RemoteEndpoint.Async.class }, (proxy, method, args) -> {
+                    if(method.getName().equals("sendText") && args.length == 2) {
+                        mSentFrames.add((String)args[0]);
+                        ((SendHandler)args[1]).onResult(new SendResult());
+                    }
+                    return null;
+                });
+
+        return (Session)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Session.class },
+                (proxy, method, args) -> {
+                    switch(method.getName()) {
+                        case "getId":
+                            return "Session";
+                        case "isOpen":
+                            return true;
+                        case "getAsyncRemote":
+                            return asyncRemote;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+}
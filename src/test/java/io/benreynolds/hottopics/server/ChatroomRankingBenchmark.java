@@ -0,0 +1,58 @@
+package io.benreynolds.hottopics.server;
+
+import io.benreynolds.hottopics.Measurements;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code ChatroomRankingBenchmark} measures the time taken to rebuild the ranking of 10,000 active
+ * '{@code Chatroom}'s.
+ */
+public class ChatroomRankingBenchmark {
+
+    /** Amount of '{@code Chatroom}'s ranked. */
+    private static final int CHATROOMS = 10_000;
+
+    /** Amount of times the ranking is rebuilt while being measured. */
+    private static final int ITERATIONS = 200;
+
+    /** Upper bound on the average rebuild time, loose enough not to depend on the machine it is run on. */
+    private static final long MAX_REBUILD_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    /**
+     * Rebuilding the ranking of 10,000 '{@code Chatroom}'s, a quarter of which have received messages, takes
+     * microseconds.
+     */
+    @Test
+    public void benchmarkRebuild() {
+        List<String> names = new ArrayList<>();
+        for(int i = 0; i < CHATROOMS; i++) {
+            names.add("#Trend" + i);
+        }
+        ChatroomRegistry registry = new ChatroomRegistry();
+        registry.reconcile(names);
+        List<Chatroom> chatrooms = registry.getChatrooms();
+
+        Random random = new Random(0);
+        for(Chatroom chatroom : chatrooms) {
+            if(random.nextInt(4) == 0) {
+                chatroom.getActivity().recordMessage();
+            }
+        }
+
+        ChatroomRanking ranking = new ChatroomRanking(ChatroomRanking.DEFAULT_TOP_K,
+                ChatroomRanking.DEFAULT_HALF_LIFE_MILLIS);
+        long rebuildNanos = Measurements.measureNanos(ITERATIONS, () -> ranking.rebuild(chatrooms));
+
+        System.out.println(String.format("Ranking rebuild: %d chatrooms %d us.", CHATROOMS,
+                TimeUnit.NANOSECONDS.toMicros(rebuildNanos)));
+        Assert.assertEquals(ChatroomRanking.DEFAULT_TOP_K, ranking.getTopChatrooms().size());
+        Assert.assertTrue(rebuildNanos < MAX_REBUILD_NANOS);
+    }
+
+}
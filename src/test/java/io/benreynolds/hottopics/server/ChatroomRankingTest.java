@@ -0,0 +1,94 @@
+package io.benreynolds.hottopics.server;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code ChatroomRankingTest} implements various JUnit test methods that test the functionality of the
+ * {@code ChatroomRanking} class. The ranking's clock is advanced manually.
+ */
+public class ChatroomRankingTest {
+
+    private static final long HALF_LIFE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /** Current time (in nanoseconds) reported to the {@code ChatroomRanking}. */
+    private final AtomicLong mNanos = new AtomicLong();
+
+    /**
+     * Ensures that the most active '{@code Chatroom}'s are listed first, hottest first, followed by the remaining
+     * '{@code Chatroom}'s in the order they were added.
+     */
+    @Test
+    public void testHottestChatroomsAreListedFirst() {
+        ChatroomRegistry registry = new ChatroomRegistry();
+        registry.reconcile(Arrays.asList("#A", "#B", "#C", "#D", "#E"));
+        ChatroomRanking ranking = new ChatroomRanking(2, HALF_LIFE_MILLIS, mNanos::get);
+
+        sendMessages(registry.get("#C"), 5);
+        sendMessages(registry.get("#D"), 10);
+        sendMessages(registry.get("#E"), 1);
+        ranking.rebuild(registry.getChatrooms());
+
+        Assert.assertEquals(Arrays.asList("#D", "#C"), names(ranking.getTopChatrooms()));
+        Assert.assertEquals(Arrays.asList("#D", "#C", "#A", "#B", "#E"),
+                names(ranking.order(registry.getChatrooms(), registry)));
+    }
+
+    /**
+     * Ensures that activity counts half as much after each half-life, so recent activity outranks older activity.
+     */
+    @Test
+    public void testActivityDecays() {
+        ChatroomRegistry registry = new ChatroomRegistry();
+        registry.reconcile(Arrays.asList("#Old", "#New"));
+        ChatroomRanking ranking = new ChatroomRanking(2, HALF_LIFE_MILLIS, mNanos::get);
+
+        sendMessages(registry.get("#Old"), 8);
+        ranking.rebuild(registry.getChatrooms());
+        Assert.assertEquals(8, registry.get("#Old").getActivity().getDecayedMessages(), 1e-9);
+
+        mNanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(HALF_LIFE_MILLIS * 2));
+        sendMessages(registry.get("#New"), 3);
+        ranking.rebuild(registry.getChatrooms());
+
+        Assert.assertEquals(2, registry.get("#Old").getActivity().getDecayedMessages(), 1e-9);
+        Assert.assertEquals(Arrays.asList("#New", "#Old"), names(ranking.getTopChatrooms()));
+    }
+
+    /**
+     * Ensures that ranked '{@code Chatroom}'s that have since been removed are not listed.
+     */
+    @Test
+    public void testRemovedChatroomsAreNotListed() {
+        ChatroomRegistry registry = new ChatroomRegistry();
+        registry.reconcile(Arrays.asList("#A", "#B"));
+        ChatroomRanking ranking = new ChatroomRanking(2, HALF_LIFE_MILLIS, mNanos::get);
+
+        sendMessages(registry.get("#B"), 1);
+        ranking.rebuild(registry.getChatrooms());
+        registry.reconcile(Arrays.asList("#A", "#C"));
+
+        Assert.assertEquals(Arrays.asList("#A", "#C"), names(ranking.order(registry.getChatrooms(), registry)));
+    }
+
+    private static void sendMessages(final Chatroom chatroom, final int count) {
+        for(int i = 0; i < count; i++) {
+            chatroom.addMessage("User", "Message " + i);
+        }
+    }
+
+    private static List<String> names(final List<Chatroom> chatrooms) {
+        List<String> names = new ArrayList<>();
+        for(Chatroom chatroom : chatrooms) {
+            names.add(chatroom.getName());
+        }
+        return names;
+    }
+
+}
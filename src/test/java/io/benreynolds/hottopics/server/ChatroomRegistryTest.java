@@ -0,0 +1,121 @@
+package io.benreynolds.hottopics.server;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@code ChatroomRegistryTest} implements various JUnit test methods that test the functionality of the
+ * {@code ChatroomRegistry} class.
+ */
+public class ChatroomRegistryTest {
+
+    /** Creation time (in milliseconds since the epoch) given to a restored {@code Chatroom}. */
+    private static final long RESTORED_CREATED_AT_MILLIS = 1000;
+
+    /**
+     * Ensures that reconciling creates '{@code Chatroom}'s for new trends, keeps the '{@code Chatroom}'s of trends that
+     * are still trending, and closes and removes the empty '{@code Chatroom}'s of trends that are not.
+     */
+    @Test
+    public void testReconcileAddsRemovesAndKeepsChatrooms() {
+        ChatroomRegistry chatrooms = new ChatroomRegistry();
+        ChatroomRegistry.Reconciliation reconciliation = chatrooms.reconcile(Arrays.asList("#A", "#B", "#C"));
+        Assert.assertEquals(Arrays.asList("#A", "#B", "#C"), names(reconciliation.getAdded()));
+        Assert.assertTrue(reconciliation.getRemoved().isEmpty());
+        Assert.assertEquals(reconciliation.getAdded(), chatrooms.getChatrooms());
+
+        Chatroom a = chatrooms.get("#A");
+        Chatroom b = chatrooms.get("#B");
+        Chatroom c = chatrooms.get("#C");
+        reconciliation = chatrooms.reconcile(Arrays.asList("#B", "#C", "#D"));
+        Assert.assertEquals(Collections.singletonList("#D"), names(reconciliation.getAdded()));
+        Assert.assertEquals(Collections.singletonList(a), reconciliation.getRemoved());
+
+        // Removed chatrooms are closed, so clients can no longer be added to them.
+        Assert.assertNull(chatrooms.get("#A"));
+        Assert.assertTrue(a.isClosed());
+        Assert.assertFalse(a.addClient(new Client(null)));
+
+        // Kept chatrooms are the same instances, and remain ahead of the added chatrooms.
+        Assert.assertSame(b, chatrooms.get("#B"));
+        Assert.assertSame(c, chatrooms.get("#C"));
+        Assert.assertFalse(b.isClosed());
+        Assert.assertEquals(Arrays.asList("#B", "#C", "#D"), names(chatrooms.getChatrooms()));
+        Assert.assertEquals(3, chatrooms.size());
+    }
+
+    /**
+     * Ensures that a {@code Chatroom} whose trend is no longer trending is kept (and left open) while it has members,
+     * and is removed by the first reconciliation after it empties.
+     */
+    @Test
+    public void testOccupiedChatroomsAreKept() {
+        ChatroomRegistry chatrooms = new ChatroomRegistry();
+        chatrooms.reconcile(Arrays.asList("#A", "#B"));
+        Chatroom a = chatrooms.get("#A");
+        Client client = new Client(null);
+        Assert.assertTrue(a.addClient(client));
+
+        ChatroomRegistry.Reconciliation reconciliation = chatrooms.reconcile(Collections.singletonList("#B"));
+        Assert.assertTrue(reconciliation.getRemoved().isEmpty());
+        Assert.assertSame(a, chatrooms.get("#A"));
+        Assert.assertFalse(a.isClosed());
+
+        Assert.assertTrue(a.removeClient(client));
+        reconciliation = chatrooms.reconcile(Collections.singletonList("#B"));
+        Assert.assertEquals(Collections.singletonList(a), reconciliation.getRemoved());
+        Assert.assertTrue(a.isClosed());
+        Assert.assertEquals(Collections.singletonList("#B"), names(chatrooms.getChatrooms()));
+    }
+
+    /**
+     * Ensures that a reconciliation that changes nothing leaves the snapshot untouched.
+     */
+    @Test
+    public void testUnchangedReconciliationKeepsSnapshot() {
+        ChatroomRegistry chatrooms = new ChatroomRegistry();
+        chatrooms.reconcile(Arrays.asList("#A", "#B"));
+        List<Chatroom> snapshot = chatrooms.getChatrooms();
+
+        ChatroomRegistry.Reconciliation reconciliation = chatrooms.reconcile(Arrays.asList("#B", "#A", "#B"));
+        Assert.assertTrue(reconciliation.getAdded().isEmpty());
+        Assert.assertTrue(reconciliation.getRemoved().isEmpty());
+        Assert.assertSame(snapshot, chatrooms.getChatrooms());
+    }
+
+    /**
+     * Ensures that each new {@code Chatroom} is initialized once, before it is made available, and is given its known
+     * creation time.
+     */
+    @Test
+    public void testNewChatroomsAreInitializedBeforeTheyAreAvailable() {
+        List<Chatroom> initialized = new ArrayList<>();
+        ChatroomRegistry[] chatrooms = new ChatroomRegistry[1];
+        chatrooms[0] = new ChatroomRegistry(chatroomName -> Runnable::run, chatroom -> {
+            Assert.assertNull(chatrooms[0].get(chatroom.getName()));
+            initialized.add(chatroom);
+        });
+
+        chatrooms[0].reconcile(Arrays.asList("#A", "#B"), Collections.singletonMap("#A", RESTORED_CREATED_AT_MILLIS));
+        Assert.assertEquals(chatrooms[0].getChatrooms(), initialized);
+        Assert.assertEquals(RESTORED_CREATED_AT_MILLIS, chatrooms[0].get("#A").getCreatedAtMillis());
+        Assert.assertNotEquals(RESTORED_CREATED_AT_MILLIS, chatrooms[0].get("#B").getCreatedAtMillis());
+
+        chatrooms[0].reconcile(Arrays.asList("#A", "#B", "#C"));
+        Assert.assertEquals(Arrays.asList("#A", "#B", "#C"), names(initialized));
+    }
+
+    private static List<String> names(final List<Chatroom> chatrooms) {
+        List<String> names = new ArrayList<>();
+        for(Chatroom chatroom : chatrooms) {
+            names.add(chatroom.getName());
+        }
+        return names;
+    }
+
+}
@@ -0,0 +1,110 @@
+package io.benreynolds.hottopics.server;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code ChatroomShardsTest} implements various JUnit test methods that test the functionality of the
+ * {@code ChatroomShards} class.
+ */
+public class ChatroomShardsTest {
+
+    /** Maximum time to wait for the shards to complete their tasks (in seconds). */
+    private static final long TIMEOUT_SECONDS = 5;
+
+    /** Amount of shards. */
+    private static final int SHARD_COUNT = 4;
+
+    /** Amount of chatrooms that tasks are submitted for. */
+    private static final int CHATROOM_COUNT = 32;
+
+    /** Amount of tasks submitted for each chatroom. */
+    private static final int TASKS_PER_CHATROOM = 1000;
+
+    /** {@code ChatroomShards} reference that will be used in the test methods. */
+    private ChatroomShards mShards;
+
+    @Before
+    public void setUp() {
+        mShards = new ChatroomShards(SHARD_COUNT);
+    }
+
+    @After
+    public void tearDown() {
+        mShards.shutdown(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Ensures that every chatroom is pinned to a single shard, and that each chatroom's tasks run on a single thread in
+     * the order that they were submitted, even when the tasks of many chatrooms are interleaved and one of them fails.
+     */
+    @Test
+    public void testTasksRunInOrderPerChatroom() {
+        Map<String, List<Integer>> runs = new HashMap<>();
+        Map<String, Set<Thread>> threads = new HashMap<>();
+        for(int i = 0; i < CHATROOM_COUNT; i++) {
+            String chatroomName = "#Chatroom" + i;
+            Assert.assertSame(mShards.getShard(chatroomName), mShards.getShard(chatroomName));
+            runs.put(chatroomName, Collections.synchronizedList(new ArrayList<>()));
+            threads.put(chatroomName, Collections.synchronizedSet(new HashSet<>()));
+        }
+
+        for(int task = 0; task < TASKS_PER_CHATROOM; task++) {
+            for(int i = 0; i < CHATROOM_COUNT; i++) {
+                String chatroomName = "#Chatroom" + i;
+                final int taskNumber = task;
+                mShards.getShard(chatroomName).execute(() -> {
+                    runs.get(chatroomName).add(taskNumber);
+                    threads.get(chatroomName).add(Thread.currentThread());
+                    if(taskNumber == TASKS_PER_CHATROOM / 2 && chatroomName.equals("#Chatroom0")) {
+                        throw new IllegalStateException("Failing task.");
+                    }
+                });
+            }
+        }
+
+        Assert.assertTrue(mShards.shutdown(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        for(int i = 0; i < CHATROOM_COUNT; i++) {
+            String chatroomName = "#Chatroom" + i;
+            List<Integer> chatroomRuns = runs.get(chatroomName);
+            Assert.assertEquals(TASKS_PER_CHATROOM, chatroomRuns.size());
+            for(int task = 0; task < TASKS_PER_CHATROOM; task++) {
+                Assert.assertEquals(task, (int)chatroomRuns.get(task));
+            }
+            Assert.assertEquals(1, threads.get(chatroomName).size());
+        }
+    }
+
+    /**
+     * Ensures that shutting down completes the tasks that have already been submitted, and that tasks submitted once
+     * the shards have been shut down are dropped.
+     */
+    @Test
+    public void testShutdownCompletesSubmittedTasks() {
+        AtomicInteger runs = new AtomicInteger();
+        Executor shard = mShards.getShard("#Chatroom");
+        for(int i = 0; i < TASKS_PER_CHATROOM; i++) {
+            shard.execute(runs::incrementAndGet);
+        }
+
+        Assert.assertTrue(mShards.shutdown(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        Assert.assertEquals(TASKS_PER_CHATROOM, runs.get());
+
+        shard.execute(runs::incrementAndGet);
+        Assert.assertEquals(TASKS_PER_CHATROOM, runs.get());
+    }
+
+}
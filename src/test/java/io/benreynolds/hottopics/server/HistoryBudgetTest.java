@@ -0,0 +1,118 @@
+package io.benreynolds.hottopics.server;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@code HistoryBudgetTest} implements various JUnit test methods that test the functionality of the
+ * {@code HistoryBudget} class.
+ */
+public class HistoryBudgetTest {
+
+    /** Time (in milliseconds) that a {@code Chatroom} must be inactive for before its messages are evicted. */
+    private static final long COLD_MILLIS = 200;
+
+    /**
+     * Ensures that nothing is evicted while the cached messages are within budget.
+     */
+    @Test
+    public void testNothingIsEvictedWithinBudget() throws InterruptedException {
+        List<Chatroom> chatrooms = Arrays.asList(chatroomWithMessages("A", 10), chatroomWithMessages("B", 10));
+        long usedBytes = chatrooms.get(0).getHistoryBytes() + chatrooms.get(1).getHistoryBytes();
+        HistoryBudget budget = new HistoryBudget(usedBytes, COLD_MILLIS, chatroom -> true);
+
+        becomeCold();
+        Assert.assertEquals(0, budget.enforce(chatrooms));
+        Assert.assertEquals(usedBytes, budget.getUsedBytes());
+        Assert.assertFalse(chatrooms.get(0).isHistoryEvicted());
+        Assert.assertFalse(chatrooms.get(1).isHistoryEvicted());
+    }
+
+    /**
+     * Ensures that the messages of cold '{@code Chatroom}'s are evicted, coldest first, until the cached messages are
+     * within budget, and that '{@code Chatroom}'s with users, recent activity or unpersisted messages are never
+     * evicted.
+     */
+    @Test
+    public void testEvictsColdestChatroomsUntilWithinBudget() throws InterruptedException {
+        Chatroom coldest = chatroomWithMessages("Coldest", 10);
+        Thread.sleep(1);
+        Chatroom colder = chatroomWithMessages("Colder", 10);
+        Thread.sleep(1);
+        Chatroom cold = chatroomWithMessages("Cold", 10);
+        Chatroom unpersisted = chatroomWithMessages("Unpersisted", 10);
+        Chatroom occupied = chatroomWithMessages("Occupied", 10);
+        occupied.addClient(new Client(null));
+        becomeCold();
+        Chatroom active = chatroomWithMessages("Active", 10);
+
+        List<Chatroom> chatrooms = Arrays.asList(active, occupied, unpersisted, cold, colder, coldest);
+        long roomBytes = coldest.getHistoryBytes();
+        Set<Chatroom> persisted = new HashSet<>(Arrays.asList(coldest, colder, cold, occupied, active));
+        HistoryBudget budget = new HistoryBudget(4 * roomBytes, COLD_MILLIS, persisted::contains);
+
+        Assert.assertEquals(2, budget.enforce(chatrooms));
+        Assert.assertEquals(6 * roomBytes, budget.getUsedBytes());
+        Assert.assertEquals(2, budget.getEvictions());
+        Assert.assertTrue(coldest.isHistoryEvicted());
+        Assert.assertTrue(colder.isHistoryEvicted());
+        Assert.assertTrue(coldest.getMessages().isEmpty());
+        Assert.assertEquals(10, coldest.getNextMessageSequence());
+        Assert.assertFalse(cold.isHistoryEvicted());
+
+        // Even with no budget, only cold chatrooms whose messages have been persisted are evicted.
+        HistoryBudget emptyBudget = new HistoryBudget(0, COLD_MILLIS, persisted::contains);
+        Assert.assertEquals(1, emptyBudget.enforce(chatrooms));
+        Assert.assertTrue(cold.isHistoryEvicted());
+        Assert.assertFalse(unpersisted.isHistoryEvicted());
+        Assert.assertFalse(occupied.isHistoryEvicted());
+        Assert.assertFalse(active.isHistoryEvicted());
+        Assert.assertEquals(4 * roomBytes, emptyBudget.getUsedBytes());
+    }
+
+    /**
+     * Ensures that a {@code Chatroom} that becomes active before its eviction runs keeps its messages.
+     */
+    @Test
+    public void testEvictionIsRecheckedOnTheChatroomsExecutor() throws InterruptedException {
+        List<Runnable> tasks = new ArrayList<>();
+        Chatroom chatroom = new Chatroom("Chatroom", tasks::add);
+        for(int i = 0; i < 10; i++) {
+            chatroom.addMessage("Author", String.valueOf(i));
+        }
+        becomeCold();
+
+        HistoryBudget budget = new HistoryBudget(0, COLD_MILLIS, room -> true);
+        Assert.assertEquals(1, budget.enforce(Arrays.asList(chatroom)));
+
+        chatroom.addClient(new Client(null));
+        tasks.forEach(Runnable::run);
+        Assert.assertFalse(chatroom.isHistoryEvicted());
+        Assert.assertEquals(0, budget.getEvictions());
+    }
+
+    /**
+     * Waits until every {@code Chatroom} created so far has been inactive for longer than the cold period.
+     */
+    private static void becomeCold() throws InterruptedException {
+        Thread.sleep(COLD_MILLIS + 50);
+    }
+
+    /**
+     * Creates a {@code Chatroom} whose tasks run on the calling thread, with a given amount of messages.
+     */
+    private static Chatroom chatroomWithMessages(final String name, final int messages) {
+        Chatroom chatroom = new Chatroom(name);
+        for(int i = 0; i < messages; i++) {
+            chatroom.addMessage("Author", String.valueOf(i % 10));
+        }
+        return chatroom;
+    }
+
+}
@@ -0,0 +1,122 @@
+package io.benreynolds.hottopics.server;
+
+import io.benreynolds.hottopics.packets.AcknowledgementRequestPacket;
+import io.benreynolds.hottopics.packets.PacketCodec;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code KeepaliveModeTest} implements various JUnit test methods that test the functionality of the
+ * {@code KeepaliveMode} enum, asking a client whose session records each ping and frame sent to it.
+ */
+public class KeepaliveModeTest {
+
+    /** Text of every frame written to the session, in the order they were sent. */
+    private final List<String> mSentFrames = new ArrayList<>();
+
+    /** Amount of pings written to the session. */
+    private int mPings = 0;
+
+    /** {@code true} if sending a ping fails. */
+    private boolean mPingFails = false;
+
+    /** {@code Client} reference that will be used in the test methods. */
+    private Client mClient;
+
+    @Before
+    public void setUp() {
+        mClient = new Client(createSession());
+    }
+
+    /**
+     * Ensures that {@code KeepaliveMode.PACKET} sends an {@code AcknowledgementRequestPacket} rather than a ping.
+     */
+    @Test
+    public void testPacketModeSendsAcknowledgementRequest() {
+        Assert.assertEquals(KeepaliveMode.PACKET, KeepaliveMode.PACKET.requestAcknowledgement(mClient));
+        Assert.assertEquals(0, mPings);
+        assertAcknowledgementRequested();
+    }
+
+    /**
+     * Ensures that {@code KeepaliveMode.PING} sends a ping rather than an {@code AcknowledgementRequestPacket}.
+     */
+    @Test
+    public void testPingModeSendsPing() {
+        Assert.assertEquals(KeepaliveMode.PING, KeepaliveMode.PING.requestAcknowledgement(mClient));
+        Assert.assertEquals(1, mPings);
+        Assert.assertTrue(mSentFrames.isEmpty());
+    }
+
+    /**
+     * Ensures that {@code KeepaliveMode.PING} falls back to an {@code AcknowledgementRequestPacket} if the ping cannot
+     * be sent.
+     */
+    @Test
+    public void testPingModeFallsBackToPacket() {
+        mPingFails = true;
+        Assert.assertEquals(KeepaliveMode.PACKET, KeepaliveMode.PING.requestAcknowledgement(mClient));
+        assertAcknowledgementRequested();
+    }
+
+    private void assertAcknowledgementRequested() {
+        Assert.assertEquals(1, mSentFrames.size());
+        Assert.assertTrue(PacketCodec.decode(mSentFrames.get(0)) instanceof AcknowledgementRequestPacket);
+    }
+
+    /**
+     * Creates an open {@code Session} whose asynchronous remote records each ping and completes each frame as soon as
+     * it is recorded.
+     */
+    private Session createSession() {
+        RemoteEndpoint.Async asyncRemote = (RemoteEndpoint.Async)Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { RemoteEndpoint.Async.class }, (proxy, method, args) -> {
+                    switch(method.getName()) {
+                        case "sendPing":
+                            if(mPingFails) {
+                                throw new IOException("Ping failed.");
+                            }
+                            mPings++;
+                            return null;
+                        case "sendText":
+                            if(args.length == 2) {
+                                mSentFrames.add((String)args[0]);
+                                ((SendHandler)args[1]).onResult(new SendResult());
+                            }
+                            return null;
+                        default:
+                            return null;
+                    }
+                });
+
+        return (Session)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Session.class },
+                (proxy, method, args) -> {
+                    switch(method.getName()) {
+                        case "getId":
+                            return "Session";
+                        case "isOpen":
+                            return true;
+                        case "getAsyncRemote":
+                            return asyncRemote;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+}
@@ -0,0 +1,43 @@
+package io.benreynolds.hottopics.server;
+
+import io.benreynolds.hottopics.Measurements;
+import io.benreynolds.hottopics.packets.ReceiveMessagePacket;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.LinkedList;
+import java.util.Queue;
+
+/**
+ * {@code MessageHistoryBenchmark} compares the allocations made when caching a message in a {@code MessageHistory}
+ * with those made by the {@code LinkedList} that previously cached each '{@code Chatroom}'s messages.
+ */
+public class MessageHistoryBenchmark {
+
+    /** Amount of times each operation is repeated when measuring allocations. */
+    private static final int ITERATIONS = 100000;
+
+    /**
+     * Adding a message to a full {@code MessageHistory} allocates less than adding it to a full {@code LinkedList}.
+     */
+    @Test
+    public void benchmarkAllocationsPerMessage() {
+        ReceiveMessagePacket message = new ReceiveMessagePacket("Author", "Message");
+
+        MessageHistory history = new MessageHistory(Chatroom.MESSAGES_TO_CACHE);
+        long historyBytes = Measurements.measureAllocatedBytes(ITERATIONS, () -> history.add(message));
+
+        Queue<ReceiveMessagePacket> queue = new LinkedList<>();
+        long queueBytes = Measurements.measureAllocatedBytes(ITERATIONS, () -> {
+            if(queue.size() >= Chatroom.MESSAGES_TO_CACHE) {
+                queue.poll();
+            }
+            queue.add(message);
+        });
+
+        System.out.println(String.format("Add: LinkedList %d B/message, MessageHistory %d B/message.", queueBytes,
+                historyBytes));
+        Assert.assertTrue(historyBytes < queueBytes);
+    }
+
+}
@@ -0,0 +1,165 @@
+package io.benreynolds.hottopics.server;
+
+import io.benreynolds.hottopics.packets.ReceiveMessagePacket;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@code MessageHistoryTest} implements various JUnit test methods that test the functionality of the
+ * {@code MessageHistory} class, including a concurrent stress test.
+ */
+public class MessageHistoryTest {
+
+    /** Amount of messages written by the stress test. */
+    private static final int STRESS_MESSAGES = 500000;
+
+    /** Amount of threads reading during the stress test. */
+    private static final int STRESS_READERS = 4;
+
+    /**
+     * Ensures that only the most recent messages are held, oldest first.
+     */
+    @Test
+    public void testHoldsMostRecentMessages() {
+        MessageHistory history = new MessageHistory(3);
+        Assert.assertTrue(history.snapshot().isEmpty());
+
+        for(int i = 0; i < 5; i++) {
+            Assert.assertEquals(i, history.add(new ReceiveMessagePacket("Author", String.valueOf(i))));
+        }
+
+        List<ReceiveMessagePacket> snapshot = history.snapshot();
+        Assert.assertEquals(3, snapshot.size());
+        for(int i = 0; i < snapshot.size(); i++) {
+            Assert.assertEquals(String.valueOf(i + 2), snapshot.get(i).getMessage());
+        }
+        Assert.assertEquals(5, history.getNextSequence());
+    }
+
+    /**
+     * Ensures that pages hold the most recent messages before the requested sequence number, oldest first, and are
+     * empty once no older messages are held.
+     */
+    @Test
+    public void testPagesBackwards() {
+        MessageHistory history = new MessageHistory(5);
+        for(int i = 0; i < 8; i++) {
+            history.add(new ReceiveMessagePacket("Author", String.valueOf(i)));
+        }
+
+        Assert.assertEquals(Arrays.asList("6", "7"), messages(history.page(Long.MAX_VALUE, 2)));
+        Assert.assertEquals(Arrays.asList("4", "5"), messages(history.page(6, 2)));
+        // Messages 0 to 2 have been overwritten, so only message 3 is held before message 4.
+        Assert.assertEquals(Collections.singletonList("3"), messages(history.page(4, 2)));
+        Assert.assertTrue(history.page(3, 2).isEmpty());
+        Assert.assertTrue(history.page(0, 2).isEmpty());
+    }
+
+    /**
+     * Ensures that evicted messages free their estimated memory while keeping the next sequence number, and that only
+     * the messages that would still be held are reloaded.
+     */
+    @Test
+    public void testEvictsAndReloadsMessages() {
+        MessageHistory history = new MessageHistory(3);
+        List<ReceiveMessagePacket> persistedMessages = new ArrayList<>();
+        for(int i = 0; i < 5; i++) {
+            ReceiveMessagePacket message = new ReceiveMessagePacket("Author", String.valueOf(i), (long)i);
+            history.add(message);
+            persistedMessages.add(message);
+        }
+        long estimatedBytes = history.getEstimatedBytes();
+        Assert.assertEquals(3 * MessageHistory.estimateBytes(persistedMessages.get(0)), estimatedBytes);
+
+        history.evict();
+        Assert.assertTrue(history.isEvicted());
+        Assert.assertEquals(0, history.getEstimatedBytes());
+        Assert.assertEquals(5, history.getNextSequence());
+        Assert.assertTrue(history.snapshot().isEmpty());
+
+        history.reload(persistedMessages);
+        Assert.assertFalse(history.isEvicted());
+        Assert.assertEquals(estimatedBytes, history.getEstimatedBytes());
+        Assert.assertEquals(Arrays.asList("2", "3", "4"), messages(history.snapshot()));
+
+        history.add(new ReceiveMessagePacket("Author", "5", 5L));
+        Assert.assertEquals(Arrays.asList("3", "4", "5"), messages(history.snapshot()));
+        Assert.assertEquals(estimatedBytes, history.getEstimatedBytes());
+    }
+
+    /**
+     * Ensures that readers always observe a contiguous run of messages while a single writer continuously overwrites
+     * the {@code MessageHistory}.
+     */
+    @Test
+    public void testSnapshotsAreConsistentUnderConcurrentWrites() throws InterruptedException {
+        MessageHistory history = new MessageHistory(Chatroom.MESSAGES_TO_CACHE);
+        ReceiveMessagePacket[] messages = new ReceiveMessagePacket[STRESS_MESSAGES];
+        for(int i = 0; i < messages.length; i++) {
+            messages[i] = new ReceiveMessagePacket("Author", String.valueOf(i));
+        }
+
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            for(ReceiveMessagePacket message : messages) {
+                history.add(message);
+            }
+        });
+
+        Thread[] readers = new Thread[STRESS_READERS];
+        for(int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread(() -> {
+                int lastNewest = -1;
+                while(writer.isAlive() && failure.get() == null) {
+                    List<ReceiveMessagePacket> snapshot = history.snapshot();
+                    if(snapshot.size() > history.getCapacity()) {
+                        failure.set(String.format("Snapshot held %d messages.", snapshot.size()));
+                    }
+
+                    int previous = -1;
+                    for(ReceiveMessagePacket message : snapshot) {
+                        int index = Integer.parseInt(message.getMessage());
+                        if(previous != -1 && index != previous + 1) {
+                            failure.set(String.format("Message %d followed message %d.", index, previous));
+                        }
+                        previous = index;
+                    }
+
+                    if(!snapshot.isEmpty() && previous < lastNewest) {
+                        failure.set(String.format("Newest message went backwards from %d to %d.", lastNewest, previous));
+                    }
+                    lastNewest = Math.max(lastNewest, previous);
+                }
+            });
+        }
+
+        for(Thread reader : readers) {
+            reader.start();
+        }
+        writer.start();
+        writer.join();
+        for(Thread reader : readers) {
+            reader.join();
+        }
+
+        Assert.assertNull(failure.get(), failure.get());
+        List<ReceiveMessagePacket> snapshot = history.snapshot();
+        Assert.assertEquals(history.getCapacity(), snapshot.size());
+        Assert.assertEquals(String.valueOf(STRESS_MESSAGES - 1), snapshot.get(snapshot.size() - 1).getMessage());
+    }
+
+    private static List<String> messages(final List<ReceiveMessagePacket> packets) {
+        List<String> messages = new ArrayList<>();
+        for(ReceiveMessagePacket packet : packets) {
+            messages.add(packet.getMessage());
+        }
+        return messages;
+    }
+
+}
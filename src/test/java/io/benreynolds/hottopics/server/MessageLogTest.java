@@ -0,0 +1,377 @@
+package io.benreynolds.hottopics.server;
+
+import io.benreynolds.hottopics.packets.PacketCodec;
+import io.benreynolds.hottopics.packets.ReceiveMessagePacket;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@code MessageLogTest} implements various JUnit test methods that test the functionality of the {@code MessageLog}
+ * and {@code MessageStore} classes.
+ */
+public class MessageLogTest {
+
+    /** Size of the segments used by the tests, small enough that logs span several segments. */
+    private static final int SEGMENT_BYTES = 4096;
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    /** Directory that the log is stored in. */
+    private Path mDirectory;
+
+    @Before
+    public void setUp() {
+        mDirectory = mTemporaryFolder.getRoot().toPath().resolve("log");
+    }
+
+    /**
+     * Ensures that ranges of messages spanning several segments are read back in order.
+     */
+    @Test
+    public void testReadsRangesAcrossSegments() throws IOException {
+        MessageLog log = new MessageLog(mDirectory, SEGMENT_BYTES, Integer.MAX_VALUE);
+        for(int i = 0; i < 1000; i++) {
+            Assert.assertTrue(log.append(i, encode(i)));
+        }
+
+        Assert.assertTrue(log.getSegmentCount() > 1);
+        Assert.assertEquals(1000, log.getNextSequence());
+        Assert.assertEquals(0, log.getFirstSequence());
+        assertSequences(log.read(0, 1000), 0, 1000);
+        assertSequences(log.read(517, 583), 517, 583);
+        assertSequences(log.read(990, Long.MAX_VALUE), 990, 1000);
+        Assert.assertTrue(log.read(1000, 2000).isEmpty());
+        Assert.assertTrue(log.read(10, 10).isEmpty());
+
+        // Messages older than the last message appended are ignored.
+        Assert.assertFalse(log.append(999, encode(999)));
+    }
+
+    /**
+     * Ensures that a reopened log holds the same messages, and that appends continue where the log left off.
+     */
+    @Test
+    public void testReopen() throws IOException {
+        MessageLog log = new MessageLog(mDirectory, SEGMENT_BYTES, Integer.MAX_VALUE);
+        for(int i = 0; i < 300; i++) {
+            log.append(i, encode(i));
+        }
+        log.sync();
+
+        MessageLog reopenedLog = new MessageLog(mDirectory, SEGMENT_BYTES, Integer.MAX_VALUE);
+        Assert.assertEquals(300, reopenedLog.getNextSequence());
+        assertSequences(reopenedLog.read(0, 300), 0, 300);
+
+        for(int i = 300; i < 400; i++) {
+            reopenedLog.append(i, encode(i));
+        }
+        assertSequences(new MessageLog(mDirectory, SEGMENT_BYTES, Integer.MAX_VALUE).read(250, 400), 250, 400);
+    }
+
+    /**
+     * Ensures that a record torn by a crash (its length written, but not all of its payload) is ignored when the log is
+     * reopened, and is overwritten by the next message.
+     */
+    @Test
+    public void testTornRecordIsIgnored() throws IOException {
+        MessageLog log = new MessageLog(mDirectory, SEGMENT_BYTES, Integer.MAX_VALUE);
+        for(int i = 0; i < 5; i++) {
+            log.append(i, encode(i));
+        }
+        log.sync();
+
+        // Write the header of a sixth record whose payload is missing.
+        Path segment = onlySegment();
+        int position = 0;
+        for(int i = 0; i < 5; i++) {
+            position += MessageLog.HEADER_BYTES + encode(i).length;
+        }
+        try(FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(MessageLog.HEADER_BYTES);
+            header.putInt(SEGMENT_BYTES).putLong(5).flip();
+            channel.write(header, position);
+        }
+
+        MessageLog reopenedLog = new MessageLog(mDirectory, SEGMENT_BYTES, Integer.MAX_VALUE);
+        Assert.assertEquals(5, reopenedLog.getNextSequence());
+        reopenedLog.append(5, encode(5));
+        assertSequences(new MessageLog(mDirectory, SEGMENT_BYTES, Integer.MAX_VALUE).read(0, 10), 0, 6);
+    }
+
+    /**
+     * Ensures that the oldest segments are deleted once the maximum amount of segments is exceeded.
+     */
+    @Test
+    public void testOldestSegmentsAreDeleted() throws IOException {
+        MessageLog log = new MessageLog(mDirectory, SEGMENT_BYTES, 2);
+        for(int i = 0; i < 1000; i++) {
+            log.append(i, encode(i));
+        }
+
+        Assert.assertEquals(2, log.getSegmentCount());
+        Assert.assertEquals(2, countSegmentFiles());
+        long firstSequence = log.getFirstSequence();
+        Assert.assertTrue(firstSequence > 0);
+        assertSequences(log.read(0, 1000), firstSequence, 1000);
+    }
+
+    /**
+     * Ensures that messages queued with a {@code MessageStore} are written in the background, and are available to a
+     * new {@code MessageStore} once the first has been stopped. The chatroom's name contains path separators and
+     * accented characters, which must not leak into the name of its log's directory.
+     */
+    @Test
+    public void testMessageStorePersistsQueuedMessages() throws IOException {
+        String chatroomName = "#../Café\\Crème";
+        MessageStore messageStore = new MessageStore(mDirectory, SEGMENT_BYTES, Integer.MAX_VALUE, 10, 1024,
+                MessageStore.DEFAULT_READER_THREADS);
+        messageStore.start();
+        for(int i = 0; i < 200; i++) {
+            messageStore.append(chatroomName, i, new String(encode(i), StandardCharsets.UTF_8));
+        }
+        Assert.assertEquals(200, messageStore.getNextSequence(chatroomName));
+        Assert.assertTrue(messageStore.stop(10, TimeUnit.SECONDS));
+
+        MessageStore reopenedStore = new MessageStore(mDirectory, SEGMENT_BYTES, Integer.MAX_VALUE, 10, 1024,
+                MessageStore.DEFAULT_READER_THREADS);
+        Assert.assertEquals(200, reopenedStore.getNextSequence(chatroomName));
+        assertSequences(reopenedStore.read(chatroomName, 150, 200), 150, 200);
+        Assert.assertEquals("Message 199", reopenedStore.read(chatroomName, 199, 200).get(0).getMessage());
+
+        // The log is held in a single directory within the store's directory.
+        try(DirectoryStream<Path> directories = Files.newDirectoryStream(mDirectory)) {
+            List<Path> logDirectories = new ArrayList<>();
+            directories.forEach(logDirectories::add);
+            Assert.assertEquals(1, logDirectories.size());
+            Assert.assertTrue(logDirectories.get(0).getFileName().toString().matches("[0-9a-f]+"));
+        }
+
+        Assert.assertEquals(0, reopenedStore.getNextSequence("#Other"));
+    }
+
+    /**
+     * Ensures that a running {@code MessageStore} reads logs asynchronously on a reader thread, and that a stopped
+     * {@code MessageStore} reads them on the calling thread.
+     */
+    @Test
+    public void testMessageStoreReadsAsynchronously() throws InterruptedException {
+        MessageStore messageStore = new MessageStore(mDirectory, SEGMENT_BYTES, Integer.MAX_VALUE, 10, 1024,
+                MessageStore.DEFAULT_READER_THREADS);
+        messageStore.start();
+        for(int i = 0; i < 10; i++) {
+            messageStore.append("#Chatroom", i, new String(encode(i), StandardCharsets.UTF_8));
+        }
+        Assert.assertTrue(messageStore.stop(10, TimeUnit.SECONDS));
+
+        messageStore.start();
+        CountDownLatch read = new CountDownLatch(1);
+        List<ReceiveMessagePacket> messages = new ArrayList<>();
+        AtomicReference<Thread> readerThread = new AtomicReference<>();
+        messageStore.readAsync("#Chatroom", 5, 10, result -> {
+            messages.addAll(result);
+            readerThread.set(Thread.currentThread());
+            read.countDown();
+        });
+        Assert.assertTrue(read.await(10, TimeUnit.SECONDS));
+        assertSequences(messages, 5, 10);
+        Assert.assertNotSame(Thread.currentThread(), readerThread.get());
+        Assert.assertTrue(messageStore.stop(10, TimeUnit.SECONDS));
+
+        messageStore.readAsync("#Chatroom", 0, 10, result -> readerThread.set(Thread.currentThread()));
+        Assert.assertSame(Thread.currentThread(), readerThread.get());
+    }
+
+    /**
+     * Ensures that the log of a removed {@code Chatroom} is closed once its queued messages have been written, after
+     * which its directory is deleted once it expires, and that the directories of held logs are kept.
+     */
+    @Test
+    public void testMessageStoreClosesAndSweepsLogs() throws IOException {
+        MessageStore messageStore = new MessageStore(mDirectory, SEGMENT_BYTES, Integer.MAX_VALUE, 10, 1024,
+                MessageStore.DEFAULT_READER_THREADS);
+        messageStore.start();
+        for(int i = 0; i < 10; i++) {
+            messageStore.append("#Removed", i, new String(encode(i), StandardCharsets.UTF_8));
+            messageStore.append("#Kept", i, new String(encode(i), StandardCharsets.UTF_8));
+        }
+        messageStore.close("#Removed");
+        Assert.assertTrue(messageStore.stop(10, TimeUnit.SECONDS));
+
+        Path removedDirectory = mDirectory.resolve(MessageStore.toDirectoryName("#Removed"));
+        Path keptDirectory = mDirectory.resolve(MessageStore.toDirectoryName("#Kept"));
+        Assert.assertEquals(1, countSegmentFiles(removedDirectory));
+        Assert.assertEquals(0, messageStore.sweep(TimeUnit.HOURS.toMillis(1)));
+
+        FileTime expired = FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2));
+        for(Path directory : new Path[] { removedDirectory, keptDirectory }) {
+            try(DirectoryStream<Path> paths = Files.newDirectoryStream(directory)) {
+                for(Path path : paths) {
+                    Files.setLastModifiedTime(path, expired);
+                }
+            }
+            Files.setLastModifiedTime(directory, expired);
+        }
+
+        Assert.assertEquals(1, messageStore.sweep(TimeUnit.HOURS.toMillis(1)));
+        Assert.assertFalse(Files.exists(removedDirectory));
+        Assert.assertTrue(Files.exists(keptDirectory));
+        Assert.assertEquals(10, messageStore.getNextSequence("#Kept"));
+        Assert.assertEquals(0, messageStore.getNextSequence("#Removed"));
+    }
+
+    /**
+     * Ensures that a page of history that the {@code Chatroom} does not cache is completed from its log, including pages
+     * that span the cache and the log, pages entirely before the cache and pages requested before a sequence number
+     * beyond the last message.
+     */
+    @Test
+    public void testHistorySpansCacheAndLog() {
+        MessageStore messageStore = createStore("#Chatroom", 100);
+        Chatroom chatroom = new Chatroom("#Chatroom", Runnable::run, 20);
+        chatroom.restoreMessages(messageStore.read("#Chatroom", 80, 100), 100);
+
+        assertSequences(readHistory(messageStore, chatroom, 90, 30), 60, 90);
+        assertSequences(readHistory(messageStore, chatroom, 50, 30), 20, 50);
+        assertSequences(readHistory(messageStore, chatroom, 10, 30), 0, 10);
+        assertSequences(readHistory(messageStore, chatroom, Long.MAX_VALUE, 10), 90, 100);
+        assertSequences(readHistory(messageStore, chatroom, Long.MAX_VALUE, 30), 70, 100);
+        assertSequences(readHistory(messageStore, chatroom, 0, 30), 0, 0);
+
+        // Messages that have been evicted from the cache are read from the log.
+        chatroom.evictMessages();
+        assertSequences(readHistory(messageStore, chatroom, Long.MAX_VALUE, 30), 70, 100);
+        assertSequences(readHistory(messageStore, chatroom, 200, 30), 70, 100);
+    }
+
+    /**
+     * Ensures that logged messages that are not contiguous with the cached messages are not combined with them.
+     */
+    @Test
+    public void testHistoryWithGapIsNotCombined() {
+        MessageStore messageStore = createStore("#Chatroom", 50);
+        Chatroom chatroom = new Chatroom("#Chatroom", Runnable::run, 20);
+        List<ReceiveMessagePacket> cachedMessages = new ArrayList<>();
+        for(long sequence = 80; sequence < 100; sequence++) {
+            cachedMessages.add(new ReceiveMessagePacket("Author", "Message " + sequence, sequence));
+        }
+        chatroom.restoreMessages(cachedMessages, 100);
+
+        assertSequences(readHistory(messageStore, chatroom, 90, 30), 80, 90);
+        assertSequences(readHistory(messageStore, chatroom, 60, 30), 30, 50);
+    }
+
+    /**
+     * Ensures that pages of history that need the log are read on a reader thread while the {@code MessageStore} is
+     * running, and that pages the cache holds are handed over on the calling thread.
+     */
+    @Test
+    public void testHistoryIsReadFromLogAsynchronously() throws InterruptedException {
+        MessageStore messageStore = createStore("#Chatroom", 100);
+        Chatroom chatroom = new Chatroom("#Chatroom", Runnable::run, 20);
+        chatroom.restoreMessages(messageStore.read("#Chatroom", 80, 100), 100);
+        messageStore.start();
+
+        AtomicReference<Thread> readerThread = new AtomicReference<>();
+        messageStore.readHistory(chatroom, Long.MAX_VALUE, 10, messages -> readerThread.set(Thread.currentThread()));
+        Assert.assertSame(Thread.currentThread(), readerThread.get());
+
+        CountDownLatch read = new CountDownLatch(1);
+        List<ReceiveMessagePacket> messages = new ArrayList<>();
+        messageStore.readHistory(chatroom, 90, 30, result -> {
+            messages.addAll(result);
+            readerThread.set(Thread.currentThread());
+            read.countDown();
+        });
+        Assert.assertTrue(read.await(10, TimeUnit.SECONDS));
+        assertSequences(messages, 60, 90);
+        Assert.assertNotSame(Thread.currentThread(), readerThread.get());
+        Assert.assertTrue(messageStore.stop(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Creates a stopped {@code MessageStore} holding the first {@code messages} messages of a {@code Chatroom}.
+     */
+    private MessageStore createStore(final String chatroomName, final int messages) {
+        MessageStore messageStore = new MessageStore(mDirectory, SEGMENT_BYTES, Integer.MAX_VALUE, 10, 1024,
+                MessageStore.DEFAULT_READER_THREADS);
+        messageStore.start();
+        for(int i = 0; i < messages; i++) {
+            messageStore.append(chatroomName, i, new String(encode(i), StandardCharsets.UTF_8));
+        }
+        Assert.assertTrue(messageStore.stop(10, TimeUnit.SECONDS));
+        return messageStore;
+    }
+
+    /**
+     * Reads a page of history from a stopped {@code MessageStore}, which hands it over on the calling thread.
+     */
+    private static List<ReceiveMessagePacket> readHistory(final MessageStore messageStore, final Chatroom chatroom,
+                                                          final long beforeSequence, final int limit) {
+        List<ReceiveMessagePacket> messages = new ArrayList<>();
+        messageStore.readHistory(chatroom, beforeSequence, limit, messages::addAll);
+        return messages;
+    }
+
+    private static byte[] encode(final long sequence) {
+        return PacketCodec.encode(new ReceiveMessagePacket("Author", "Message " + sequence, sequence))
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void assertSequences(final List<ReceiveMessagePacket> messages, final long from, final long to) {
+        List<Long> sequences = new ArrayList<>();
+        for(ReceiveMessagePacket message : messages) {
+            sequences.add(message.getSequence());
+        }
+
+        List<Long> expectedSequences = new ArrayList<>();
+        for(long sequence = from; sequence < to; sequence++) {
+            expectedSequences.add(sequence);
+        }
+        Assert.assertEquals(expectedSequences, sequences);
+    }
+
+    private Path onlySegment() throws IOException {
+        try(DirectoryStream<Path> paths = Files.newDirectoryStream(mDirectory)) {
+            Path segment = null;
+            for(Path path : paths) {
+                Assert.assertNull(segment);
+                segment = path;
+            }
+            return segment;
+        }
+    }
+
+    private int countSegmentFiles() throws IOException {
+        return countSegmentFiles(mDirectory);
+    }
+
+    private static int countSegmentFiles(final Path directory) throws IOException {
+        int count = 0;
+        try(DirectoryStream<Path> paths = Files.newDirectoryStream(directory)) {
+            for(Path ignored : paths) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,123 @@
+package io.benreynolds.hottopics.server;
+
+import io.benreynolds.hottopics.packets.ChatroomsUpdatePacket;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code NotificationSchedulerTest} implements various JUnit test methods that test the functionality of the
+ * {@code NotificationScheduler} class.
+ */
+public class NotificationSchedulerTest {
+
+    /** Amount of clients that join a {@code Chatroom} at once in the flash crowd test. */
+    private static final int FLASH_CROWD_SIZE = 5000;
+
+    /** Amount of packets sent to all clients. */
+    private final AtomicInteger mSentPackets = new AtomicInteger();
+
+    /** Room list updates published by the {@code NotificationScheduler}. */
+    private final List<ChatroomsUpdatePacket.Change[]> mPublishedUpdates = new ArrayList<>();
+
+    /** {@code NotificationScheduler} reference that will be used in the test methods (never started, flushes are
+     * performed manually). */
+    private NotificationScheduler mNotificationScheduler;
+
+    @Before
+    public void setUp() {
+        mNotificationScheduler = new NotificationScheduler(NotificationScheduler.DEFAULT_TICK_MILLIS, mPublishedUpdates::add);
+    }
+
+    /**
+     * When thousands of clients join a {@code Chatroom} within one tick, each member receives a single user count
+     * update and the room list is published once, rather than O(N^2) sends.
+     */
+    @Test
+    public void testFlashCrowdSendsAreBounded() {
+        Chatroom chatroom = new Chatroom("#FlashCrowd");
+        for(int i = 0; i < FLASH_CROWD_SIZE; i++) {
+            chatroom.addClient(new Client(createSession(String.valueOf(i))));
+            mNotificationScheduler.markUserCountChanged(chatroom);
+        }
+
+        mNotificationScheduler.flush();
+
+        Assert.assertEquals(FLASH_CROWD_SIZE, mSentPackets.get());
+        Assert.assertEquals(1, mPublishedUpdates.size());
+        Assert.assertEquals(1, mPublishedUpdates.get(0).length);
+        Assert.assertEquals(ChatroomsUpdatePacket.Change.Type.RESIZED, mPublishedUpdates.get(0)[0].getType());
+        Assert.assertEquals(FLASH_CROWD_SIZE, mPublishedUpdates.get(0)[0].getSize());
+
+        // Nothing is sent when nothing has changed.
+        mNotificationScheduler.flush();
+        Assert.assertEquals(FLASH_CROWD_SIZE, mSentPackets.get());
+        Assert.assertEquals(1, mPublishedUpdates.size());
+    }
+
+    /**
+     * Room list additions, removals and resizes made within one tick are published as a single update.
+     */
+    @Test
+    public void testRoomListChangesAreCoalesced() {
+        Chatroom added = new Chatroom("#Added");
+        Chatroom removed = new Chatroom("#Removed");
+        mNotificationScheduler.markChatroomAdded(added);
+        mNotificationScheduler.markUserCountChanged(removed);
+        mNotificationScheduler.markChatroomRemoved(removed);
+        mNotificationScheduler.markUserCountChanged(added);
+
+        mNotificationScheduler.flush();
+
+        Assert.assertEquals(1, mPublishedUpdates.size());
+        ChatroomsUpdatePacket.Change[] changes = mPublishedUpdates.get(0);
+        Assert.assertEquals(3, changes.length);
+        Assert.assertEquals(ChatroomsUpdatePacket.Change.Type.ADDED, changes[0].getType());
+        Assert.assertEquals(ChatroomsUpdatePacket.Change.Type.REMOVED, changes[1].getType());
+        Assert.assertEquals(ChatroomsUpdatePacket.Change.Type.RESIZED, changes[2].getType());
+        Assert.assertEquals("#Added", changes[2].getName());
+    }
+
+    /**
+     * Creates an open {@code Session} whose asynchronous remote counts and immediately completes every send.
+     */
+    private Session createSession(final String id) {
+        RemoteEndpoint.Async asyncRemote = (RemoteEndpoint.Async)Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { RemoteEndpoint.Async.class }, (proxy, method, args) -> {
+                    if(method.getName().equals("sendText") && args.length == 2) {
+                        mSentPackets.incrementAndGet();
+                        ((SendHandler)args[1]).onResult(new SendResult());
+                    }
+                    return null;
+                });
+
+        return (Session)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Session.class },
+                (proxy, method, args) -> {
+                    switch(method.getName()) {
+                        case "getId":
+                            return id;
+                        case "isOpen":
+                            return true;
+                        case "getAsyncRemote":
+                            return asyncRemote;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+}
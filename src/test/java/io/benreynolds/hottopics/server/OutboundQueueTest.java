@@ -0,0 +1,266 @@
+package io.benreynolds.hottopics.server;
+
+import io.benreynolds.hottopics.packets.ChatroomSummary;
+import io.benreynolds.hottopics.packets.ChatroomUserCountUpdatePacket;
+import io.benreynolds.hottopics.packets.ChatroomsResponsePacket;
+import io.benreynolds.hottopics.packets.ChatroomsUpdatePacket;
+import io.benreynolds.hottopics.packets.JoinChatroomResponsePacket;
+import io.benreynolds.hottopics.packets.PacketFrame;
+import io.benreynolds.hottopics.packets.ReceiveMessagePacket;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code OutboundQueueTest} implements various JUnit test methods that test the functionality of the
+ * {@code OutboundQueue} class under each {@code OverflowPolicy}. Sends never complete unless the test completes them,
+ * so frames accumulate in the queue as they would for a slow client.
+ */
+public class OutboundQueueTest {
+
+    /** Maximum amount of frames waiting to be sent in each test. */
+    private static final int CAPACITY = 3;
+
+    /** Text of every frame written to the session, in the order they were sent. */
+    private final List<String> mSentFrames = new ArrayList<>();
+
+    /** Handler of the send in progress, {@code null} if no send is in progress. */
+    private SendHandler mPendingSend;
+
+    /** {@code true} once the session has been closed. */
+    private boolean mClosed = false;
+
+    /** Amount of times the room list resynchronizer has been called. */
+    private int mResyncs = 0;
+
+    /** {@code Client} reference that will be used in the test methods. */
+    private Client mClient;
+
+    @Before
+    public void setUp() {
+        mClient = new Client(createSession());
+    }
+
+    /**
+     * Ensures that the oldest chat message is dropped first, that room list updates are then replaced by the full room
+     * list, and that the client is disconnected once only control packets are queued.
+     */
+    @Test
+    public void testDropOldestMessage() {
+        configure(OutboundQueue.OverflowPolicy.DROP_OLDEST_MESSAGE);
+        PacketFrame inFlight = control();
+        mClient.sendFrame(inFlight);
+
+        PacketFrame oldestMessage = message("Oldest");
+        PacketFrame roomListUpdate = roomListUpdate(1);
+        PacketFrame response = control();
+        mClient.sendFrame(oldestMessage);
+        mClient.sendFrame(roomListUpdate);
+        mClient.sendFrame(response);
+
+        // The oldest chat message makes room for the next frame.
+        PacketFrame next = control();
+        mClient.sendFrame(next);
+        Assert.assertEquals(1, mClient.getDroppedPacketCount());
+        Assert.assertEquals(0, mResyncs);
+
+        // With no chat messages left to drop, the room list update is dropped and the full room list is resent.
+        mClient.sendFrame(control());
+        Assert.assertEquals(2, mClient.getDroppedPacketCount());
+        Assert.assertEquals(1, mResyncs);
+        // Further room list updates are superseded by the full room list until it is queued.
+        mClient.sendFrame(roomListUpdate(2));
+        Assert.assertEquals(3, mClient.getDroppedPacketCount());
+        PacketFrame roomList = roomList(2);
+        mClient.sendFrame(roomList);
+        Assert.assertEquals(CAPACITY + 1, mClient.getOutboundQueueDepth());
+
+        completeSends();
+        Assert.assertEquals(5, mSentFrames.size());
+        Assert.assertEquals(inFlight.getText(), mSentFrames.get(0));
+        Assert.assertEquals(response.getText(), mSentFrames.get(1));
+        Assert.assertEquals(next.getText(), mSentFrames.get(2));
+        Assert.assertEquals(roomList.getText(), mSentFrames.get(4));
+        Assert.assertFalse(mSentFrames.contains(oldestMessage.getText()));
+        Assert.assertFalse(mSentFrames.contains(roomListUpdate.getText()));
+        Assert.assertFalse(mClosed);
+
+        // Control packets are never dropped, so a queue full of them disconnects the client.
+        mClient.sendFrame(control());
+        for(int i = 0; i < CAPACITY; i++) {
+            mClient.sendFrame(control());
+        }
+        Assert.assertFalse(mClosed);
+        mClient.sendFrame(control());
+        Assert.assertTrue(mClosed);
+    }
+
+    /**
+     * Ensures that room list updates are never dropped when there is no room list resynchronizer.
+     */
+    @Test
+    public void testRoomListUpdatesAreKeptWithoutResynchronizer() {
+        mClient.configureOutboundQueue(CAPACITY, OutboundQueue.OverflowPolicy.DROP_OLDEST_MESSAGE, null);
+        mClient.sendFrame(control());
+        for(int i = 0; i < CAPACITY; i++) {
+            mClient.sendFrame(roomListUpdate(i + 1));
+        }
+
+        mClient.sendFrame(roomListUpdate(CAPACITY + 1));
+        Assert.assertTrue(mClosed);
+        Assert.assertEquals(0, mResyncs);
+    }
+
+    /**
+     * Ensures that superseded user count updates and room lists (along with the room list updates preceding them) are
+     * discarded first, and that the room list updates and then the oldest chat message are dropped if the queue is
+     * still full.
+     */
+    @Test
+    public void testCoalesce() {
+        configure(OutboundQueue.OverflowPolicy.COALESCE);
+        mClient.sendFrame(control());
+
+        PacketFrame newestUserCount = userCount(2);
+        PacketFrame roomList = roomList(2);
+        mClient.sendFrame(userCount(1));
+        mClient.sendFrame(roomListUpdate(1));
+        mClient.sendFrame(roomList);
+
+        // The first room list update is superseded by the room list, so no resync is needed.
+        mClient.sendFrame(newestUserCount);
+        Assert.assertEquals(1, mClient.getDroppedPacketCount());
+        mClient.sendFrame(message("Message"));
+        Assert.assertEquals(2, mClient.getDroppedPacketCount());
+        Assert.assertEquals(0, mResyncs);
+
+        completeSends();
+        Assert.assertEquals(4, mSentFrames.size());
+        Assert.assertEquals(roomList.getText(), mSentFrames.get(1));
+        Assert.assertEquals(newestUserCount.getText(), mSentFrames.get(2));
+
+        // With nothing superseded, the room list updates are replaced by the full room list before messages are dropped.
+        mClient.sendFrame(control());
+        PacketFrame oldestMessage = message("Oldest");
+        mClient.sendFrame(oldestMessage);
+        mClient.sendFrame(roomListUpdate(3));
+        mClient.sendFrame(roomListUpdate(4));
+        mClient.sendFrame(message("Newest"));
+        Assert.assertEquals(4, mClient.getDroppedPacketCount());
+        Assert.assertEquals(1, mResyncs);
+
+        mClient.sendFrame(control());
+        Assert.assertEquals(4, mClient.getDroppedPacketCount());
+        mClient.sendFrame(control());
+        Assert.assertEquals(5, mClient.getDroppedPacketCount());
+        Assert.assertEquals(CAPACITY, mClient.getOutboundQueueDepth());
+        completeSends();
+        Assert.assertFalse(mSentFrames.contains(oldestMessage.getText()));
+        Assert.assertFalse(mClosed);
+    }
+
+    /**
+     * Ensures that a client whose queue overflows is disconnected, and that nothing more is queued for it.
+     */
+    @Test
+    public void testDisconnect() {
+        configure(OutboundQueue.OverflowPolicy.DISCONNECT);
+        mClient.sendFrame(control());
+        for(int i = 0; i < CAPACITY; i++) {
+            mClient.sendFrame(message(String.valueOf(i)));
+        }
+        Assert.assertFalse(mClosed);
+
+        mClient.sendFrame(message("Overflow"));
+        Assert.assertTrue(mClosed);
+        Assert.assertEquals(CAPACITY + 1, mClient.getDroppedPacketCount());
+        Assert.assertEquals(0, mClient.getOutboundQueueDepth());
+
+        mClient.sendFrame(control());
+        Assert.assertEquals(0, mClient.getOutboundQueueDepth());
+        Assert.assertEquals(0, mResyncs);
+    }
+
+    private void configure(final OutboundQueue.OverflowPolicy overflowPolicy) {
+        mClient.configureOutboundQueue(CAPACITY, overflowPolicy, client -> mResyncs++);
+    }
+
+    /**
+     * Completes sends until no frames are waiting to be sent.
+     */
+    private void completeSends() {
+        while(mPendingSend != null) {
+            SendHandler pendingSend = mPendingSend;
+            mPendingSend = null;
+            pendingSend.onResult(new SendResult());
+        }
+    }
+
+    private static PacketFrame control() {
+        return new PacketFrame(new JoinChatroomResponsePacket(true));
+    }
+
+    private static PacketFrame message(final String message) {
+        return new PacketFrame(new ReceiveMessagePacket("Author", message));
+    }
+
+    private static PacketFrame userCount(final int userCount) {
+        return new PacketFrame(new ChatroomUserCountUpdatePacket(userCount));
+    }
+
+    private static PacketFrame roomListUpdate(final long version) {
+        return new PacketFrame(new ChatroomsUpdatePacket(version, new ChatroomsUpdatePacket.Change[] {
+                ChatroomsUpdatePacket.Change.added("#Chatroom" + version, 0) }));
+    }
+
+    private static PacketFrame roomList(final long version) {
+        return new PacketFrame(new ChatroomsResponsePacket(new ChatroomSummary[] { new ChatroomSummary("#Chatroom", 0) },
+                version));
+    }
+
+    /**
+     * Creates an open {@code Session} whose asynchronous remote records each frame and completes it only when
+     * {@code completeSends} is called.
+     */
+    private Session createSession() {
+        RemoteEndpoint.Async asyncRemote = (RemoteEndpoint.Async)Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { RemoteEndpoint.Async.class }, (proxy, method, args) -> {
+                    if(method.getName().equals("sendText") && args.length == 2) {
+                        mSentFrames.add((String)args[0]);
+                        mPendingSend = (SendHandler)args[1];
+                    }
+                    return null;
+                });
+
+        return (Session)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Session.class },
+                (proxy, method, args) -> {
+                    switch(method.getName()) {
+                        case "getId":
+                            return "Session";
+                        case "isOpen":
+                            return !mClosed;
+                        case "close":
+                            mClosed = true;
+                            return null;
+                        case "getAsyncRemote":
+                            return asyncRemote;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+}
@@ -0,0 +1,138 @@
+package io.benreynolds.hottopics.server;
+
+import io.benreynolds.hottopics.packets.ChatroomsRequestPacket;
+import io.benreynolds.hottopics.packets.JoinChatroomRequestPacket;
+import io.benreynolds.hottopics.packets.Packet;
+import io.benreynolds.hottopics.packets.PacketIdentifier;
+import io.benreynolds.hottopics.packets.SendMessagePacket;
+import io.benreynolds.hottopics.packets.UsernameRequestPacket;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.websocket.Session;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code PacketDispatcherTest} implements various JUnit test methods that test the functionality of the
+ * {@code PacketDispatcher} class.
+ */
+public class PacketDispatcherTest {
+
+    /**
+     * Ensures that each {@code Packet} is dispatched to its {@code PacketHandler}, and is only permitted in the client
+     * states that the {@code PacketHandler} requires.
+     */
+    @Test
+    public void testDispatchPerState() {
+        PacketHandler<?> sendMessageHandler = new StubPacketHandler<>(SendMessagePacket.class, Client.State.CHAT_ROOM);
+        PacketHandler<?> chatroomsHandler = new StubPacketHandler<>(ChatroomsRequestPacket.class,
+                Client.State.ROOM_LIST, Client.State.CHAT_ROOM);
+        PacketHandler<?> joinChatroomHandler = new StubPacketHandler<>(JoinChatroomRequestPacket.class);
+        List<PacketHandler<?>> handlers = Arrays.asList(sendMessageHandler, chatroomsHandler, joinChatroomHandler);
+        PacketDispatcher dispatcher = new PacketDispatcher(handlers, Arrays.asList(SendMessagePacket.class,
+                ChatroomsRequestPacket.class));
+
+        for(PacketHandler<?> handler : handlers) {
+            int id = PacketIdentifier.getId(handler.getType());
+            Assert.assertSame(handler, dispatcher.getHandler(id));
+            for(Client.State state : Client.State.values()) {
+                Assert.assertEquals(handler.getRequiredStates().contains(state), dispatcher.isPermitted(id, state));
+            }
+        }
+
+        // Packets without a handler, and IDs that have not been assigned, are neither dispatched nor permitted.
+        int unhandledId = PacketIdentifier.getId(UsernameRequestPacket.class);
+        for(int id : new int[] { -1, unhandledId, PacketIdentifier.getPacketCount() }) {
+            Assert.assertNull(dispatcher.getHandler(id));
+            for(Client.State state : Client.State.values()) {
+                Assert.assertFalse(dispatcher.isPermitted(id, state));
+            }
+        }
+    }
+
+    /**
+     * Ensures that registering two '{@code PacketHandler}'s for the same {@code Packet} type fails.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testDuplicateHandlerIsRejected() {
+        new PacketDispatcher(Arrays.asList(new StubPacketHandler<>(SendMessagePacket.class, Client.State.CHAT_ROOM),
+                new StubPacketHandler<>(SendMessagePacket.class, Client.State.ROOM_LIST)), Collections.emptyList());
+    }
+
+    /**
+     * Ensures that registering a {@code PacketHandler} for a {@code Packet} type that has not been assigned an ID
+     * fails.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testUnknownPacketTypeIsRejected() {
+        new PacketDispatcher(Collections.singletonList(new StubPacketHandler<>(PingPacket.class,
+                Client.State.CHAT_ROOM)), Collections.emptyList());
+    }
+
+    /**
+     * Ensures that a required {@code Packet} type without a {@code PacketHandler} fails, whether or not it has been
+     * assigned an ID.
+     */
+    @Test
+    public void testMissingHandlerIsRejected() {
+        List<PacketHandler<?>> handlers = Collections.singletonList(new StubPacketHandler<>(SendMessagePacket.class,
+                Client.State.CHAT_ROOM));
+
+        for(Class<? extends Packet> requiredType : Arrays.asList(ChatroomsRequestPacket.class, PingPacket.class)) {
+            try {
+                new PacketDispatcher(handlers, Arrays.asList(SendMessagePacket.class, requiredType));
+                Assert.fail(String.format("No handler was registered for \"%s\".", requiredType.getSimpleName()));
+            }
+            catch(IllegalStateException expected) {
+                // Expected.
+            }
+        }
+    }
+
+    /**
+     * {@code Packet} that has not been assigned an ID by {@code PacketIdentifier}.
+     */
+    private static class PingPacket extends Packet {
+
+        @Override
+        public boolean isValid() {
+            return true;
+        }
+
+    }
+
+    /**
+     * {@code PacketHandler} that ignores the packets it is handed.
+     */
+    private static class StubPacketHandler<T extends Packet> implements PacketHandler<T> {
+
+        private final Class<T> mType;
+        private final List<Client.State> mRequiredStates;
+
+        StubPacketHandler(final Class<T> type, final Client.State... requiredStates) {
+            mType = type;
+            mRequiredStates = Arrays.asList(requiredStates);
+        }
+
+        @Override
+        public void handlePacket(final Packet packet, final Client sender, final Map<Session, Client> clients,
+                final ChatroomRegistry chatrooms) {
+        }
+
+        @Override
+        public Class<T> getType() {
+            return mType;
+        }
+
+        @Override
+        public List<Client.State> getRequiredStates() {
+            return mRequiredStates;
+        }
+
+    }
+
+}
@@ -0,0 +1,185 @@
+package io.benreynolds.hottopics.server;
+
+import io.benreynolds.hottopics.packets.ChatroomSummary;
+import io.benreynolds.hottopics.packets.ChatroomsResponsePacket;
+import io.benreynolds.hottopics.packets.ChatroomsUpdatePacket;
+import io.benreynolds.hottopics.packets.PacketCodec;
+import io.benreynolds.hottopics.packets.PacketFrame;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@code PublishedRoomListTest} implements various JUnit test methods that test the functionality of the
+ * {@code PublishedRoomList} class, replaying room list snapshots and the updates that follow them as a client would.
+ */
+public class PublishedRoomListTest {
+
+    /** '{@code Chatroom}'s available to clients. */
+    private ChatroomRegistry mChatrooms;
+
+    /** Publishes the room list changes made by {@code refresh}. */
+    private NotificationScheduler mNotificationScheduler;
+
+    /** {@code PublishedRoomList} reference that will be used in the test methods. */
+    private PublishedRoomList mPublishedRoomList;
+
+    /** Every published update, in the order that they were published. */
+    private final List<PacketFrame> mUpdates = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        mChatrooms = new ChatroomRegistry();
+        mPublishedRoomList = new PublishedRoomList(mChatrooms, new ChatroomRanking(ChatroomRanking.DEFAULT_TOP_K,
+                ChatroomRanking.DEFAULT_HALF_LIFE_MILLIS));
+        mNotificationScheduler = new NotificationScheduler(NotificationScheduler.DEFAULT_TICK_MILLIS,
+                changes -> mPublishedRoomList.publish(changes, mUpdates::add));
+    }
+
+    /**
+     * Ensures that snapshots taken while changes are waiting to be published describe the list at their version, so
+     * that replaying the updates that follow each snapshot never adds a listed room or removes an unlisted one, and
+     * ends with the rooms in the {@code ChatroomRegistry}.
+     */
+    @Test
+    public void testSnapshotsReplayToRegistry() {
+        List<PacketFrame> snapshots = new ArrayList<>();
+
+        refresh("#A", "#B", "#C");
+        snapshots.add(snapshot());
+        mNotificationScheduler.flush();
+        snapshots.add(snapshot());
+
+        refresh("#B", "#C", "#D");
+        snapshots.add(snapshot());
+        refresh("#C", "#D", "#E");
+        snapshots.add(snapshot());
+        mNotificationScheduler.flush();
+        snapshots.add(snapshot());
+
+        refresh("#A");
+        snapshots.add(snapshot());
+        mNotificationScheduler.flush();
+
+        Set<String> registryNames = new HashSet<>();
+        for(Chatroom chatroom : mChatrooms.getChatrooms()) {
+            registryNames.add(chatroom.getName());
+        }
+        for(PacketFrame snapshot : snapshots) {
+            Assert.assertEquals(registryNames, replay(snapshot));
+        }
+    }
+
+    /**
+     * Ensures that the cached snapshot is only rebuilt once an update is published (not while changes are pending), and
+     * that every cached frame matches the published list at the version it is labelled with.
+     */
+    @Test
+    public void testCachedSnapshotMatchesItsVersion() {
+        PacketFrame empty = sendSnapshot();
+        Assert.assertEquals(new PacketFrame(mPublishedRoomList.snapshot()).getText(), empty.getText());
+
+        refresh("#A", "#B");
+        Assert.assertSame(empty, sendSnapshot());
+
+        mNotificationScheduler.flush();
+        PacketFrame published = sendSnapshot();
+        Assert.assertNotSame(empty, published);
+        Assert.assertEquals(new PacketFrame(mPublishedRoomList.snapshot()).getText(), published.getText());
+        Assert.assertEquals(Arrays.asList("#A", "#B"), names(((ChatroomsResponsePacket)PacketCodec.decode(
+                published.getText())).getChatrooms()));
+        Assert.assertEquals(2, mPublishedRoomList.getSnapshotBuilds());
+
+        // Clients that were sent the cached snapshots end up with the rooms in the registry.
+        refresh("#B", "#C");
+        mNotificationScheduler.flush();
+        Assert.assertEquals(replay(empty), replay(published));
+        Assert.assertEquals(new HashSet<>(Arrays.asList("#B", "#C")), replay(published));
+    }
+
+    /**
+     * Ensures that a snapshot lists a room whose removal has not yet been published, without users.
+     */
+    @Test
+    public void testUnpublishedRemovalIsStillListed() {
+        refresh("#A", "#B");
+        mNotificationScheduler.flush();
+        refresh("#B");
+
+        ChatroomsResponsePacket snapshot = mPublishedRoomList.snapshot();
+        Assert.assertEquals(1, snapshot.getVersion());
+        Assert.assertEquals(Arrays.asList("#B", "#A"), names(snapshot.getChatrooms()));
+        Assert.assertEquals(0, snapshot.getChatrooms()[1].getSize());
+    }
+
+    /**
+     * Reconciles the {@code ChatroomRegistry} against a set of trends, marking the changes to be published as the
+     * server does.
+     */
+    private void refresh(final String... trendNames) {
+        ChatroomRegistry.Reconciliation reconciliation = mChatrooms.reconcile(Arrays.asList(trendNames));
+        for(Chatroom chatroom : reconciliation.getRemoved()) {
+            mNotificationScheduler.markChatroomRemoved(chatroom);
+        }
+        for(Chatroom chatroom : reconciliation.getAdded()) {
+            mNotificationScheduler.markChatroomAdded(chatroom);
+        }
+    }
+
+    private PacketFrame snapshot() {
+        return new PacketFrame(mPublishedRoomList.snapshot());
+    }
+
+    private PacketFrame sendSnapshot() {
+        List<PacketFrame> frames = new ArrayList<>();
+        mPublishedRoomList.sendSnapshot(frames::add);
+        Assert.assertEquals(1, frames.size());
+        return frames.get(0);
+    }
+
+    /**
+     * Applies every update newer than a snapshot to it, as a client would, failing if an update adds a room that is
+     * already listed or removes one that is not.
+     * @return Names of the listed rooms once every update has been applied.
+     */
+    private Set<String> replay(final PacketFrame snapshotFrame) {
+        ChatroomsResponsePacket snapshot = (ChatroomsResponsePacket)PacketCodec.decode(snapshotFrame.getText());
+        Set<String> names = new HashSet<>(names(snapshot.getChatrooms()));
+
+        for(PacketFrame updateFrame : mUpdates) {
+            ChatroomsUpdatePacket update = (ChatroomsUpdatePacket)PacketCodec.decode(updateFrame.getText());
+            if(update.getVersion() <= snapshot.getVersion()) {
+                continue;
+            }
+
+            for(ChatroomsUpdatePacket.Change change : update.getChanges()) {
+                switch(change.getType()) {
+                    case ADDED:
+                        Assert.assertTrue("Added a listed room: " + change.getName(), names.add(change.getName()));
+                        break;
+                    case REMOVED:
+                        Assert.assertTrue("Removed an unlisted room: " + change.getName(), names.remove(change.getName()));
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        return names;
+    }
+
+    private static List<String> names(final ChatroomSummary[] summaries) {
+        List<String> names = new ArrayList<>();
+        for(ChatroomSummary summary : summaries) {
+            names.add(summary.getName());
+        }
+        return names;
+    }
+
+}
@@ -0,0 +1,146 @@
+package io.benreynolds.hottopics.server;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code ReplayTrendSourceTest} implements various JUnit test methods that test the functionality of the
+ * {@code ReplayTrendSource} class, including chatroom reconciliation at varying trend turnover rates.
+ */
+public class ReplayTrendSourceTest {
+
+    /** Time that each frame is replayed for (in milliseconds). */
+    private static final long FRAME_MILLIS = 1000;
+
+    /** Amount of trends in each frame of the churn test. */
+    private static final int CHURN_TRENDS = 500;
+
+    /** Amount of frames replayed by the churn test. */
+    private static final int CHURN_FRAMES = 200;
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    /** Current time (in nanoseconds) reported to the {@code ReplayTrendSource}. */
+    private final AtomicLong mNanos = new AtomicLong();
+
+    /**
+     * Ensures that recorded frames are loaded from disk and replayed in order, looping once the last has been replayed.
+     */
+    @Test
+    public void testFramesAreReplayedInOrder() throws IOException {
+        Path recording = mTemporaryFolder.newFile("trends.json").toPath();
+        Files.write(recording, ("[{\"44418\": [\"#One\", \"#Two\"], \"*\": [\"#Any\"]}, {\"44418\": [\"#Three\"]}]")
+                .getBytes(StandardCharsets.UTF_8));
+        ReplayTrendSource trendSource = ReplayTrendSource.load(recording, FRAME_MILLIS, 0);
+
+        Assert.assertEquals(Arrays.asList("#One", "#Two"), trendSource.fetchTrends(44418));
+        Assert.assertEquals(Collections.singletonList("#Any"), trendSource.fetchTrends(1));
+    }
+
+    /**
+     * Ensures that frames advance on schedule, loop, and fall back to the trends recorded for any location.
+     */
+    @Test
+    public void testFramesAdvanceOnSchedule() {
+        ReplayTrendSource trendSource = new ReplayTrendSource(Arrays.asList(
+                createFrame("44418", "#One"),
+                createFrame(ReplayTrendSource.ANY_LOCATION, "#Two")), FRAME_MILLIS, 0, mNanos::get);
+
+        Assert.assertEquals(Collections.singletonList("#One"), trendSource.fetchTrends(44418));
+        Assert.assertTrue(trendSource.fetchTrends(1).isEmpty());
+
+        mNanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(FRAME_MILLIS));
+        Assert.assertEquals(1, trendSource.getFrameIndex());
+        Assert.assertEquals(Collections.singletonList("#Two"), trendSource.fetchTrends(44418));
+
+        mNanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(FRAME_MILLIS));
+        Assert.assertEquals(Collections.singletonList("#One"), trendSource.fetchTrends(44418));
+    }
+
+    /**
+     * Ensures that the churn fraction of each frame's trends is replaced with trends unique to the frame, even when a
+     * single frame is replayed repeatedly.
+     */
+    @Test
+    public void testChurnReplacesTrendsEachFrame() {
+        ReplayTrendSource trendSource = new ReplayTrendSource(Collections.singletonList(
+                createFrame(ReplayTrendSource.ANY_LOCATION, createTrends("#Recorded", 10))), FRAME_MILLIS, 0.3, mNanos::get);
+
+        Set<String> first = new HashSet<>(trendSource.fetchTrends(44418));
+        mNanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(FRAME_MILLIS));
+        Set<String> second = new HashSet<>(trendSource.fetchTrends(44418));
+
+        Assert.assertEquals(10, first.size());
+        Assert.assertEquals(10, second.size());
+        second.retainAll(first);
+        Assert.assertEquals(7, second.size());
+    }
+
+    /**
+     * Replays frames at low and extreme trend turnover through {@code ChatroomRegistry.reconcile}, ensuring that
+     * every frame's trends end up with chatrooms and that only the churned trends are added and removed.
+     */
+    @Test
+    public void testReconciliationUnderChurn() {
+        for(double churn : new double[] { 0.1, 1.0 }) {
+            mNanos.set(0);
+            ReplayTrendSource trendSource = new ReplayTrendSource(Collections.singletonList(
+                    createFrame(ReplayTrendSource.ANY_LOCATION, createTrends("#Recorded", CHURN_TRENDS))),
+                    FRAME_MILLIS, churn, mNanos::get);
+            ChatroomRegistry chatrooms = new ChatroomRegistry();
+
+            long added = 0;
+            long removed = 0;
+            for(int frame = 0; frame < CHURN_FRAMES; frame++) {
+                List<String> trends = trendSource.fetchTrends(44418);
+                ChatroomRegistry.Reconciliation reconciliation = chatrooms.reconcile(trends);
+                added += reconciliation.getAdded().size();
+                removed += reconciliation.getRemoved().size();
+
+                Assert.assertEquals(trends.size(), chatrooms.size());
+                mNanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(FRAME_MILLIS));
+            }
+
+            long churnedPerFrame = Math.round(CHURN_TRENDS * churn);
+            Assert.assertEquals(CHURN_TRENDS + churnedPerFrame * (CHURN_FRAMES - 1), added);
+            Assert.assertEquals(churnedPerFrame * (CHURN_FRAMES - 1), removed);
+        }
+    }
+
+    private static Map<String, List<String>> createFrame(final String location, final String... trends) {
+        return createFrame(location, Arrays.asList(trends));
+    }
+
+    private static Map<String, List<String>> createFrame(final String location, final List<String> trends) {
+        Map<String, List<String>> frame = new HashMap<>();
+        frame.put(location, trends);
+        return frame;
+    }
+
+    private static List<String> createTrends(final String prefix, final int count) {
+        List<String> trends = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            trends.add(prefix + i);
+        }
+        return trends;
+    }
+
+}
@@ -0,0 +1,287 @@
+package io.benreynolds.hottopics.server;
+
+import io.benreynolds.hottopics.packets.ChatroomsResponsePacket;
+import io.benreynolds.hottopics.packets.Packet;
+import io.benreynolds.hottopics.packets.PacketCodec;
+import io.benreynolds.hottopics.packets.ReceiveMessagePacket;
+import io.benreynolds.hottopics.packets.ResumeSessionRequestPacket;
+import io.benreynolds.hottopics.packets.ResumeSessionResponsePacket;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code ResumeSessionRequestPacketHandlerTest} implements various JUnit test methods that test the functionality of
+ * the {@code ResumeSessionRequestPacketHandler} class. Each client's session records the frames sent to it, and
+ * chatrooms run their tasks on the calling thread.
+ */
+public class ResumeSessionRequestPacketHandlerTest {
+
+    /** Username held by the session that is resumed. */
+    private static final String USERNAME = "Username";
+
+    /** Time that sessions are held for after disconnecting (in milliseconds). */
+    private static final long GRACE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /** Frames sent to the reconnected client, in the order they were sent. */
+    private final List<String> mSentFrames = new ArrayList<>();
+
+    /** Frames sent to the other member of the chatroom, in the order they were sent. */
+    private final List<String> mMemberFrames = new ArrayList<>();
+
+    private UsernameRegistry mUsernames;
+    private SessionResumption mSessionResumption;
+    private ResumeSessionRequestPacketHandler mHandler;
+
+    /** {@code Chatroom} that the previous connection was a member of. */
+    private Chatroom mChatroom;
+
+    /** Previous connection of the client, which has disconnected and been parked. */
+    private Client mPrevious;
+
+    /** Another member of {@code mChatroom}. */
+    private Client mMember;
+
+    /** Reconnected client, which resumes the session of {@code mPrevious}. */
+    private Client mSender;
+
+    /** Token that resumes the session of {@code mPrevious}. */
+    private String mResumeToken;
+
+    @Before
+    public void setUp() {
+        mUsernames = new UsernameRegistry();
+        mSessionResumption = new SessionResumption(new TimerWheel(TimerWheel.DEFAULT_TICK_MILLIS,
+                TimerWheel.DEFAULT_WHEEL_SIZE), GRACE_MILLIS, client -> { });
+        mHandler = new ResumeSessionRequestPacketHandler(mUsernames, mSessionResumption);
+
+        mChatroom = new Chatroom("#HotTopics");
+        mPrevious = new Client(createSession("Previous", new ArrayList<>()));
+        mMember = new Client(createSession("Member", mMemberFrames));
+        mSender = new Client(createSession("Sender", mSentFrames));
+
+        Assert.assertTrue(mUsernames.claim(USERNAME, mPrevious));
+        mPrevious.setUsername(USERNAME);
+        mPrevious.setState(Client.State.CHAT_ROOM);
+        mPrevious.setChatroom(mChatroom);
+        Assert.assertTrue(mChatroom.addClient(mPrevious));
+        Assert.assertTrue(mChatroom.addClient(mMember));
+        mResumeToken = mSessionResumption.issue(mPrevious);
+        Assert.assertTrue(mSessionResumption.park(mPrevious));
+    }
+
+    /**
+     * Ensures that the reconnected client takes the previous connection's place in its chatroom, without the other
+     * members seeing it leave and rejoin, and is sent only the messages sent after the last message it received.
+     */
+    @Test
+    public void testResumedClientReplacesPreviousConnection() {
+        addMessages(5);
+
+        resume(mResumeToken, 2L);
+
+        ResumeSessionResponsePacket response = getResponse();
+        Assert.assertTrue(response.getResponse());
+        Assert.assertEquals(USERNAME, response.getUsername());
+        Assert.assertEquals(mChatroom.getName(), response.getChatroomName());
+        Assert.assertNotEquals(mResumeToken, response.getResumeToken());
+        Assert.assertEquals(Long.valueOf(3), response.getFirstSequence());
+        Assert.assertEquals(Long.valueOf(3), getSentMessages().get(0).getSequence());
+        Assert.assertEquals(2, getSentMessages().size());
+
+        Assert.assertTrue(mChatroom.containsClient(mSender));
+        Assert.assertFalse(mChatroom.containsClient(mPrevious));
+        Assert.assertEquals(2, mChatroom.getSize());
+        Assert.assertTrue(mMemberFrames.isEmpty());
+        Assert.assertSame(mSender, mUsernames.get(USERNAME));
+        Assert.assertEquals(USERNAME, mSender.getUsername());
+        Assert.assertEquals(Client.State.CHAT_ROOM, mSender.getState());
+        Assert.assertSame(mChatroom, mSender.getChatroom());
+        Assert.assertNull(mPrevious.getChatroom());
+    }
+
+    /**
+     * Ensures that a client that missed more than a page of messages is sent the most recent page, and is told where
+     * the page starts so that it can tell that older messages were left out.
+     */
+    @Test
+    public void testMissedMessagesBeyondAPageAreTruncated() {
+        int messages = ChatHistoryRequestPacketHandler.MAX_PAGE_SIZE + 10;
+        addMessages(messages);
+
+        resume(mResumeToken, 2L);
+
+        long firstSequence = messages - ChatHistoryRequestPacketHandler.MAX_PAGE_SIZE;
+        Assert.assertEquals(Long.valueOf(firstSequence), getResponse().getFirstSequence());
+        List<ReceiveMessagePacket> sentMessages = getSentMessages();
+        Assert.assertEquals(ChatHistoryRequestPacketHandler.MAX_PAGE_SIZE, sentMessages.size());
+        for(int i = 0; i < sentMessages.size(); i++) {
+            Assert.assertEquals(Long.valueOf(firstSequence + i), sentMessages.get(i).getSequence());
+        }
+    }
+
+    /**
+     * Ensures that a client that has not missed any messages is sent none.
+     */
+    @Test
+    public void testNoMessagesAreSentIfNoneWereMissed() {
+        addMessages(5);
+
+        resume(mResumeToken, 4L);
+
+        Assert.assertNull(getResponse().getFirstSequence());
+        Assert.assertTrue(getSentMessages().isEmpty());
+        Assert.assertEquals(1, mSentFrames.size());
+    }
+
+    /**
+     * Ensures that a client whose chatroom has been closed since it disconnected is placed in the room list instead.
+     */
+    @Test
+    public void testClosedChatroomFallsBackToRoomList() {
+        Assert.assertTrue(mChatroom.removeClient(mPrevious));
+        Assert.assertTrue(mChatroom.removeClient(mMember));
+        Assert.assertTrue(mChatroom.closeIfEmpty());
+
+        resume(mResumeToken, null);
+
+        ResumeSessionResponsePacket response = getResponse();
+        Assert.assertTrue(response.getResponse());
+        Assert.assertEquals(USERNAME, response.getUsername());
+        Assert.assertNull(response.getChatroomName());
+        Assert.assertNull(response.getFirstSequence());
+        Assert.assertTrue(PacketCodec.decode(mSentFrames.get(1)) instanceof ChatroomsResponsePacket);
+
+        Assert.assertFalse(mChatroom.containsClient(mSender));
+        Assert.assertEquals(Client.State.ROOM_LIST, mSender.getState());
+        Assert.assertNull(mSender.getChatroom());
+        Assert.assertSame(mSender, mUsernames.get(USERNAME));
+    }
+
+    /**
+     * Ensures that a client whose session is no longer held (e.g. as the server has restarted) is given back the
+     * username reserved for it, and a new resume token.
+     */
+    @Test
+    public void testReservedUsernameIsReclaimed() {
+        UsernameRegistry usernames = new UsernameRegistry();
+        Assert.assertTrue(usernames.reserve(USERNAME, SessionResumption.hashToken("Token"), GRACE_MILLIS));
+        mHandler = new ResumeSessionRequestPacketHandler(usernames, mSessionResumption);
+
+        resume("Token", 4L);
+
+        ResumeSessionResponsePacket response = getResponse();
+        Assert.assertTrue(response.getResponse());
+        Assert.assertEquals(USERNAME, response.getUsername());
+        Assert.assertNull(response.getChatroomName());
+        Assert.assertNotNull(response.getResumeToken());
+        Assert.assertNotEquals("Token", response.getResumeToken());
+        Assert.assertTrue(PacketCodec.decode(mSentFrames.get(1)) instanceof ChatroomsResponsePacket);
+
+        Assert.assertSame(mSender, usernames.get(USERNAME));
+        Assert.assertEquals(USERNAME, mSender.getUsername());
+        Assert.assertEquals(Client.State.ROOM_LIST, mSender.getState());
+
+        // The reservation has been claimed, so the token can not be used again.
+        mSentFrames.clear();
+        resume("Token", 4L);
+        Assert.assertFalse(getResponse().getResponse());
+    }
+
+    /**
+     * Ensures that an unknown resume token is rejected, and that a resume token can only be used once.
+     */
+    @Test
+    public void testUnknownResumeTokenIsRejected() {
+        resume("Unknown", null);
+        Assert.assertFalse(getResponse().getResponse());
+        Assert.assertNull(mSender.getUsername());
+
+        mSentFrames.clear();
+        resume(mResumeToken, null);
+        Assert.assertTrue(getResponse().getResponse());
+
+        mSentFrames.clear();
+        resume(mResumeToken, null);
+        Assert.assertFalse(getResponse().getResponse());
+    }
+
+    private void addMessages(final int amount) {
+        for(int i = 0; i < amount; i++) {
+            mChatroom.addMessage("Author", String.format("Message %d", i));
+        }
+    }
+
+    private void resume(final String resumeToken, final Long lastSequence) {
+        mHandler.handlePacket(new ResumeSessionRequestPacket(resumeToken, lastSequence), mSender, new HashMap<>(),
+                new ChatroomRegistry());
+    }
+
+    /**
+     * Returns the first frame sent to the reconnected client, which must be its {@code ResumeSessionResponsePacket}.
+     */
+    private ResumeSessionResponsePacket getResponse() {
+        Packet packet = PacketCodec.decode(mSentFrames.get(0));
+        Assert.assertTrue(packet instanceof ResumeSessionResponsePacket);
+        return (ResumeSessionResponsePacket)packet;
+    }
+
+    /**
+     * Returns the messages sent to the reconnected client, in the order they were sent.
+     */
+    private List<ReceiveMessagePacket> getSentMessages() {
+        List<ReceiveMessagePacket> messages = new ArrayList<>();
+        for(String frame : mSentFrames) {
+            Packet packet = PacketCodec.decode(frame);
+            if(packet instanceof ReceiveMessagePacket) {
+                messages.add((ReceiveMessagePacket)packet);
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Creates an open {@code Session} whose asynchronous remote records each frame and completes it as soon as it is
+     * recorded.
+     */
+    private Session createSession(final String id, final List<String> sentFrames) {
+        RemoteEndpoint.Async asyncRemote = (RemoteEndpoint.Async)Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { RemoteEndpoint.Async.class }, (proxy, method, args) -> {
+                    if(method.getName().equals("sendText") && args.length == 2) {
+                        sentFrames.add((String)args[0]);
+                        ((SendHandler)args[1]).onResult(new SendResult());
+                    }
+                    return null;
+                });
+
+        return (Session)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Session.class },
+                (proxy, method, args) -> {
+                    switch(method.getName()) {
+                        case "getId":
+                            return id;
+                        case "isOpen":
+                            return true;
+                        case "getAsyncRemote":
+                            return asyncRemote;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+}
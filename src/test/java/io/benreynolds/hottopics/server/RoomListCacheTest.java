@@ -0,0 +1,43 @@
+package io.benreynolds.hottopics.server;
+
+import io.benreynolds.hottopics.packets.ChatroomSummary;
+import io.benreynolds.hottopics.packets.ChatroomsResponsePacket;
+import io.benreynolds.hottopics.packets.PacketFrame;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code RoomListCacheTest} implements various JUnit test methods that test the functionality of the
+ * {@code RoomListCache} class.
+ */
+public class RoomListCacheTest {
+
+    /**
+     * Ensures that the room list is only rebuilt when the room list or ranking version changes, and that the same frame
+     * is returned in between.
+     */
+    @Test
+    public void testRebuildsOncePerVersion() {
+        AtomicInteger size = new AtomicInteger();
+        RoomListCache roomListCache = new RoomListCache(version -> new ChatroomsResponsePacket(
+                new ChatroomSummary[] { new ChatroomSummary("#HotTopics", size.get()) }, version));
+
+        PacketFrame frame = roomListCache.get(1, 0);
+        size.set(5);
+        for(int i = 0; i < 100; i++) {
+            Assert.assertSame(frame, roomListCache.get(1, 0));
+        }
+        Assert.assertEquals(1, roomListCache.getBuilds());
+
+        PacketFrame updatedFrame = roomListCache.get(2, 0);
+        Assert.assertNotSame(frame, updatedFrame);
+        Assert.assertTrue(updatedFrame.getText().contains("\"size\":5"));
+        Assert.assertTrue(updatedFrame.getText().contains("\"version\":2"));
+
+        Assert.assertNotSame(updatedFrame, roomListCache.get(2, 1));
+        Assert.assertEquals(3, roomListCache.getBuilds());
+    }
+
+}
@@ -0,0 +1,91 @@
+package io.benreynolds.hottopics.server;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code SchedulerTest} implements various JUnit test methods that test the functionality of the {@code Scheduler}
+ * class.
+ */
+public class SchedulerTest {
+
+    /** Maximum time to wait for a scheduled task to run (in seconds). */
+    private static final long TIMEOUT_SECONDS = 5;
+
+    /** {@code Scheduler} reference that will be used in the test methods. */
+    private Scheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        mScheduler = new Scheduler(Scheduler.DEFAULT_THREAD_COUNT);
+    }
+
+    @After
+    public void tearDown() {
+        mScheduler.shutdown(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Ensures that a fixed-rate task keeps running after throwing, and that its runs and failures are recorded.
+     */
+    @Test
+    public void testFixedRateTaskSurvivesFailures() throws InterruptedException {
+        CountDownLatch runs = new CountDownLatch(3);
+        mScheduler.scheduleAtFixedRate("Failing", () -> {
+            runs.countDown();
+            throw new IllegalStateException("Expected failure.");
+        }, 0, 10, TimeUnit.MILLISECONDS);
+
+        Assert.assertTrue(runs.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        Scheduler.TaskMetrics metrics = mScheduler.getMetrics("Failing");
+        Assert.assertTrue(metrics.getRuns() >= 2);
+        Assert.assertTrue(metrics.getFailures() >= 2);
+        Assert.assertTrue(mScheduler.getMetrics().containsKey("Failing"));
+    }
+
+    /**
+     * Ensures that a deadline task runs once, no earlier than its deadline, and that its lag and run time are recorded.
+     */
+    @Test
+    public void testDeadlineTaskRunsOnceAtDeadline() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50);
+        mScheduler.scheduleAt("Deadline", () -> {
+            Assert.assertTrue(System.nanoTime() >= deadlineNanos);
+            runs.incrementAndGet();
+            ran.countDown();
+        }, deadlineNanos);
+
+        Assert.assertTrue(ran.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        Assert.assertEquals(1, runs.get());
+
+        Scheduler.TaskMetrics metrics = mScheduler.getMetrics("Deadline");
+        Assert.assertEquals(1, metrics.getRuns());
+        Assert.assertEquals(0, metrics.getFailures());
+        Assert.assertTrue(metrics.getMaxLagNanos() >= 0);
+        Assert.assertTrue(metrics.getMaxRunNanos() >= metrics.getAverageRunNanos());
+    }
+
+    /**
+     * Ensures that no tasks run once the {@code Scheduler} has been shut down.
+     */
+    @Test
+    public void testShutdownStopsTasks() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        mScheduler.schedule("Delayed", runs::incrementAndGet, 200, TimeUnit.MILLISECONDS);
+
+        Assert.assertTrue(mScheduler.shutdown(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        Assert.assertTrue(mScheduler.isShutdown());
+        Thread.sleep(300);
+        Assert.assertEquals(0, runs.get());
+    }
+
+}
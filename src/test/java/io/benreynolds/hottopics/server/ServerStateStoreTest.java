@@ -0,0 +1,133 @@
+package io.benreynolds.hottopics.server;
+
+import io.benreynolds.hottopics.packets.ReceiveMessagePacket;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code ServerStateStoreTest} implements various JUnit test methods that test the functionality of the
+ * {@code ServerStateStore} class.
+ */
+public class ServerStateStoreTest {
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    /** File that the state is stored in. */
+    private Path mFile;
+
+    /** {@code ServerStateStore} reference that will be used in the test methods. */
+    private ServerStateStore mServerStateStore;
+
+    @Before
+    public void setUp() {
+        mFile = mTemporaryFolder.getRoot().toPath().resolve("server-state.bin");
+        mServerStateStore = new ServerStateStore(mFile);
+    }
+
+    /**
+     * Ensures that the captured state of a {@code Chatroom}, including its messages, sequence numbers and activity, is
+     * loaded unchanged along with the saved usernames and the hashes of their resume tokens. Messages may contain
+     * characters outside the Basic Multilingual Plane and exceed the 64 KB that {@code writeUTF} supports.
+     */
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        Chatroom chatroom = new Chatroom("#Café", Runnable::run, 3, 100);
+        chatroom.addClient(new Client(null));
+        for(int i = 0; i < 4; i++) {
+            chatroom.addMessage("Author " + i, "Message \uD83D\uDD25 " + i);
+        }
+        String longMessage = String.join("", Collections.nCopies(70_000, "é"));
+        chatroom.addMessage("Zoë", longMessage);
+        chatroom.getActivity().fold(1.0);
+
+        Map<String, String> usernames = new LinkedHashMap<>();
+        usernames.put("Username", SessionResumption.hashToken("Token"));
+        usernames.put("Zoë", null);
+        ServerStateStore.ServerState state = new ServerStateStore.ServerState(1234,
+                Arrays.asList(ServerStateStore.ChatroomState.capture(chatroom),
+                        ServerStateStore.ChatroomState.capture(new Chatroom("#Empty", Runnable::run, 3, 200))),
+                usernames);
+        mServerStateStore.save(state);
+        ServerStateStore.ServerState loadedState = mServerStateStore.load();
+
+        Assert.assertNotNull(loadedState);
+        Assert.assertEquals(1234, loadedState.getSavedAtMillis());
+        Assert.assertEquals(state.getUsernames(), loadedState.getUsernames());
+        Assert.assertEquals(2, loadedState.getChatrooms().size());
+
+        ServerStateStore.ChatroomState loadedChatroom = loadedState.getChatrooms().get(0);
+        Assert.assertEquals("#Café", loadedChatroom.getName());
+        Assert.assertEquals(100, loadedChatroom.getCreatedAtMillis());
+        Assert.assertEquals(1, loadedChatroom.getSize());
+        Assert.assertEquals(5, loadedChatroom.getNextSequence());
+        Assert.assertEquals(5.0, loadedChatroom.getDecayedMessages(), 0.0);
+        Assert.assertEquals(1.0, loadedChatroom.getDecayedJoins(), 0.0);
+        List<ReceiveMessagePacket> messages = loadedChatroom.getMessages();
+        Assert.assertEquals(3, messages.size());
+        Assert.assertEquals(Long.valueOf(2), messages.get(0).getSequence());
+        Assert.assertEquals("Message \uD83D\uDD25 3", messages.get(1).getMessage());
+        Assert.assertEquals("Zoë", messages.get(2).getAuthor());
+        Assert.assertEquals(longMessage, messages.get(2).getMessage());
+
+        ServerStateStore.ChatroomState emptyChatroom = loadedState.getChatrooms().get(1);
+        Assert.assertEquals(0, emptyChatroom.getNextSequence());
+        Assert.assertEquals(Collections.emptyList(), emptyChatroom.getMessages());
+
+        // Restoring the messages continues the chatroom's sequence numbers.
+        Chatroom restored = new Chatroom(loadedChatroom.getName(), Runnable::run, 3, loadedChatroom.getCreatedAtMillis());
+        restored.restoreMessages(loadedChatroom.getMessages(), loadedChatroom.getNextSequence());
+        Assert.assertEquals(Long.valueOf(5), restored.addMessage("Author", "Message").getSequence());
+    }
+
+    /**
+     * Ensures that state saved asynchronously is written by the time the store has been stopped, and that the latest
+     * state is the one that is kept.
+     */
+    @Test
+    public void testSaveAsyncWritesLatestState() throws IOException {
+        for(int i = 0; i < 100; i++) {
+            mServerStateStore.saveAsync(new ServerStateStore.ServerState(i, Collections.singletonList(
+                    ServerStateStore.ChatroomState.capture(new Chatroom("#" + i, Runnable::run, 3, i))),
+                    Collections.singletonMap("Username" + i, null)));
+        }
+        Assert.assertTrue(mServerStateStore.stop(5, TimeUnit.SECONDS));
+
+        ServerStateStore.ServerState loadedState = mServerStateStore.load();
+        Assert.assertNotNull(loadedState);
+        Assert.assertEquals(99, loadedState.getSavedAtMillis());
+        Assert.assertEquals("#99", loadedState.getChatrooms().get(0).getName());
+        Assert.assertEquals(Collections.singleton("Username99"), loadedState.getUsernames().keySet());
+    }
+
+    /**
+     * Ensures that loading returns {@code null} when no state has been saved, and fails when the file is corrupt.
+     */
+    @Test
+    public void testMissingAndCorruptFiles() throws IOException {
+        Assert.assertNull(mServerStateStore.load());
+
+        Files.write(mFile, "Not a server state file.".getBytes(StandardCharsets.UTF_8));
+        try {
+            mServerStateStore.load();
+            Assert.fail("A corrupt server state file was loaded.");
+        } catch (IOException expected) {
+            // The corrupt file was rejected.
+        }
+    }
+
+}
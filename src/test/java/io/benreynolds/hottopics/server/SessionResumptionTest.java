@@ -0,0 +1,128 @@
+package io.benreynolds.hottopics.server;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code SessionResumptionTest} implements various JUnit test methods that test the functionality of the
+ * {@code SessionResumption} class. The grace periods run on a {@code TimerWheel} whose clock is advanced manually.
+ */
+public class SessionResumptionTest {
+
+    /** Interval between ticks (in milliseconds). */
+    private static final long TICK_MILLIS = 100;
+
+    /** Time (in milliseconds) that the session of a disconnected client is held for. */
+    private static final long GRACE_MILLIS = 1000;
+
+    /** Current time (in nanoseconds) reported to the {@code TimerWheel}. */
+    private final AtomicLong mNanos = new AtomicLong();
+
+    /** Clients that have been released once their grace period expired. */
+    private final List<Client> mReleased = new ArrayList<>();
+
+    /** {@code TimerWheel} that the grace periods are scheduled on (never started, advanced manually). */
+    private TimerWheel mTimerWheel;
+
+    /** {@code SessionResumption} reference that will be used in the test methods. */
+    private SessionResumption mSessionResumption;
+
+    @Before
+    public void setUp() {
+        mTimerWheel = new TimerWheel(TICK_MILLIS, 16, mNanos::get);
+        mSessionResumption = new SessionResumption(mTimerWheel, GRACE_MILLIS, mReleased::add);
+    }
+
+    /**
+     * Ensures that only clients that have been issued a resume token are parked, and that a parked client can be
+     * resumed (once) within its grace period without being released.
+     */
+    @Test
+    public void testParkedClientCanBeResumedOnce() {
+        Client client = new Client(null);
+        Assert.assertFalse(mSessionResumption.park(client));
+
+        String token = mSessionResumption.issue(client);
+        Assert.assertEquals(token, client.getResumeToken());
+        Assert.assertTrue(mSessionResumption.park(client));
+        Assert.assertTrue(mSessionResumption.isParked(client));
+
+        advanceMillis(GRACE_MILLIS / 2);
+        Assert.assertSame(client, mSessionResumption.resume(token));
+        Assert.assertNull(client.getResumeToken());
+        Assert.assertFalse(mSessionResumption.isParked(client));
+        Assert.assertNull(mSessionResumption.resume(token));
+
+        advanceMillis(GRACE_MILLIS);
+        Assert.assertTrue(mReleased.isEmpty());
+    }
+
+    /**
+     * Ensures that a parked client is released once its grace period expires, after which its token is unknown.
+     */
+    @Test
+    public void testParkedClientIsReleasedAfterGracePeriod() {
+        Client client = new Client(null);
+        String token = mSessionResumption.issue(client);
+        Assert.assertTrue(mSessionResumption.park(client));
+
+        advanceMillis(GRACE_MILLIS - TICK_MILLIS);
+        Assert.assertTrue(mReleased.isEmpty());
+
+        advanceMillis(TICK_MILLIS);
+        Assert.assertEquals(1, mReleased.size());
+        Assert.assertSame(client, mReleased.get(0));
+        Assert.assertFalse(mSessionResumption.isParked(client));
+        Assert.assertNull(mSessionResumption.resume(token));
+    }
+
+    /**
+     * Ensures that issuing a new token revokes the previous one, and that revoked clients are no longer parked.
+     */
+    @Test
+    public void testReissuedAndRevokedTokens() {
+        Client client = new Client(null);
+        String firstToken = mSessionResumption.issue(client);
+        String secondToken = mSessionResumption.issue(client);
+        Assert.assertNotEquals(firstToken, secondToken);
+        Assert.assertNull(mSessionResumption.resume(firstToken));
+
+        Assert.assertTrue(mSessionResumption.park(client));
+        mSessionResumption.revoke(client);
+        Assert.assertFalse(mSessionResumption.isParked(client));
+        Assert.assertNull(mSessionResumption.resume(secondToken));
+
+        advanceMillis(GRACE_MILLIS);
+        Assert.assertTrue(mReleased.isEmpty());
+    }
+
+    /**
+     * Ensures that resume tokens hash consistently, that different tokens have different hashes and that a hash never
+     * reveals its token.
+     */
+    @Test
+    public void testTokenHashes() {
+        String token = mSessionResumption.issue(new Client(null));
+        String otherToken = mSessionResumption.issue(new Client(null));
+
+        Assert.assertEquals(SessionResumption.hashToken(token), SessionResumption.hashToken(token));
+        Assert.assertNotEquals(SessionResumption.hashToken(token), SessionResumption.hashToken(otherToken));
+        Assert.assertFalse(SessionResumption.hashToken(token).contains(token));
+        Assert.assertNull(SessionResumption.hashToken(null));
+    }
+
+    /**
+     * Advances the {@code TimerWheel}'s clock, expiring any grace periods that have passed.
+     */
+    private void advanceMillis(final long millis) {
+        mNanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+        mTimerWheel.advance();
+    }
+
+}
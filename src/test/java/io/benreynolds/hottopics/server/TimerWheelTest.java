@@ -0,0 +1,230 @@
+package io.benreynolds.hottopics.server;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code TimerWheelTest} implements various JUnit test methods that test the functionality of the {@code TimerWheel}
+ * class and the {@code InactivityMonitor} built on it. The wheel's clock is advanced manually.
+ */
+public class TimerWheelTest {
+
+    /** Interval between ticks (in milliseconds). */
+    private static final long TICK_MILLIS = 100;
+
+    /** Amount of idle timeouts scheduled in the scale test. */
+    private static final int IDLE_TIMEOUTS = 100000;
+
+    /** Current time (in nanoseconds) reported to the {@code TimerWheel}. */
+    private final AtomicLong mNanos = new AtomicLong();
+
+    /** {@code TimerWheel} reference that will be used in the test methods (never started, advanced manually). */
+    private TimerWheel mTimerWheel;
+
+    @Before
+    public void setUp() {
+        mTimerWheel = new TimerWheel(TICK_MILLIS, 16, mNanos::get);
+    }
+
+    /**
+     * Ensures that a timeout expires once its deadline is reached, and only once.
+     */
+    @Test
+    public void testTimeoutExpiresAtDeadline() {
+        AtomicInteger runs = new AtomicInteger();
+        TimerWheel.Timeout timeout = mTimerWheel.newTimeout(runs::incrementAndGet, 1, TimeUnit.SECONDS);
+
+        advanceMillis(900);
+        Assert.assertEquals(0, mTimerWheel.advance());
+        advanceMillis(100);
+        Assert.assertEquals(1, mTimerWheel.advance());
+        Assert.assertTrue(timeout.isExpired());
+
+        // Deadlines beyond a full rotation of the wheel must not fire early either.
+        advanceMillis(5000);
+        Assert.assertEquals(0, mTimerWheel.advance());
+        Assert.assertEquals(1, runs.get());
+    }
+
+    /**
+     * Ensures that re-arming a timeout postpones it, including after it has expired.
+     */
+    @Test
+    public void testRearmPostponesTimeout() {
+        AtomicInteger runs = new AtomicInteger();
+        TimerWheel.Timeout timeout = mTimerWheel.newTimeout(runs::incrementAndGet, 1, TimeUnit.SECONDS);
+
+        for(int i = 0; i < 10; i++) {
+            advanceMillis(500);
+            timeout.rearm(mTimerWheel.now() + TimeUnit.SECONDS.toNanos(1));
+            mTimerWheel.advance();
+        }
+        Assert.assertEquals(0, runs.get());
+
+        advanceMillis(1000);
+        mTimerWheel.advance();
+        Assert.assertEquals(1, runs.get());
+
+        timeout.rearm(mTimerWheel.now() + TimeUnit.SECONDS.toNanos(3));
+        Assert.assertFalse(timeout.isExpired());
+        advanceMillis(2000);
+        mTimerWheel.advance();
+        Assert.assertEquals(1, runs.get());
+        advanceMillis(1000);
+        mTimerWheel.advance();
+        Assert.assertEquals(2, runs.get());
+    }
+
+    /**
+     * Ensures that a cancelled timeout never runs, even if it is re-armed.
+     */
+    @Test
+    public void testCancelledTimeoutDoesNotRun() {
+        AtomicInteger runs = new AtomicInteger();
+        TimerWheel.Timeout timeout = mTimerWheel.newTimeout(runs::incrementAndGet, 1, TimeUnit.SECONDS);
+        timeout.cancel();
+        timeout.rearm(mTimerWheel.now());
+
+        advanceMillis(2000);
+        Assert.assertEquals(0, mTimerWheel.advance());
+        Assert.assertTrue(timeout.isCancelled());
+        Assert.assertEquals(0, runs.get());
+    }
+
+    /**
+     * Ensures that only the timeouts that are due expire while many other timeouts are pending.
+     */
+    @Test
+    public void testOnlyDueTimeoutsExpireAmongManyIdleTimeouts() {
+        AtomicInteger runs = new AtomicInteger();
+        List<TimerWheel.Timeout> idleTimeouts = new ArrayList<>(IDLE_TIMEOUTS);
+        for(int i = 0; i < IDLE_TIMEOUTS; i++) {
+            idleTimeouts.add(mTimerWheel.newTimeout(runs::incrementAndGet, 1, TimeUnit.HOURS));
+        }
+        for(int i = 0; i < 10; i++) {
+            mTimerWheel.newTimeout(runs::incrementAndGet, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        advanceMillis(TICK_MILLIS);
+        Assert.assertEquals(10, mTimerWheel.advance());
+        Assert.assertEquals(10, runs.get());
+
+        for(TimerWheel.Timeout timeout : idleTimeouts) {
+            Assert.assertFalse(timeout.isExpired());
+        }
+    }
+
+    /**
+     * Ensures that a tick only visits the timeouts that expire: timeouts that are re-armed on every tick and cancelled
+     * timeouts are never visited.
+     */
+    @Test
+    public void testOnlyExpiringTimeoutsAreVisited() {
+        final int delayTicks = 10;
+        final int timeoutsPerTick = 100;
+        AtomicInteger runs = new AtomicInteger();
+        List<TimerWheel.Timeout> timeouts = new ArrayList<>();
+
+        // Schedule the timeouts over the course of a delay, as clients connecting over time would be.
+        for(int tick = 0; tick < delayTicks; tick++) {
+            for(int i = 0; i < timeoutsPerTick; i++) {
+                timeouts.add(mTimerWheel.newTimeout(runs::incrementAndGet, delayTicks * TICK_MILLIS,
+                        TimeUnit.MILLISECONDS));
+            }
+            advanceTick(timeouts, delayTicks);
+        }
+        Assert.assertEquals(0, mTimerWheel.getVisitedTimeouts());
+
+        for(int tick = 0; tick < 10 * delayTicks; tick++) {
+            advanceTick(timeouts, delayTicks);
+        }
+        Assert.assertEquals(0, mTimerWheel.getVisitedTimeouts());
+        Assert.assertEquals(0, runs.get());
+
+        // Once half of the timeouts stop being re-armed, they are the only timeouts visited, each once as it expires.
+        List<TimerWheel.Timeout> activeTimeouts = new ArrayList<>(timeouts.subList(0, timeouts.size() / 2));
+        for(int tick = 0; tick < 2 * delayTicks; tick++) {
+            advanceTick(activeTimeouts, delayTicks);
+        }
+        Assert.assertEquals(timeouts.size() / 2, runs.get());
+        Assert.assertEquals(runs.get(), mTimerWheel.getVisitedTimeouts());
+
+        for(TimerWheel.Timeout timeout : activeTimeouts) {
+            timeout.cancel();
+        }
+        for(int tick = 0; tick < 2 * delayTicks; tick++) {
+            advanceTick(new ArrayList<>(), delayTicks);
+        }
+        Assert.assertEquals(runs.get(), mTimerWheel.getVisitedTimeouts());
+        Assert.assertEquals(timeouts.size() / 2, runs.get());
+    }
+
+    /**
+     * Ensures that an inactive client is asked to acknowledge that it is still connected and is then disconnected,
+     * and that activity postpones both.
+     */
+    @Test
+    public void testInactivityMonitor() {
+        List<Client> acknowledgementRequests = new ArrayList<>();
+        List<Client> disconnections = new ArrayList<>();
+        InactivityMonitor inactivityMonitor = new InactivityMonitor(mTimerWheel, 1000, 500,
+                acknowledgementRequests::add, disconnections::add);
+
+        Client client = new Client(null);
+        inactivityMonitor.monitor(client);
+
+        advanceMillis(800);
+        inactivityMonitor.markActive(client);
+        Assert.assertEquals(mNanos.get(), client.getLastSeenNanos());
+        advanceMillis(800);
+        mTimerWheel.advance();
+        Assert.assertTrue(acknowledgementRequests.isEmpty());
+
+        advanceMillis(200);
+        mTimerWheel.advance();
+        Assert.assertEquals(1, acknowledgementRequests.size());
+        Assert.assertTrue(disconnections.isEmpty());
+
+        // Acknowledging re-arms both timeouts.
+        inactivityMonitor.markActive(client);
+        advanceMillis(1000);
+        mTimerWheel.advance();
+        Assert.assertEquals(2, acknowledgementRequests.size());
+        advanceMillis(500);
+        mTimerWheel.advance();
+        Assert.assertEquals(1, disconnections.size());
+
+        inactivityMonitor.stopMonitoring(client);
+        inactivityMonitor.markActive(client);
+        advanceMillis(5000);
+        mTimerWheel.advance();
+        Assert.assertEquals(2, acknowledgementRequests.size());
+        Assert.assertEquals(1, disconnections.size());
+    }
+
+    /**
+     * Advances the {@code TimerWheel} by a single tick, re-arming every timeout to expire after a delay first.
+     */
+    private void advanceTick(final List<TimerWheel.Timeout> timeouts, final int delayTicks) {
+        advanceMillis(TICK_MILLIS);
+        for(TimerWheel.Timeout timeout : timeouts) {
+            timeout.rearm(mTimerWheel.now() + TimeUnit.MILLISECONDS.toNanos(delayTicks * TICK_MILLIS));
+        }
+        mTimerWheel.advance();
+    }
+
+    /**
+     * Advances the {@code TimerWheel}'s clock.
+     */
+    private void advanceMillis(final long millis) {
+        mNanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+}
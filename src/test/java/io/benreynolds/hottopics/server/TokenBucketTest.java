@@ -0,0 +1,70 @@
+package io.benreynolds.hottopics.server;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code TokenBucketTest} implements various JUnit test methods that test the functionality of the {@code TokenBucket}
+ * class. The bucket's clock is advanced manually.
+ */
+public class TokenBucketTest {
+
+    /** Current time (in nanoseconds) reported to the {@code TokenBucket}. */
+    private final AtomicLong mNanos = new AtomicLong();
+
+    /**
+     * Ensures that the bucket allows a burst of up to its capacity and then refills at the configured rate.
+     */
+    @Test
+    public void testBurstThenRefill() {
+        TokenBucket tokenBucket = new TokenBucket(3, 4, 1, TimeUnit.MINUTES, mNanos::get);
+        for(int i = 0; i < 3; i++) {
+            Assert.assertTrue(tokenBucket.tryAcquire());
+        }
+        Assert.assertFalse(tokenBucket.tryAcquire());
+        Assert.assertEquals(TimeUnit.SECONDS.toNanos(15), tokenBucket.getNanosUntilAvailable());
+
+        mNanos.addAndGet(TimeUnit.SECONDS.toNanos(14));
+        Assert.assertFalse(tokenBucket.tryAcquire());
+        mNanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        Assert.assertTrue(tokenBucket.tryAcquire());
+
+        // Tokens never accumulate beyond the capacity.
+        mNanos.addAndGet(TimeUnit.HOURS.toNanos(1));
+        Assert.assertEquals(3, tokenBucket.getAvailableTokens());
+    }
+
+    /**
+     * Ensures that a bucket configured for the Twitter trend limit (a burst of 15, refilling 60 per 15 minutes) never
+     * allows more than 75 requests in any 15 minute window, even when requests are attempted every second.
+     */
+    @Test
+    public void testTwitterLimitIsNeverExceeded() {
+        TokenBucket tokenBucket = new TokenBucket(15, 60, 15, TimeUnit.MINUTES, mNanos::get);
+        long windowNanos = TimeUnit.MINUTES.toNanos(15);
+        Deque<Long> requests = new ArrayDeque<>();
+        int totalRequests = 0;
+
+        for(int second = 0; second < TimeUnit.HOURS.toSeconds(3); second++) {
+            mNanos.set(TimeUnit.SECONDS.toNanos(second));
+            while(!requests.isEmpty() && mNanos.get() - requests.peekFirst() >= windowNanos) {
+                requests.pollFirst();
+            }
+
+            if(tokenBucket.tryAcquire()) {
+                requests.addLast(mNanos.get());
+                totalRequests++;
+                Assert.assertTrue(requests.size() <= 75);
+            }
+        }
+
+        // The budget is also fully used: 15 up front, then 4 per minute.
+        Assert.assertEquals(15 + 4 * TimeUnit.HOURS.toMinutes(3) - 1, totalRequests, 1);
+    }
+
+}
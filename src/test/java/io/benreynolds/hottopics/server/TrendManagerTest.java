@@ -0,0 +1,257 @@
+package io.benreynolds.hottopics.server;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code TrendManagerTest} implements various JUnit test methods that test the functionality of the
+ * {@code TrendManager} class, using a fake {@code TrendSource} in place of the Twitter API.
+ */
+public class TrendManagerTest {
+
+    /** Maximum time to wait for trends to be retrieved (in seconds). */
+    private static final long TIMEOUT_SECONDS = 5;
+
+    /** Delay before the first retry of a failed fetch (in milliseconds). */
+    private static final long RETRY_BASE_DELAY_MILLIS = 10;
+
+    /** Interval long enough that it never elapses during a test (in milliseconds). */
+    private static final long NEVER_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /** Snapshots published by the {@code TrendManager}. */
+    private final LinkedBlockingQueue<TrendSnapshot> mPublishedSnapshots = new LinkedBlockingQueue<>();
+
+    /** {@code Scheduler} that the {@code TrendManager} runs on. */
+    private Scheduler mScheduler;
+
+    /** {@code TrendManager} under test, stopped after each test. */
+    private TrendManager mTrendManager;
+
+    @Before
+    public void setUp() {
+        mScheduler = new Scheduler(Scheduler.DEFAULT_THREAD_COUNT);
+    }
+
+    @After
+    public void tearDown() {
+        if(mTrendManager != null) {
+            mTrendManager.stop();
+        }
+        mScheduler.shutdown(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Ensures that failed retrievals are retried and that the snapshot is only replaced by a successful retrieval.
+     */
+    @Test
+    public void testFailedRefreshIsRetried() throws InterruptedException {
+        AtomicInteger attempts = new AtomicInteger();
+        mTrendManager = new TrendManager(woeid -> {
+            if(attempts.incrementAndGet() < 3) {
+                throw new IllegalStateException("Twitter is unavailable.");
+            }
+            return Arrays.asList("#One", "#Two");
+        }, Collections.singletonList(TrendManager.DEFAULT_WOEID), createUnlimitedBudget(), mPublishedSnapshots::add,
+                name -> 0);
+        mTrendManager.configureTimings(1, NEVER_MILLIS, RETRY_BASE_DELAY_MILLIS, RETRY_BASE_DELAY_MILLIS * 4);
+
+        Assert.assertSame(TrendSnapshot.EMPTY, mTrendManager.getSnapshot());
+        mTrendManager.start(mScheduler);
+
+        TrendSnapshot snapshot = mPublishedSnapshots.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        Assert.assertNotNull(snapshot);
+        Assert.assertEquals(3, attempts.get());
+        Assert.assertEquals(Arrays.asList("#One", "#Two"), snapshot.getNames());
+        Assert.assertSame(snapshot, mTrendManager.getSnapshot());
+    }
+
+    /**
+     * Ensures that a retrieval that does not complete within the fetch timeout is cancelled and retried, rather than
+     * stopping its location from ever being refreshed again.
+     */
+    @Test
+    public void testHungRefreshTimesOutAndIsRetried() throws InterruptedException {
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch interrupted = new CountDownLatch(1);
+        mTrendManager = new TrendManager(woeid -> {
+            if(attempts.incrementAndGet() == 1) {
+                try {
+                    new CountDownLatch(1).await();
+                }
+                catch(InterruptedException exception) {
+                    interrupted.countDown();
+                    throw exception;
+                }
+            }
+            return Collections.singletonList("#Recovered");
+        }, Collections.singletonList(TrendManager.DEFAULT_WOEID), createUnlimitedBudget(), mPublishedSnapshots::add,
+                name -> 0);
+        mTrendManager.configureTimings(1, NEVER_MILLIS, RETRY_BASE_DELAY_MILLIS, RETRY_BASE_DELAY_MILLIS * 4);
+        mTrendManager.configureFetchTimeout(RETRY_BASE_DELAY_MILLIS * 5);
+
+        mTrendManager.start(mScheduler);
+        TrendSnapshot snapshot = mPublishedSnapshots.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        Assert.assertNotNull(snapshot);
+        Assert.assertTrue(interrupted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        Assert.assertEquals(2, attempts.get());
+        Assert.assertEquals(Collections.singletonList("#Recovered"), snapshot.getNames());
+    }
+
+    /**
+     * Ensures that reading the snapshot never waits on a retrieval that is in progress.
+     */
+    @Test
+    public void testSnapshotDoesNotWaitForRetrieval() throws InterruptedException {
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        mTrendManager = new TrendManager(woeid -> {
+            fetching.countDown();
+            release.await();
+            return Collections.singletonList("#Slow");
+        }, Collections.singletonList(TrendManager.DEFAULT_WOEID), createUnlimitedBudget(), mPublishedSnapshots::add,
+                name -> 0);
+        mTrendManager.configureTimings(NEVER_MILLIS, NEVER_MILLIS, NEVER_MILLIS, NEVER_MILLIS);
+
+        mTrendManager.start(mScheduler);
+        Assert.assertTrue(fetching.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        Assert.assertSame(TrendSnapshot.EMPTY, mTrendManager.getSnapshot());
+
+        release.countDown();
+        TrendSnapshot snapshot = mPublishedSnapshots.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        Assert.assertNotNull(snapshot);
+        Assert.assertEquals(Collections.singletonList("#Slow"), snapshot.getNames());
+    }
+
+    /**
+     * Ensures that the listener is notified without holding the {@code TrendManager}, so that a slow listener does not
+     * prevent the {@code TrendManager} from being refreshed or stopped.
+     */
+    @Test
+    public void testListenerDoesNotBlockTrendManager() throws InterruptedException {
+        CountDownLatch notified = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        mTrendManager = new TrendManager(woeid -> Collections.singletonList("#Trend"),
+                Collections.singletonList(TrendManager.DEFAULT_WOEID), createUnlimitedBudget(), snapshot -> {
+                    notified.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    mPublishedSnapshots.add(snapshot);
+                }, name -> 0);
+        mTrendManager.configureTimings(NEVER_MILLIS, NEVER_MILLIS, NEVER_MILLIS, NEVER_MILLIS);
+
+        mTrendManager.start(mScheduler);
+        Assert.assertTrue(notified.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        Assert.assertEquals(Collections.singletonList("#Trend"), mTrendManager.getSnapshot().getNames());
+
+        Thread stopper = new Thread(mTrendManager::stop);
+        stopper.start();
+        stopper.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        Assert.assertFalse(stopper.isAlive());
+
+        release.countDown();
+        Assert.assertNotNull(mPublishedSnapshots.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Ensures that the trends of every location are merged (most popular location first), that the request budget is
+     * never exceeded and that the most popular location is refreshed first once the budget allows.
+     */
+    @Test
+    public void testMostPopularLocationsAreRefreshedFirstWithinBudget() throws InterruptedException {
+        AtomicLong nanos = new AtomicLong();
+        TokenBucket requestBudget = new TokenBucket(3, 1, 1, TimeUnit.MINUTES, nanos::get);
+        LinkedBlockingQueue<Integer> fetchedWoeids = new LinkedBlockingQueue<>();
+        mTrendManager = new TrendManager(woeid -> {
+            fetchedWoeids.add(woeid);
+            return Collections.singletonList("#" + woeid);
+        }, Arrays.asList(1, 2, 3, 4), requestBudget, mPublishedSnapshots::add,
+                name -> name.equals("#3") ? 10 : name.equals("#2") ? 5 : 0);
+        mTrendManager.configureTimings(NEVER_MILLIS, 0, NEVER_MILLIS, NEVER_MILLIS);
+
+        // Only three of the four locations fit within the budget, they are chosen in configured order (and fetched in
+        // parallel).
+        mTrendManager.start(mScheduler);
+        Set<Integer> initialWoeids = new HashSet<>();
+        for(int i = 0; i < 3; i++) {
+            initialWoeids.add(fetchedWoeids.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+        Assert.assertEquals(new HashSet<>(Arrays.asList(1, 2, 3)), initialWoeids);
+
+        // Fetches that complete together may be published in a single notification, so wait for the merged snapshot.
+        TrendSnapshot snapshot;
+        do {
+            snapshot = mPublishedSnapshots.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            Assert.assertNotNull(snapshot);
+        } while(snapshot.getNames().size() < 3);
+        Assert.assertEquals(Arrays.asList("#3", "#2", "#1"), mTrendManager.getSnapshot().getNames());
+
+        mTrendManager.refresh();
+        Assert.assertNull(fetchedWoeids.poll(100, TimeUnit.MILLISECONDS));
+
+        // Once a request is available, the most popular location is refreshed rather than the unfetched one.
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        mTrendManager.refresh();
+        Assert.assertEquals(Integer.valueOf(3), fetchedWoeids.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        Assert.assertNull(fetchedWoeids.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Ensures that restored trends are served immediately, and that locations are only refreshed once their restored
+     * trends are due to be refreshed.
+     */
+    @Test
+    public void testRestoredTrendsAreRefreshedWhenDue() throws InterruptedException {
+        LinkedBlockingQueue<Integer> fetchedWoeids = new LinkedBlockingQueue<>();
+        mTrendManager = new TrendManager(woeid -> {
+            fetchedWoeids.add(woeid);
+            return Collections.singletonList("#Live" + woeid);
+        }, Arrays.asList(1, 2), createUnlimitedBudget(), mPublishedSnapshots::add, name -> 0);
+        mTrendManager.configureTimings(1, NEVER_MILLIS, NEVER_MILLIS, NEVER_MILLIS);
+
+        // Location 1 has fresh restored trends, location 2 has none.
+        TrendSnapshot restored = new TrendSnapshot(Collections.singletonList("#Restored"),
+                Collections.singletonMap(1, Collections.singletonList("#Restored")), System.currentTimeMillis());
+        mTrendManager.restore(restored);
+        Assert.assertSame(restored, mTrendManager.getSnapshot());
+
+        mTrendManager.start(mScheduler);
+        Assert.assertEquals(Integer.valueOf(2), fetchedWoeids.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        Assert.assertNull(fetchedWoeids.poll(100, TimeUnit.MILLISECONDS));
+
+        TrendSnapshot snapshot = mPublishedSnapshots.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        Assert.assertNotNull(snapshot);
+        Assert.assertEquals(Arrays.asList("#Restored", "#Live2"), snapshot.getNames());
+    }
+
+    /**
+     * Ensures that configured locations are parsed, falling back to the default location.
+     */
+    @Test
+    public void testParseWoeids() {
+        Assert.assertEquals(Arrays.asList(1, 23424977), TrendManager.parseWoeids(" 1, 23424977,"));
+        Assert.assertEquals(Collections.singletonList(TrendManager.DEFAULT_WOEID), TrendManager.parseWoeids(null));
+    }
+
+    /**
+     * Returns a request budget that is never exhausted during a test.
+     */
+    private static TokenBucket createUnlimitedBudget() {
+        return new TokenBucket(Integer.MAX_VALUE, 1, 1, TimeUnit.MINUTES);
+    }
+
+}
@@ -0,0 +1,113 @@
+package io.benreynolds.hottopics.server;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code TrendSnapshotStoreTest} implements various JUnit test methods that test the functionality of the
+ * {@code TrendSnapshotStore} class.
+ */
+public class TrendSnapshotStoreTest {
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    /** File that snapshots are stored in. */
+    private Path mFile;
+
+    /** {@code TrendSnapshotStore} reference that will be used in the test methods. */
+    private TrendSnapshotStore mTrendSnapshotStore;
+
+    @Before
+    public void setUp() {
+        mFile = mTemporaryFolder.getRoot().toPath().resolve("trend-snapshot.bin");
+        mTrendSnapshotStore = new TrendSnapshotStore(mFile);
+    }
+
+    /**
+     * Ensures that a saved snapshot, including the creation times of its chatrooms, is loaded unchanged. One location
+     * trends in Japanese, whose names take several bytes per character once encoded.
+     */
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        Map<Integer, List<String>> trendsByLocation = new LinkedHashMap<>();
+        trendsByLocation.put(44418, Arrays.asList("#One", "#Two"));
+        trendsByLocation.put(1118370, Collections.singletonList("#東京"));
+        TrendSnapshot snapshot = new TrendSnapshot(Arrays.asList("#One", "#Two", "#東京"), trendsByLocation, 1234);
+
+        ChatroomRegistry chatrooms = new ChatroomRegistry();
+        Map<String, Long> creationTimes = new LinkedHashMap<>();
+        creationTimes.put("#One", 100L);
+        creationTimes.put("#Two", 200L);
+        creationTimes.put("#東京", 300L);
+        chatrooms.reconcile(snapshot.getNames(), creationTimes);
+
+        mTrendSnapshotStore.save(snapshot, chatrooms.getChatrooms());
+        TrendSnapshotStore.StoredSnapshot storedSnapshot = mTrendSnapshotStore.load();
+
+        Assert.assertNotNull(storedSnapshot);
+        Assert.assertEquals(snapshot.getNames(), storedSnapshot.getSnapshot().getNames());
+        Assert.assertEquals(trendsByLocation, storedSnapshot.getSnapshot().getTrendsByLocation());
+        Assert.assertEquals(1234, storedSnapshot.getSnapshot().getRetrievedAtMillis());
+        Assert.assertEquals(creationTimes, storedSnapshot.getCreationTimes());
+
+        // Restoring the chatrooms preserves their creation times.
+        ChatroomRegistry restored = new ChatroomRegistry();
+        restored.reconcile(storedSnapshot.getCreationTimes().keySet(), storedSnapshot.getCreationTimes());
+        Assert.assertEquals(200L, restored.get("#Two").getCreatedAtMillis());
+        Assert.assertEquals(300L, restored.get("#東京").getCreatedAtMillis());
+    }
+
+    /**
+     * Ensures that snapshots saved asynchronously are written by the time the store has been stopped, and that the
+     * latest snapshot is the one that is kept.
+     */
+    @Test
+    public void testSaveAsyncWritesLatestSnapshot() throws IOException {
+        ChatroomRegistry chatrooms = new ChatroomRegistry();
+        for(int i = 0; i < 100; i++) {
+            TrendSnapshot snapshot = new TrendSnapshot(Collections.singletonList("#" + i),
+                    Collections.singletonMap(44418, Collections.singletonList("#" + i)), i);
+            chatrooms.reconcile(snapshot.getNames());
+            mTrendSnapshotStore.saveAsync(snapshot, chatrooms.getChatrooms());
+        }
+        Assert.assertTrue(mTrendSnapshotStore.stop(5, TimeUnit.SECONDS));
+
+        TrendSnapshotStore.StoredSnapshot storedSnapshot = mTrendSnapshotStore.load();
+        Assert.assertNotNull(storedSnapshot);
+        Assert.assertEquals(Collections.singletonList("#99"), storedSnapshot.getSnapshot().getNames());
+        Assert.assertEquals(99, storedSnapshot.getSnapshot().getRetrievedAtMillis());
+        Assert.assertEquals(Collections.singleton("#99"), storedSnapshot.getCreationTimes().keySet());
+    }
+
+    /**
+     * Ensures that loading returns {@code null} when no snapshot has been saved, and fails when the file is corrupt.
+     */
+    @Test
+    public void testMissingAndCorruptFiles() throws IOException {
+        Assert.assertNull(mTrendSnapshotStore.load());
+
+        Files.write(mFile, "Not a snapshot.".getBytes(StandardCharsets.UTF_8));
+        try {
+            mTrendSnapshotStore.load();
+            Assert.fail("A corrupt snapshot was loaded.");
+        } catch (IOException expected) {
+            // The corrupt snapshot was rejected.
+        }
+    }
+
+}
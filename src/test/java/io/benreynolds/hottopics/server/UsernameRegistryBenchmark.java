@@ -0,0 +1,100 @@
+package io.benreynolds.hottopics.server;
+
+import io.benreynolds.hottopics.Measurements;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code UsernameRegistryBenchmark} measures the latency of assigning a username as the amount of connected clients
+ * grows, and compares it with the scan of every connected client that {@code UsernameRegistry} replaced.
+ */
+public class UsernameRegistryBenchmark {
+
+    /** Amount of connected clients in the small scenario. */
+    private static final int SMALL_CLIENT_COUNT = 1000;
+
+    /** Amount of connected clients in the large scenario. */
+    private static final int LARGE_CLIENT_COUNT = 100000;
+
+    /** Amount of usernames assigned when measuring assignment latency. */
+    private static final int ITERATIONS = 20000;
+
+    /** Amount of usernames checked when measuring the latency of the linear scan (which is too slow to repeat as
+     * often). */
+    private static final int LINEAR_SCAN_ITERATIONS = 50;
+
+    /**
+     * The latency of claiming a username stays flat between 1,000 and 100,000 connected clients, and is far below that
+     * of scanning every connected client.
+     */
+    @Test
+    public void benchmarkClaimLatency() {
+        long smallNanos = measureClaimNanos(createClients(SMALL_CLIENT_COUNT));
+        List<Client> largeClients = createClients(LARGE_CLIENT_COUNT);
+        long largeNanos = measureClaimNanos(largeClients);
+        long linearScanNanos = measureLinearScanNanos(largeClients);
+
+        System.out.println(String.format("Username assignment: %d clients %d ns, %d clients %d ns (linear scan %d ns).",
+                SMALL_CLIENT_COUNT, smallNanos, LARGE_CLIENT_COUNT, largeNanos, linearScanNanos));
+
+        // The bounds are loose so that the benchmark is not sensitive to the machine it is run on, a linear scan is
+        // orders of magnitude slower.
+        Assert.assertTrue(largeNanos < Math.max(smallNanos, 1000) * 10);
+        Assert.assertTrue(largeNanos < linearScanNanos);
+    }
+
+    /**
+     * Returns the average amount of nanoseconds taken to claim and release a username while the specified clients are
+     * connected.
+     */
+    private static long measureClaimNanos(final List<Client> clients) {
+        UsernameRegistry usernames = new UsernameRegistry();
+        for(Client client : clients) {
+            Assert.assertTrue(usernames.claim(client.getUsername(), client));
+        }
+
+        String[] requested = new String[ITERATIONS];
+        for(int i = 0; i < requested.length; i++) {
+            requested[i] = "Requested" + i;
+        }
+        Client client = new Client(null);
+        int[] next = new int[1];
+
+        return Measurements.measureNanos(ITERATIONS, () -> {
+            String username = requested[next[0]++ % requested.length];
+            Assert.assertTrue(usernames.claim(username, client));
+            usernames.release(username, client);
+        });
+    }
+
+    /**
+     * Returns the average amount of nanoseconds taken to check that a username is unique by comparing it against every
+     * connected client, as {@code UsernameRequestPacketHandler} previously did.
+     */
+    private static long measureLinearScanNanos(final List<Client> clients) {
+        int[] next = new int[1];
+        return Measurements.measureNanos(LINEAR_SCAN_ITERATIONS, () -> {
+            String username = "Requested" + next[0]++;
+            for(Client client : clients) {
+                Assert.assertNotEquals(username.toUpperCase(), client.getUsername().toUpperCase());
+            }
+        });
+    }
+
+    /**
+     * Returns the specified amount of clients, each of which has been assigned a username.
+     */
+    private static List<Client> createClients(final int count) {
+        List<Client> clients = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            Client client = new Client(null);
+            client.setUsername("Connected" + i);
+            clients.add(client);
+        }
+        return clients;
+    }
+
+}
@@ -0,0 +1,183 @@
+package io.benreynolds.hottopics.server;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code UsernameRegistryTest} implements various JUnit test methods that test the functionality of the
+ * {@code UsernameRegistry} class.
+ */
+public class UsernameRegistryTest {
+
+    /** Amount of connected clients in the large registry test. */
+    private static final int LARGE_CLIENT_COUNT = 100000;
+
+    /** Amount of threads competing for a username in the concurrent claim test. */
+    private static final int COMPETING_THREADS = 8;
+
+    /**
+     * Ensures that usernames are unique regardless of case.
+     */
+    @Test
+    public void testClaimIgnoresCase() {
+        UsernameRegistry usernames = new UsernameRegistry();
+        Client client = new Client(null);
+        Client otherClient = new Client(null);
+
+        Assert.assertTrue(usernames.claim("Username", client));
+        Assert.assertTrue(usernames.claim("USERNAME", client));
+        Assert.assertFalse(usernames.claim("username", otherClient));
+        Assert.assertSame(client, usernames.get("uSeRnAmE"));
+        Assert.assertEquals(1, usernames.size());
+    }
+
+    /**
+     * Ensures that a username can only be released by the client that claimed it, after which it can be claimed again.
+     */
+    @Test
+    public void testReleaseRequiresOwner() {
+        UsernameRegistry usernames = new UsernameRegistry();
+        Client client = new Client(null);
+        Client otherClient = new Client(null);
+
+        Assert.assertTrue(usernames.claim("Username", client));
+        Assert.assertFalse(usernames.release("Username", otherClient));
+        Assert.assertFalse(usernames.release(null, client));
+        Assert.assertTrue(usernames.release("username", client));
+        Assert.assertTrue(usernames.claim("Username", otherClient));
+    }
+
+    /**
+     * Ensures that a reserved username can only be claimed with the resume token it was reserved with until its
+     * reservation expires, that claimed usernames are not reserved, and that only the hashes of resume tokens are
+     * returned with the usernames.
+     */
+    @Test
+    public void testReservationsExpire() {
+        AtomicLong now = new AtomicLong();
+        UsernameRegistry usernames = new UsernameRegistry(now::get);
+        Client client = new Client(null);
+        client.setUsername("Claimed");
+        client.setResumeToken("Claimed token");
+        Client otherClient = new Client(null);
+
+        Assert.assertTrue(usernames.claim("Claimed", client));
+        Assert.assertFalse(usernames.reserve("CLAIMED", null, 1000));
+        Assert.assertTrue(usernames.reserve("Reserved", SessionResumption.hashToken("Token"), 1000));
+        Assert.assertTrue(usernames.reserve("Expiring", null, 1000));
+        Assert.assertFalse(usernames.claim("reserved", otherClient));
+        Assert.assertEquals(Arrays.asList("Claimed", "Expiring", "Reserved"), sorted(usernames.getUsernames().keySet()));
+        Assert.assertEquals(SessionResumption.hashToken("Token"), usernames.getUsernames().get("Reserved"));
+        Assert.assertEquals(SessionResumption.hashToken("Claimed token"), usernames.getUsernames().get("Claimed"));
+        Assert.assertNull(usernames.getUsernames().get("Expiring"));
+
+        Assert.assertNull(usernames.claimReservation("Other token", otherClient));
+        Assert.assertNull(usernames.claimReservation(SessionResumption.hashToken("Token"), otherClient));
+        Assert.assertEquals("Reserved", usernames.claimReservation("Token", otherClient));
+        Assert.assertSame(otherClient, usernames.get("RESERVED"));
+        Assert.assertNull(usernames.claimReservation("Token", client));
+
+        now.set(TimeUnit.MILLISECONDS.toNanos(1000));
+        Assert.assertTrue(usernames.claim("expiring", otherClient));
+    }
+
+    /**
+     * Ensures that a username can only be transferred away from the client that claimed it.
+     */
+    @Test
+    public void testTransferRequiresOwner() {
+        UsernameRegistry usernames = new UsernameRegistry();
+        Client client = new Client(null);
+        Client otherClient = new Client(null);
+
+        Assert.assertTrue(usernames.claim("Username", client));
+        Assert.assertFalse(usernames.transfer("Username", otherClient, client));
+        Assert.assertTrue(usernames.transfer("USERNAME", client, otherClient));
+        Assert.assertSame(otherClient, usernames.get("username"));
+        Assert.assertFalse(usernames.release("Username", client));
+    }
+
+    /**
+     * Ensures that exactly one of several clients simultaneously claiming the same username succeeds.
+     */
+    @Test
+    public void testConcurrentClaimHasSingleWinner() throws InterruptedException {
+        UsernameRegistry usernames = new UsernameRegistry();
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger winners = new AtomicInteger();
+
+        List<Thread> threads = new ArrayList<>();
+        for(int i = 0; i < COMPETING_THREADS; i++) {
+            String username = i % 2 == 0 ? "username" : "USERNAME";
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if(usernames.claim(username, new Client(null))) {
+                    winners.incrementAndGet();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        for(Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(1, winners.get());
+    }
+
+    /**
+     * Ensures that usernames are assigned correctly while many clients are connected: new usernames can be claimed and
+     * released, and the usernames of connected clients are refused regardless of case.
+     */
+    @Test
+    public void testClaimAmongManyConnectedClients() {
+        UsernameRegistry usernames = new UsernameRegistry();
+        List<Client> clients = createClients(LARGE_CLIENT_COUNT);
+        for(Client client : clients) {
+            Assert.assertTrue(usernames.claim(client.getUsername(), client));
+        }
+
+        Client client = new Client(null);
+        for(int i = 0; i < LARGE_CLIENT_COUNT; i += LARGE_CLIENT_COUNT / 100) {
+            Assert.assertFalse(usernames.claim(clients.get(i).getUsername().toUpperCase(), client));
+            Assert.assertTrue(usernames.claim("Requested" + i, client));
+            usernames.release("Requested" + i, client);
+        }
+        Assert.assertTrue(usernames.claim("Requested0", new Client(null)));
+    }
+
+    /**
+     * Returns the specified amount of clients, each of which has been assigned a username.
+     */
+    private static List<Client> createClients(final int count) {
+        List<Client> clients = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            Client client = new Client(null);
+            client.setUsername("Connected" + i);
+            clients.add(client);
+        }
+        return clients;
+    }
+
+    private static List<String> sorted(final Collection<String> usernames) {
+        List<String> sorted = new ArrayList<>(usernames);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+}